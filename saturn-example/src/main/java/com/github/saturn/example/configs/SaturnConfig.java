@@ -24,9 +24,12 @@
 
 package com.github.saturn.example.configs;
 
+import com.github.saturn.odata.handlers.SaturnHandlerFactory;
 import com.github.saturn.odata.metadata.SaturnEdmContext;
 import com.github.saturn.odata.metadata.SaturnEdmProvider;
+import com.github.saturn.odata.processors.BatchProcessor;
 import com.github.saturn.odata.processors.EntityProcessor;
+import com.github.saturn.odata.processors.FunctionProcessor;
 import com.github.saturn.odata.processors.PrimitiveProcessor;
 import com.github.saturn.example.controllers.SaturnServlet;
 
@@ -40,6 +43,8 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.PathMatchConfigurer;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.util.Arrays;
+
 @Configuration
 public class SaturnConfig implements WebMvcConfigurer {
 
@@ -92,6 +97,28 @@ public class SaturnConfig implements WebMvcConfigurer {
                 .initialize(saturnEdmContext, applicationContext);
     }
 
+    @Bean
+    public BatchProcessor getBatchProcessor() {
+        return new BatchProcessor()
+                .initialize(saturnEdmContext, applicationContext);
+    }
+
+    @Bean
+    public FunctionProcessor getFunctionProcessor() {
+        return new FunctionProcessor()
+                .initialize(saturnEdmContext, applicationContext);
+    }
+
+    @Bean
+    public SaturnHandlerFactory getSaturnHandlerFactory(SaturnEdmProvider saturnEdmProvider,
+                                                        PrimitiveProcessor primitiveProcessor,
+                                                        EntityProcessor entityProcessor,
+                                                        BatchProcessor batchProcessor,
+                                                        FunctionProcessor functionProcessor) throws ODataApplicationException {
+        return new SaturnHandlerFactory()
+                .initialize(saturnEdmProvider, Arrays.asList(primitiveProcessor, entityProcessor, batchProcessor, functionProcessor));
+    }
+
     @Bean
     public ServletRegistrationBean<SaturnServlet> servletRegistrationBean() {
         return new ServletRegistrationBean<>(dispatcherServlet, "/saturn-odata/*");
@@ -24,13 +24,8 @@
 
 package com.github.saturn.example.controllers;
 
-import com.github.saturn.odata.metadata.SaturnEdmProvider;
-import com.github.saturn.odata.processors.EntityProcessor;
-import com.github.saturn.odata.processors.PrimitiveProcessor;
+import com.github.saturn.odata.handlers.SaturnHandlerFactory;
 
-import org.apache.olingo.server.api.OData;
-import org.apache.olingo.server.api.ODataHttpHandler;
-import org.apache.olingo.server.api.ServiceMetadata;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import javax.servlet.ServletException;
@@ -38,30 +33,15 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-import java.util.ArrayList;
-
 @Component
 public class SaturnServlet extends HttpServlet {
 
     @Autowired
-    private SaturnEdmProvider saturnEdmProvider;
-
-    @Autowired
-    private PrimitiveProcessor primitiveProcessor;
-
-    @Autowired
-    private EntityProcessor entityProcessor;
+    private SaturnHandlerFactory saturnHandlerFactory;
 
     public void service(HttpServletRequest request, HttpServletResponse response) throws ServletException {
         try {
-            OData odata = OData.newInstance();
-            ServiceMetadata metadata = odata.createServiceMetadata(saturnEdmProvider, new ArrayList<>());
-            ODataHttpHandler handler = odata.createHandler(metadata);
-
-            handler.register(primitiveProcessor);
-            handler.register(entityProcessor);
-
-            handler.process(request, response);
+            saturnHandlerFactory.createHandler().process(request, response);
         } catch (RuntimeException e) {
             throw new ServletException(e);
         }
@@ -69,4 +69,12 @@ public @interface ODataEnumType {
      * @return UnderlyingType of the EnumType.
      */
     PrimitiveType underlyingType() default PrimitiveType.EDM_INT32;
+
+    /**
+     * An enumeration type MAY include an IsFlags attribute with value true, its members are then bit flags
+     * (1, 2, 4... by declaration order) and a value of the type may combine several of them, tested with has.
+     *
+     * @return whether the EnumType is a flags enumeration.
+     */
+    boolean isFlags() default false;
 }
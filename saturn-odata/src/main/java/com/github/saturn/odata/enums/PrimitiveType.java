@@ -52,6 +52,7 @@ public enum PrimitiveType {
     public static final Map<Class<?>, PrimitiveType> PT_BY_BT = new HashMap<>();
 
     public static final String BYTE      = "SByte";
+    public static final String UNSIGNED_BYTE = "Byte";
     public static final String INT16     = "Int16";
     public static final String INT32     = "Int32";
     public static final String INT64     = "Int64";
@@ -59,8 +60,11 @@ public enum PrimitiveType {
     public static final String DATE      = "Date";
     public static final String DECIMAL   = "Decimal";
     public static final String DOUBLE    = "Double";
+    public static final String SINGLE    = "Single";
     public static final String BOOLEAN   = "Boolean";
     public static final String DATE_TIME = "DateTimeOffset";
+    public static final String TIME_OF_DAY = "TimeOfDay";
+    public static final String DURATION  = "Duration";
 
     static {
         EDM_PT_BY_NAME.put(EDM_BYTE.type,      EdmPrimitiveTypeKind.SByte);
@@ -112,7 +116,7 @@ public enum PrimitiveType {
         PT_BY_BT.put(Float.class,         EDM_DOUBLE);
         PT_BY_BT.put(float.class,         EDM_DOUBLE);
         PT_BY_BT.put(Boolean.class,       EDM_BOOLEAN);
-        PT_BY_BT.put(boolean.class,       EDM_DOUBLE);
+        PT_BY_BT.put(boolean.class,       EDM_BOOLEAN);
         PT_BY_BT.put(LocalDateTime.class, EDM_DATE_TIME);
     }
 
@@ -0,0 +1,126 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) [2020] [He Zhang]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished
+ *  to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.saturn.odata.handlers;
+
+import com.github.saturn.odata.processors.BaseTypeProcessor;
+import com.github.saturn.odata.processors.BatchProcessor;
+import com.github.saturn.odata.processors.FunctionProcessor;
+
+import org.apache.olingo.commons.api.edm.EdmException;
+import org.apache.olingo.commons.api.edm.provider.CsdlEdmProvider;
+import org.apache.olingo.commons.api.edmx.EdmxReference;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.OData;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.ODataHttpHandler;
+import org.apache.olingo.server.api.ServiceMetadata;
+import org.apache.olingo.server.api.processor.Processor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Builds the {@link OData} instance, the {@link ServiceMetadata} and its Edm once and shares them
+ * across requests.
+ *
+ * Olingo's handler keeps per-request state (the parsed uri info and the last thrown exception),
+ * so {@link #createHandler()} still hands out a new handler for every request, but it only wraps
+ * the shared metadata and the already initialized processors.
+ */
+public class SaturnHandlerFactory {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SaturnHandlerFactory.class);
+
+    private OData odata;
+    private ServiceMetadata serviceMetadata;
+    private List<Processor> processors = Collections.emptyList();
+
+    /**
+     * Must be called once, before the factory is shared between request threads.
+     *
+     * @param edmProvider provider of the service's Edm.
+     * @param processors  processors registered on every handler, in dispatch order.
+     * @return this factory.
+     */
+    public SaturnHandlerFactory initialize(final CsdlEdmProvider edmProvider, final List<? extends Processor> processors) throws ODataApplicationException {
+        this.odata = OData.newInstance();
+        this.serviceMetadata = odata.createServiceMetadata(edmProvider, new ArrayList<EdmxReference>());
+
+        try {
+            // walk the whole schema now, so the first requests don't pay for loading the Edm.
+            int schemas = serviceMetadata.getEdm().getSchemas().size();
+            LOG.debug("{} schemas loaded into the shared service metadata.", schemas);
+        } catch (EdmException e) {
+            throw new ODataApplicationException(e.getMessage(), HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode(), Locale.ENGLISH, e);
+        }
+
+        this.processors = Collections.unmodifiableList(new ArrayList<>(processors));
+        FunctionProcessor functionProcessor = (FunctionProcessor) this.processors
+                .stream()
+                .filter(processor -> processor instanceof FunctionProcessor)
+                .findFirst()
+                .orElse(null);
+
+        for (Processor processor : this.processors) {
+            processor.init(odata, serviceMetadata);
+            if (processor instanceof BatchProcessor) {
+                // the read only parts of a batch are run concurrently, each one by its own handler.
+                ((BatchProcessor) processor).setHandlerFactory(this);
+            }
+            if (processor instanceof BaseTypeProcessor && functionProcessor != null) {
+                // function calls are routed by return type, to the entity, primitive or complex processor.
+                ((BaseTypeProcessor) processor).setFunctionProcessor(functionProcessor);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * @return a handler for a single request, backed by the shared metadata and processors.
+     */
+    public ODataHttpHandler createHandler() {
+        ODataHttpHandler handler = odata.createHandler(serviceMetadata);
+        for (Processor processor : processors) {
+            handler.register(processor);
+        }
+        return handler;
+    }
+
+    public OData getOData() {
+        return odata;
+    }
+
+    public ServiceMetadata getServiceMetadata() {
+        return serviceMetadata;
+    }
+
+    public List<Processor> getProcessors() {
+        return processors;
+    }
+}
@@ -32,4 +32,16 @@ import java.util.Map;
 public interface CustomOperation<T> {
 
     T process(Map<String, UriParameter> parameterMap, boolean isBound) throws SaturnODataException;
+
+    /**
+     * Called by the function processor with the parameters already bound to the java types of the
+     * <code>@ODataParameter</code> fields of the function, e.g. a Long, a LocalDate or an enum constant.
+     *
+     * @param parameterMap the parameters of the call as they are in the uri.
+     * @param parameters   the typed values by parameter name, null for a missing or null parameter.
+     * @return the result: a primitive value, a complex or entity object, or a collection of them.
+     */
+    default T process(Map<String, UriParameter> parameterMap, Map<String, Object> parameters, boolean isBound) throws SaturnODataException {
+        return process(parameterMap, isBound);
+    }
 }
@@ -0,0 +1,56 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) [2020] [He Zhang]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished
+ *  to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.saturn.odata.interfaces;
+
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Type-specific access to the fields of an entity or complex type, generated by the saturn-processor
+ * module so the processors don't have to go through reflection.
+ *
+ * Fields are addressed by their java name, not by the OData property name.
+ */
+public interface EntityAccessor {
+
+    Class<?> getType();
+
+    /**
+     * @return a new instance, null if the class has no accessible no-args constructor.
+     */
+    Object newInstance();
+
+    /**
+     * @param fieldName java name of the field.
+     * @return reader of the field, null if it is neither accessible nor has a getter.
+     */
+    Function<Object, Object> getter(String fieldName);
+
+    /**
+     * @param fieldName java name of the field.
+     * @return writer of the field, null if it is neither accessible nor has a setter.
+     */
+    BiConsumer<Object, Object> setter(String fieldName);
+}
@@ -24,12 +24,15 @@
 
 package com.github.saturn.odata.interfaces;
 
+import com.github.saturn.odata.uri.PageResult;
 import com.github.saturn.odata.uri.QueryOptions;
 
 import org.apache.olingo.server.api.uri.UriParameter;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 public interface EntityOperation {
 
@@ -43,17 +46,132 @@ public interface EntityOperation {
      */
     Object create(Object object, Object superObject);
 
+    /**
+     * Creates the entities of a collection POST in one batch, inside the transaction of the request, e.g. through
+     * {@link com.github.saturn.odata.utils.JpaBatchUtils#persistAll} so the inserts are sent as JDBC batches.
+     *
+     * The default implementation creates each entity through {@link #create(Object, Object)}.
+     *
+     * @param objects     edms defined by selves.
+     * @param superObject the parent entity when creating through a navigation, otherwise null.
+     * @return the created edms, in the order of the objects.
+     */
+    default List<?> createAll(List<?> objects, Object superObject) {
+        List<Object> created = new ArrayList<>(objects.size());
+        for (Object object : objects) {
+            created.add(create(object, superObject));
+        }
+        return created;
+    }
+
     Object retrieveByKey(Map<String, UriParameter> parameterMap, QueryOptions queryOptions, Object superObject);
 
     default Object retrieveByKey(Map<String, UriParameter> parameterMap) {
         return retrieveByKey(parameterMap, null, null);
     }
 
+    /**
+     * Reads the entities of several keys in one lookup, e.g. one query with an in of the keys, used to resolve
+     * the @odata.bind links of a request, grouped by entity type.
+     *
+     * The default implementation reads each key through {@link #retrieveByKey(Map)}.
+     *
+     * @param parameterMaps the keys to read.
+     * @return the entity of each key, in the order of the keys, null for a key without entity.
+     */
+    default List<?> retrieveByKeys(List<Map<String, UriParameter>> parameterMaps) {
+        List<Object> objects = new ArrayList<>(parameterMaps.size());
+        for (Map<String, UriParameter> parameterMap : parameterMaps) {
+            objects.add(retrieveByKey(parameterMap));
+        }
+        return objects;
+    }
+
     List<?> retrieveAll(QueryOptions queryOptions, Object superObject);
 
+    /**
+     * Reads one page of the collection, only the rows inside the $skip/$top window of the query options.
+     * The $top of the query options includes one row beyond the page, it tells the processor whether to
+     * emit a next link without counting the collection.
+     *
+     * The default implementation relies on {@link #retrieveAll(QueryOptions, Object)} honouring the window,
+     * e.g. through {@link com.github.saturn.odata.uri.QueryExpressionFactory}. It returns no total, the processor
+     * then derives it from the last page or calls {@link #count(QueryOptions)} when $count was requested.
+     * With {@link QueryOptions#isDefaultSkip()} or {@link QueryOptions#isDefaultTop()} the window is applied by the
+     * processor to the rows returned, from the first row or up to the last one.
+     *
+     * @param queryOptions options of the request, with the window to read.
+     * @param superObject  the parent entity when reading a navigation, otherwise null.
+     * @return the page and, optionally if $count was requested, the total count.
+     */
+    default PageResult<?> retrievePage(QueryOptions queryOptions, Object superObject) {
+        return PageResult.of(retrieveAll(queryOptions, superObject));
+    }
+
+    /**
+     * Reads the rows of the $skip/$top window one at a time, used when the collections are streamed,
+     * see {@link com.github.saturn.odata.metadata.SaturnEdmContext#isStreamedCollections()}.
+     *
+     * The default implementation streams {@link #retrieveAll(QueryOptions, Object)}, implementations reading
+     * large collections should return a stream backed by a database cursor, e.g. through
+     * {@link com.github.saturn.odata.uri.QueryExpression#launchStream}, with the fetch size of the query options.
+     * The stream is closed once the response is written.
+     *
+     * @param queryOptions options of the request, with the window to read.
+     * @param superObject  the parent entity when reading a navigation, otherwise null.
+     * @return the rows of the window.
+     */
+    default Stream<?> retrieveStream(QueryOptions queryOptions, Object superObject) {
+        return retrieveAll(queryOptions, superObject).stream();
+    }
+
+    /**
+     * Reads a navigation property of a whole page of parents in one lookup, instead of reading it from each parent,
+     * e.g. one query by the parent keys instead of one lazy association load per row.
+     *
+     * @param navigationProperty name of the navigation property of the entity type of this operation.
+     * @param parents            the rows of the page, instances of the entity type of this operation.
+     * @param queryOptions       options of the expand item, e.g. its nested $expand.
+     * @return the entity, or the list of entities of a collection, of each parent, keyed by the parent instance;
+     *         null if the navigation property can't be read in batch, it is then read from each parent.
+     */
+    default Map<Object, ?> retrieveByParents(String navigationProperty, List<?> parents, QueryOptions queryOptions) {
+        return null;
+    }
+
     Object update(Map<String, UriParameter> parameterMap, List<String> properties, Object object, Object superObject);
 
+    /**
+     * Updates several entities in one batch, inside one transaction, e.g. through
+     * {@link com.github.saturn.odata.utils.JpaBatchUtils#mergeAll}.
+     *
+     * The default implementation updates each entity through {@link #update(Map, List, Object, Object)}.
+     *
+     * @param parameterMaps the key of each entity.
+     * @param properties    the properties to write of each entity, null for all of them.
+     * @param objects       edms defined by selves, in the order of the keys.
+     * @return the updated edms, in the order of the keys.
+     */
+    default List<?> updateAll(List<Map<String, UriParameter>> parameterMaps, List<List<String>> properties, List<?> objects, Object superObject) {
+        List<Object> updated = new ArrayList<>(objects.size());
+        for (int i = 0; i < objects.size(); i++) {
+            updated.add(update(parameterMaps.get(i), properties == null ? null : properties.get(i), objects.get(i), superObject));
+        }
+        return updated;
+    }
+
     Object delete(Map<String, UriParameter> parameterMap, Object superObject);
 
+    /**
+     * Deletes several entities in one batch, inside one transaction, e.g. one delete with an in of the keys.
+     *
+     * The default implementation deletes each entity through {@link #delete(Map, Object)}.
+     */
+    default void deleteAll(List<Map<String, UriParameter>> parameterMaps, Object superObject) {
+        for (Map<String, UriParameter> parameterMap : parameterMaps) {
+            delete(parameterMap, superObject);
+        }
+    }
+
     Long count(QueryOptions queryOptions);
 }
@@ -0,0 +1,49 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) [2020] [He Zhang]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished
+ *  to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.saturn.odata.interfaces;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registry of the annotated edm classes of a module, generated at build time by the saturn-processor
+ * module and loaded with {@link java.util.ServiceLoader}.
+ *
+ * When a registry covers the default edm package, {@code SaturnEdmContext} reads its classes instead
+ * of scanning the classpath, unless {@link #getTypes()} fails because a listed class is missing.
+ */
+public interface SaturnEdmRegistry {
+
+    /**
+     * @return every class annotated with one of the edm annotations.
+     * @throws IllegalStateException if a listed class is missing, the registry is stale.
+     */
+    List<Class<?>> getTypes();
+
+    /**
+     * @return the generated accessors of the entity and complex types.
+     */
+    Map<Class<?>, EntityAccessor> getAccessors();
+}
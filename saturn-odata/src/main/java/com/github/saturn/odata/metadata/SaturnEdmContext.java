@@ -32,25 +32,36 @@ import com.github.saturn.odata.annotations.ODataComplexType;
 import com.github.saturn.odata.annotations.ODataAction;
 import com.github.saturn.odata.annotations.ODataActionImport;
 import com.github.saturn.odata.annotations.ODataFunctionImport;
+import com.github.saturn.odata.interfaces.EntityAccessor;
+import com.github.saturn.odata.interfaces.SaturnEdmRegistry;
 import com.github.saturn.odata.utils.ClassUtils;
 
 import org.apache.olingo.commons.api.http.HttpStatusCode;
 import org.apache.olingo.server.api.ODataApplicationException;
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.task.TaskDecorator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.ServiceConfigurationError;
 import java.util.Set;
 import java.util.Arrays;
 import java.util.Locale;
+import java.util.ServiceLoader;
+import java.util.concurrent.ExecutorService;
 
 public class SaturnEdmContext {
 
     private static final Logger LOG = LoggerFactory.getLogger(SaturnEdmContext.class);
 
+    private static final int DEFAULT_PARALLEL_CONVERSION_THRESHOLD = 1000;
+    private static final int DEFAULT_CONVERSION_CHUNK_SIZE = 250;
+
     private String NAME_SPACE = null;
     private String DEFAULT_EDM_PKG = null;
     private String CONTAINER_NAME = null;
@@ -58,6 +69,15 @@ public class SaturnEdmContext {
     private Integer TOP_MAX_VALUE = 0;
     private boolean DEFAULT_SKIP = true;
     private boolean DEFAULT_TOP = true;
+    private boolean USE_REGISTRY = false;
+    private boolean SKIP_TOKEN_PAGING = false;
+    private boolean STREAMED_COLLECTIONS = false;
+    private Integer FETCH_SIZE = 0;
+    private ExecutorService CONVERSION_EXECUTOR = null;
+    private Integer PARALLEL_CONVERSION_THRESHOLD = DEFAULT_PARALLEL_CONVERSION_THRESHOLD;
+    private Integer CONVERSION_CHUNK_SIZE = DEFAULT_CONVERSION_CHUNK_SIZE;
+    private ExecutorService BATCH_EXECUTOR = null;
+    private TaskDecorator BATCH_TASK_DECORATOR = null;
 
     private Map<String, Class<?>> entitySets      = new HashMap<>();
     private Map<String, Class<?>> enums           = new HashMap<>();
@@ -68,7 +88,17 @@ public class SaturnEdmContext {
     private Map<String, Class<?>> complexTypes    = new HashMap<>();
     private Map<String, Class<?>> entityTypes     = new HashMap<>();
 
+    private Map<Class<?>, EntityAccessor> accessors = new HashMap<>();
+
+    /**
+     * Loads the annotated classes of the default edm package, from the generated {@link SaturnEdmRegistry}
+     * when {@link #isUseRegistry()} and one covers the package, otherwise by scanning the classpath.
+     */
     public SaturnEdmContext initialize() throws ODataApplicationException {
+        if (USE_REGISTRY && initializeFromRegistries()) {
+            return this;
+        }
+
         ClassPathScanningCandidateComponentProvider provider = ClassUtils.createComponentScanner(Arrays.asList(
                 ODataAction.class,
                 ODataActionImport.class,
@@ -88,64 +118,104 @@ public class SaturnEdmContext {
             } catch (ClassNotFoundException e) {
                 throw new ODataApplicationException(e.getMessage(), HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode(), Locale.ENGLISH);
             }
-            ODataAction         action         = clazz.getAnnotation(ODataAction.class);
-            ODataActionImport   actionImport   = clazz.getAnnotation(ODataActionImport.class);
-            ODataComplexType    complexType    = clazz.getAnnotation(ODataComplexType.class);
-            ODataEntitySet      entitySet      = clazz.getAnnotation(ODataEntitySet.class);
-            ODataEntityType     entityType     = clazz.getAnnotation(ODataEntityType.class);
-            ODataEnumType       enumType       = clazz.getAnnotation(ODataEnumType.class);
-            ODataFunction       function       = clazz.getAnnotation(ODataFunction.class);
-            ODataFunctionImport functionImport = clazz.getAnnotation(ODataFunctionImport.class);
-
-            if (action != null) {
-                String name = action.name().isEmpty() ? clazz.getSimpleName() : action.name();
-                actions.put(name, clazz);
-                LOG.debug("Action {} is loaded...", name);
-            }
+            register(clazz);
+        }
+        return this;
+    }
 
-            if (actionImport != null) {
-                String name = actionImport.name().isEmpty() ? clazz.getSimpleName() : actionImport.name();
-                actionImports.put(name, clazz);
-                LOG.debug("Action {} is loaded...", name);
+    /**
+     * @return false if no registry covers the default edm package, or a registry lists a class which is missing;
+     *         the classpath is scanned then.
+     */
+    private boolean initializeFromRegistries() {
+        List<Class<?>> types = new ArrayList<>();
+        Map<Class<?>, EntityAccessor> registeredAccessors = new HashMap<>();
+
+        try {
+            for (SaturnEdmRegistry registry : ServiceLoader.load(SaturnEdmRegistry.class)) {
+                for (Class<?> clazz : registry.getTypes()) {
+                    if (inDefaultEdmPkg(clazz)) {
+                        types.add(clazz);
+                    }
+                }
+                for (Map.Entry<Class<?>, EntityAccessor> entry : registry.getAccessors().entrySet()) {
+                    if (inDefaultEdmPkg(entry.getKey())) {
+                        registeredAccessors.put(entry.getKey(), entry.getValue());
+                    }
+                }
+                LOG.debug("Registry {} is loaded...", registry.getClass().getName());
             }
+        } catch (IllegalStateException | ServiceConfigurationError e) {
+            LOG.warn("The edm registry can't be loaded, the classpath is scanned instead: {}", e.getMessage());
+            return false;
+        }
 
-            if (complexType != null) {
-                String name = complexType.name().isEmpty() ? clazz.getSimpleName() : complexType.name();
-                complexTypes.put(name, clazz);
-                LOG.debug("ComplexType {} is loaded...", name);
-            }
+        types.forEach(this::register);
+        accessors.putAll(registeredAccessors);
+        return !types.isEmpty();
+    }
 
-            if (entitySet != null) {
-                String name = entitySet.name().isEmpty() ? clazz.getSimpleName() : entitySet.name();
-                entitySets.put(name, clazz);
-                LOG.debug("EntitySet {} is loaded...", name);
-            }
+    private boolean inDefaultEdmPkg(final Class<?> clazz) {
+        return DEFAULT_EDM_PKG == null || clazz.getName().startsWith(DEFAULT_EDM_PKG + ".");
+    }
 
-            if (entityType != null) {
-                String name = entityType.name().isEmpty() ? clazz.getSimpleName() : entityType.name();
-                entityTypes.put(name, clazz);
-                LOG.debug("EntityType {} is loaded...", name);
-            }
+    private void register(final Class<?> clazz) {
+        ODataAction         action         = clazz.getAnnotation(ODataAction.class);
+        ODataActionImport   actionImport   = clazz.getAnnotation(ODataActionImport.class);
+        ODataComplexType    complexType    = clazz.getAnnotation(ODataComplexType.class);
+        ODataEntitySet      entitySet      = clazz.getAnnotation(ODataEntitySet.class);
+        ODataEntityType     entityType     = clazz.getAnnotation(ODataEntityType.class);
+        ODataEnumType       enumType       = clazz.getAnnotation(ODataEnumType.class);
+        ODataFunction       function       = clazz.getAnnotation(ODataFunction.class);
+        ODataFunctionImport functionImport = clazz.getAnnotation(ODataFunctionImport.class);
+
+        if (action != null) {
+            String name = action.name().isEmpty() ? clazz.getSimpleName() : action.name();
+            actions.put(name, clazz);
+            LOG.debug("Action {} is loaded...", name);
+        }
 
-            if (enumType != null) {
-                String name = enumType.name().isEmpty() ? clazz.getSimpleName() : enumType.name();
-                enums.put(name, clazz);
-                LOG.debug("EnumType {} is loaded...", name);
-            }
+        if (actionImport != null) {
+            String name = actionImport.name().isEmpty() ? clazz.getSimpleName() : actionImport.name();
+            actionImports.put(name, clazz);
+            LOG.debug("Action {} is loaded...", name);
+        }
 
-            if (function != null) {
-                String name = function.name().isEmpty() ? clazz.getSimpleName() : function.name();
-                functions.put(name, clazz);
-                LOG.debug("Function {} is loaded...", name);
-            }
+        if (complexType != null) {
+            String name = complexType.name().isEmpty() ? clazz.getSimpleName() : complexType.name();
+            complexTypes.put(name, clazz);
+            LOG.debug("ComplexType {} is loaded...", name);
+        }
 
-            if (functionImport != null) {
-                String name = functionImport.name().isEmpty() ? clazz.getSimpleName() : functionImport.name();
-                functionImports.put(name, clazz);
-                LOG.debug("FunctionImport {} is loaded...", name);
-            }
+        if (entitySet != null) {
+            String name = entitySet.name().isEmpty() ? clazz.getSimpleName() : entitySet.name();
+            entitySets.put(name, clazz);
+            LOG.debug("EntitySet {} is loaded...", name);
+        }
+
+        if (entityType != null) {
+            String name = entityType.name().isEmpty() ? clazz.getSimpleName() : entityType.name();
+            entityTypes.put(name, clazz);
+            LOG.debug("EntityType {} is loaded...", name);
+        }
+
+        if (enumType != null) {
+            String name = enumType.name().isEmpty() ? clazz.getSimpleName() : enumType.name();
+            enums.put(name, clazz);
+            LOG.debug("EnumType {} is loaded...", name);
+        }
+
+        if (function != null) {
+            String name = function.name().isEmpty() ? clazz.getSimpleName() : function.name();
+            functions.put(name, clazz);
+            LOG.debug("Function {} is loaded...", name);
+        }
+
+        if (functionImport != null) {
+            String name = functionImport.name().isEmpty() ? clazz.getSimpleName() : functionImport.name();
+            functionImports.put(name, clazz);
+            LOG.debug("FunctionImport {} is loaded...", name);
         }
-        return this;
     }
 
     public String getNameSpace() {
@@ -193,6 +263,11 @@ public class SaturnEdmContext {
         return this;
     }
 
+    /**
+     * @return true (the default) if the processor skips the $skip rows of the collection the
+     *         {@link com.github.saturn.odata.interfaces.EntityOperation} returns from its first row, false if the
+     *         operation is given the $skip of the request and only returns the rows after it.
+     */
     public boolean isDefaultSkip() {
         return DEFAULT_SKIP;
     }
@@ -202,6 +277,11 @@ public class SaturnEdmContext {
         return this;
     }
 
+    /**
+     * @return true (the default) if the processor cuts the page out of the rows the
+     *         {@link com.github.saturn.odata.interfaces.EntityOperation} returns up to the last one, false if the
+     *         operation is given the $top of the request, plus one row, and only returns those.
+     */
     public boolean isDefaultTop() {
         return DEFAULT_TOP;
     }
@@ -211,6 +291,125 @@ public class SaturnEdmContext {
         return this;
     }
 
+    /**
+     * @return true to read the edm classes from the generated registries instead of scanning the classpath, false
+     *         by default: a registry only lists the classes of the build which ran saturn-processor, the classes of the
+     *         default edm package in other jars would be missing.
+     */
+    public boolean isUseRegistry() {
+        return USE_REGISTRY;
+    }
+
+    public SaturnEdmContext setUseRegistry(boolean USE_REGISTRY) {
+        this.USE_REGISTRY = USE_REGISTRY;
+        return this;
+    }
+
+    /**
+     * @return true if the next links carry a $skiptoken of the last row instead of a $skip, the entity operations
+     *         then have to read the page through {@link com.github.saturn.odata.uri.QueryExpressionFactory}
+     *         or honour {@link com.github.saturn.odata.uri.QueryOptions#getSkipToken()} themselves.
+     */
+    public boolean isSkipTokenPaging() {
+        return SKIP_TOKEN_PAGING;
+    }
+
+    public SaturnEdmContext setSkipTokenPaging(boolean SKIP_TOKEN_PAGING) {
+        this.SKIP_TOKEN_PAGING = SKIP_TOKEN_PAGING;
+        return this;
+    }
+
+    /**
+     * @return true if the entity collections are serialized while the rows are converted, straight to the
+     *         response output stream, instead of being built and serialized in memory first.
+     */
+    public boolean isStreamedCollections() {
+        return STREAMED_COLLECTIONS;
+    }
+
+    public SaturnEdmContext setStreamedCollections(boolean STREAMED_COLLECTIONS) {
+        this.STREAMED_COLLECTIONS = STREAMED_COLLECTIONS;
+        return this;
+    }
+
+    /**
+     * @return the fetch size passed to the entity operations through {@link com.github.saturn.odata.uri.QueryOptions#getFetchSize()}
+     *         when the collections are streamed, 0 for the driver default.
+     */
+    public Integer getFetchSize() {
+        return FETCH_SIZE;
+    }
+
+    public SaturnEdmContext setFetchSize(Integer FETCH_SIZE) {
+        this.FETCH_SIZE = FETCH_SIZE;
+        return this;
+    }
+
+    /**
+     * @return the dedicated, bounded executor converting the chunks of a large page in parallel, null to convert
+     *         every page on the request thread. The rows are converted off the request thread, so the navigation
+     *         properties must not be loaded lazily by the conversion, e.g. through a jpa session.
+     */
+    public ExecutorService getConversionExecutor() {
+        return CONVERSION_EXECUTOR;
+    }
+
+    public SaturnEdmContext setConversionExecutor(ExecutorService CONVERSION_EXECUTOR) {
+        this.CONVERSION_EXECUTOR = CONVERSION_EXECUTOR;
+        return this;
+    }
+
+    /**
+     * @return number of rows from which a page is converted in parallel, when there is a conversion executor.
+     */
+    public Integer getParallelConversionThreshold() {
+        return PARALLEL_CONVERSION_THRESHOLD;
+    }
+
+    public SaturnEdmContext setParallelConversionThreshold(Integer PARALLEL_CONVERSION_THRESHOLD) {
+        this.PARALLEL_CONVERSION_THRESHOLD = PARALLEL_CONVERSION_THRESHOLD;
+        return this;
+    }
+
+    /**
+     * @return number of rows converted by one task of a parallel conversion.
+     */
+    public Integer getConversionChunkSize() {
+        return CONVERSION_CHUNK_SIZE;
+    }
+
+    public SaturnEdmContext setConversionChunkSize(Integer CONVERSION_CHUNK_SIZE) {
+        this.CONVERSION_CHUNK_SIZE = CONVERSION_CHUNK_SIZE;
+        return this;
+    }
+
+    /**
+     * @return the dedicated, bounded executor running the read only parts of a $batch concurrently, null to run
+     *         every part on the request thread.
+     */
+    public ExecutorService getBatchExecutor() {
+        return BATCH_EXECUTOR;
+    }
+
+    public SaturnEdmContext setBatchExecutor(ExecutorService BATCH_EXECUTOR) {
+        this.BATCH_EXECUTOR = BATCH_EXECUTOR;
+        return this;
+    }
+
+    /**
+     * @return decorator of the $batch parts run on the batch executor, null if none. The executor threads run outside
+     *         the servlet request: it binds what the operations need from the request thread, e.g. the entity manager
+     *         of an open-entity-manager-in-view, the request attributes or the security context.
+     */
+    public TaskDecorator getBatchTaskDecorator() {
+        return BATCH_TASK_DECORATOR;
+    }
+
+    public SaturnEdmContext setBatchTaskDecorator(TaskDecorator BATCH_TASK_DECORATOR) {
+        this.BATCH_TASK_DECORATOR = BATCH_TASK_DECORATOR;
+        return this;
+    }
+
     public Map<String, Class<?>> getEntitySets() {
         return entitySets;
     }
@@ -242,4 +441,15 @@ public class SaturnEdmContext {
     public Map<String, Class<?>> getEntityTypes() {
         return entityTypes;
     }
+
+    public Map<Class<?>, EntityAccessor> getAccessors() {
+        return accessors;
+    }
+
+    /**
+     * @return the generated accessor of the class, null if there isn't any.
+     */
+    public EntityAccessor getAccessor(final Class<?> clazz) {
+        return accessors.get(clazz);
+    }
 }
@@ -28,10 +28,8 @@ import com.github.saturn.odata.exceptions.SaturnODataException;
 import com.github.saturn.odata.utils.ClassUtils;
 import com.github.saturn.odata.utils.ODataUtils;
 import com.github.saturn.odata.annotations.ODataEntityType;
-import com.github.saturn.odata.annotations.ODataFunction;
 import com.github.saturn.odata.annotations.ODataEnumType;
 import com.github.saturn.odata.annotations.ODataComplexType;
-import com.github.saturn.odata.annotations.ODataAction;
 import com.github.saturn.odata.annotations.ODataActionImport;
 import com.github.saturn.odata.annotations.ODataFunctionImport;
 
@@ -55,6 +53,7 @@ import org.apache.olingo.commons.api.edm.provider.CsdlStructuralType;
 import org.apache.olingo.commons.api.edm.provider.CsdlEntityContainer;
 import org.apache.olingo.commons.api.edm.provider.CsdlEntityContainerInfo;
 import org.apache.olingo.commons.api.ex.ODataException;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
 import org.apache.olingo.server.api.ODataApplicationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -66,6 +65,7 @@ import java.util.Arrays;
 import java.util.Map;
 import java.util.Comparator;
 import java.util.Collections;
+import java.util.Locale;
 import java.util.stream.Collectors;
 
 public class SaturnEdmProvider extends CsdlAbstractEdmProvider {
@@ -73,19 +73,132 @@ public class SaturnEdmProvider extends CsdlAbstractEdmProvider {
     private static final Logger LOG = LoggerFactory.getLogger(SaturnEdmProvider.class);
 
     private SaturnEdmContext context;
+    private volatile SaturnEdmSnapshot snapshot;
 
+    /**
+     * Compiles every type of the context into a {@link SaturnEdmSnapshot}, the lookups below only read from it.
+     */
     public SaturnEdmProvider initialize(SaturnEdmContext context) throws ODataApplicationException {
         this.context = context;
+        try {
+            this.snapshot = compile();
+        } catch (ODataException e) {
+            throw new ODataApplicationException(e.getMessage(), HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode(), Locale.ENGLISH, e);
+        }
+        LOG.debug("Edm snapshot compiled: {} entity types, {} complex types, {} enum types.",
+                snapshot.getEntityTypes().size(), snapshot.getComplexTypes().size(), snapshot.getEnumTypes().size());
         return this;
     }
 
+    public SaturnEdmSnapshot getSnapshot() {
+        return snapshot;
+    }
+
     @Override
     public CsdlEntityType getEntityType(final FullQualifiedName entityTypeName) throws ODataException {
-        Class<?> clazz = context.getEntityTypes().get(entityTypeName.getName());
-        if (clazz == null) {
-            return null;
+        return snapshot.getEntityTypes().get(entityTypeName.getName());
+    }
+
+    @Override
+    public CsdlEntitySet getEntitySet(final FullQualifiedName entityContainer, final String entitySetName) throws ODataException {
+        return snapshot.getEntitySets().get(entitySetName);
+    }
+
+    @Override
+    public CsdlComplexType getComplexType(final FullQualifiedName complexTypeName) throws ODataException {
+        return snapshot.getComplexTypes().get(complexTypeName.getName());
+    }
+
+    @Override
+    public CsdlActionImport getActionImport(final FullQualifiedName entityContainer, final String actionImportName) throws ODataException {
+        return snapshot.getActionImports().get(actionImportName);
+    }
+
+    @Override
+    public CsdlFunctionImport getFunctionImport(final FullQualifiedName entityContainer, final String functionImportName) throws ODataException {
+        return snapshot.getFunctionImports().get(functionImportName);
+    }
+
+    @Override
+    public CsdlEnumType getEnumType(final FullQualifiedName enumTypeName) throws ODataException {
+        return snapshot.getEnumTypes().get(enumTypeName.getName());
+    }
+
+    @Override
+    public List<CsdlFunction> getFunctions(final FullQualifiedName functionName) throws ODataException {
+        CsdlFunction csdlFunction = snapshot.getFunctions().get(functionName.getName());
+        return csdlFunction == null ? null : Collections.singletonList(csdlFunction);
+    }
+
+    @Override
+    public List<CsdlAction> getActions(final FullQualifiedName actionName) throws ODataException {
+        CsdlAction csdlAction = snapshot.getActions().get(actionName.getName());
+        return csdlAction == null ? null : Collections.singletonList(csdlAction);
+    }
+
+    @Override
+    public List<CsdlSchema> getSchemas() throws ODataException {
+        return snapshot.getSchemas();
+    }
+
+    @Override
+    public CsdlEntityContainer getEntityContainer() throws ODataException {
+        return snapshot.getEntityContainer();
+    }
+
+    @Override
+    public CsdlEntityContainerInfo getEntityContainerInfo(final FullQualifiedName entityContainerName) throws ODataException {
+        FullQualifiedName container = snapshot.getContainerName();
+        if (ODataUtils.isNull(entityContainerName) || entityContainerName.equals(container)) {
+            return new CsdlEntityContainerInfo().setContainerName(container);
+        }
+        return null;
+    }
+
+    private SaturnEdmSnapshot compile() throws ODataException {
+        SaturnEdmSnapshot.Builder builder = SaturnEdmSnapshot.builder();
+
+        for (Map.Entry<String, Class<?>> entry : context.getEntityTypes().entrySet()) {
+            builder.entityType(entry.getKey(), buildEntityType(entry.getKey(), entry.getValue()));
+        }
+
+        for (Map.Entry<String, Class<?>> entry : context.getEntitySets().entrySet()) {
+            builder.entitySet(entry.getKey(), buildEntitySet(entry.getKey(), entry.getValue()));
+        }
+
+        for (Map.Entry<String, Class<?>> entry : context.getComplexTypes().entrySet()) {
+            builder.complexType(entry.getKey(), buildComplexType(entry.getValue()));
+        }
+
+        for (Map.Entry<String, Class<?>> entry : context.getEnums().entrySet()) {
+            builder.enumType(entry.getKey(), buildEnumType(entry.getKey(), entry.getValue()));
+        }
+
+        for (Map.Entry<String, Class<?>> entry : context.getActionImports().entrySet()) {
+            builder.actionImport(entry.getKey(), buildActionImport(entry.getKey(), entry.getValue()));
+        }
+
+        for (Map.Entry<String, Class<?>> entry : context.getFunctionImports().entrySet()) {
+            builder.functionImport(entry.getKey(), buildFunctionImport(entry.getKey(), entry.getValue()));
+        }
+
+        for (String name : context.getFunctions().keySet()) {
+            builder.function(name, ODataUtils.getFunction(ODataUtils.generateFQN(context.getNameSpace(), name), context));
+        }
+
+        for (String name : context.getActions().keySet()) {
+            builder.action(name, ODataUtils.getAction(ODataUtils.generateFQN(context.getNameSpace(), name), context));
         }
 
+        FullQualifiedName container = ODataUtils.generateFQN(context.getNameSpace(), context.getContainerName());
+        SaturnEdmSnapshot types = builder.build();
+        CsdlEntityContainer csdlEntityContainer = buildEntityContainer(types);
+        builder.entityContainer(container, csdlEntityContainer);
+
+        return builder.schemas(buildSchemas(types, csdlEntityContainer)).build();
+    }
+
+    private CsdlEntityType buildEntityType(final String entityTypeName, final Class<?> clazz) throws ODataException {
         ODataEntityType oDataEntityType = clazz.getAnnotation(ODataEntityType.class);
         List<Field> fields = ClassUtils.getFields(clazz);
         List<CsdlProperty> csdlProperties = ODataUtils.getCsdlProperties(fields, context.getNameSpace());
@@ -107,13 +220,7 @@ public class SaturnEdmProvider extends CsdlAbstractEdmProvider {
                 .setKey(csdlPropertyRefs);
     }
 
-    @Override
-    public CsdlEntitySet getEntitySet(final FullQualifiedName entityContainer, final String entitySetName) throws ODataException {
-        Class<?> clazz = context.getEntitySets().get(entitySetName);
-        if (clazz == null) {
-            return null;
-        }
-
+    private CsdlEntitySet buildEntitySet(final String entitySetName, final Class<?> clazz) throws ODataException {
         ODataEntityType oDataEntityType = clazz.getAnnotation(ODataEntityType.class);
         List<Field> fields = ClassUtils.getFields(clazz);
         List<CsdlNavigationPropertyBinding> csdlNavigationPropertyBindings = ODataUtils.getCsdlNavigationPropertyBindings(fields);
@@ -124,13 +231,7 @@ public class SaturnEdmProvider extends CsdlAbstractEdmProvider {
                 .setNavigationPropertyBindings(csdlNavigationPropertyBindings);
     }
 
-    @Override
-    public CsdlComplexType getComplexType(final FullQualifiedName complexTypeName) throws ODataException {
-        Class<?> clazz = context.getComplexTypes().get(complexTypeName.getName());
-        if (clazz == null) {
-            return null;
-        }
-
+    private CsdlComplexType buildComplexType(final Class<?> clazz) throws ODataException {
         ODataComplexType oDataComplexType = clazz.getAnnotation(ODataComplexType.class);
         List<Field> fields = ClassUtils.getFields(clazz);
         List<CsdlProperty> csdlProperties = ODataUtils.getCsdlProperties(fields, context.getNameSpace());
@@ -143,12 +244,7 @@ public class SaturnEdmProvider extends CsdlAbstractEdmProvider {
                 .setOpenType(oDataComplexType.openType());
     }
 
-    @Override
-    public CsdlActionImport getActionImport(final FullQualifiedName entityContainer, final String actionImportName) throws ODataException {
-        Class<?> clazz = context.getActionImports().get(actionImportName);
-        if (clazz == null) {
-            return null;
-        }
+    private CsdlActionImport buildActionImport(final String actionImportName, final Class<?> clazz) {
         ODataActionImport oDataActionImport = clazz.getAnnotation(ODataActionImport.class);
 
         return new CsdlActionImport()
@@ -157,12 +253,7 @@ public class SaturnEdmProvider extends CsdlAbstractEdmProvider {
                 .setAction(ODataUtils.generateFQN(oDataActionImport.namespace(), oDataActionImport.name()));
     }
 
-    @Override
-    public CsdlFunctionImport getFunctionImport(final FullQualifiedName entityContainer, final String functionImportName) throws ODataException {
-        Class<?> clazz = context.getFunctionImports().get(functionImportName);
-        if (clazz == null) {
-            return null;
-        }
+    private CsdlFunctionImport buildFunctionImport(final String functionImportName, final Class<?> clazz) {
         ODataFunctionImport oDataFunctionImport = clazz.getAnnotation(ODataFunctionImport.class);
 
         CsdlFunctionImport csdlFunctionImport = new CsdlFunctionImport()
@@ -176,25 +267,20 @@ public class SaturnEdmProvider extends CsdlAbstractEdmProvider {
         return csdlFunctionImport;
     }
 
-    @Override
-    public CsdlEnumType getEnumType(final FullQualifiedName enumTypeName) throws ODataException {
-        Class<?> clazz = context.getEnums().get(enumTypeName.getName());
-        if (clazz == null) {
-            return null;
-        }
-
+    private CsdlEnumType buildEnumType(final String enumTypeName, final Class<?> clazz) throws ODataException {
         if (clazz.isEnum()) {
             ODataEnumType oDataEnumType = clazz.getAnnotation(ODataEnumType.class);
             Object[] enumConstants = clazz.getEnumConstants();
             CsdlEnumType csdlEnumType = new CsdlEnumType()
-                    .setName(enumTypeName.getName())
-                    .setUnderlyingType(oDataEnumType.underlyingType().getType());
+                    .setName(enumTypeName)
+                    .setUnderlyingType(oDataEnumType.underlyingType().getType())
+                    .setFlags(oDataEnumType.isFlags());
 
             for (Object object : enumConstants) {
                 Enum<?> constant = (Enum<?>) object;
 
                 try {
-                    String ordinalVal = String.valueOf(constant.ordinal());
+                    String ordinalVal = String.valueOf(oDataEnumType.isFlags() ? 1L << constant.ordinal() : constant.ordinal());
                     CsdlEnumMember csdlEnumMember = new CsdlEnumMember()
                             .setName(object.toString())
                             .setValue(ordinalVal);
@@ -205,114 +291,34 @@ public class SaturnEdmProvider extends CsdlAbstractEdmProvider {
             }
             return csdlEnumType;
         }
-        throw new SaturnODataException("%s is not an enum type", enumTypeName.getName());
-    }
-
-    @Override
-    public List<CsdlFunction> getFunctions(final FullQualifiedName functionName) throws ODataException {
-        CsdlFunction csdlFunction = ODataUtils.getFunction(functionName, context);
-        return csdlFunction == null ? null : Collections.singletonList(csdlFunction);
+        throw new SaturnODataException("%s is not an enum type", enumTypeName);
     }
 
-    @Override
-    public List<CsdlAction> getActions(final FullQualifiedName actionName) throws ODataException {
-        CsdlAction csdlAction = ODataUtils.getAction(actionName, context);
-        return csdlAction == null ? null : Collections.singletonList(csdlAction);
-    }
-
-    @Override
-    public List<CsdlSchema> getSchemas() throws ODataException {
+    private List<CsdlSchema> buildSchemas(final SaturnEdmSnapshot types, final CsdlEntityContainer csdlEntityContainer) {
 
         CsdlSchema csdlSchema = new CsdlSchema();
         csdlSchema.setNamespace(context.getNameSpace());
 
-        List<CsdlEntityType>  csdlEntityTypeList  = new ArrayList<>();
-        List<CsdlEnumType>    csdlEnumTypeList    = new ArrayList<>();
-        List<CsdlAction>      csdlActionList      = new ArrayList<>();
-        List<CsdlFunction>    csdlFunctionList    = new ArrayList<>();
-        List<CsdlComplexType> csdlComplexTypeList = new ArrayList<>();
-
-        for (Map.Entry<String, Class<?>> entry : context.getEntityTypes().entrySet()) {
-            ODataEntityType oDataEntityType = entry.getValue().getAnnotation(ODataEntityType.class);
-            String namespace = oDataEntityType.namespace().isEmpty() ? context.getNameSpace() : oDataEntityType.namespace();
-            String name = oDataEntityType.name().isEmpty() ? entry.getValue().getSimpleName() : oDataEntityType.name();
-            csdlEntityTypeList.add(getEntityType(ODataUtils.generateFQN(namespace, name)));
-        }
-
-        for (Map.Entry<String, Class<?>> entry : context.getEnums().entrySet()) {
-            ODataEnumType oDataEnumType = entry.getValue().getAnnotation(ODataEnumType.class);
-            String namespace = oDataEnumType.namespace().isEmpty() ? context.getNameSpace() : oDataEnumType.namespace();
-            String name = oDataEnumType.name().isEmpty() ? entry.getValue().getSimpleName() : oDataEnumType.name();
-            csdlEnumTypeList.add(getEnumType(ODataUtils.generateFQN(namespace, name)));
-        }
-
-        for (Map.Entry<String, Class<?>> entry : context.getActions().entrySet()) {
-            ODataAction oDataAction = entry.getValue().getAnnotation(ODataAction.class);
-            String namespace = oDataAction.namespace().isEmpty() ? context.getNameSpace() : oDataAction.namespace();
-            String name = oDataAction.name().isEmpty() ? entry.getValue().getSimpleName() : oDataAction.name();
-            csdlActionList.add(ODataUtils.getAction(namespace, name, context));
-        }
-
-        for (Map.Entry<String, Class<?>> entry : context.getFunctions().entrySet()) {
-            ODataFunction oDataFunction = entry.getValue().getAnnotation(ODataFunction.class);
-            String namespace = oDataFunction.namespace().isEmpty() ? context.getNameSpace() : oDataFunction.namespace();
-            String name = oDataFunction.name().isEmpty() ? entry.getValue().getSimpleName() : oDataFunction.name();
-            csdlFunctionList.add(ODataUtils.getFunction(namespace, name, context));
-        }
-
-        for (Map.Entry<String, Class<?>> entry : context.getComplexTypes().entrySet()) {
-            ODataComplexType oDataComplexType = entry.getValue().getAnnotation(ODataComplexType.class);
-            String namespace = oDataComplexType.namespace().isEmpty() ? context.getNameSpace() : oDataComplexType.namespace();
-            String name = oDataComplexType.name().isEmpty() ? entry.getValue().getSimpleName() : oDataComplexType.name();
-            csdlComplexTypeList.add(getComplexType(ODataUtils.generateFQN(namespace, name)));
-        }
+        List<CsdlEntityType> csdlEntityTypeList = new ArrayList<>(types.getEntityTypes().values());
 
         csdlSchema.setEntityTypes(csdlEntityTypeList.stream().sorted(Comparator.comparing(CsdlStructuralType::getName)).collect(Collectors.toList()));
-        csdlSchema.setEnumTypes(csdlEnumTypeList);
-        csdlSchema.setActions(csdlActionList);
-        csdlSchema.setFunctions(csdlFunctionList);
-        csdlSchema.setComplexTypes(csdlComplexTypeList);
-        csdlSchema.setEntityContainer(getEntityContainer());
+        csdlSchema.setEnumTypes(new ArrayList<>(types.getEnumTypes().values()));
+        csdlSchema.setActions(new ArrayList<>(types.getActions().values()));
+        csdlSchema.setFunctions(new ArrayList<>(types.getFunctions().values()));
+        csdlSchema.setComplexTypes(new ArrayList<>(types.getComplexTypes().values()));
+        csdlSchema.setEntityContainer(csdlEntityContainer);
 
         return Collections.singletonList(csdlSchema);
     }
 
-    @Override
-    public CsdlEntityContainer getEntityContainer() throws ODataException {
+    private CsdlEntityContainer buildEntityContainer(final SaturnEdmSnapshot types) {
 
         CsdlEntityContainer csdlEntityContainer = new CsdlEntityContainer();
         csdlEntityContainer.setName(context.getContainerName());
-        FullQualifiedName container = ODataUtils.generateFQN(context.getNameSpace(), context.getContainerName());
-
-        List<CsdlEntitySet>      csdlEntitySetList      = new ArrayList<>();
-        List<CsdlActionImport>   csdlActionImportList   = new ArrayList<>();
-        List<CsdlFunctionImport> csdlFunctionImportList = new ArrayList<>();
-
-        for (Map.Entry<String, Class<?>> entry : context.getEntitySets().entrySet()) {
-            csdlEntitySetList.add(getEntitySet(container, entry.getKey()));
-        }
-
-        for (Map.Entry<String, Class<?>> entry : context.getActionImports().entrySet()) {
-            csdlActionImportList.add(getActionImport(container, entry.getKey()));
-        }
-
-        for (Map.Entry<String, Class<?>> entry : context.getFunctionImports().entrySet()) {
-            csdlFunctionImportList.add(getFunctionImport(container, entry.getKey()));
-        }
-
-        csdlEntityContainer.setEntitySets(csdlEntitySetList);
-        csdlEntityContainer.setActionImports(csdlActionImportList);
-        csdlEntityContainer.setFunctionImports(csdlFunctionImportList);
+        csdlEntityContainer.setEntitySets(new ArrayList<>(types.getEntitySets().values()));
+        csdlEntityContainer.setActionImports(new ArrayList<>(types.getActionImports().values()));
+        csdlEntityContainer.setFunctionImports(new ArrayList<>(types.getFunctionImports().values()));
 
         return csdlEntityContainer;
     }
-
-    @Override
-    public CsdlEntityContainerInfo getEntityContainerInfo(final FullQualifiedName entityContainerName) throws ODataException {
-        FullQualifiedName container = ODataUtils.generateFQN(context.getNameSpace(), context.getContainerName());
-        if (ODataUtils.isNull(entityContainerName) || entityContainerName.equals(container)) {
-            return new CsdlEntityContainerInfo().setContainerName(container);
-        }
-        return null;
-    }
 }
@@ -0,0 +1,199 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) [2020] [He Zhang]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished
+ *  to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.saturn.odata.metadata;
+
+import org.apache.olingo.commons.api.edm.FullQualifiedName;
+import org.apache.olingo.commons.api.edm.provider.CsdlAction;
+import org.apache.olingo.commons.api.edm.provider.CsdlActionImport;
+import org.apache.olingo.commons.api.edm.provider.CsdlComplexType;
+import org.apache.olingo.commons.api.edm.provider.CsdlEntityContainer;
+import org.apache.olingo.commons.api.edm.provider.CsdlEntitySet;
+import org.apache.olingo.commons.api.edm.provider.CsdlEntityType;
+import org.apache.olingo.commons.api.edm.provider.CsdlEnumType;
+import org.apache.olingo.commons.api.edm.provider.CsdlFunction;
+import org.apache.olingo.commons.api.edm.provider.CsdlFunctionImport;
+import org.apache.olingo.commons.api.edm.provider.CsdlSchema;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The compiled CSDL of a {@link SaturnEdmContext}.
+ *
+ * Every element is keyed by the name it was registered with in the context. The snapshot is
+ * built once by {@link SaturnEdmProvider#initialize(SaturnEdmContext)} and never changes
+ * afterwards, so it can be read by any number of request threads.
+ */
+public final class SaturnEdmSnapshot {
+
+    private final Map<String, CsdlEntityType>     entityTypes;
+    private final Map<String, CsdlEntitySet>      entitySets;
+    private final Map<String, CsdlComplexType>    complexTypes;
+    private final Map<String, CsdlEnumType>       enumTypes;
+    private final Map<String, CsdlFunction>       functions;
+    private final Map<String, CsdlAction>         actions;
+    private final Map<String, CsdlFunctionImport> functionImports;
+    private final Map<String, CsdlActionImport>   actionImports;
+    private final FullQualifiedName   containerName;
+    private final CsdlEntityContainer entityContainer;
+    private final List<CsdlSchema>    schemas;
+
+    private SaturnEdmSnapshot(final Builder builder) {
+        this.entityTypes     = Collections.unmodifiableMap(new LinkedHashMap<>(builder.entityTypes));
+        this.entitySets      = Collections.unmodifiableMap(new LinkedHashMap<>(builder.entitySets));
+        this.complexTypes    = Collections.unmodifiableMap(new LinkedHashMap<>(builder.complexTypes));
+        this.enumTypes       = Collections.unmodifiableMap(new LinkedHashMap<>(builder.enumTypes));
+        this.functions       = Collections.unmodifiableMap(new LinkedHashMap<>(builder.functions));
+        this.actions         = Collections.unmodifiableMap(new LinkedHashMap<>(builder.actions));
+        this.functionImports = Collections.unmodifiableMap(new LinkedHashMap<>(builder.functionImports));
+        this.actionImports   = Collections.unmodifiableMap(new LinkedHashMap<>(builder.actionImports));
+        this.containerName   = builder.containerName;
+        this.entityContainer = builder.entityContainer;
+        this.schemas         = Collections.unmodifiableList(builder.schemas);
+    }
+
+    static Builder builder() {
+        return new Builder();
+    }
+
+    public Map<String, CsdlEntityType> getEntityTypes() {
+        return entityTypes;
+    }
+
+    public Map<String, CsdlEntitySet> getEntitySets() {
+        return entitySets;
+    }
+
+    public Map<String, CsdlComplexType> getComplexTypes() {
+        return complexTypes;
+    }
+
+    public Map<String, CsdlEnumType> getEnumTypes() {
+        return enumTypes;
+    }
+
+    public Map<String, CsdlFunction> getFunctions() {
+        return functions;
+    }
+
+    public Map<String, CsdlAction> getActions() {
+        return actions;
+    }
+
+    public Map<String, CsdlFunctionImport> getFunctionImports() {
+        return functionImports;
+    }
+
+    public Map<String, CsdlActionImport> getActionImports() {
+        return actionImports;
+    }
+
+    public FullQualifiedName getContainerName() {
+        return containerName;
+    }
+
+    public CsdlEntityContainer getEntityContainer() {
+        return entityContainer;
+    }
+
+    public List<CsdlSchema> getSchemas() {
+        return schemas;
+    }
+
+    static final class Builder {
+
+        private final Map<String, CsdlEntityType>     entityTypes     = new LinkedHashMap<>();
+        private final Map<String, CsdlEntitySet>      entitySets      = new LinkedHashMap<>();
+        private final Map<String, CsdlComplexType>    complexTypes    = new LinkedHashMap<>();
+        private final Map<String, CsdlEnumType>       enumTypes       = new LinkedHashMap<>();
+        private final Map<String, CsdlFunction>       functions       = new LinkedHashMap<>();
+        private final Map<String, CsdlAction>         actions         = new LinkedHashMap<>();
+        private final Map<String, CsdlFunctionImport> functionImports = new LinkedHashMap<>();
+        private final Map<String, CsdlActionImport>   actionImports   = new LinkedHashMap<>();
+        private FullQualifiedName   containerName;
+        private CsdlEntityContainer entityContainer;
+        private List<CsdlSchema>    schemas = Collections.emptyList();
+
+        private Builder() {
+        }
+
+        Builder entityType(final String name, final CsdlEntityType entityType) {
+            entityTypes.put(name, entityType);
+            return this;
+        }
+
+        Builder entitySet(final String name, final CsdlEntitySet entitySet) {
+            entitySets.put(name, entitySet);
+            return this;
+        }
+
+        Builder complexType(final String name, final CsdlComplexType complexType) {
+            complexTypes.put(name, complexType);
+            return this;
+        }
+
+        Builder enumType(final String name, final CsdlEnumType enumType) {
+            enumTypes.put(name, enumType);
+            return this;
+        }
+
+        Builder function(final String name, final CsdlFunction function) {
+            functions.put(name, function);
+            return this;
+        }
+
+        Builder action(final String name, final CsdlAction action) {
+            actions.put(name, action);
+            return this;
+        }
+
+        Builder functionImport(final String name, final CsdlFunctionImport functionImport) {
+            functionImports.put(name, functionImport);
+            return this;
+        }
+
+        Builder actionImport(final String name, final CsdlActionImport actionImport) {
+            actionImports.put(name, actionImport);
+            return this;
+        }
+
+        Builder entityContainer(final FullQualifiedName name, final CsdlEntityContainer container) {
+            this.containerName = name;
+            this.entityContainer = container;
+            return this;
+        }
+
+        Builder schemas(final List<CsdlSchema> csdlSchemas) {
+            this.schemas = csdlSchemas;
+            return this;
+        }
+
+        SaturnEdmSnapshot build() {
+            return new SaturnEdmSnapshot(this);
+        }
+    }
+}
@@ -34,22 +34,39 @@ import com.github.saturn.odata.utils.ExceptionUtils;
 import org.apache.olingo.commons.api.edm.EdmEntitySet;
 import org.apache.olingo.commons.api.edm.EdmEntityType;
 import org.apache.olingo.server.api.uri.UriInfo;
+import org.apache.olingo.commons.api.format.ContentType;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.ODataLibraryException;
+import org.apache.olingo.server.api.ODataRequest;
+import org.apache.olingo.server.api.ODataResponse;
 import org.apache.olingo.server.api.uri.UriResource;
+import org.apache.olingo.server.api.uri.UriResourceKind;
+import org.apache.olingo.server.api.uri.queryoption.ExpandItem;
 import org.apache.olingo.server.api.uri.queryoption.ExpandOption;
 import org.apache.olingo.server.api.uri.queryoption.SelectOption;
 import org.apache.olingo.server.api.uri.UriResourceEntitySet;
 import org.apache.olingo.server.api.uri.UriResourceNavigation;
 import org.apache.olingo.server.api.uri.UriParameter;
 import org.springframework.context.ApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.stream.Collectors;
 import java.util.List;
+import java.util.Locale;
 
 public class BaseTypeProcessor extends SaturnProcessor {
 
-    protected Map<String, EntityOperation> entityOperationMap;
-    protected Map<String, CustomOperation<?>> functionMap;
+    protected Map<String, EntityOperation> entityOperationMap = new HashMap<>();
+    protected Map<String, CustomOperation<?>> functionMap = new HashMap<>();
+    protected TransactionTemplate transactionTemplate;
+    protected FunctionProcessor functionProcessor;
 
     protected UriResource getResourceFromUriInfo(UriInfo uriInfo) {
         return uriInfo.getUriResourceParts().get(uriInfo.getUriResourceParts().size() - 1);
@@ -73,6 +90,54 @@ public class BaseTypeProcessor extends SaturnProcessor {
                 });
     }
 
+    /**
+     * Runs the writes of a request in one transaction of the unique {@link PlatformTransactionManager} of the
+     * application context, if any; otherwise each {@link EntityOperation} call manages its own.
+     */
+    protected void generateTransactionTemplate(ApplicationContext applicationContext) {
+        PlatformTransactionManager transactionManager = applicationContext.getBeanProvider(PlatformTransactionManager.class).getIfUnique();
+        transactionTemplate = transactionManager == null ? null : new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Runs the writes in one transaction, rolled back when they throw.
+     */
+    protected <T> T inTransaction(TransactionalWrite<T> write) throws SaturnODataException {
+        if (transactionTemplate == null) {
+            return write.execute();
+        }
+
+        try {
+            return transactionTemplate.execute(status -> {
+                try {
+                    return write.execute();
+                } catch (SaturnODataException e) {
+                    throw new RollbackException(e);
+                }
+            });
+        } catch (RollbackException e) {
+            throw (SaturnODataException) e.getCause();
+        } catch (TransactionException e) {
+            throw new SaturnODataException(HttpStatusCode.INTERNAL_SERVER_ERROR, e.getMessage());
+        }
+    }
+
+    /**
+     * @param functionProcessor answers the calls of the functions returning the types of this processor,
+     *                          olingo routes a function call by its return type.
+     */
+    public BaseTypeProcessor setFunctionProcessor(FunctionProcessor functionProcessor) {
+        this.functionProcessor = functionProcessor;
+        return this;
+    }
+
+    protected void readFunction(ODataRequest oDataRequest, ODataResponse oDataResponse, UriInfo uriInfo, ContentType contentType) throws ODataApplicationException, ODataLibraryException {
+        if (functionProcessor == null) {
+            throw new ODataApplicationException("Haven't been implemented yet.", HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ENGLISH);
+        }
+        functionProcessor.processFunction(oDataRequest, oDataResponse, uriInfo, contentType);
+    }
+
     protected Object readByEntityOperation(UriResourceNavigation uriResourceNavigation, EdmEntitySet edmEntitySet, Object superObject, SelectOption selectOption, ExpandOption expandOption) throws SaturnODataException {
 
         // can also use EntitySet
@@ -106,4 +171,95 @@ public class BaseTypeProcessor extends SaturnProcessor {
     protected Object readByEntityOperation(UriResourceEntitySet uriResourceEntitySet) throws SaturnODataException {
         return readByEntityOperation(uriResourceEntitySet, null, null);
     }
+
+    /**
+     * Loads the expanded navigation properties of the rows of a page, level by level, through
+     * {@link EntityOperation#retrieveByParents}. The properties an operation can't load in batch are left out,
+     * they are read from each row during the conversion.
+     */
+    protected PrefetchedNavigations prefetchNavigations(List<?> parents, ExpandOption expandOption) throws SaturnODataException {
+        PrefetchedNavigations prefetched = new PrefetchedNavigations();
+        prefetchNavigations(prefetched, parents, expandOption);
+        return prefetched;
+    }
+
+    private void prefetchNavigations(PrefetchedNavigations prefetched, List<?> parents, ExpandOption expandOption) throws SaturnODataException {
+        if (parents.isEmpty() || expandOption == null) {
+            return;
+        }
+
+        EntityWritePlan plan;
+
+        try {
+            plan = getWritePlan(parents.get(0).getClass());
+        } catch (IllegalAccessException e) {
+            throw new SaturnODataException(HttpStatusCode.INTERNAL_SERVER_ERROR, e.getMessage());
+        }
+
+        EntityOperation entityOperation = entityOperationMap.get(plan.getName());
+
+        if (entityOperation == null) {
+            prefetched.markIncomplete();
+            return;
+        }
+
+        for (ExpandItem expandItem : expandOption.getExpandItems()) {
+            EntityWritePlan.NavigationPlan navigationPlan = expandItem.getResourcePath() == null ? null : expandItem
+                    .getResourcePath()
+                    .getUriResourceParts()
+                    .stream()
+                    .filter(uriResource -> uriResource.getKind().equals(UriResourceKind.navigationProperty))
+                    .findFirst()
+                    .map(uriResource -> plan.getNavigation(uriResource.getSegmentValue()))
+                    .orElse(null);
+
+            if (navigationPlan == null) {
+                prefetched.markIncomplete();
+                continue;
+            }
+
+            QueryOptions queryOptions = new QueryOptions(expandItem.getExpandOption(), expandItem.getFilterOption(),
+                    expandItem.getSelectOption(), expandItem.getOrderByOption());
+            Map<Object, ?> children = entityOperation.retrieveByParents(navigationPlan.getName(), parents, queryOptions);
+
+            if (children == null) {
+                prefetched.markIncomplete();
+                continue;
+            }
+
+            List<Object> nested = new ArrayList<>();
+
+            for (Object parent : parents) {
+                Object value = children.get(parent);
+
+                if (navigationPlan.isCollection()) {
+                    List<?> values = value == null ? Collections.emptyList() : (List<?>) value;
+                    prefetched.put(parent, navigationPlan.getName(), values);
+                    nested.addAll(values);
+                } else {
+                    prefetched.put(parent, navigationPlan.getName(), value);
+                    if (value != null) {
+                        nested.add(value);
+                    }
+                }
+            }
+            prefetchNavigations(prefetched, nested, expandItem.getExpandOption());
+        }
+    }
+
+    @FunctionalInterface
+    protected interface TransactionalWrite<T> {
+
+        T execute() throws SaturnODataException;
+    }
+
+    /**
+     * Carries a {@link SaturnODataException} out of the transaction callback, so the transaction is rolled back.
+     */
+    private static final class RollbackException extends RuntimeException {
+
+        RollbackException(final SaturnODataException cause) {
+            super(cause);
+        }
+    }
 }
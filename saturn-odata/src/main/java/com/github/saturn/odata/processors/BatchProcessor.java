@@ -0,0 +1,264 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) [2020] [He Zhang]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished
+ *  to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.saturn.odata.processors;
+
+import com.github.saturn.odata.handlers.SaturnHandlerFactory;
+import com.github.saturn.odata.metadata.SaturnEdmContext;
+
+import org.apache.olingo.commons.api.format.ContentType;
+import org.apache.olingo.commons.api.http.HttpHeader;
+import org.apache.olingo.commons.api.http.HttpMethod;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.ODataLibraryException;
+import org.apache.olingo.server.api.ODataRequest;
+import org.apache.olingo.server.api.ODataResponse;
+import org.apache.olingo.server.api.ODataServerError;
+import org.apache.olingo.server.api.batch.BatchFacade;
+import org.apache.olingo.server.api.deserializer.batch.BatchOptions;
+import org.apache.olingo.server.api.deserializer.batch.BatchRequestPart;
+import org.apache.olingo.server.api.deserializer.batch.ODataResponsePart;
+import org.apache.olingo.server.api.serializer.SerializerException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.transaction.TransactionStatus;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Processes a $batch: the consecutive read only parts are run concurrently on the batch executor of the context,
+ * each one by its own handler, and a changeset or any other part waits for the parts before it. The requests of a
+ * changeset run in one transaction, rolled back when one of them fails. The responses are in the order of the parts,
+ * a read which fails is answered by its own error response.
+ *
+ * The executor threads have none of the context of the request thread, e.g. no open-entity-manager-in-view to load
+ * a lazy association, unless the batch task decorator of the context binds it.
+ */
+public class BatchProcessor extends BaseTypeProcessor implements org.apache.olingo.server.api.processor.BatchProcessor {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BatchProcessor.class);
+
+    private static final int FIRST_ERROR_STATUS = 400;
+
+    private SaturnHandlerFactory handlerFactory;
+
+    public BatchProcessor initialize(SaturnEdmContext saturnEdmContext, ApplicationContext applicationContext) {
+        super.initialize(saturnEdmContext);
+        super.generateTransactionTemplate(applicationContext);
+        return this;
+    }
+
+    /**
+     * Called by the {@link SaturnHandlerFactory} the processor is registered on.
+     */
+    public BatchProcessor setHandlerFactory(SaturnHandlerFactory handlerFactory) {
+        this.handlerFactory = handlerFactory;
+        return this;
+    }
+
+    @Override
+    public void processBatch(BatchFacade facade, ODataRequest request, ODataResponse response) throws ODataApplicationException, ODataLibraryException {
+        String boundary = facade.extractBoundaryFromContentType(request.getHeader(HttpHeader.CONTENT_TYPE));
+        BatchOptions options = BatchOptions
+                .with()
+                .rawBaseUri(request.getRawBaseUri())
+                .rawServiceResolutionUri(request.getRawServiceResolutionUri())
+                .build();
+        List<BatchRequestPart> parts = odata.createFixedFormatDeserializer().parseBatchRequest(request.getBody(), boundary, options);
+
+        List<ODataResponsePart> responseParts = new ArrayList<>(parts.size());
+        List<Future<ODataResponsePart>> reads = new ArrayList<>();
+
+        try {
+            for (BatchRequestPart part : parts) {
+                if (isReadOnly(part)) {
+                    reads.add(submitRead(facade, part));
+                } else {
+                    // the part may depend on the parts before it, e.g. a read of the entities of a changeset.
+                    collect(reads, responseParts);
+                    responseParts.add(buffer(facade.handleBatchRequest(part)));
+                }
+            }
+            collect(reads, responseParts);
+        } finally {
+            reads.forEach(future -> future.cancel(true));
+        }
+
+        String responseBoundary = "batch_" + UUID.randomUUID();
+        response.setContent(odata.createFixedFormatSerializer().batchResponse(responseParts, responseBoundary));
+        response.setStatusCode(HttpStatusCode.ACCEPTED.getStatusCode());
+        response.setHeader(HttpHeader.CONTENT_TYPE, ContentType.MULTIPART_MIXED.toContentTypeString() + ";boundary=" + responseBoundary);
+    }
+
+    /**
+     * Runs the requests of the changeset in one transaction, rolled back and answered by the error response of
+     * the first request which fails.
+     */
+    @Override
+    public ODataResponsePart processChangeSet(BatchFacade facade, List<ODataRequest> requests) throws ODataApplicationException, ODataLibraryException {
+        TransactionStatus status = transactionTemplate == null ? null : transactionTemplate.getTransactionManager().getTransaction(transactionTemplate);
+        List<ODataResponse> responses = new ArrayList<>(requests.size());
+
+        try {
+            for (ODataRequest request : requests) {
+                ODataResponse response = facade.handleODataRequest(request);
+
+                if (response.getStatusCode() >= FIRST_ERROR_STATUS) {
+                    rollback(status);
+                    return new ODataResponsePart(response, false);
+                }
+                responses.add(response);
+            }
+        } catch (ODataApplicationException | ODataLibraryException | RuntimeException e) {
+            rollback(status);
+            throw e;
+        }
+
+        if (status != null) {
+            transactionTemplate.getTransactionManager().commit(status);
+        }
+        return new ODataResponsePart(responses, true);
+    }
+
+    private void rollback(TransactionStatus status) {
+        if (status != null) {
+            transactionTemplate.getTransactionManager().rollback(status);
+        }
+    }
+
+    private static boolean isReadOnly(BatchRequestPart part) {
+        return !part.isChangeSet() && part.getRequests().size() == 1 && part.getRequests().get(0).getMethod() == HttpMethod.GET;
+    }
+
+    /**
+     * @return the response of the read, run on the batch executor when there is one and it accepts it.
+     */
+    private Future<ODataResponsePart> submitRead(BatchFacade facade, BatchRequestPart part) throws ODataApplicationException, ODataLibraryException {
+        ExecutorService executor = saturnEdmContext.getBatchExecutor();
+
+        ODataRequest request = part.getRequests().get(0);
+
+        if (executor != null && handlerFactory != null) {
+            TaskDecorator decorator = saturnEdmContext.getBatchTaskDecorator();
+            FutureTask<ODataResponsePart> task = new FutureTask<>(() -> read(request));
+
+            try {
+                executor.execute(decorator == null ? task : decorator.decorate(task));
+                return task;
+            } catch (RejectedExecutionException e) {
+                LOG.debug("Batch part run on the request thread, the batch executor rejected it.");
+            }
+        }
+
+        try {
+            return CompletableFuture.completedFuture(buffer(facade.handleBatchRequest(part)));
+        } catch (RuntimeException e) {
+            return CompletableFuture.completedFuture(error(request, e));
+        }
+    }
+
+    private ODataResponsePart read(ODataRequest request) {
+        try {
+            ODataResponse response = handlerFactory.createHandler().process(request);
+            String contentId = request.getHeader(HttpHeader.CONTENT_ID);
+
+            if (contentId != null) {
+                response.setHeader(HttpHeader.CONTENT_ID, contentId);
+            }
+            return buffer(new ODataResponsePart(response, false));
+        } catch (RuntimeException e) {
+            return error(request, e);
+        }
+    }
+
+    /**
+     * @return the 500 response of a read which failed, e.g. while its streamed content was written.
+     */
+    private ODataResponsePart error(ODataRequest request, RuntimeException e) {
+        LOG.error("Batch part {} failed.", request.getRawODataPath(), e);
+        ODataResponse response = new ODataResponse();
+        response.setStatusCode(HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode());
+
+        try {
+            ODataServerError serverError = new ODataServerError()
+                    .setStatusCode(HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode())
+                    .setMessage(e.getMessage())
+                    .setLocale(Locale.ENGLISH);
+            response.setContent(odata.createSerializer(ContentType.APPLICATION_JSON).error(serverError).getContent());
+            response.setHeader(HttpHeader.CONTENT_TYPE, ContentType.APPLICATION_JSON.toContentTypeString());
+        } catch (SerializerException serializerException) {
+            LOG.error(serializerException.getMessage(), serializerException);
+        }
+
+        String contentId = request.getHeader(HttpHeader.CONTENT_ID);
+
+        if (contentId != null) {
+            response.setHeader(HttpHeader.CONTENT_ID, contentId);
+        }
+        return new ODataResponsePart(response, false);
+    }
+
+    private static void collect(List<Future<ODataResponsePart>> reads, List<ODataResponsePart> responseParts) throws ODataApplicationException {
+        try {
+            for (Future<ODataResponsePart> read : reads) {
+                responseParts.add(read.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ODataApplicationException(e.getMessage(), HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode(), Locale.ENGLISH);
+        } catch (ExecutionException e) {
+            throw new ODataApplicationException(e.getCause().getMessage(), HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode(), Locale.ENGLISH, e.getCause());
+        }
+        reads.clear();
+    }
+
+    /**
+     * Writes the streamed responses of the part, e.g. a streamed entity collection, so they are read by the
+     * thread of the part and can be serialized into the batch response.
+     */
+    private static ODataResponsePart buffer(ODataResponsePart part) {
+        for (ODataResponse response : part.getResponses()) {
+            if (response.getContent() == null && response.getODataContent() != null) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                response.getODataContent().write(out);
+                response.setContent(new ByteArrayInputStream(out.toByteArray()));
+            }
+        }
+        return part;
+    }
+}
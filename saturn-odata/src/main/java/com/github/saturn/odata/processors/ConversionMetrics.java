@@ -0,0 +1,96 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) [2020] [He Zhang]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished
+ *  to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.saturn.odata.processors;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the conversion of the entity collection pages, sequential and parallel apart,
+ * to compare their cost per row.
+ */
+public final class ConversionMetrics {
+
+    private final LongAdder sequentialPages = new LongAdder();
+    private final LongAdder sequentialRows = new LongAdder();
+    private final LongAdder sequentialNanos = new LongAdder();
+    private final LongAdder parallelPages = new LongAdder();
+    private final LongAdder parallelRows = new LongAdder();
+    private final LongAdder parallelNanos = new LongAdder();
+
+    void record(final boolean parallel, final int rows, final long nanos) {
+        (parallel ? parallelPages : sequentialPages).increment();
+        (parallel ? parallelRows : sequentialRows).add(rows);
+        (parallel ? parallelNanos : sequentialNanos).add(nanos);
+    }
+
+    public long getSequentialPages() {
+        return sequentialPages.sum();
+    }
+
+    public long getSequentialRows() {
+        return sequentialRows.sum();
+    }
+
+    public long getParallelPages() {
+        return parallelPages.sum();
+    }
+
+    public long getParallelRows() {
+        return parallelRows.sum();
+    }
+
+    /**
+     * @return average wall clock time of the conversion of a row of a page converted on the request thread.
+     */
+    public double getSequentialNanosPerRow() {
+        long rows = sequentialRows.sum();
+        return rows == 0 ? 0 : (double) sequentialNanos.sum() / rows;
+    }
+
+    /**
+     * @return average wall clock time of the conversion of a row of a page converted in parallel.
+     */
+    public double getParallelNanosPerRow() {
+        long rows = parallelRows.sum();
+        return rows == 0 ? 0 : (double) parallelNanos.sum() / rows;
+    }
+
+    /**
+     * @return how many times faster a row of a parallel page was converted, 0 until both kinds of pages were converted.
+     */
+    public double getSpeedup() {
+        double parallel = getParallelNanosPerRow();
+        double sequential = getSequentialNanosPerRow();
+        return parallel == 0 || sequential == 0 ? 0 : sequential / parallel;
+    }
+
+    @Override
+    public String toString() {
+        return "ConversionMetrics [sequential = " + getSequentialRows() + " rows in "
+                + TimeUnit.NANOSECONDS.toMillis(sequentialNanos.sum()) + " ms, parallel = " + getParallelRows() + " rows in "
+                + TimeUnit.NANOSECONDS.toMillis(parallelNanos.sum()) + " ms, speedup = " + getSpeedup() + "]";
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) [2020] [He Zhang]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished
+ *  to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.saturn.odata.processors;
+
+import com.github.saturn.odata.exceptions.SaturnODataException;
+
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.EntityIterator;
+import org.apache.olingo.commons.api.ex.ODataRuntimeException;
+import org.apache.olingo.server.api.uri.queryoption.ExpandOption;
+import org.apache.olingo.server.api.uri.queryoption.SelectOption;
+
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Converts the rows of a read into olingo entities one at a time, while the streamed serializer
+ * writes them to the response, so no entity collection is held in memory. With a {@link Prefetcher}
+ * the rows are read by chunks, and the navigation properties of each chunk are loaded in batch.
+ */
+class EntityObjectIterator extends EntityIterator {
+
+    private final SaturnProcessor processor;
+    private final Iterator<?> objects;
+    private final int limit;
+    private final ExpandTree expandTree;
+    private final SelectOption selectOption;
+    private final Integer count;
+    private final NextLink nextLink;
+
+    private final Deque<Object> buffer = new ArrayDeque<>();
+    private Prefetcher prefetcher = null;
+    private int chunkSize = 1;
+    private PrefetchedNavigations prefetched = null;
+
+    private int read = 0;
+    private int rows = 0;
+    private Object last = null;
+
+    EntityObjectIterator(final SaturnProcessor processor, final Iterator<?> objects, final int limit, final ExpandOption expandOption,
+                         final SelectOption selectOption, final Integer count, final NextLink nextLink) {
+        this.processor = processor;
+        this.objects = objects;
+        this.limit = limit;
+        this.expandTree = ExpandTree.compile(expandOption);
+        this.selectOption = selectOption;
+        this.count = count;
+        this.nextLink = nextLink;
+    }
+
+    /**
+     * @param prefetcher loads the navigation properties of each chunk of rows.
+     * @param chunkSize  number of rows of a chunk.
+     */
+    EntityObjectIterator prefetch(final Prefetcher prefetcher, final int chunkSize) {
+        this.prefetcher = prefetcher;
+        this.chunkSize = Math.max(1, chunkSize);
+        return this;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !buffer.isEmpty() || (read < limit && objects.hasNext());
+    }
+
+    @Override
+    public Entity next() {
+        try {
+            if (buffer.isEmpty()) {
+                readChunk();
+            }
+            last = buffer.remove();
+            rows++;
+
+            return processor.fromObject2Entity(last, expandTree, selectOption, prefetched);
+        } catch (SaturnODataException | IllegalAccessException e) {
+            throw new ODataRuntimeException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Integer getCount() {
+        return count;
+    }
+
+    /**
+     * The serializer asks for the next link once the rows are written, so it is generated from the rows seen
+     * and the row read beyond the limit, if any.
+     */
+    @Override
+    public URI getNext() {
+        try {
+            return nextLink.generate(rows, last, read >= limit && objects.hasNext());
+        } catch (SaturnODataException e) {
+            throw new ODataRuntimeException(e.getMessage(), e);
+        }
+    }
+
+    private void readChunk() throws SaturnODataException {
+        List<Object> chunk = new ArrayList<>();
+
+        while (chunk.size() < chunkSize && read < limit && objects.hasNext()) {
+            chunk.add(objects.next());
+            read++;
+        }
+        prefetched = prefetcher == null ? null : prefetcher.prefetch(chunk);
+        buffer.addAll(chunk);
+    }
+
+    /**
+     * Loads the navigation properties of a chunk of rows.
+     */
+    interface Prefetcher {
+
+        PrefetchedNavigations prefetch(List<?> rows) throws SaturnODataException;
+    }
+
+    /**
+     * Generates the link of the next page from the number of rows written, the last one and whether more rows follow.
+     */
+    interface NextLink {
+
+        URI generate(int rows, Object last, boolean hasMore) throws SaturnODataException;
+    }
+}
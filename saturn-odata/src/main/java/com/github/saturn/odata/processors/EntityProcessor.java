@@ -28,37 +28,50 @@ import com.github.saturn.odata.annotations.ODataEntityType;
 import com.github.saturn.odata.exceptions.SaturnODataException;
 import com.github.saturn.odata.interfaces.EntityOperation;
 import com.github.saturn.odata.metadata.SaturnEdmContext;
+import com.github.saturn.odata.uri.PageResult;
 import com.github.saturn.odata.uri.QueryOptions;
+import com.github.saturn.odata.uri.SkipToken;
 import com.github.saturn.odata.utils.ExceptionUtils;
 import com.github.saturn.odata.utils.StringUtils;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import org.apache.olingo.commons.api.data.ContextURL;
 import org.apache.olingo.commons.api.data.Entity;
 import org.apache.olingo.commons.api.data.EntityCollection;
+import org.apache.olingo.commons.api.data.Property;
 import org.apache.olingo.commons.api.edm.EdmEntitySet;
 import org.apache.olingo.commons.api.edm.EdmEntityType;
 import org.apache.olingo.commons.api.edm.EdmNavigationProperty;
 import org.apache.olingo.commons.api.format.ContentType;
 import org.apache.olingo.commons.api.http.HttpHeader;
+import org.apache.olingo.commons.api.http.HttpMethod;
 import org.apache.olingo.commons.api.http.HttpStatusCode;
 import org.apache.olingo.server.api.ODataApplicationException;
 import org.apache.olingo.server.api.ODataLibraryException;
 import org.apache.olingo.server.api.ODataRequest;
 import org.apache.olingo.server.api.ODataResponse;
+import org.apache.olingo.server.api.deserializer.ODataDeserializer;
 import org.apache.olingo.server.api.processor.EntityCollectionProcessor;
 import org.apache.olingo.server.api.serializer.EntitySerializerOptions;
 import org.apache.olingo.server.api.serializer.ODataSerializer;
 import org.apache.olingo.server.api.serializer.SerializerException;
 import org.apache.olingo.server.api.serializer.SerializerResult;
+import org.apache.olingo.server.api.serializer.SerializerStreamResult;
 import org.apache.olingo.server.api.serializer.EntityCollectionSerializerOptions;
 import org.apache.olingo.server.api.uri.UriInfo;
+import org.apache.olingo.server.api.uri.UriParameter;
 import org.apache.olingo.server.api.uri.UriResource;
 import org.apache.olingo.server.api.uri.UriResourceEntitySet;
+import org.apache.olingo.server.api.uri.UriResourceFunction;
 import org.apache.olingo.server.api.uri.UriResourceNavigation;
 import org.apache.olingo.server.api.uri.queryoption.ExpandOption;
 import org.apache.olingo.server.api.uri.queryoption.SelectOption;
 import org.apache.olingo.server.api.uri.queryoption.FilterOption;
 import org.apache.olingo.server.api.uri.queryoption.SkipOption;
+import org.apache.olingo.server.api.uri.queryoption.SkipTokenOption;
+import org.apache.olingo.server.api.uri.queryoption.OrderByItem;
 import org.apache.olingo.server.api.uri.queryoption.OrderByOption;
 import org.apache.olingo.server.api.uri.queryoption.CountOption;
 import org.apache.olingo.server.api.uri.queryoption.TopOption;
@@ -67,23 +80,47 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationContext;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Optional;
 import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 public class EntityProcessor extends BaseTypeProcessor implements org.apache.olingo.server.api.processor.EntityProcessor, EntityCollectionProcessor {
 
     private static final Logger LOG = LoggerFactory.getLogger(EntityProcessor.class);
 
+    // rows of a streamed collection whose navigation properties are loaded together, without a fetch size.
+    private static final int PREFETCH_CHUNK_SIZE = 100;
+
+    private static final int BODY_BUFFER_SIZE = 8192;
+
+    private static final String VALUE = "value";
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final ConversionMetrics conversionMetrics = new ConversionMetrics();
+
     public EntityProcessor initialize(SaturnEdmContext saturnEdmContext, ApplicationContext applicationContext) {
         super.initialize(saturnEdmContext);
         super.generateOperationMap(entityOperationMap, functionMap, applicationContext);
+        super.generateTransactionTemplate(applicationContext);
         return this;
     }
 
@@ -103,6 +140,8 @@ public class EntityProcessor extends BaseTypeProcessor implements org.apache.oli
             } catch (SaturnODataException e) {
                 LOG.error(e.getMessage());
             }
+        } else if (resource instanceof UriResourceFunction) {
+            readFunction(oDataRequest, oDataResponse, uriInfo, contentType);
         } else {
             throw new ODataApplicationException("Haven't been implemented yet.", HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ENGLISH);
         }
@@ -195,7 +234,7 @@ public class EntityProcessor extends BaseTypeProcessor implements org.apache.oli
         ExceptionUtils.assertNotNull(object, ODataEntityType.class.getSimpleName());
 
         try {
-            entity = fromObject2Entity(object, expandOption);
+            entity = fromObject2Entity(object, expandOption, selectOption);
         } catch (IllegalAccessException e) {
             throw new SaturnODataException(HttpStatusCode.INTERNAL_SERVER_ERROR, e.getMessage());
         }
@@ -236,19 +275,230 @@ public class EntityProcessor extends BaseTypeProcessor implements org.apache.oli
         oDataResponse.setStatusCode(HttpStatusCode.OK.getStatusCode());
     }
 
+    /**
+     * Creates the posted entity, or all the entities of a posted collection ({@code {"value": [...]}}) through one
+     * {@link EntityOperation#createAll} in one transaction, so the inserts can be sent as JDBC batches.
+     */
     @Override
-    public void createEntity(ODataRequest oDataRequest, ODataResponse oDataResponse, UriInfo uriInfo, ContentType contentType, ContentType contentType1) throws ODataApplicationException, ODataLibraryException {
+    public void createEntity(ODataRequest oDataRequest, ODataResponse oDataResponse, UriInfo uriInfo, ContentType requestFormat, ContentType responseFormat) throws ODataApplicationException, ODataLibraryException {
+        UriResource resource = getResourceFromUriInfo(uriInfo);
+
+        if (uriInfo.getUriResourceParts().size() != 1 || !(resource instanceof UriResourceEntitySet)) {
+            throw new ODataApplicationException("Haven't been implemented yet.", HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ENGLISH);
+        }
+
+        try {
+            createEntities(oDataRequest, oDataResponse, (UriResourceEntitySet) resource, requestFormat, responseFormat);
+        } catch (SaturnODataException e) {
+            throw toApplicationException(e);
+        }
+    }
+
+    private void createEntities(ODataRequest oDataRequest, ODataResponse oDataResponse, UriResourceEntitySet uriResourceEntitySet,
+                                ContentType requestFormat, ContentType responseFormat) throws SaturnODataException, ODataLibraryException {
+        EdmEntitySet edmEntitySet = uriResourceEntitySet.getEntitySet();
+        EdmEntityType edmEntityType = edmEntitySet.getEntityType();
+        EntityOperation entityOperation = entityOperationMap.get(edmEntityType.getName());
+        ExceptionUtils.assertNotNull(entityOperation, EntityOperation.class.getSimpleName(), edmEntityType.getName());
+
+        byte[] body = readBody(oDataRequest.getBody());
+        boolean collection = isCollectionPayload(body, requestFormat, edmEntityType);
+        ODataDeserializer deserializer = odata.createDeserializer(requestFormat, getServiceMetadata());
+        List<Entity> reqEntities = collection
+                ? deserializer.entityCollection(new ByteArrayInputStream(body), edmEntityType).getEntityCollection().getEntities()
+                : Collections.singletonList(deserializer.entity(new ByteArrayInputStream(body), edmEntityType).getEntity());
+
+        fromNaviBindings2NaviLinks(reqEntities, entityOperationMap, oDataRequest.getRawBaseUri() + "/");
+        List<Object> objects = fromEntities2Objects(reqEntities, edmEntityType);
+
+        List<?> created = inTransaction(() -> collection
+                ? entityOperation.createAll(objects, null)
+                : Collections.singletonList(entityOperation.create(objects.get(0), null)));
+
+        List<Entity> entities = new ArrayList<>(created.size());
+        try {
+            for (Object object : created) {
+                entities.add(fromObject2Entity(object));
+            }
+        } catch (IllegalAccessException e) {
+            throw new SaturnODataException(HttpStatusCode.INTERNAL_SERVER_ERROR, e.getMessage());
+        }
+
+        ContextURL.Builder contextURL;
+
+        try {
+            contextURL = ContextURL.with().serviceRoot(new URI(saturnEdmContext.getServiceRoot())).entitySet(edmEntitySet);
+        } catch (URISyntaxException e) {
+            throw new SaturnODataException(HttpStatusCode.INTERNAL_SERVER_ERROR, e.getMessage());
+        }
 
+        ODataSerializer oDataSerializer = odata.createSerializer(responseFormat);
+        SerializerResult serializerResult;
+
+        if (collection) {
+            EntityCollection entityCollection = new EntityCollection();
+            entityCollection.getEntities().addAll(entities);
+            serializerResult = oDataSerializer.entityCollection(getServiceMetadata(), edmEntityType, entityCollection,
+                    EntityCollectionSerializerOptions.with().contextURL(contextURL.build()).build());
+        } else {
+            serializerResult = oDataSerializer.entity(getServiceMetadata(), edmEntityType, entities.get(0),
+                    EntitySerializerOptions.with().contextURL(contextURL.suffix(ContextURL.Suffix.ENTITY).build()).build());
+            oDataResponse.setHeader(HttpHeader.LOCATION,
+                    oDataRequest.getRawBaseUri() + "/" + odata.createUriHelper().buildCanonicalURL(edmEntitySet, entities.get(0)));
+        }
+
+        oDataResponse.setContent(serializerResult.getContent());
+        oDataResponse.setStatusCode(HttpStatusCode.CREATED.getStatusCode());
+        oDataResponse.setHeader(HttpHeader.CONTENT_TYPE, responseFormat.toContentTypeString());
     }
 
+    /**
+     * Replaces the entity (PUT), or only writes the properties of the payload (PATCH): the names of its structural
+     * properties are passed to {@link EntityOperation#update}, e.g. to {@code QueryExpression.launchUpdate} which
+     * updates only their columns. The entities bound by @odata.bind are set on the navigation fields of the object.
+     * A property the operation can't write, i.e. it throws an {@link IllegalArgumentException}, is a bad request.
+     */
     @Override
-    public void updateEntity(ODataRequest oDataRequest, ODataResponse oDataResponse, UriInfo uriInfo, ContentType contentType, ContentType contentType1) throws ODataApplicationException, ODataLibraryException {
+    public void updateEntity(ODataRequest oDataRequest, ODataResponse oDataResponse, UriInfo uriInfo, ContentType requestFormat, ContentType responseFormat) throws ODataApplicationException, ODataLibraryException {
+        UriResource resource = getResourceFromUriInfo(uriInfo);
+
+        if (uriInfo.getUriResourceParts().size() != 1 || !(resource instanceof UriResourceEntitySet)) {
+            throw new ODataApplicationException("Haven't been implemented yet.", HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ENGLISH);
+        }
 
+        UriResourceEntitySet uriResourceEntitySet = (UriResourceEntitySet) resource;
+        EdmEntityType edmEntityType = uriResourceEntitySet.getEntityType();
+
+        try {
+            EntityOperation entityOperation = entityOperationMap.get(edmEntityType.getName());
+            ExceptionUtils.assertNotNull(entityOperation, EntityOperation.class.getSimpleName(), edmEntityType.getName());
+
+            Entity reqEntity = odata.createDeserializer(requestFormat, getServiceMetadata()).entity(oDataRequest.getBody(), edmEntityType).getEntity();
+            fromNaviBindings2NaviLinks(reqEntity, entityOperationMap, oDataRequest.getRawBaseUri() + "/");
+            Object object = fromEntities2Objects(Collections.singletonList(reqEntity), edmEntityType).get(0);
+            Map<String, UriParameter> parameterMap = toParameterMap(uriResourceEntitySet.getKeyPredicates());
+            List<String> properties = isPatch(oDataRequest) ? getPayloadProperties(reqEntity) : null;
+
+            inTransaction(() -> {
+                try {
+                    return entityOperation.update(parameterMap, properties, object, null);
+                } catch (IllegalArgumentException e) {
+                    throw new SaturnODataException(HttpStatusCode.BAD_REQUEST, e.getMessage());
+                }
+            });
+        } catch (SaturnODataException e) {
+            throw toApplicationException(e);
+        }
+
+        oDataResponse.setStatusCode(HttpStatusCode.NO_CONTENT.getStatusCode());
     }
 
     @Override
     public void deleteEntity(ODataRequest oDataRequest, ODataResponse oDataResponse, UriInfo uriInfo) throws ODataApplicationException, ODataLibraryException {
+        UriResource resource = getResourceFromUriInfo(uriInfo);
+
+        if (uriInfo.getUriResourceParts().size() != 1 || !(resource instanceof UriResourceEntitySet)) {
+            throw new ODataApplicationException("Haven't been implemented yet.", HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ENGLISH);
+        }
+
+        UriResourceEntitySet uriResourceEntitySet = (UriResourceEntitySet) resource;
+        EdmEntityType edmEntityType = uriResourceEntitySet.getEntityType();
+
+        try {
+            EntityOperation entityOperation = entityOperationMap.get(edmEntityType.getName());
+            ExceptionUtils.assertNotNull(entityOperation, EntityOperation.class.getSimpleName(), edmEntityType.getName());
+            Map<String, UriParameter> parameterMap = toParameterMap(uriResourceEntitySet.getKeyPredicates());
+
+            inTransaction(() -> entityOperation.delete(parameterMap, null));
+        } catch (SaturnODataException e) {
+            throw toApplicationException(e);
+        }
+
+        oDataResponse.setStatusCode(HttpStatusCode.NO_CONTENT.getStatusCode());
+    }
+
+    private List<Object> fromEntities2Objects(List<Entity> reqEntities, EdmEntityType edmEntityType) throws SaturnODataException {
+        Class<?> clazz = saturnEdmContext.getEntityTypes().get(edmEntityType.getName());
+        List<Object> objects = new ArrayList<>(reqEntities.size());
+
+        try {
+            for (Entity reqEntity : reqEntities) {
+                objects.add(fromEntity2Object(reqEntity, clazz));
+            }
+        } catch (IllegalAccessException | InstantiationException e) {
+            throw new SaturnODataException(HttpStatusCode.INTERNAL_SERVER_ERROR, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            // e.g. a null for a primitive field.
+            throw new SaturnODataException(HttpStatusCode.BAD_REQUEST, e.getMessage());
+        }
+        return objects;
+    }
+
+    private static boolean isPatch(ODataRequest oDataRequest) {
+        return oDataRequest.getMethod() == HttpMethod.PATCH || oDataRequest.getMethod() == HttpMethod.MERGE;
+    }
+
+    /**
+     * @return the names of the structural properties of the payload, the navigation bindings aren't columns.
+     */
+    private static List<String> getPayloadProperties(Entity reqEntity) {
+        return reqEntity.getProperties().stream().map(Property::getName).collect(Collectors.toList());
+    }
+
+    private static Map<String, UriParameter> toParameterMap(List<UriParameter> keyPredicates) {
+        return keyPredicates.stream().collect(Collectors.toMap(UriParameter::getName, p -> p));
+    }
+
+    private static ODataApplicationException toApplicationException(SaturnODataException e) {
+        int statusCode = e.getStatusCode() == 0 ? HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode() : e.getStatusCode();
+        return new ODataApplicationException(e.getMessage(), statusCode, Locale.ENGLISH, e);
+    }
+
+    private static byte[] readBody(InputStream body) throws SaturnODataException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[BODY_BUFFER_SIZE];
+
+        try {
+            for (int read = body.read(buffer); read != -1; read = body.read(buffer)) {
+                out.write(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            throw new SaturnODataException(HttpStatusCode.BAD_REQUEST, e.getMessage());
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * A json payload is a collection when its only property is a {@code value} array, beside annotations,
+     * and the entity type has no property named {@code value}.
+     */
+    private static boolean isCollectionPayload(byte[] body, ContentType requestFormat, EdmEntityType edmEntityType) throws SaturnODataException {
+        if (!requestFormat.isCompatible(ContentType.APPLICATION_JSON) || edmEntityType.getProperty(VALUE) != null) {
+            return false;
+        }
 
+        boolean collection = false;
+
+        try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return false;
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+
+                if (VALUE.equals(name) && value == JsonToken.START_ARRAY) {
+                    collection = true;
+                } else if (!name.startsWith("@")) {
+                    return false;
+                }
+                parser.skipChildren();
+            }
+        } catch (IOException e) {
+            throw new SaturnODataException(HttpStatusCode.BAD_REQUEST, e.getMessage());
+        }
+        return collection;
     }
 
     @Override
@@ -261,13 +511,15 @@ public class EntityProcessor extends BaseTypeProcessor implements org.apache.oli
             } catch (SaturnODataException e) {
                 LOG.error(e.getMessage());
             }
+        } else if (resource instanceof UriResourceFunction) {
+            readFunction(oDataRequest, oDataResponse, uriInfo, contentType);
         } else {
             // todo
             throw new ODataApplicationException("Haven't been implemented yet.", HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ENGLISH);
         }
     }
 
-    private void readEntities(ODataRequest oDataRequest, ODataResponse oDataResponse, UriInfo uriInfo, ContentType contentType) throws SaturnODataException, SerializerException {
+    private void readEntities(ODataRequest oDataRequest, ODataResponse oDataResponse, UriInfo uriInfo, ContentType contentType) throws SaturnODataException, SerializerException, ODataApplicationException {
 
         List<UriResource> uriResourceParts = uriInfo.getUriResourceParts();
         UriResourceEntitySet uriResourceEntitySet = (UriResourceEntitySet) uriResourceParts.get(0);
@@ -281,6 +533,7 @@ public class EntityProcessor extends BaseTypeProcessor implements org.apache.oli
         OrderByOption orderByOption = uriInfo.getOrderByOption();
         CountOption   countOption   = uriInfo.getCountOption();
         TopOption     topOption     = uriInfo.getTopOption();
+        SkipTokenOption skipTokenOption = uriInfo.getSkipTokenOption();
 
         Integer topMax = saturnEdmContext.getTopMaxValue();
         boolean count = countOption != null && countOption.getValue();
@@ -302,9 +555,6 @@ public class EntityProcessor extends BaseTypeProcessor implements org.apache.oli
         EntityOperation entityOperation = entityOperationMap.get(edmEntityType.getName());
         ExceptionUtils.assertNotNull(entityOperation, EntityOperation.class.getSimpleName(), edmEntityType.getName());
 
-        EntityCollection entityCollection = new EntityCollection();
-        List<Entity> resultEntities = entityCollection.getEntities();
-
         Map<String, String> queryParams = new HashMap<>();
         String requestPath = oDataRequest.getRawBaseUri() + oDataRequest.getRawODataPath();
 
@@ -317,84 +567,41 @@ public class EntityProcessor extends BaseTypeProcessor implements org.apache.oli
             });
         }
 
-        if (!queryParams.containsKey(StringUtils.COUNT) && !queryParams.containsKey(StringUtils.COUNT_URL)) {
-            queryParams.put(StringUtils.COUNT, StringUtils.TRUE);
-        }
-
         queryParams.remove(StringUtils.SKIP);
         queryParams.remove(StringUtils.SKIP_URL);
+        queryParams.remove(StringUtils.SKIPTOKEN);
+        queryParams.remove(StringUtils.SKIPTOKEN_URL);
 
         //--------------------------------- Build query option and do query ---------------------------------------
-        QueryOptions queryOptions = new QueryOptions(expandOption, filterOption, null, orderByOption);
-        queryOptions.setDefaultSkip(saturnEdmContext.isDefaultSkip());
-        queryOptions.setDefaultTop(saturnEdmContext.isDefaultTop());
-
-        if (skipOption != null) {
-            queryOptions.setSkip(skipOption.getValue());
+        // with isDefaultSkip/isDefaultTop the processor applies $skip/$top to the rows of the operation, which then
+        // reads from the first row/to the last one; otherwise the window is pushed down to the operation.
+        boolean skipInMemory = saturnEdmContext.isDefaultSkip();
+        boolean topInMemory = saturnEdmContext.isDefaultTop();
+        QueryOptions queryOptions = new QueryOptions(expandOption, filterOption, selectOption, orderByOption);
+        int skip = skipOption == null ? 0 : skipOption.getValue();
+        queryOptions.setDefaultSkip(skipInMemory);
+        queryOptions.setDefaultTop(topInMemory);
+        queryOptions.setSkip(skipInMemory ? 0 : skip);
+        queryOptions.setCount(count);
+
+        if (skipTokenOption != null) {
+            queryOptions.setSkipToken(Optional.of(SkipToken.decode(skipTokenOption.getValue())));
         }
 
         if (topOption != null) {
             queryOptions.setTop(topOption.getValue());
         }
 
-        List<?> objects = entityOperation.retrieveAll(queryOptions, null);
-
-        if (count) {
-            entityCollection.setCount(objects.size());
-        }
-
-        //--------------------------------- Set skip option ---------------------------------------
-        if (skipOption != null) {
-            if (saturnEdmContext.isDefaultSkip()) {
-                objects = objects.subList(skipOption.getValue(), objects.size() - 1);
-            }
-            queryParams.put(StringUtils.SKIP, String.valueOf(skipOption.getValue() + (topMax != null ? topMax : 0)));
-        } else {
-            queryParams.put(StringUtils.SKIP, String.valueOf(topMax != null ? topMax : 0));
-        }
-
-        //--------------------------------- Generate next link ---------------------------------------
-        List<String> queryParamsList = new ArrayList<>();
-        queryParams.forEach((key, value) -> queryParamsList.add(key + StringUtils.EQ + value));
-        String nextLink = String.join(StringUtils.AND, queryParamsList);
-
-        if (StringUtils.isNotEmpty(nextLink)) {
-            nextLink = requestPath + StringUtils.QUESTION_MARK + nextLink;
-        }
-
-        //--------------------------------- Set top option ---------------------------------------
-        if (topOption != null) {
-            if (saturnEdmContext.isDefaultTop()) {
-                if (objects.size() <= topOption.getValue()) {
-                    nextLink = null;
-                }
-                objects = objects.subList(0, topOption.getValue());
-            } else {
-                long allCount = entityOperation.count(queryOptions);
-                if (allCount - (skipOption == null ? 0 : skipOption.getValue()) <= topOption.getValue()) {
-                    nextLink = null;
-                }
-            }
-        }
-
-        //--------------------------------- trans to entity ---------------------------------------
-        for (Object o : objects) {
-            try {
-                Entity entity = fromObject2Entity(o, expandOption);
-                resultEntities.add(entity);
-            } catch (SaturnODataException | IllegalAccessException e) {
-                throw new SaturnODataException(HttpStatusCode.INTERNAL_SERVER_ERROR, e.getMessage());
-            }
-        }
+        // one row beyond the page is read, it tells whether there are more rows without counting them.
+        int top = queryOptions.getTop();
+        long window = skipInMemory ? (long) skip + top + 1 : (long) top + 1;
+        queryOptions.setTop(topInMemory || top == Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) Math.min(window, Integer.MAX_VALUE));
 
         //--------------------------------------------------------------------------------------
         ODataSerializer oDataSerializer = odata.createSerializer(contentType);
         ContextURL contextURL;
 
         try {
-            if (nextLink != null) {
-                entityCollection.setNext(new URI(nextLink));
-            }
             contextURL = ContextURL
                     .with()
                     .entitySet(edmEntitySet)
@@ -414,6 +621,73 @@ public class EntityProcessor extends BaseTypeProcessor implements org.apache.oli
                 .expand(expandOption)
                 .build();
 
+        if (saturnEdmContext.isStreamedCollections()) {
+            // the rows are pulled from the operation and converted while the serializer writes them to the response,
+            // the next link is only known once the last row is written.
+            Long total = count ? entityOperation.count(queryOptions.forCount()) : null;
+            queryOptions.setFetchSize(saturnEdmContext.getFetchSize() == null ? 0 : saturnEdmContext.getFetchSize());
+            Stream<?> rows = top == 0 ? Stream.empty() : entityOperation.retrieveStream(queryOptions, null);
+
+            if (skipInMemory && skip > 0) {
+                rows = rows.skip(skip);
+            }
+            EntityObjectIterator entityIterator = new EntityObjectIterator(this, rows.iterator(), top, expandOption, selectOption,
+                    total == null ? null : total.intValue(),
+                    (size, last, hasMore) -> generateNextLink(requestPath, queryParams, skip, skipTokenOption, orderByOption, size, last, hasMore));
+
+            if (expandOption != null) {
+                entityIterator.prefetch(chunk -> prefetchNavigations(chunk, expandOption),
+                        queryOptions.getFetchSize() > 0 ? queryOptions.getFetchSize() : PREFETCH_CHUNK_SIZE);
+            }
+
+            try {
+                SerializerStreamResult serializerResult = oDataSerializer.entityCollectionStreamed(serviceMetadata, edmEntityType, entityIterator, entityCollectionSerializerOptions);
+                oDataResponse.setODataContent(new StreamedContent(serializerResult.getODataContent(), rows));
+            } catch (SerializerException | RuntimeException e) {
+                rows.close();
+                throw e;
+            }
+            oDataResponse.setStatusCode(HttpStatusCode.OK.getStatusCode());
+            oDataResponse.setHeader(HttpHeader.CONTENT_TYPE, contentType.toContentTypeString());
+            return;
+        }
+
+        PageResult<?> page = top == 0 ? PageResult.empty() : entityOperation.retrievePage(queryOptions, null);
+        List<?> objects = page.getContent();
+        Long total = page.getCount();
+
+        if (topInMemory && count && total == null && skipTokenOption == null) {
+            // the operation read every row from its offset.
+            total = (long) (skipInMemory ? 0 : skip) + objects.size();
+        }
+        if (skipInMemory) {
+            objects = objects.subList(Math.min(skip, objects.size()), objects.size());
+        }
+
+        boolean hasMore = objects.size() > top;
+
+        if (hasMore) {
+            objects = objects.subList(0, top);
+        }
+
+        if (count && total == null) {
+            // the last page tells the total, unless it is read after a $skiptoken.
+            boolean lastPage = top > 0 && !hasMore && skipTokenOption == null && (skip == 0 || !objects.isEmpty());
+            total = lastPage ? (long) skip + objects.size() : entityOperation.count(queryOptions.forCount());
+        }
+
+        //--------------------------------- trans to entity ---------------------------------------
+        EntityCollection entityCollection = new EntityCollection();
+        List<Entity> resultEntities = entityCollection.getEntities();
+        PrefetchedNavigations prefetched = expandOption == null ? null : prefetchNavigations(objects, expandOption);
+        resultEntities.addAll(convertPage(objects, ExpandTree.compile(expandOption), selectOption, prefetched));
+
+        if (total != null) {
+            entityCollection.setCount(total.intValue());
+        }
+        entityCollection.setNext(generateNextLink(requestPath, queryParams, skip, skipTokenOption, orderByOption,
+                objects.size(), objects.isEmpty() ? null : objects.get(objects.size() - 1), hasMore));
+
         try {
             SerializerResult serializerResult = oDataSerializer.entityCollection(serviceMetadata, edmEntityType, entityCollection, entityCollectionSerializerOptions);
             InputStream serializedContent = serializerResult.getContent();
@@ -427,4 +701,157 @@ public class EntityProcessor extends BaseTypeProcessor implements org.apache.oli
             throw new SaturnODataException(HttpStatusCode.INTERNAL_SERVER_ERROR, e.getMessage());
         }
     }
+
+    /**
+     * @return metrics of the conversion of the entity collection pages by this processor.
+     */
+    public ConversionMetrics getConversionMetrics() {
+        return conversionMetrics;
+    }
+
+    /**
+     * Converts the rows of a page in order, by chunks on the conversion executor when the page reaches the
+     * parallel conversion threshold. The first chunk is converted on the request thread, and so is a chunk
+     * the executor rejects. A page with an expanded navigation property which wasn't prefetched is converted
+     * sequentially, its rows would load the navigation, e.g. a lazy jpa association, on the executor threads.
+     */
+    private List<Entity> convertPage(List<?> objects, ExpandTree expandTree, SelectOption selectOption,
+                                     PrefetchedNavigations prefetched) throws SaturnODataException {
+        ExecutorService executor = saturnEdmContext.getConversionExecutor();
+        Integer threshold = saturnEdmContext.getParallelConversionThreshold();
+        int chunkSize = Math.max(1, saturnEdmContext.getConversionChunkSize() == null ? objects.size() : saturnEdmContext.getConversionChunkSize());
+        boolean parallel = executor != null && threshold != null && objects.size() >= threshold && objects.size() > chunkSize
+                && (prefetched == null || prefetched.isComplete());
+        long start = System.nanoTime();
+        List<Entity> entities = new ArrayList<>(objects.size());
+
+        if (!parallel) {
+            entities.addAll(convertChunk(objects, expandTree, selectOption, prefetched));
+        } else {
+            List<Future<List<Entity>>> futures = new ArrayList<>();
+
+            for (int from = chunkSize; from < objects.size(); from += chunkSize) {
+                List<?> chunk = objects.subList(from, Math.min(from + chunkSize, objects.size()));
+                try {
+                    futures.add(executor.submit(() -> convertChunk(chunk, expandTree, selectOption, prefetched)));
+                } catch (RejectedExecutionException e) {
+                    futures.add(CompletableFuture.completedFuture(convertChunk(chunk, expandTree, selectOption, prefetched)));
+                }
+            }
+
+            try {
+                entities.addAll(convertChunk(objects.subList(0, chunkSize), expandTree, selectOption, prefetched));
+                for (Future<List<Entity>> future : futures) {
+                    entities.addAll(future.get());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SaturnODataException(HttpStatusCode.INTERNAL_SERVER_ERROR, e.getMessage());
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof SaturnODataException) {
+                    throw (SaturnODataException) e.getCause();
+                }
+                throw new SaturnODataException(HttpStatusCode.INTERNAL_SERVER_ERROR, e.getCause().getMessage());
+            } finally {
+                futures.forEach(future -> future.cancel(true));
+            }
+        }
+
+        long nanos = System.nanoTime() - start;
+        conversionMetrics.record(parallel, objects.size(), nanos);
+        LOG.debug("{} rows converted {} in {} ms.", objects.size(), parallel ? "in parallel" : "sequentially", TimeUnit.NANOSECONDS.toMillis(nanos));
+        return entities;
+    }
+
+    private List<Entity> convertChunk(List<?> objects, ExpandTree expandTree, SelectOption selectOption,
+                                      PrefetchedNavigations prefetched) throws SaturnODataException {
+        List<Entity> entities = new ArrayList<>(objects.size());
+
+        for (Object o : objects) {
+            try {
+                entities.add(fromObject2Entity(o, expandTree, selectOption, prefetched));
+            } catch (SaturnODataException | IllegalAccessException e) {
+                throw new SaturnODataException(HttpStatusCode.INTERNAL_SERVER_ERROR, e.getMessage());
+            }
+        }
+        return entities;
+    }
+
+    /**
+     * @param skip    $skip of the request.
+     * @param rows    number of rows of the page.
+     * @param last    last row of the page, null if the page is empty.
+     * @param hasMore true if a row was read beyond the page.
+     * @return the link of the next page, null if there is no more rows.
+     */
+    private URI generateNextLink(String requestPath, Map<String, String> queryParams, int skip, SkipTokenOption skipTokenOption,
+                                 OrderByOption orderByOption, int rows, Object last, boolean hasMore) throws SaturnODataException {
+        if (!hasMore || last == null) {
+            return null;
+        }
+
+        Map<String, String> params = new HashMap<>(queryParams);
+        String skipToken = saturnEdmContext.isSkipTokenPaging() ? generateSkipToken(last, orderByOption) : null;
+
+        if (skipToken != null) {
+            params.put(StringUtils.SKIPTOKEN, skipToken);
+        } else {
+            // the token of the request stays and the next page is skipped from there.
+            if (skipTokenOption != null) {
+                params.put(StringUtils.SKIPTOKEN, skipTokenOption.getValue());
+            }
+            params.put(StringUtils.SKIP, String.valueOf(skip + rows));
+        }
+
+        List<String> queryParamsList = new ArrayList<>();
+        params.forEach((key, value) -> queryParamsList.add(key + StringUtils.EQ + value));
+
+        try {
+            return new URI(requestPath + StringUtils.QUESTION_MARK + String.join(StringUtils.AND, queryParamsList));
+        } catch (URISyntaxException e) {
+            throw new SaturnODataException(HttpStatusCode.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    /**
+     * @return the $skiptoken of the page after the row, its $orderby values followed by its keys,
+     *         null if the order isn't on first level properties or a value can't be put in a token.
+     */
+    private String generateSkipToken(Object object, OrderByOption orderByOption) throws SaturnODataException {
+        EntityWritePlan plan;
+
+        try {
+            plan = getWritePlan(object.getClass());
+        } catch (IllegalAccessException e) {
+            throw new SaturnODataException(HttpStatusCode.INTERNAL_SERVER_ERROR, e.getMessage());
+        }
+
+        List<String> names = new ArrayList<>();
+
+        if (orderByOption != null) {
+            for (OrderByItem item : orderByOption.getOrders()) {
+                String name = SkipToken.getPropertyName(item);
+                if (name == null) {
+                    return null;
+                }
+                names.add(name);
+            }
+        }
+        for (String key : plan.getKeys()) {
+            if (!SkipToken.isOrderedBy(orderByOption, key)) {
+                names.add(key);
+            }
+        }
+
+        List<Object> values = new ArrayList<>(names.size());
+
+        for (String name : names) {
+            EntityWritePlan.PropertyPlan property = plan.getProperty(name);
+            if (property == null) {
+                return null;
+            }
+            values.add(property.read(object));
+        }
+        return SkipToken.encode(values);
+    }
 }
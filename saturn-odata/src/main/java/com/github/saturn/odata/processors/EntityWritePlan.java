@@ -0,0 +1,393 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) [2020] [He Zhang]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished
+ *  to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.saturn.odata.processors;
+
+import com.github.saturn.odata.annotations.ODataComplexType;
+import com.github.saturn.odata.annotations.ODataEntitySet;
+import com.github.saturn.odata.annotations.ODataEntityType;
+import com.github.saturn.odata.annotations.ODataEnumType;
+import com.github.saturn.odata.annotations.ODataNavigationProperty;
+import com.github.saturn.odata.annotations.ODataProperty;
+import com.github.saturn.odata.enums.PrimitiveType;
+import com.github.saturn.odata.exceptions.SaturnODataException;
+import com.github.saturn.odata.interfaces.EntityAccessor;
+import com.github.saturn.odata.metadata.SaturnEdmContext;
+import com.github.saturn.odata.utils.ClassUtils;
+import com.github.saturn.odata.utils.ExceptionUtils;
+import com.github.saturn.odata.utils.ODataUtils;
+import com.github.saturn.odata.utils.StringUtils;
+import org.apache.olingo.commons.api.data.ValueType;
+import org.apache.olingo.commons.api.edm.FullQualifiedName;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Everything {@link SaturnProcessor#fromObject2Entity(Object)} needs to know about a class,
+ * resolved once from its annotations: the property names, edm types, value converters and getters.
+ *
+ * The getters come from the generated {@link EntityAccessor} of the class when there is one.
+ */
+final class EntityWritePlan {
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private final Class<?> clazz;
+    private final String name;
+    private final String type;
+    private final String entitySetName;
+    private final List<String> keys;
+    private final List<PropertyPlan> properties;
+    private final List<NavigationPlan> navigations;
+
+    private EntityWritePlan(final Class<?> clazz, final String name, final String type, final String entitySetName,
+                            final List<String> keys, final List<PropertyPlan> properties, final List<NavigationPlan> navigations) {
+        this.clazz = clazz;
+        this.name = name;
+        this.type = type;
+        this.entitySetName = entitySetName;
+        this.keys = keys;
+        this.properties = properties;
+        this.navigations = navigations;
+    }
+
+    /**
+     * Validates the annotations of the class and resolves all of its properties.
+     *
+     * @param clazz class annotated with <code>@ODataEntityType</code> or <code>@ODataComplexType</code>.
+     * @param context context used to resolve the namespace of collection types.
+     * @return the plan of the class.
+     */
+    static EntityWritePlan build(final Class<?> clazz, final SaturnEdmContext context) throws SaturnODataException, IllegalAccessException {
+        ODataEntityType oDataEntityType = clazz.getAnnotation(ODataEntityType.class);
+        ODataEntitySet oDataEntitySet = clazz.getAnnotation(ODataEntitySet.class);
+        ODataComplexType oDataComplexType = clazz.getAnnotation(ODataComplexType.class);
+
+        if (oDataEntityType == null && oDataComplexType == null) {
+            throw new SaturnODataException(
+                    HttpStatusCode.INTERNAL_SERVER_ERROR, "Class %s should have annotation @ODataEntityType or @ODataComplexType.", clazz);
+        } else if (oDataEntityType != null && oDataEntitySet == null) {
+            throw new SaturnODataException(
+                    HttpStatusCode.INTERNAL_SERVER_ERROR, "Class %s should have annotation @ODataEntitySet.", clazz);
+        } else if (oDataEntityType != null && oDataEntityType.name().trim().isEmpty()) {
+            throw new SaturnODataException(
+                    HttpStatusCode.INTERNAL_SERVER_ERROR, "Class %s with annotation @ODataEntityType should have name field.", clazz);
+        } else if (oDataEntitySet != null && oDataEntitySet.name().trim().isEmpty()) {
+            throw new SaturnODataException(
+                    HttpStatusCode.INTERNAL_SERVER_ERROR, "Class %s with annotation @ODataEntitySet should have name field.", clazz);
+        }
+
+        EntityAccessor accessor = context == null ? null : context.getAccessor(clazz);
+        List<PropertyPlan> properties = new ArrayList<>();
+        List<NavigationPlan> navigations = new ArrayList<>();
+
+        for (Field field : ClassUtils.getFields(clazz)) {
+            if (field.isAnnotationPresent(ODataProperty.class)) {
+                properties.add(PropertyPlan.build(field, context, accessor));
+            } else if (field.isAnnotationPresent(ODataNavigationProperty.class)) {
+                navigations.add(NavigationPlan.build(field, accessor));
+            }
+        }
+
+        if (oDataEntityType != null) {
+            // entity should have a key array if it is not a complex type
+            String[] keys = oDataEntityType.keys();
+            ExceptionUtils.assertLengthGreaterThanZero(keys, oDataEntityType.name() + " -> keys");
+
+            return new EntityWritePlan(clazz, oDataEntityType.name(),
+                    String.format(StringUtils.FQN, oDataEntityType.namespace(), oDataEntityType.name()),
+                    oDataEntitySet.name(),
+                    Collections.unmodifiableList(Arrays.asList(keys)),
+                    Collections.unmodifiableList(properties),
+                    Collections.unmodifiableList(navigations));
+        }
+
+        return new EntityWritePlan(clazz, oDataComplexType.name(),
+                String.format(StringUtils.FQN, oDataComplexType.namespace(), oDataComplexType.name()),
+                null,
+                Collections.<String>emptyList(),
+                Collections.unmodifiableList(properties),
+                Collections.unmodifiableList(navigations));
+    }
+
+    /**
+     * @return the generated getter of the field when there is one, a method handle on the field otherwise.
+     */
+    private static Function<Object, Object> reader(final Field field, final EntityAccessor accessor) throws IllegalAccessException {
+        Function<Object, Object> generated = accessor == null ? null : accessor.getter(field.getName());
+        if (generated != null) {
+            return generated;
+        }
+
+        field.setAccessible(true);
+        MethodHandle getter = MethodHandles.lookup().unreflectGetter(field).asType(GETTER_TYPE);
+        return object -> {
+            try {
+                return (Object) getter.invokeExact(object);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        };
+    }
+
+    private static Object apply(final Function<Object, Object> reader, final Object object, final String propertyName) throws SaturnODataException {
+        try {
+            return reader.apply(object);
+        } catch (RuntimeException e) {
+            throw new SaturnODataException(
+                    HttpStatusCode.INTERNAL_SERVER_ERROR, "Cannot read property %s of %s: %s", propertyName, object.getClass(), e.getMessage());
+        }
+    }
+
+    Class<?> getClazz() {
+        return clazz;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    String getType() {
+        return type;
+    }
+
+    boolean isEntityType() {
+        return entitySetName != null;
+    }
+
+    String getEntitySetName() {
+        return entitySetName;
+    }
+
+    List<String> getKeys() {
+        return keys;
+    }
+
+    List<PropertyPlan> getProperties() {
+        return properties;
+    }
+
+    List<NavigationPlan> getNavigations() {
+        return navigations;
+    }
+
+    /**
+     * @return the plan of the navigation property with the edm name, null if the class has no such navigation property.
+     */
+    NavigationPlan getNavigation(final String navigationProperty) {
+        for (NavigationPlan navigation : navigations) {
+            if (navigation.getName().equals(navigationProperty)) {
+                return navigation;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the plan of the property with the edm name, null if the class has no such property.
+     */
+    PropertyPlan getProperty(final String propertyName) {
+        for (PropertyPlan property : properties) {
+            if (property.getName().equals(propertyName)) {
+                return property;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Converts a field value into the value expected by the olingo serializer.
+     */
+    interface ValueConverter {
+
+        Object convert(Object value) throws SaturnODataException;
+    }
+
+    static final class PropertyPlan {
+
+        private static final ValueConverter IDENTITY = value -> value;
+        private static final ValueConverter DATE = value ->
+                GregorianCalendar.from(((LocalDate) value).atStartOfDay(ZoneId.systemDefault()));
+        private static final ValueConverter DATE_TIME = value ->
+                GregorianCalendar.from(((LocalDateTime) value).atZone(ZoneId.systemDefault()));
+        private static final ValueConverter ENUM = value -> ((Enum<?>) value).ordinal();
+        private static final ValueConverter FLAGS = value -> 1 << ((Enum<?>) value).ordinal();
+
+        private final String name;
+        private final String type;
+        private final ValueType valueType;
+        private final Function<Object, Object> getter;
+        private final ValueConverter converter;
+        private final Class<?> complexClass;
+
+        private PropertyPlan(final String name, final String type, final ValueType valueType, final Function<Object, Object> getter,
+                             final ValueConverter converter, final Class<?> complexClass) {
+            this.name = name;
+            this.type = type;
+            this.valueType = valueType;
+            this.getter = getter;
+            this.converter = converter;
+            this.complexClass = complexClass;
+        }
+
+        static PropertyPlan build(final Field field, final SaturnEdmContext context, final EntityAccessor accessor) throws SaturnODataException, IllegalAccessException {
+            ODataProperty oDataProperty = field.getAnnotation(ODataProperty.class);
+            String propertyName = oDataProperty.name().trim().isEmpty() ? field.getName() : oDataProperty.name();
+            Function<Object, Object> getter = reader(field, accessor);
+
+            Class<?> fieldType = field.getType();
+            PrimitiveType primitiveType = ODataUtils.getPrimitiveType(fieldType);
+
+            // for primitiveType condition
+            if (primitiveType != null) {
+                ValueConverter converter = IDENTITY;
+                if (primitiveType.equals(PrimitiveType.EDM_DATE)) {
+                    converter = DATE;
+                } else if (primitiveType.equals(PrimitiveType.EDM_DATE_TIME)) {
+                    converter = DATE_TIME;
+                }
+                return new PropertyPlan(propertyName, primitiveType.getType(), ValueType.PRIMITIVE, getter, converter, null);
+
+            } else if (fieldType.isEnum()) {
+                ODataEnumType oDataEnumType = fieldType.getAnnotation(ODataEnumType.class);
+                return new PropertyPlan(propertyName, null, ValueType.ENUM, getter, oDataEnumType != null && oDataEnumType.isFlags() ? FLAGS : ENUM, null);
+
+            } else if (Collection.class.isAssignableFrom(fieldType)) {
+                ParameterizedType parameterizedType = (ParameterizedType) field.getGenericType();
+                Class<?> argType = (Class<?>) (parameterizedType.getActualTypeArguments()[0]);
+                PrimitiveType pt = ODataUtils.getPrimitiveType(argType);
+
+                // for condition List<Integer>, basic type of collections.
+                if (pt != null) {
+                    return new PropertyPlan(propertyName, String.format(StringUtils.COLLECTION_QUALIFIED_FULL_NAME, pt.getType()),
+                            ValueType.COLLECTION_PRIMITIVE, getter, IDENTITY, null);
+                }
+
+                // for condition List<Entity>
+                String type = null;
+                ValueType valueType = null;
+                FullQualifiedName fullQualifiedName = ODataUtils.getFullQualifiedNameFromClassType(argType, context.getNameSpace());
+                if (fullQualifiedName != null) {
+                    type = String.format(StringUtils.COLLECTION_QUALIFIED_FULL_NAME, fullQualifiedName.toString());
+
+                    if (argType.isAnnotationPresent(ODataEnumType.class)) {
+                        valueType = ValueType.COLLECTION_ENUM;
+                    } else if (argType.isAnnotationPresent(ODataComplexType.class)) {
+                        valueType = ValueType.COLLECTION_COMPLEX;
+                    }
+                }
+                return new PropertyPlan(propertyName, type, valueType, getter, IDENTITY, null);
+            }
+
+            if (!fieldType.isAnnotationPresent(ODataComplexType.class)) {
+                throw new SaturnODataException(
+                        HttpStatusCode.INTERNAL_SERVER_ERROR,
+                        "Unrecognized type found: %s in field %s [%s].", fieldType, field.getName(), field.getDeclaringClass().getName());
+            }
+            ODataComplexType oDataComplexType = fieldType.getAnnotation(ODataComplexType.class);
+            return new PropertyPlan(propertyName, String.format(StringUtils.FQN, oDataComplexType.namespace(), oDataComplexType.name()),
+                    ValueType.COMPLEX, getter, IDENTITY, fieldType);
+        }
+
+        String getName() {
+            return name;
+        }
+
+        String getType() {
+            return type;
+        }
+
+        ValueType getValueType() {
+            return valueType;
+        }
+
+        /**
+         * @return the complex class of the property, null if the property is not a complex type.
+         */
+        Class<?> getComplexClass() {
+            return complexClass;
+        }
+
+        Object read(final Object object) throws SaturnODataException {
+            return apply(getter, object, name);
+        }
+
+        /**
+         * @return the converted value of the property, complex values are left to the caller.
+         */
+        Object readValue(final Object object) throws SaturnODataException {
+            Object value = read(object);
+            return value == null ? null : converter.convert(value);
+        }
+    }
+
+    static final class NavigationPlan {
+
+        private final String name;
+        private final boolean collection;
+        private final Function<Object, Object> getter;
+
+        private NavigationPlan(final String name, final boolean collection, final Function<Object, Object> getter) {
+            this.name = name;
+            this.collection = collection;
+            this.getter = getter;
+        }
+
+        static NavigationPlan build(final Field field, final EntityAccessor accessor) throws IllegalAccessException {
+            ODataNavigationProperty oDataNavigationProperty = field.getAnnotation(ODataNavigationProperty.class);
+            String linkName = oDataNavigationProperty.name().trim().isEmpty()
+                    ? field.getName() : oDataNavigationProperty.name();
+            return new NavigationPlan(linkName, Collection.class.isAssignableFrom(field.getType()), reader(field, accessor));
+        }
+
+        String getName() {
+            return name;
+        }
+
+        boolean isCollection() {
+            return collection;
+        }
+
+        Object read(final Object object) throws SaturnODataException {
+            return apply(getter, object, name);
+        }
+    }
+}
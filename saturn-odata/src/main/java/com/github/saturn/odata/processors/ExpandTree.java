@@ -0,0 +1,102 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) [2020] [He Zhang]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished
+ *  to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.saturn.odata.processors;
+
+import org.apache.olingo.server.api.uri.UriResource;
+import org.apache.olingo.server.api.uri.UriResourceKind;
+import org.apache.olingo.server.api.uri.queryoption.ExpandItem;
+import org.apache.olingo.server.api.uri.queryoption.ExpandOption;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The $expand of a request compiled once into a lookup by navigation property name, the conversion of every row
+ * reads it instead of matching the navigation properties against the expand items.
+ */
+public final class ExpandTree {
+
+    private static final ExpandTree EMPTY = new ExpandTree(null, Collections.emptyMap(), false);
+
+    private final ExpandOption expandOption;
+    private final Map<String, ExpandTree> children;
+    private final boolean star;
+
+    private ExpandTree(final ExpandOption expandOption, final Map<String, ExpandTree> children, final boolean star) {
+        this.expandOption = expandOption;
+        this.children = children;
+        this.star = star;
+    }
+
+    /**
+     * @param expandOption $expand of the request, nested items included.
+     * @return the compiled tree, an empty one if nothing is expanded.
+     */
+    public static ExpandTree compile(final ExpandOption expandOption) {
+        if (expandOption == null || expandOption.getExpandItems().isEmpty()) {
+            return EMPTY;
+        }
+
+        Map<String, ExpandTree> children = new HashMap<>();
+        boolean star = false;
+
+        for (ExpandItem expandItem : expandOption.getExpandItems()) {
+            if (expandItem.isStar()) {
+                star = true;
+                continue;
+            }
+            if (expandItem.getResourcePath() == null) {
+                continue;
+            }
+
+            for (UriResource uriResource : expandItem.getResourcePath().getUriResourceParts()) {
+                if (uriResource.getKind() == UriResourceKind.navigationProperty && !children.containsKey(uriResource.getSegmentValue())) {
+                    children.put(uriResource.getSegmentValue(), compile(expandItem.getExpandOption()));
+                }
+            }
+        }
+        return new ExpandTree(expandOption, children, star);
+    }
+
+    /**
+     * @return the tree of the items nested in the expanded navigation property, null if it isn't expanded.
+     */
+    public ExpandTree get(final String navigationProperty) {
+        ExpandTree child = children.get(navigationProperty);
+        return child == null && star ? EMPTY : child;
+    }
+
+    public boolean isEmpty() {
+        return children.isEmpty() && !star;
+    }
+
+    /**
+     * @return the $expand the tree was compiled from.
+     */
+    public ExpandOption getExpandOption() {
+        return expandOption;
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) [2020] [He Zhang]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished
+ *  to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.saturn.odata.processors;
+
+import com.github.saturn.odata.annotations.ODataParameter;
+import com.github.saturn.odata.exceptions.SaturnODataException;
+import com.github.saturn.odata.uri.Conversions;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.uri.UriInfo;
+import org.apache.olingo.server.api.uri.UriParameter;
+import org.springframework.util.ClassUtils;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Binds the parameters of a function call to the java types of the <code>@ODataParameter</code> fields of
+ * the function class. The fields are read once, when the plan is built; a call only applies the parser
+ * selected for each parameter to the text of its literal (or of its alias).
+ */
+final class FunctionPlan {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final String NULL = "null";
+
+    private final String name;
+    private final Map<String, ParameterPlan> parameters;
+
+    private FunctionPlan(final String name, final Map<String, ParameterPlan> parameters) {
+        this.name = name;
+        this.parameters = parameters;
+    }
+
+    /**
+     * @param name  name of the function.
+     * @param clazz class annotated with <code>@ODataFunction</code>, whose fields declare the parameters.
+     */
+    static FunctionPlan build(final String name, final Class<?> clazz) {
+        Map<String, ParameterPlan> parameters = new LinkedHashMap<>();
+
+        for (Field field : clazz.getDeclaredFields()) {
+            ODataParameter oDataParameter = field.getAnnotation(ODataParameter.class);
+
+            if (oDataParameter != null) {
+                String parameterName = oDataParameter.name().trim().isEmpty() ? field.getName() : oDataParameter.name();
+                parameters.put(parameterName, ParameterPlan.build(parameterName, field, oDataParameter.nullable()));
+            }
+        }
+        return new FunctionPlan(name, Collections.unmodifiableMap(parameters));
+    }
+
+    String getName() {
+        return name;
+    }
+
+    Map<String, ParameterPlan> getParameters() {
+        return parameters;
+    }
+
+    /**
+     * @param uriParameters parameters of the function segment.
+     * @param uriInfo       resolves the parameters passed as aliases, e.g. <code>F(Ids=@ids)?@ids=[1,2]</code>.
+     * @return the typed value of every parameter of the function, null for a missing or null parameter.
+     * @throws SaturnODataException 400 if a value isn't valid for its type, or a non nullable parameter is missing.
+     */
+    Map<String, Object> bind(final List<UriParameter> uriParameters, final UriInfo uriInfo) throws SaturnODataException {
+        Map<String, String> texts = new HashMap<>();
+
+        for (UriParameter uriParameter : uriParameters) {
+            String text = uriParameter.getText();
+            if (text == null && uriParameter.getAlias() != null) {
+                text = uriInfo.getValueForAlias(uriParameter.getAlias());
+            }
+            texts.put(uriParameter.getName(), text);
+        }
+
+        Map<String, Object> values = new HashMap<>();
+
+        for (ParameterPlan parameter : parameters.values()) {
+            String text = texts.get(parameter.getName());
+            Object value = text == null || NULL.equals(text) ? null : parameter.bind(text);
+
+            if (value == null && !parameter.isNullable()) {
+                throw new SaturnODataException(HttpStatusCode.BAD_REQUEST, "Parameter %s of function %s can't be null.", parameter.getName(), name);
+            }
+            values.put(parameter.getName(), value);
+        }
+        return values;
+    }
+
+    static final class ParameterPlan {
+
+        private final String name;
+        private final Class<?> type;
+        private final boolean nullable;
+        private final Function<String, Object> parser;
+        private final Supplier<Collection<Object>> collection;
+
+        private ParameterPlan(final String name, final Class<?> type, final boolean nullable, final Function<String, Object> parser,
+                              final Supplier<Collection<Object>> collection) {
+            this.name = name;
+            this.type = type;
+            this.nullable = nullable;
+            this.parser = parser;
+            this.collection = collection;
+        }
+
+        static ParameterPlan build(final String name, final Field field, final boolean nullable) {
+            Class<?> fieldType = field.getType();
+
+            if (Collection.class.isAssignableFrom(fieldType)) {
+                Type genericType = field.getGenericType();
+                Type argType = genericType instanceof ParameterizedType ? ((ParameterizedType) genericType).getActualTypeArguments()[0] : null;
+                Class<?> elementType = argType instanceof Class ? (Class<?>) argType : String.class;
+                Supplier<Collection<Object>> collection = Set.class.isAssignableFrom(fieldType) ? LinkedHashSet::new : ArrayList::new;
+
+                return new ParameterPlan(name, ClassUtils.resolvePrimitiveIfNecessary(elementType), nullable, Conversions.parser(elementType), collection);
+            }
+            return new ParameterPlan(name, ClassUtils.resolvePrimitiveIfNecessary(fieldType), nullable, Conversions.parser(fieldType), null);
+        }
+
+        String getName() {
+            return name;
+        }
+
+        boolean isNullable() {
+            return nullable;
+        }
+
+        /**
+         * @param text literal of the value, or json array of the items of a collection parameter.
+         */
+        Object bind(final String text) throws SaturnODataException {
+            try {
+                return collection == null ? parse(text) : parseCollection(text);
+            } catch (IOException | RuntimeException e) {
+                throw new SaturnODataException(HttpStatusCode.BAD_REQUEST, "%s isn't a valid value of parameter %s.", text, name);
+            }
+        }
+
+        private Object parse(final String text) {
+            Object value = parser.apply(text);
+
+            if (!type.isInstance(value)) {
+                throw new IllegalArgumentException(text);
+            }
+            return value;
+        }
+
+        private Collection<Object> parseCollection(final String text) throws IOException {
+            Collection<Object> values = collection.get();
+
+            try (JsonParser parser = JSON_FACTORY.createParser(text)) {
+                if (parser.nextToken() != JsonToken.START_ARRAY) {
+                    throw new IllegalArgumentException(text);
+                }
+
+                for (JsonToken token = parser.nextToken(); token != JsonToken.END_ARRAY; token = parser.nextToken()) {
+                    if (token == null || !token.isScalarValue()) {
+                        throw new IllegalArgumentException(text);
+                    }
+                    if (token == JsonToken.VALUE_NULL) {
+                        values.add(null);
+                    } else if (token == JsonToken.VALUE_STRING && String.class.equals(type)) {
+                        // a json string isn't a quoted literal.
+                        values.add(parser.getText());
+                    } else {
+                        values.add(parse(parser.getText()));
+                    }
+                }
+            }
+            return values;
+        }
+    }
+}
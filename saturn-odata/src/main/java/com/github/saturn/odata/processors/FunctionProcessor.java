@@ -0,0 +1,373 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) [2020] [He Zhang]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished
+ *  to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.saturn.odata.processors;
+
+import com.github.saturn.odata.exceptions.SaturnODataException;
+import com.github.saturn.odata.interfaces.CustomOperation;
+import com.github.saturn.odata.metadata.SaturnEdmContext;
+
+import org.apache.olingo.commons.api.data.ComplexValue;
+import org.apache.olingo.commons.api.data.ContextURL;
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.Property;
+import org.apache.olingo.commons.api.data.ValueType;
+import org.apache.olingo.commons.api.edm.EdmComplexType;
+import org.apache.olingo.commons.api.edm.EdmEntitySet;
+import org.apache.olingo.commons.api.edm.EdmEntityType;
+import org.apache.olingo.commons.api.edm.EdmFunction;
+import org.apache.olingo.commons.api.edm.EdmPrimitiveType;
+import org.apache.olingo.commons.api.edm.EdmReturnType;
+import org.apache.olingo.commons.api.edm.EdmType;
+import org.apache.olingo.commons.api.format.ContentType;
+import org.apache.olingo.commons.api.http.HttpHeader;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.ODataLibraryException;
+import org.apache.olingo.server.api.ODataRequest;
+import org.apache.olingo.server.api.ODataResponse;
+import org.apache.olingo.server.api.processor.ComplexCollectionProcessor;
+import org.apache.olingo.server.api.processor.ComplexProcessor;
+import org.apache.olingo.server.api.serializer.ComplexSerializerOptions;
+import org.apache.olingo.server.api.serializer.EntityCollectionSerializerOptions;
+import org.apache.olingo.server.api.serializer.EntitySerializerOptions;
+import org.apache.olingo.server.api.serializer.ODataSerializer;
+import org.apache.olingo.server.api.serializer.PrimitiveSerializerOptions;
+import org.apache.olingo.server.api.serializer.SerializerException;
+import org.apache.olingo.server.api.serializer.SerializerResult;
+import org.apache.olingo.server.api.serializer.SerializerStreamResult;
+import org.apache.olingo.server.api.uri.UriInfo;
+import org.apache.olingo.server.api.uri.UriParameter;
+import org.apache.olingo.server.api.uri.UriResource;
+import org.apache.olingo.server.api.uri.UriResourceEntitySet;
+import org.apache.olingo.server.api.uri.UriResourceFunction;
+import org.apache.olingo.server.api.uri.queryoption.ExpandOption;
+import org.apache.olingo.server.api.uri.queryoption.SelectOption;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationContext;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Invokes the {@link CustomOperation} of a function (or function import) and writes its result. A
+ * {@link FunctionPlan} is built per function class at initialization, so a call only binds the text of its
+ * parameters to typed values. Olingo routes a call by the return type of the function: complex results come
+ * here directly, primitive and entity results through the processors of those types, see
+ * {@link BaseTypeProcessor#setFunctionProcessor(FunctionProcessor)}.
+ */
+public class FunctionProcessor extends BaseTypeProcessor implements ComplexProcessor, ComplexCollectionProcessor {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FunctionProcessor.class);
+
+    private final Map<String, FunctionPlan> functionPlans = new HashMap<>();
+
+    public FunctionProcessor initialize(SaturnEdmContext saturnEdmContext, ApplicationContext applicationContext) {
+        super.initialize(saturnEdmContext);
+        super.generateOperationMap(entityOperationMap, functionMap, applicationContext);
+
+        functionMap.forEach((name, customOperation) -> {
+            Class<?> functionClass = saturnEdmContext.getFunctions().getOrDefault(name, customOperation.getClass());
+            FunctionPlan plan = FunctionPlan.build(name, functionClass);
+            functionPlans.put(name, plan);
+            LOG.debug("Function plan of {} built with {} parameters.", name, plan.getParameters().size());
+        });
+        return this;
+    }
+
+    @Override
+    public void readComplex(ODataRequest oDataRequest, ODataResponse oDataResponse, UriInfo uriInfo, ContentType contentType) throws ODataApplicationException, ODataLibraryException {
+        processFunction(oDataRequest, oDataResponse, uriInfo, contentType);
+    }
+
+    @Override
+    public void updateComplex(ODataRequest oDataRequest, ODataResponse oDataResponse, UriInfo uriInfo, ContentType requestFormat, ContentType responseFormat) throws ODataApplicationException, ODataLibraryException {
+        throw new ODataApplicationException("Haven't been implemented yet.", HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ENGLISH);
+    }
+
+    @Override
+    public void deleteComplex(ODataRequest oDataRequest, ODataResponse oDataResponse, UriInfo uriInfo) throws ODataApplicationException, ODataLibraryException {
+        throw new ODataApplicationException("Haven't been implemented yet.", HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ENGLISH);
+    }
+
+    @Override
+    public void readComplexCollection(ODataRequest oDataRequest, ODataResponse oDataResponse, UriInfo uriInfo, ContentType contentType) throws ODataApplicationException, ODataLibraryException {
+        processFunction(oDataRequest, oDataResponse, uriInfo, contentType);
+    }
+
+    @Override
+    public void updateComplexCollection(ODataRequest oDataRequest, ODataResponse oDataResponse, UriInfo uriInfo, ContentType requestFormat, ContentType responseFormat) throws ODataApplicationException, ODataLibraryException {
+        throw new ODataApplicationException("Haven't been implemented yet.", HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ENGLISH);
+    }
+
+    @Override
+    public void deleteComplexCollection(ODataRequest oDataRequest, ODataResponse oDataResponse, UriInfo uriInfo) throws ODataApplicationException, ODataLibraryException {
+        throw new ODataApplicationException("Haven't been implemented yet.", HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ENGLISH);
+    }
+
+    /**
+     * Calls the function of the last segment of the uri, and writes its primitive, complex or entity result;
+     * a collection of entities is converted while the streamed serializer writes it.
+     */
+    public void processFunction(ODataRequest oDataRequest, ODataResponse oDataResponse, UriInfo uriInfo, ContentType contentType) throws ODataApplicationException, ODataLibraryException {
+        UriResource resource = getResourceFromUriInfo(uriInfo);
+
+        if (!(resource instanceof UriResourceFunction)) {
+            throw new ODataApplicationException("Haven't been implemented yet.", HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ENGLISH);
+        }
+
+        try {
+            processFunction(oDataRequest, oDataResponse, uriInfo, (UriResourceFunction) resource, contentType);
+        } catch (SaturnODataException e) {
+            int statusCode = e.getStatusCode() == 0 ? HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode() : e.getStatusCode();
+            throw new ODataApplicationException(e.getMessage(), statusCode, Locale.ENGLISH, e);
+        }
+    }
+
+    private void processFunction(ODataRequest oDataRequest, ODataResponse oDataResponse, UriInfo uriInfo, UriResourceFunction uriResourceFunction,
+                                 ContentType contentType) throws SaturnODataException, SerializerException {
+        EdmFunction edmFunction = uriResourceFunction.getFunction();
+        FunctionPlan plan = functionPlans.get(edmFunction.getName());
+        CustomOperation<?> customOperation = functionMap.get(edmFunction.getName());
+
+        if (plan == null || customOperation == null) {
+            throw new SaturnODataException(HttpStatusCode.NOT_IMPLEMENTED, "Function %s isn't implemented.", edmFunction.getName());
+        }
+
+        List<UriParameter> parameters = uriResourceFunction.getParameters();
+        Map<String, UriParameter> parameterMap = parameters.stream().collect(Collectors.toMap(UriParameter::getName, p -> p));
+        Object result = customOperation.process(parameterMap, plan.bind(parameters, uriInfo), edmFunction.isBound());
+
+        EdmReturnType returnType = edmFunction.getReturnType();
+        EdmType type = returnType.getType();
+        boolean collection = returnType.isCollection();
+
+        if (result == null && !collection) {
+            oDataResponse.setStatusCode(HttpStatusCode.NO_CONTENT.getStatusCode());
+            return;
+        }
+
+        ODataSerializer oDataSerializer = odata.createSerializer(contentType);
+
+        switch (type.getKind()) {
+            case PRIMITIVE:
+                writePrimitive(oDataSerializer, oDataResponse, (EdmPrimitiveType) type, collection, result);
+                break;
+            case COMPLEX:
+                writeComplex(oDataSerializer, oDataResponse, uriInfo, (EdmComplexType) type, collection, result);
+                break;
+            case ENTITY:
+                EdmEntitySet edmEntitySet = getReturnedEntitySet(uriInfo, uriResourceFunction);
+                if (collection) {
+                    String requestPath = oDataRequest.getRawBaseUri() + oDataRequest.getRawODataPath();
+                    writeEntities(oDataSerializer, oDataResponse, uriInfo, (EdmEntityType) type, edmEntitySet, requestPath, result);
+                } else {
+                    writeEntity(oDataSerializer, oDataResponse, uriInfo, (EdmEntityType) type, edmEntitySet, result);
+                }
+                break;
+            default:
+                throw new SaturnODataException(HttpStatusCode.NOT_IMPLEMENTED, "Functions returning %s haven't been implemented yet.", type.getKind());
+        }
+        oDataResponse.setStatusCode(HttpStatusCode.OK.getStatusCode());
+        oDataResponse.setHeader(HttpHeader.CONTENT_TYPE, contentType.toContentTypeString());
+    }
+
+    private void writePrimitive(ODataSerializer oDataSerializer, ODataResponse oDataResponse, EdmPrimitiveType type, boolean collection,
+                                Object result) throws SaturnODataException, SerializerException {
+        ContextURL.Builder contextURL = ContextURL.with().serviceRoot(getServiceRoot()).type(type);
+        Property property;
+        SerializerResult serializerResult;
+
+        if (collection) {
+            List<Object> values = toStream(result).map(FunctionProcessor::toPrimitiveValue).collect(Collectors.toList());
+            property = new Property(type.getFullQualifiedName().getFullQualifiedNameAsString(), null, ValueType.COLLECTION_PRIMITIVE, values);
+            PrimitiveSerializerOptions options = PrimitiveSerializerOptions.with().contextURL(contextURL.asCollection().build()).build();
+            serializerResult = oDataSerializer.primitiveCollection(serviceMetadata, type, property, options);
+        } else {
+            property = new Property(type.getFullQualifiedName().getFullQualifiedNameAsString(), null, ValueType.PRIMITIVE, toPrimitiveValue(result));
+            PrimitiveSerializerOptions options = PrimitiveSerializerOptions.with().contextURL(contextURL.build()).build();
+            serializerResult = oDataSerializer.primitive(serviceMetadata, type, property, options);
+        }
+        oDataResponse.setContent(serializerResult.getContent());
+    }
+
+    private void writeComplex(ODataSerializer oDataSerializer, ODataResponse oDataResponse, UriInfo uriInfo, EdmComplexType type, boolean collection,
+                              Object result) throws SaturnODataException, SerializerException {
+        ContextURL.Builder contextURL = ContextURL.with().serviceRoot(getServiceRoot()).type(type);
+        String typeName = type.getFullQualifiedName().getFullQualifiedNameAsString();
+        SerializerResult serializerResult;
+
+        if (collection) {
+            List<ComplexValue> values = new ArrayList<>();
+            for (Object object : toStream(result).collect(Collectors.toList())) {
+                values.add(toComplexValue(object));
+            }
+            ComplexSerializerOptions options = ComplexSerializerOptions.with().contextURL(contextURL.asCollection().build())
+                    .select(uriInfo.getSelectOption()).expand(uriInfo.getExpandOption()).build();
+            serializerResult = oDataSerializer.complexCollection(serviceMetadata, type,
+                    new Property(typeName, null, ValueType.COLLECTION_COMPLEX, values), options);
+        } else {
+            ComplexSerializerOptions options = ComplexSerializerOptions.with().contextURL(contextURL.build())
+                    .select(uriInfo.getSelectOption()).expand(uriInfo.getExpandOption()).build();
+            serializerResult = oDataSerializer.complex(serviceMetadata, type,
+                    new Property(typeName, null, ValueType.COMPLEX, toComplexValue(result)), options);
+        }
+        oDataResponse.setContent(serializerResult.getContent());
+    }
+
+    private void writeEntity(ODataSerializer oDataSerializer, ODataResponse oDataResponse, UriInfo uriInfo, EdmEntityType type, EdmEntitySet edmEntitySet,
+                             Object result) throws SaturnODataException, SerializerException {
+        SelectOption selectOption = uriInfo.getSelectOption();
+        ExpandOption expandOption = uriInfo.getExpandOption();
+        Entity entity;
+
+        try {
+            entity = fromObject2Entity(result, expandOption, selectOption);
+        } catch (IllegalAccessException e) {
+            throw new SaturnODataException(HttpStatusCode.INTERNAL_SERVER_ERROR, e.getMessage());
+        }
+
+        EntitySerializerOptions options = EntitySerializerOptions
+                .with()
+                .contextURL(getEntityContextURL(type, edmEntitySet, selectOption, expandOption).suffix(ContextURL.Suffix.ENTITY).build())
+                .select(selectOption)
+                .expand(expandOption)
+                .build();
+
+        oDataResponse.setContent(oDataSerializer.entity(serviceMetadata, type, entity, options).getContent());
+    }
+
+    private void writeEntities(ODataSerializer oDataSerializer, ODataResponse oDataResponse, UriInfo uriInfo, EdmEntityType type, EdmEntitySet edmEntitySet,
+                               String requestPath, Object result) throws SaturnODataException, SerializerException {
+        SelectOption selectOption = uriInfo.getSelectOption();
+        ExpandOption expandOption = uriInfo.getExpandOption();
+
+        EntityCollectionSerializerOptions options = EntityCollectionSerializerOptions
+                .with()
+                .id(requestPath)
+                .contextURL(getEntityContextURL(type, edmEntitySet, selectOption, expandOption).build())
+                .select(selectOption)
+                .expand(expandOption)
+                .build();
+
+        // the whole result is written, without next link.
+        Stream<?> rows = toStream(result);
+        EntityObjectIterator entityIterator = new EntityObjectIterator(this, rows.iterator(), Integer.MAX_VALUE, expandOption, selectOption,
+                null, (size, last, hasMore) -> null);
+
+        try {
+            SerializerStreamResult serializerResult = oDataSerializer.entityCollectionStreamed(serviceMetadata, type, entityIterator, options);
+            oDataResponse.setODataContent(new StreamedContent(serializerResult.getODataContent(), rows));
+        } catch (SerializerException | RuntimeException e) {
+            rows.close();
+            throw e;
+        }
+    }
+
+    private ContextURL.Builder getEntityContextURL(EdmEntityType type, EdmEntitySet edmEntitySet, SelectOption selectOption,
+                                                   ExpandOption expandOption) throws SaturnODataException, SerializerException {
+        ContextURL.Builder contextURL = ContextURL
+                .with()
+                .serviceRoot(getServiceRoot())
+                .selectList(odata.createUriHelper().buildContextURLSelectList(type, expandOption, selectOption));
+
+        return edmEntitySet == null ? contextURL.type(type) : contextURL.entitySet(edmEntitySet);
+    }
+
+    /**
+     * @return the entity set of the function import, or the one the entity set path of a bound function
+     *         leads to; null if the function doesn't tell it.
+     */
+    private static EdmEntitySet getReturnedEntitySet(UriInfo uriInfo, UriResourceFunction uriResourceFunction) {
+        if (uriResourceFunction.getFunctionImport() != null) {
+            return uriResourceFunction.getFunctionImport().getReturnedEntitySet();
+        }
+
+        List<UriResource> uriResourceParts = uriInfo.getUriResourceParts();
+        UriResource binding = uriResourceParts.size() < 2 ? null : uriResourceParts.get(uriResourceParts.size() - 2);
+        return binding instanceof UriResourceEntitySet
+                ? uriResourceFunction.getFunction().getReturnedEntitySet(((UriResourceEntitySet) binding).getEntitySet())
+                : null;
+    }
+
+    private URI getServiceRoot() throws SaturnODataException {
+        try {
+            return new URI(saturnEdmContext.getServiceRoot());
+        } catch (URISyntaxException e) {
+            throw new SaturnODataException(HttpStatusCode.INTERNAL_SERVER_ERROR, e.getMessage());
+        }
+    }
+
+    private ComplexValue toComplexValue(Object object) throws SaturnODataException {
+        ComplexValue complexValue = new ComplexValue();
+
+        if (object != null) {
+            try {
+                complexValue.getValue().addAll(fromObject2Entity(object).getProperties());
+            } catch (IllegalAccessException e) {
+                throw new SaturnODataException(HttpStatusCode.INTERNAL_SERVER_ERROR, e.getMessage());
+            }
+        }
+        return complexValue;
+    }
+
+    /**
+     * @return the value as the olingo serializer expects it, dates are written from calendars.
+     */
+    private static Object toPrimitiveValue(Object value) {
+        if (value instanceof LocalDate) {
+            return GregorianCalendar.from(((LocalDate) value).atStartOfDay(ZoneId.systemDefault()));
+        } else if (value instanceof LocalDateTime) {
+            return GregorianCalendar.from(((LocalDateTime) value).atZone(ZoneId.systemDefault()));
+        }
+        return value;
+    }
+
+    /**
+     * @return the items of a collection result, which is a {@link Collection} or a {@link Stream}.
+     */
+    private static Stream<?> toStream(Object result) throws SaturnODataException {
+        if (result == null) {
+            return Stream.empty();
+        } else if (result instanceof Stream) {
+            return (Stream<?>) result;
+        } else if (result instanceof Collection) {
+            return ((Collection<?>) result).stream();
+        }
+        throw new SaturnODataException(HttpStatusCode.INTERNAL_SERVER_ERROR, "%s isn't a collection.", result.getClass().getName());
+    }
+}
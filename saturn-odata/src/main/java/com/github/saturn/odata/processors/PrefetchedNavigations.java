@@ -0,0 +1,72 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) [2020] [He Zhang]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished
+ *  to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.saturn.odata.processors;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Navigation property values loaded in batch for the rows of a page, by parent instance and navigation property name.
+ * The conversion reads them instead of the navigation field of the parent, e.g. a lazy jpa association.
+ */
+public final class PrefetchedNavigations {
+
+    private final Map<Object, Map<String, Object>> values = new IdentityHashMap<>();
+    private boolean complete = true;
+
+    public boolean contains(final Object parent, final String navigationProperty) {
+        Map<String, Object> navigations = values.get(parent);
+        return navigations != null && navigations.containsKey(navigationProperty);
+    }
+
+    /**
+     * @return the entity, or the list of entities of a collection, of the navigation property of the parent.
+     */
+    public Object get(final Object parent, final String navigationProperty) {
+        Map<String, Object> navigations = values.get(parent);
+        return navigations == null ? null : navigations.get(navigationProperty);
+    }
+
+    void put(final Object parent, final String navigationProperty, final Object value) {
+        values.computeIfAbsent(parent, key -> new HashMap<>()).put(navigationProperty, value);
+    }
+
+    public boolean isEmpty() {
+        return values.isEmpty();
+    }
+
+    /**
+     * @return true if every expanded navigation property was loaded in batch, the conversion then reads no
+     *         association from the rows, e.g. a lazy jpa association which can't be loaded off the request thread.
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    void markIncomplete() {
+        complete = false;
+    }
+}
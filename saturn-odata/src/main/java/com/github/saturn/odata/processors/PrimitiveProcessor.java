@@ -49,6 +49,7 @@ import org.apache.olingo.server.api.serializer.SerializerResult;
 import org.apache.olingo.server.api.uri.UriInfo;
 import org.apache.olingo.server.api.uri.UriResource;
 import org.apache.olingo.server.api.uri.UriResourceEntitySet;
+import org.apache.olingo.server.api.uri.UriResourceFunction;
 import org.apache.olingo.server.api.uri.UriResourceProperty;
 import org.springframework.context.ApplicationContext;
 import org.slf4j.Logger;
@@ -79,6 +80,8 @@ public class PrimitiveProcessor extends BaseTypeProcessor implements org.apache.
             } catch (SaturnODataException e) {
                 LOG.error(e.getMessage());
             }
+        } else if (resource instanceof UriResourceFunction) {
+            readFunction(oDataRequest, oDataResponse, uriInfo, contentType);
         } else {
             throw new ODataApplicationException("Haven't been implemented yet.", HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ENGLISH);
         }
@@ -170,7 +173,11 @@ public class PrimitiveProcessor extends BaseTypeProcessor implements org.apache.
 
     @Override
     public void readPrimitiveCollection(ODataRequest oDataRequest, ODataResponse oDataResponse, UriInfo uriInfo, ContentType contentType) throws ODataApplicationException, ODataLibraryException {
-
+        if (getResourceFromUriInfo(uriInfo) instanceof UriResourceFunction) {
+            readFunction(oDataRequest, oDataResponse, uriInfo, contentType);
+        } else {
+            throw new ODataApplicationException("Haven't been implemented yet.", HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ENGLISH);
+        }
     }
 
     @Override
@@ -25,31 +25,27 @@
 package com.github.saturn.odata.processors;
 
 import com.github.saturn.odata.annotations.ODataEntityType;
-import com.github.saturn.odata.annotations.ODataEntitySet;
 import com.github.saturn.odata.annotations.ODataEnumType;
 import com.github.saturn.odata.annotations.ODataComplexType;
 import com.github.saturn.odata.annotations.ODataProperty;
 import com.github.saturn.odata.annotations.ODataNavigationProperty;
-import com.github.saturn.odata.enums.PrimitiveType;
 import com.github.saturn.odata.enums.SelfDefinedType;
 import com.github.saturn.odata.exceptions.SaturnODataException;
+import com.github.saturn.odata.interfaces.EntityAccessor;
 import com.github.saturn.odata.interfaces.EntityOperation;
 import com.github.saturn.odata.metadata.SaturnEdmContext;
 import com.github.saturn.odata.utils.ClassUtils;
 
 import com.github.saturn.odata.utils.ExceptionUtils;
 import com.github.saturn.odata.utils.ODataUtils;
-import com.github.saturn.odata.utils.StringUtils;
 import org.apache.olingo.commons.api.data.ComplexValue;
 import org.apache.olingo.commons.api.data.Entity;
 import org.apache.olingo.commons.api.data.Property;
-import org.apache.olingo.commons.api.data.ValueType;
 import org.apache.olingo.commons.api.data.Link;
 import org.apache.olingo.commons.api.data.EntityCollection;
 import org.apache.olingo.commons.api.edm.EdmBindingTarget;
 import org.apache.olingo.commons.api.edm.EdmEntitySet;
 import org.apache.olingo.commons.api.edm.EdmNavigationProperty;
-import org.apache.olingo.commons.api.edm.FullQualifiedName;
 import org.apache.olingo.commons.api.http.HttpStatusCode;
 import org.apache.olingo.server.api.OData;
 import org.apache.olingo.server.api.ServiceMetadata;
@@ -57,8 +53,8 @@ import org.apache.olingo.server.api.deserializer.DeserializerException;
 import org.apache.olingo.server.api.processor.Processor;
 import org.apache.olingo.server.api.uri.UriParameter;
 import org.apache.olingo.server.api.uri.UriResourceEntitySet;
-import org.apache.olingo.server.api.uri.UriResourceKind;
 import org.apache.olingo.server.api.uri.queryoption.ExpandOption;
+import org.apache.olingo.server.api.uri.queryoption.SelectOption;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -68,16 +64,18 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.ZoneId;
 import java.sql.Timestamp;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.GregorianCalendar;
 import java.util.List;
-import java.util.Optional;
 import java.util.ArrayList;
-import java.util.Set;
-import java.util.HashSet;
 import java.util.Map;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
 import java.util.Arrays;
 import java.util.stream.Collectors;
 import java.util.Comparator;
@@ -90,6 +88,8 @@ public class SaturnProcessor implements Processor {
     protected ServiceMetadata serviceMetadata;
     protected SaturnEdmContext saturnEdmContext;
 
+    private final Map<Class<?>, EntityWritePlan> writePlans = new ConcurrentHashMap<>();
+
     @Override
     public void init(final OData odata, final ServiceMetadata serviceMetadata) {
         this.odata = odata;
@@ -115,240 +115,155 @@ public class SaturnProcessor implements Processor {
      * @return ..
      */
     protected Entity fromObject2Entity(final Object object, final ExpandOption expandOption) throws SaturnODataException, IllegalAccessException {
-        ExceptionUtils.assertNotNull(object, SelfDefinedType.ENTITY.getMessage());
+        return fromObject2Entity(object, expandOption, null);
+    }
 
-        Entity entity = new Entity();
-        Class<?> clazz = object.getClass();
-
-        ODataEntityType oDataEntityType = clazz.getAnnotation(ODataEntityType.class);
-        ODataEntitySet oDataEntitySet = clazz.getAnnotation(ODataEntitySet.class);
-        ODataComplexType oDataComplexType = clazz.getAnnotation(ODataComplexType.class);
-
-        if (oDataEntityType == null && oDataComplexType == null) {
-            throw new SaturnODataException(
-                    HttpStatusCode.INTERNAL_SERVER_ERROR, "Class %s should have annotation @ODataEntityType or @ODataComplexType.", clazz);
-        } else if (oDataEntityType != null && oDataEntitySet == null) {
-            throw new SaturnODataException(
-                    HttpStatusCode.INTERNAL_SERVER_ERROR, "Class %s should have annotation @ODataEntitySet.", clazz);
-        } else if (oDataEntityType != null && oDataEntityType.name().trim().isEmpty()) {
-            throw new SaturnODataException(
-                    HttpStatusCode.INTERNAL_SERVER_ERROR, "Class %s with annotation @ODataEntityType should have name field.", clazz);
-        } else if (oDataEntitySet != null && oDataEntitySet.name().trim().isEmpty()) {
-            throw new SaturnODataException(
-                    HttpStatusCode.INTERNAL_SERVER_ERROR, "Class %s with annotation @ODataEntitySet should have name field.", clazz);
-        }
+    /**
+     * @param selectOption $select of the request, only the selected properties and the keys are converted.
+     */
+    protected Entity fromObject2Entity(final Object object, final ExpandOption expandOption, final SelectOption selectOption) throws SaturnODataException, IllegalAccessException {
+        return fromObject2Entity(object, expandOption, selectOption, null);
+    }
 
-        String entityName = oDataEntityType != null ? oDataEntityType.name() : oDataComplexType.name();
-        List<Field> fields = ClassUtils.getFields(clazz);
-        LOG.debug("{} fields loaded in class {}", fields.size(), clazz);
+    /**
+     * @param prefetched navigation properties loaded in batch for the page, read instead of the fields of the objects.
+     */
+    protected Entity fromObject2Entity(final Object object, final ExpandOption expandOption, final SelectOption selectOption,
+                                       final PrefetchedNavigations prefetched) throws SaturnODataException, IllegalAccessException {
+        return fromObject2Entity(object, ExpandTree.compile(expandOption), selectOption, prefetched);
+    }
 
-        for (Field field : fields) {
-            LOG.debug("Start processing {} field of type {}.", field.getName(), field.getType());
+    /**
+     * @param expandTree $expand compiled once for all the rows of the request, see {@link ExpandTree#compile(ExpandOption)}.
+     */
+    protected Entity fromObject2Entity(final Object object, final ExpandTree expandTree, final SelectOption selectOption,
+                                       final PrefetchedNavigations prefetched) throws SaturnODataException, IllegalAccessException {
+        ExceptionUtils.assertNotNull(object, SelfDefinedType.ENTITY.getMessage());
 
-            if (field.isAnnotationPresent(ODataProperty.class)) {
-                Property property = generateEntityProperty(field, object, expandOption);
-                entity.addProperty(property);
-                LOG.debug("Load property {} into entity {} ", property, entityName);
+        Entity entity = new Entity();
+        EntityWritePlan plan = getWritePlan(object.getClass());
+        Set<String> selected = ODataUtils.getSelectedProperties(selectOption);
 
-            } else if (field.isAnnotationPresent(ODataNavigationProperty.class)) {
-                Link link = generateEntityLink(field, object, expandOption);
+        for (EntityWritePlan.PropertyPlan propertyPlan : plan.getProperties()) {
+            if (selected == null || selected.contains(propertyPlan.getName()) || plan.getKeys().contains(propertyPlan.getName())) {
+                entity.addProperty(generateEntityProperty(propertyPlan, object, expandTree, prefetched));
+            }
+        }
+
+        if (!expandTree.isEmpty()) {
+            for (EntityWritePlan.NavigationPlan navigationPlan : plan.getNavigations()) {
+                ExpandTree nestedTree = expandTree.get(navigationPlan.getName());
+                Link link = nestedTree == null ? null : generateEntityLink(navigationPlan, object, nestedTree, prefetched);
                 if (link != null) {
                     entity.getNavigationLinks().add(link);
-                    LOG.debug("Load navigation property {} into entity {} ", link, entityName);
                 }
             }
         }
 
-        // entity should have a key array if it is not a complex type
-        if (oDataEntityType != null) {
-
-            String[] keys = oDataEntityType.keys();
-            ExceptionUtils.assertLengthGreaterThanZero(keys, oDataEntityType.name() + " -> keys");
-            Set<String> keySet = new HashSet<>(Arrays.asList(keys));
-            Map<String, Object> keyValues = entity
-                    .getProperties()
-                    .stream()
-                    .filter(k -> keySet.contains(k.getName()))
-                    .collect(Collectors.toMap(Property::getName, Property::getValue));
+        if (plan.isEntityType()) {
+            Map<String, Object> keyValues = new LinkedHashMap<>();
+            for (String key : plan.getKeys()) {
+                Property property = entity.getProperty(key);
+                if (property != null && property.getValue() != null) {
+                    keyValues.put(key, property.getValue());
+                }
+            }
             String entityId = ODataUtils.generateFormatedEntityId(keyValues);
 
             if (entityId != null) {
                 try {
-                    entity.setId(new URI(oDataEntitySet.name() + entityId));
+                    entity.setId(new URI(plan.getEntitySetName() + entityId));
                 } catch (URISyntaxException e) {
                     throw new SaturnODataException(HttpStatusCode.INTERNAL_SERVER_ERROR, e.getMessage());
                 }
             }
-            entity.setType(String.format(StringUtils.FQN, oDataEntityType.namespace(), oDataEntityType.name()));
-
-        } else {
-            entity.setType(String.format(StringUtils.FQN, oDataComplexType.namespace(), oDataComplexType.name()));
         }
+        entity.setType(plan.getType());
 
         return entity;
     }
 
-    private Property generateEntityProperty(final Field field, final Object object, final ExpandOption expandOption) throws IllegalAccessException, SaturnODataException {
-
-        field.setAccessible(true);
-        Object actualValue = field.get(object);
-        ODataProperty oDataProperty = field.getAnnotation(ODataProperty.class);
-        String propertyName = oDataProperty.name().trim().isEmpty() ? field.getName() : oDataProperty.name();
-
-        LOG.debug("Load property {} for edm entity {} from field {} of class {} with value: {}",
-                propertyName, object.getClass(), field.getName(), field.getDeclaringClass(), actualValue);
-
-        Class<?> fieldType = field.getType();
-        String type = null;
-        ValueType valueType = null;
-
-        PrimitiveType primitiveType = ODataUtils.getPrimitiveType(fieldType);
-
-        // for primitiveType condition
-        if (primitiveType != null) {
-            type = primitiveType.getType();
-            valueType = ValueType.PRIMITIVE;
-
-            if (primitiveType.equals(PrimitiveType.EDM_DATE)) {
-                if (actualValue != null) {
-                    LocalDate localDate = (LocalDate) actualValue;
-                    actualValue = GregorianCalendar.from(localDate.atStartOfDay(ZoneId.systemDefault()));
-                }
-            } else if (primitiveType.equals(PrimitiveType.EDM_DATE_TIME)) {
-                if (actualValue != null) {
-                    LocalDateTime localDateTime = (LocalDateTime) actualValue;
-                    actualValue = GregorianCalendar.from(localDateTime.atZone(ZoneId.systemDefault()));
-                }
-            }
-        } else if (fieldType.isEnum()) {
-            valueType = ValueType.ENUM;
-
-            if (actualValue instanceof Enum) {
-                Enum<?> odataEnum = (Enum<?>) actualValue;
-                actualValue = odataEnum.ordinal();
-            } else if (actualValue != null) {
-                throw new SaturnODataException("%s is not an enum type", actualValue);
+    /**
+     * @param clazz class annotated with <code>@ODataEntityType</code> or <code>@ODataComplexType</code>.
+     * @return the write plan of the class, built on first use.
+     */
+    EntityWritePlan getWritePlan(final Class<?> clazz) throws SaturnODataException, IllegalAccessException {
+        EntityWritePlan plan = writePlans.get(clazz);
+        if (plan == null) {
+            plan = EntityWritePlan.build(clazz, saturnEdmContext);
+            EntityWritePlan existing = writePlans.putIfAbsent(clazz, plan);
+            if (existing != null) {
+                plan = existing;
             }
-        } else if (Collection.class.isAssignableFrom(fieldType)) {
-            ParameterizedType parameterizedType = (ParameterizedType) field.getGenericType();
-            Class<?> argType = (Class<?>) (parameterizedType.getActualTypeArguments()[0]);
-            PrimitiveType pt = ODataUtils.getPrimitiveType(argType);
-
-            // for condition List<Integer>, basic type of collections.
-            if (pt != null) {
-                type = String.format(StringUtils.COLLECTION_QUALIFIED_FULL_NAME, pt.getType());
-                valueType = ValueType.COLLECTION_PRIMITIVE;
-            } else {
+            LOG.debug("Write plan of {} built with {} properties.", clazz, plan.getProperties().size());
+        }
+        return plan;
+    }
 
-                // todo: can be referenced by getFunction with collection parameters.
-                // for condition List<Entity>
-                FullQualifiedName fullQualifiedName =
-                        ODataUtils.getFullQualifiedNameFromClassType(argType, saturnEdmContext.getNameSpace());
-                if (fullQualifiedName != null) {
-                    // todo, should clear whether should use fullQualifiedName.name().
-                    type = String.format(StringUtils.COLLECTION_QUALIFIED_FULL_NAME, fullQualifiedName.toString());
-
-                    if (argType.isAnnotationPresent(ODataEnumType.class)) {
-                        valueType = ValueType.COLLECTION_ENUM;
-                    } else if (argType.isAnnotationPresent(ODataComplexType.class)) {
-                        valueType = ValueType.COLLECTION_COMPLEX;
-                    }
-                }
-            }
-        } else {
+    private Property generateEntityProperty(final EntityWritePlan.PropertyPlan propertyPlan, final Object object, final ExpandTree expandTree,
+                                            final PrefetchedNavigations prefetched) throws IllegalAccessException, SaturnODataException {
+        Object actualValue;
 
-            if (!fieldType.isAnnotationPresent(ODataComplexType.class)) {
-                throw new SaturnODataException(
-                        HttpStatusCode.INTERNAL_SERVER_ERROR,
-                        "Unrecognized type found: %s in field %s [%s].", fieldType, field.getName(), object.getClass().getName());
-            }
-            ODataComplexType oDataComplexType = fieldType.getAnnotation(ODataComplexType.class);
-            Object complexObj = field.get(object);
+        if (propertyPlan.getComplexClass() != null) {
+            actualValue = null;
+            Object complexObj = propertyPlan.read(object);
 
             if (complexObj != null) {
-                Entity complexEntity = fromObject2Entity(complexObj, expandOption);
+                Entity complexEntity = fromObject2Entity(complexObj, expandTree, null, prefetched);
                 ComplexValue complexValue = new ComplexValue();
                 complexValue.getValue().addAll(complexEntity.getProperties());
                 actualValue = complexValue;
             }
-
-            type = String.format(StringUtils.FQN, oDataComplexType.namespace(), oDataComplexType.name());
-            valueType = ValueType.COMPLEX;
+        } else {
+            actualValue = propertyPlan.readValue(object);
         }
-        return new Property(type, propertyName, valueType, actualValue);
+        return new Property(propertyPlan.getType(), propertyPlan.getName(), propertyPlan.getValueType(), actualValue);
     }
 
 
-    private Link generateEntityLink(final Field field, final Object object, final ExpandOption expandOption) {
-
-        if (expandOption == null || expandOption.getExpandItems().isEmpty()) {
-            return null;
-        }
+    /**
+     * @param nestedTree the items nested in the expanded navigation property.
+     */
+    private Link generateEntityLink(final EntityWritePlan.NavigationPlan navigationPlan, final Object object, final ExpandTree nestedTree,
+                                    final PrefetchedNavigations prefetched) throws IllegalAccessException, SaturnODataException {
 
-        ODataNavigationProperty oDataNavigationProperty = field.getAnnotation(ODataNavigationProperty.class);
-        String linkName = oDataNavigationProperty.name().trim().isEmpty()
-                ? field.getName() : oDataNavigationProperty.name();
+        String linkName = navigationPlan.getName();
         List<Entity> entities = new ArrayList<>();
-        boolean collectionType = Collection.class.isAssignableFrom(field.getType());
-
-        Optional<List<Entity>> optionalEntities = expandOption
-                .getExpandItems()
-                .parallelStream()
-                .filter(expandItem -> expandItem
-                        .getResourcePath()
-                        .getUriResourceParts()
-                        .parallelStream()
-                        .anyMatch(uriResource -> uriResource
-                                .getKind().equals(UriResourceKind.navigationProperty)
-                                && uriResource.getSegmentValue().equals(linkName)))
-                .findFirst()
-                .map(expandItem -> {
-                    ExpandOption expandNestedOption = expandItem.getExpandOption();
-
-                    try {
-                        field.setAccessible(true);
-                        Object expandNestedObject = field.get(object);
-
-                        if (expandNestedObject != null) {
-
-                            if (collectionType) {
-                                List<?> expandNestedObjects = (List<?>) expandNestedObject;
-                                for (Object obj : expandNestedObjects) {
-                                    Entity expandEntity = fromObject2Entity(obj, expandNestedOption);
-                                    entities.add(expandEntity);
-                                }
-                            } else {
-                                Entity expandEntity = fromObject2Entity(expandNestedObject, expandNestedOption);
-                                entities.add(expandEntity);
-                            }
-                        }
-                        return entities;
-                    } catch (IllegalAccessException | SaturnODataException e) {
-                        LOG.error(e.getMessage(), e);
-                        return null;
-                    }
-                });
+        boolean collectionType = navigationPlan.isCollection();
 
-        if (optionalEntities.isPresent()) {
-            Link link = new Link();
-            link.setTitle(linkName);
+        Object expandNestedObject = prefetched != null && prefetched.contains(object, linkName)
+                ? prefetched.get(object, linkName)
+                : navigationPlan.read(object);
+
+        if (expandNestedObject != null) {
 
             if (collectionType) {
-                EntityCollection collection = new EntityCollection();
-                collection.getEntities().addAll(entities);
-                link.setInlineEntitySet(collection);
+                List<?> expandNestedObjects = (List<?>) expandNestedObject;
+                for (Object obj : expandNestedObjects) {
+                    entities.add(fromObject2Entity(obj, nestedTree, null, prefetched));
+                }
             } else {
+                entities.add(fromObject2Entity(expandNestedObject, nestedTree, null, prefetched));
+            }
+        }
 
-                if (optionalEntities.get().isEmpty()) {
-                    return null;
-                }
-                Entity entity = optionalEntities.get().get(0);
-                link.setInlineEntity(entity);
-                link.setType(entity.getType());
+        Link link = new Link();
+        link.setTitle(linkName);
+
+        if (collectionType) {
+            EntityCollection collection = new EntityCollection();
+            collection.getEntities().addAll(entities);
+            link.setInlineEntitySet(collection);
+        } else {
+
+            if (entities.isEmpty()) {
+                return null;
             }
-            return link;
+            Entity entity = entities.get(0);
+            link.setInlineEntity(entity);
+            link.setType(entity.getType());
         }
-        return null;
+        return link;
     }
 
     protected Object fromEntity2Object(final Entity entity, final Class<?> clazz) throws IllegalAccessException, InstantiationException {
@@ -356,7 +271,11 @@ public class SaturnProcessor implements Processor {
         if (entity == null || clazz == null) {
             return null;
         }
-        Object object = clazz.newInstance();
+        EntityAccessor accessor = saturnEdmContext == null ? null : saturnEdmContext.getAccessor(clazz);
+        Object object = accessor == null ? null : accessor.newInstance();
+        if (object == null) {
+            object = clazz.newInstance();
+        }
         List<Field> fields = ClassUtils.getFields(clazz);
         LOG.debug("{} class loaded in fields {}", clazz, fields.size());
 
@@ -376,35 +295,36 @@ public class SaturnProcessor implements Processor {
                         ComplexValue complexValue = (ComplexValue) property.getValue();
                         complexEntity.getProperties().addAll(complexValue.getValue());
                         Object complexObject = fromEntity2Object(complexEntity, fieldClass);
-                        field.setAccessible(true);
-                        field.set(object, complexObject);
+                        setField(accessor, field, object, complexObject);
 
                     } else if (fieldClass.isAnnotationPresent(ODataEnumType.class) && property.asEnum() != null) {
                         Enum<?>[] constants = (Enum<?>[]) fieldClass.getEnumConstants();
                         Arrays.sort(constants, Comparator.comparingInt(Enum::ordinal));
                         // todo: need to test here
-                        Object actualValue = constants[((Enum<?>) property.asEnum()).ordinal()];
-                        field.setAccessible(true);
-                        field.set(object, actualValue);
+                        // the deserializer gives the value of the member, its ordinal or its bit for flags.
+                        Object enumValue = property.asEnum();
+                        int ordinal = enumValue instanceof Number
+                                ? fieldClass.getAnnotation(ODataEnumType.class).isFlags()
+                                        ? Long.numberOfTrailingZeros(((Number) enumValue).longValue())
+                                        : ((Number) enumValue).intValue()
+                                : ((Enum<?>) enumValue).ordinal();
+                        Object actualValue = constants[ordinal];
+                        setField(accessor, field, object, actualValue);
 
                     } else if (Collection.class.isAssignableFrom(fieldClass)) {
-                        field.setAccessible(true);
-                        field.set(object, property.getValue());
+                        setField(accessor, field, object, property.getValue());
 
                     } else {
                         if (field.getType().isAssignableFrom(LocalDate.class)
                                 && property.getValue() instanceof GregorianCalendar) {
-                            field.setAccessible(true);
-                            field.set(object, ((GregorianCalendar) property.getValue()).toZonedDateTime().toLocalDate());
+                            setField(accessor, field, object, ((GregorianCalendar) property.getValue()).toZonedDateTime().toLocalDate());
 
                         } else if (field.getType().isAssignableFrom(LocalDateTime.class)
                                 && property.getValue() instanceof Timestamp) {
-                            field.setAccessible(true);
-                            field.set(object, ((Timestamp) property.getValue()).toLocalDateTime());
+                            setField(accessor, field, object, ((Timestamp) property.getValue()).toLocalDateTime());
 
                         } else {
-                            field.setAccessible(true);
-                            field.set(object, property.getValue());
+                            setField(accessor, field, object, property.getValue());
                         }
                     }
                 }
@@ -433,16 +353,14 @@ public class SaturnProcessor implements Processor {
                                 }
                             }
 
-                            field.setAccessible(true);
-                            field.set(object, inlineObjects);
+                            setField(accessor, field, object, inlineObjects);
                         }
 
                     } else {
-                        field.setAccessible(true);
                         ODataEntityType oDataEntityType = fieldClass.getAnnotation(ODataEntityType.class);
                         Class<?> entityClazz = saturnEdmContext.getEntityTypes().get(oDataEntityType.name());
                         Object entityObject = fromEntity2Object(link.getInlineEntity(), entityClazz);
-                        field.set(object, entityObject);
+                        setField(accessor, field, object, entityObject);
                     }
                 }
             }
@@ -450,56 +368,105 @@ public class SaturnProcessor implements Processor {
         return object;
     }
 
+    private void setField(final EntityAccessor accessor, final Field field, final Object object, final Object value) throws IllegalAccessException {
+        BiConsumer<Object, Object> setter = accessor == null ? null : accessor.setter(field.getName());
+        if (setter != null) {
+            setter.accept(object, value);
+        } else {
+            field.setAccessible(true);
+            field.set(object, value);
+        }
+    }
+
+    /**
+     * Resolves the @odata.bind links of the request entity into inline entities. The links are grouped by the entity type
+     * they target and each group is read with one {@link EntityOperation#retrieveByKeys(List)}, a link bound twice is read once.
+     */
     protected void fromNaviBindings2NaviLinks(Entity reqEntity, Map<String, EntityOperation> entityOperationMap, String uri) throws SaturnODataException {
-        List<Link> naviBindings = reqEntity.getNavigationBindings();
+        fromNaviBindings2NaviLinks(Collections.singletonList(reqEntity), entityOperationMap, uri);
+    }
+
+    /**
+     * Resolves the @odata.bind links of all the request entities of a collection, grouped across the entities.
+     */
+    protected void fromNaviBindings2NaviLinks(List<Entity> reqEntities, Map<String, EntityOperation> entityOperationMap, String uri) throws SaturnODataException {
+        Map<String, BindingTarget> targets = new LinkedHashMap<>();
 
-        if (naviBindings != null && naviBindings.size() > 0) {
+        for (Entity reqEntity : reqEntities) {
+            for (Link link : reqEntity.getNavigationBindings()) {
+                for (String bindingLink : link.getBindingLinks().isEmpty() ? Collections.singletonList(link.getBindingLink()) : link.getBindingLinks()) {
+                    targets.computeIfAbsent(bindingLink, key -> new BindingTarget());
+                }
+            }
+        }
 
-            for (Link link : naviBindings) {
-                Link naviLink = new Link();
-                naviLink.setTitle(link.getTitle());
-                reqEntity.getNavigationLinks().add(naviLink);
+        if (targets.isEmpty()) {
+            return;
+        }
 
-                if (link.getBindingLinks().isEmpty()) {
-                    String bindingLink = link.getBindingLink();
-                    Entity entity = generateEntityFromBindingLink(bindingLink, entityOperationMap, uri);
-                    naviLink.setInlineEntity(entity);
+        Map<String, Entity> entities = retrieveBindingTargets(targets, entityOperationMap, uri);
 
-                } else {
-                    EntityCollection entityCollection = naviLink.getInlineEntitySet();
+        for (Entity reqEntity : reqEntities) {
+            addNaviLinks(reqEntity, entities);
+        }
+    }
 
-                    if (entityCollection == null) {
-                        entityCollection = new EntityCollection();
-                        naviLink.setInlineEntitySet(entityCollection);
-                    }
+    private void addNaviLinks(Entity reqEntity, Map<String, Entity> entities) {
+        for (Link link : reqEntity.getNavigationBindings()) {
+            Link naviLink = new Link();
+            naviLink.setTitle(link.getTitle());
+            reqEntity.getNavigationLinks().add(naviLink);
 
-                    for (String bindingLink : link.getBindingLinks()) {
-                        Entity entity = generateEntityFromBindingLink(bindingLink, entityOperationMap, uri);
-                        entityCollection.getEntities().add(entity);
-                    }
+            if (link.getBindingLinks().isEmpty()) {
+                naviLink.setInlineEntity(entities.get(link.getBindingLink()));
+
+            } else {
+                EntityCollection entityCollection = new EntityCollection();
+                naviLink.setInlineEntitySet(entityCollection);
+
+                for (String bindingLink : link.getBindingLinks()) {
+                    entityCollection.getEntities().add(entities.get(bindingLink));
                 }
             }
         }
     }
 
-    private Entity generateEntityFromBindingLink(String bindingLink, Map<String, EntityOperation> entityOperationMap, String uri) throws SaturnODataException {
-        try {
-            UriResourceEntitySet uriResourceEntitySet = odata.createUriHelper().parseEntityId(serviceMetadata.getEdm(), bindingLink, uri);
-            EdmEntitySet edmEntitySet = uriResourceEntitySet.getEntitySet();
-            List<UriParameter> parameters = uriResourceEntitySet.getKeyPredicates();
-            Map<String, UriParameter> parameterMap = parameters
-                    .stream()
-                    .collect(Collectors.toMap(UriParameter::getName, p -> p));
-
-            // services defined by self implement interface SaturnODataService.
-            EntityOperation entityOperation = entityOperationMap.get(edmEntitySet.getName());
-            ExceptionUtils.assertNotNull(entityOperation, SelfDefinedType.SERVICE.getMessage(), edmEntitySet.getName());
+    /**
+     * @return the entity of each binding link.
+     */
+    private Map<String, Entity> retrieveBindingTargets(Map<String, BindingTarget> targets, Map<String, EntityOperation> entityOperationMap, String uri)
+            throws SaturnODataException {
+        Map<String, List<String>> linksByType = new LinkedHashMap<>();
 
-            // the object is springEntity defined by self.
-            Object object = entityOperation.retrieveByKey(parameterMap);
-            ExceptionUtils.assertNotNull(object, SelfDefinedType.ENTITY.getMessage(), edmEntitySet.getName());
+        try {
+            for (Map.Entry<String, BindingTarget> entry : targets.entrySet()) {
+                UriResourceEntitySet uriResourceEntitySet = odata.createUriHelper().parseEntityId(serviceMetadata.getEdm(), entry.getKey(), uri);
+                BindingTarget target = entry.getValue();
+                target.entitySet = uriResourceEntitySet.getEntitySet().getName();
+                target.parameterMap = uriResourceEntitySet.getKeyPredicates()
+                        .stream()
+                        .collect(Collectors.toMap(UriParameter::getName, p -> p));
+                linksByType.computeIfAbsent(uriResourceEntitySet.getEntityType().getName(), key -> new ArrayList<>()).add(entry.getKey());
+            }
 
-            return fromObject2Entity(object, null);
+            Map<String, Entity> entities = new HashMap<>();
+            for (Map.Entry<String, List<String>> entry : linksByType.entrySet()) {
+                // services defined by self implement interface SaturnODataService.
+                EntityOperation entityOperation = entityOperationMap.get(entry.getKey());
+                ExceptionUtils.assertNotNull(entityOperation, SelfDefinedType.SERVICE.getMessage(), entry.getKey());
+
+                List<String> links = entry.getValue();
+                List<Map<String, UriParameter>> keys = links.stream().map(link -> targets.get(link).parameterMap).collect(Collectors.toList());
+                // the objects are springEntities defined by self, in the order of the keys.
+                List<?> objects = entityOperation.retrieveByKeys(keys);
+
+                for (int i = 0; i < links.size(); i++) {
+                    Object object = objects == null || i >= objects.size() ? null : objects.get(i);
+                    ExceptionUtils.assertNotNull(object, SelfDefinedType.ENTITY.getMessage(), targets.get(links.get(i)).entitySet + " " + links.get(i));
+                    entities.put(links.get(i), fromObject2Entity(object, null));
+                }
+            }
+            return entities;
 
         } catch (DeserializerException | SaturnODataException | IllegalAccessException e) {
             throw new SaturnODataException(HttpStatusCode.INTERNAL_SERVER_ERROR, e.getMessage());
@@ -530,4 +497,13 @@ public class SaturnProcessor implements Processor {
     public SaturnEdmContext getSaturnEdmContext() {
         return saturnEdmContext;
     }
+
+    /**
+     * Entity set and key of a binding link.
+     */
+    private static final class BindingTarget {
+
+        private String entitySet;
+        private Map<String, UriParameter> parameterMap;
+    }
 }
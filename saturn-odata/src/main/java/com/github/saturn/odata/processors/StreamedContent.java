@@ -0,0 +1,64 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) [2020] [He Zhang]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished
+ *  to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.saturn.odata.processors;
+
+import org.apache.olingo.server.api.ODataContent;
+
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+import java.util.stream.BaseStream;
+
+/**
+ * Content of a streamed response, closes the rows read by the entity operation, e.g. a database cursor,
+ * once the content is written.
+ */
+class StreamedContent implements ODataContent {
+
+    private final ODataContent content;
+    private final BaseStream<?, ?> rows;
+
+    StreamedContent(final ODataContent content, final BaseStream<?, ?> rows) {
+        this.content = content;
+        this.rows = rows;
+    }
+
+    @Override
+    public void write(final WritableByteChannel channel) {
+        try {
+            content.write(channel);
+        } finally {
+            rows.close();
+        }
+    }
+
+    @Override
+    public void write(final OutputStream stream) {
+        try {
+            content.write(stream);
+        } finally {
+            rows.close();
+        }
+    }
+}
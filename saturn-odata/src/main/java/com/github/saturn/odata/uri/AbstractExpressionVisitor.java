@@ -25,15 +25,17 @@
 package com.github.saturn.odata.uri;
 
 import com.github.saturn.odata.enums.PrimitiveType;
-import com.github.saturn.odata.utils.StringUtils;
 
 import com.querydsl.core.types.Constant;
 import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.ExpressionUtils;
+import com.querydsl.core.types.Operation;
+import com.querydsl.core.types.Operator;
+import com.querydsl.core.types.Ops;
 import com.querydsl.core.types.Path;
 import com.querydsl.core.types.dsl.SimpleExpression;
-import com.querydsl.core.types.dsl.NumberPath;
-import com.querydsl.core.types.dsl.BooleanPath;
-import com.querydsl.core.types.dsl.StringPath;
+import com.querydsl.core.types.dsl.NumberExpression;
+import com.querydsl.core.types.dsl.StringExpression;
 import com.querydsl.core.types.dsl.EnumPath;
 import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.core.types.dsl.Expressions;
@@ -51,15 +53,70 @@ import org.apache.olingo.server.api.uri.queryoption.expression.ExpressionVisitEx
 import org.apache.olingo.server.api.uri.queryoption.expression.ExpressionVisitor;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.util.Collection;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.temporal.Temporal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
 
 public abstract class AbstractExpressionVisitor implements ExpressionVisitor<Expression<?>> {
 
-    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static final Map<BinaryOperatorKind, Ops> COMPARISONS = new EnumMap<>(BinaryOperatorKind.class);
+    private static final Map<BinaryOperatorKind, Ops> ARITHMETICS = new EnumMap<>(BinaryOperatorKind.class);
+    // the comparison of the operands swapped, e.g. 5 lt Id is Id gt 5.
+    private static final Map<Ops, Ops> MIRRORS = new HashMap<>();
+    private static final Map<String, Function<String, Object>> LITERALS = new HashMap<>();
+
+    static {
+        COMPARISONS.put(BinaryOperatorKind.EQ, Ops.EQ);
+        COMPARISONS.put(BinaryOperatorKind.NE, Ops.NE);
+        COMPARISONS.put(BinaryOperatorKind.GT, Ops.GT);
+        COMPARISONS.put(BinaryOperatorKind.GE, Ops.GOE);
+        COMPARISONS.put(BinaryOperatorKind.LT, Ops.LT);
+        COMPARISONS.put(BinaryOperatorKind.LE, Ops.LOE);
+
+        ARITHMETICS.put(BinaryOperatorKind.ADD, Ops.ADD);
+        ARITHMETICS.put(BinaryOperatorKind.SUB, Ops.SUB);
+        ARITHMETICS.put(BinaryOperatorKind.MUL, Ops.MULT);
+        ARITHMETICS.put(BinaryOperatorKind.DIV, Ops.DIV);
+        ARITHMETICS.put(BinaryOperatorKind.MOD, Ops.MOD);
+
+        MIRRORS.put(Ops.EQ, Ops.EQ);
+        MIRRORS.put(Ops.NE, Ops.NE);
+        MIRRORS.put(Ops.GT, Ops.LT);
+        MIRRORS.put(Ops.GOE, Ops.LOE);
+        MIRRORS.put(Ops.LT, Ops.GT);
+        MIRRORS.put(Ops.LOE, Ops.GOE);
+
+        LITERALS.put(PrimitiveType.BYTE, Integer::valueOf);
+        LITERALS.put(PrimitiveType.UNSIGNED_BYTE, Integer::valueOf);
+        LITERALS.put(PrimitiveType.INT16, Integer::valueOf);
+        LITERALS.put(PrimitiveType.INT32, Integer::valueOf);
+        LITERALS.put(PrimitiveType.INT64, Long::valueOf);
+        LITERALS.put(PrimitiveType.SINGLE, Double::valueOf);
+        LITERALS.put(PrimitiveType.DOUBLE, Double::valueOf);
+        LITERALS.put(PrimitiveType.DECIMAL, BigDecimal::new);
+        LITERALS.put(PrimitiveType.BOOLEAN, Boolean::valueOf);
+        LITERALS.put(PrimitiveType.DATE, LocalDate::parse);
+        LITERALS.put(PrimitiveType.DATE_TIME, text -> OffsetDateTime.parse(text).atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime());
+        LITERALS.put(PrimitiveType.TIME_OF_DAY, LocalTime::parse);
+        LITERALS.put(PrimitiveType.DURATION, text -> Duration.parse(Conversions.unquote(text)));
+        LITERALS.put(PrimitiveType.STRING, Conversions::unquote);
+    }
+
+    /**
+     * Compiles the operators through the tables above: comparisons and arithmetics of any primitive type are a
+     * single querydsl operation, with the literal converted to the type of the other operand.
+     */
     @Override
     public Expression<?> visitBinaryOperator(BinaryOperatorKind binaryOperatorKind, Expression<?> lhs, Expression<?> rhs) throws ExpressionVisitException, ODataApplicationException {
 
@@ -77,83 +134,186 @@ public abstract class AbstractExpressionVisitor implements ExpressionVisitor<Exp
             }
         }
 
-        switch (binaryOperatorKind) {
-            case GT:
-            case GE:
-            case LT:
-            case LE:
-            case EQ:
-            case NE:
-                if (rhs instanceof Constant<?>) {
-                    Constant<?> constant = (Constant<?>) rhs;
-
-                    if (constant.getType().isAssignableFrom(Integer.class)) {
-                        NumberPath<Integer> numberPath = (NumberPath<Integer>) lhs;
-                        Integer value = (Integer) constant.getConstant();
-
-                        return binaryOperatorKind.equals(BinaryOperatorKind.GT) ? numberPath.gt(value)
-                                : binaryOperatorKind.equals(BinaryOperatorKind.GE) ? numberPath.goe(value)
-                                : binaryOperatorKind.equals(BinaryOperatorKind.LT) ? numberPath.lt(value)
-                                : binaryOperatorKind.equals(BinaryOperatorKind.LE) ? numberPath.loe(value)
-                                : binaryOperatorKind.equals(BinaryOperatorKind.EQ) ? numberPath.eq(value)
-                                : numberPath.ne(value);
-
-                    } else if (constant.getType().isAssignableFrom(Long.class)) {
-                        NumberPath<Long> numberPath = (NumberPath<Long>) lhs;
-                        Long value = (Long) constant.getConstant();
-
-                        return binaryOperatorKind.equals(BinaryOperatorKind.GT) ? numberPath.gt(value)
-                                : binaryOperatorKind.equals(BinaryOperatorKind.GE) ? numberPath.goe(value)
-                                : binaryOperatorKind.equals(BinaryOperatorKind.LT) ? numberPath.lt(value)
-                                : binaryOperatorKind.equals(BinaryOperatorKind.LE) ? numberPath.loe(value)
-                                : binaryOperatorKind.equals(BinaryOperatorKind.EQ) ? numberPath.eq(value)
-                                : numberPath.ne(value);
-                    } else if (constant.getType().isAssignableFrom(Boolean.class)) {
-                        BooleanPath booleanPath = (BooleanPath) lhs;
-                        Boolean value = (Boolean) constant.getConstant();
-
-                        return binaryOperatorKind.equals(BinaryOperatorKind.EQ) ? booleanPath.eq(value)
-                                : binaryOperatorKind.equals(BinaryOperatorKind.NE) ? booleanPath.ne(value) : null;
-
-                    } else if (constant.getType().isAssignableFrom(String.class)) {
-                        StringPath stringPath = (StringPath) lhs;
-                        String value = (String) constant.getConstant();
-
-                        return binaryOperatorKind.equals(BinaryOperatorKind.GT) ? stringPath.gt(value)
-                                : binaryOperatorKind.equals(BinaryOperatorKind.GE) ? stringPath.goe(value)
-                                : binaryOperatorKind.equals(BinaryOperatorKind.LT) ? stringPath.lt(value)
-                                : binaryOperatorKind.equals(BinaryOperatorKind.LE) ? stringPath.loe(value)
-                                : binaryOperatorKind.equals(BinaryOperatorKind.EQ) ? stringPath.eq(value)
-                                : stringPath.ne(value);
-                    }
-                    // todo
-                }
-                break;
-
-            case HAS:
-                if (rhs instanceof Constant<?>) {
-                    Constant<?> constant = (Constant<?>) rhs;
+        if (rhs instanceof Constant<?> && ((Constant<?>) rhs).getConstant() instanceof EnumLiteral) {
+            return visitEnumOperator(binaryOperatorKind, lhs, (EnumLiteral) ((Constant<?>) rhs).getConstant());
+        }
 
-                    if (Collection.class.isAssignableFrom(constant.getType())) {
-                        List<Enum<?>> enums = (List<Enum<?>>) constant.getConstant();
+        Ops comparison = COMPARISONS.get(binaryOperatorKind);
+        if (comparison != null) {
+            return visitComparison(comparison, lhs, rhs);
+        }
 
-                        if (lhs instanceof EnumPath<?>) {
-                            EnumPath enumPath = (EnumPath) lhs;
-                            return enumPath.in(enums);
-                        }
-                    }
-                    // todo
-                }
-                break;
+        Ops arithmetic = ARITHMETICS.get(binaryOperatorKind);
+        if (arithmetic != null) {
+            return visitArithmetic(arithmetic, lhs, rhs);
+        }
 
+        switch (binaryOperatorKind) {
             case AND:
                 return ((BooleanExpression) lhs).and((BooleanExpression) rhs);
             case OR:
                 return ((BooleanExpression) lhs).or((BooleanExpression) rhs);
             default:
-                break;
+                throw new ODataApplicationException("The operator " + binaryOperatorKind + " hasn't been implemented yet.",
+                        HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ENGLISH);
         }
-        return null;
+    }
+
+    /**
+     * Compares two operands, a date shifted by a duration literal is compared as the date to the other operand
+     * shifted back, e.g. Published add duration'P7D' gt 2020-01-01 as Published gt 2019-12-25, since jpql has
+     * no date arithmetic.
+     */
+    private BooleanExpression visitComparison(Ops comparison, Expression<?> lhs, Expression<?> rhs) throws ODataApplicationException {
+        if (lhs instanceof Constant<?> && !(rhs instanceof Constant<?>)) {
+            return visitComparison(MIRRORS.get(comparison), rhs, lhs);
+        }
+
+        if (isShiftedDate(lhs) && rhs instanceof Constant<?>) {
+            Operation<?> shift = (Operation<?>) lhs;
+            Ops inverse = shift.getOperator() == DateShift.PLUS ? Ops.SUB : Ops.ADD;
+            Object shifted = shift(((Constant<?>) rhs).getConstant(), inverse, (Duration) ((Constant<?>) shift.getArg(1)).getConstant());
+            return visitComparison(comparison, shift.getArg(0), Expressions.constant(shifted));
+        }
+
+        if (isShiftedDate(lhs) || isShiftedDate(rhs)) {
+            throw new ODataApplicationException("A date shifted by a duration can only be compared to a literal.",
+                    HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ENGLISH);
+        }
+        return Expressions.booleanOperation(comparison, lhs, coerce(rhs, lhs.getType()));
+    }
+
+    /**
+     * Computes two numbers in the database, a date and a duration literal are kept as a shift of the date,
+     * folded when the date is a literal too.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private Expression<?> visitArithmetic(Ops arithmetic, Expression<?> lhs, Expression<?> rhs) throws ODataApplicationException {
+        if (isDuration(rhs) && (arithmetic == Ops.ADD || arithmetic == Ops.SUB) && isTemporal(lhs.getType())) {
+            if (lhs instanceof Constant<?>) {
+                return Expressions.constant(shift(((Constant<?>) lhs).getConstant(), arithmetic, (Duration) ((Constant<?>) rhs).getConstant()));
+            }
+            return ExpressionUtils.operation(lhs.getType(), arithmetic == Ops.ADD ? DateShift.PLUS : DateShift.MINUS, lhs, rhs);
+        }
+
+        if (!Number.class.isAssignableFrom(lhs.getType()) || !Number.class.isAssignableFrom(rhs.getType())) {
+            throw new ODataApplicationException("The operator " + arithmetic + " isn't supported on " + lhs.getType().getSimpleName()
+                    + " and " + rhs.getType().getSimpleName() + ".", HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ENGLISH);
+        }
+
+        // the operation has the type of the column, the literal is converted to it.
+        Expression<?> column = lhs instanceof Constant<?> ? rhs : lhs;
+        Class type = column.getType();
+        return Expressions.numberOperation(type, arithmetic, coerce(lhs, type), coerce(rhs, type));
+    }
+
+    private static boolean isShiftedDate(Expression<?> expression) {
+        return expression instanceof Operation<?> && ((Operation<?>) expression).getOperator() instanceof DateShift;
+    }
+
+    private static boolean isDuration(Expression<?> expression) {
+        return expression instanceof Constant<?> && ((Constant<?>) expression).getConstant() instanceof Duration;
+    }
+
+    private static boolean isTemporal(Class<?> type) {
+        return Temporal.class.isAssignableFrom(type) || Date.class.isAssignableFrom(type);
+    }
+
+    /**
+     * @return the date shifted by the duration, whole days for a date.
+     */
+    private static Object shift(Object date, Ops arithmetic, Duration duration) throws ODataApplicationException {
+        Duration signed = arithmetic == Ops.SUB ? duration.negated() : duration;
+
+        if (date instanceof LocalDate) {
+            return ((LocalDate) date).plusDays(signed.toDays());
+        } else if (date instanceof Temporal) {
+            return ((Temporal) date).plus(signed);
+        } else if (date instanceof Date) {
+            return Date.from(((Date) date).toInstant().plus(signed));
+        }
+        throw new ODataApplicationException("A duration can't be added to " + date + ".", HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ENGLISH);
+    }
+
+    /**
+     * @return the literal converted to the type, other operands as they are.
+     */
+    private static Expression<?> coerce(Expression<?> expression, Class<?> type) throws ODataApplicationException {
+        if (!(expression instanceof Constant<?>)) {
+            return expression;
+        }
+        try {
+            return Expressions.constant(Conversions.coerce(((Constant<?>) expression).getConstant(), type));
+        } catch (IllegalArgumentException e) {
+            throw new ODataApplicationException("The literal " + expression + " doesn't match " + type.getSimpleName() + ".",
+                    HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ENGLISH);
+        }
+    }
+
+    /**
+     * Compares a path to an enum literal: a jpa enum to the constants of the literal, a number column to its ordinal
+     * or, for a flags enum, to its bit mask. has on a bit mask holds when every bit of the literal is set, which is
+     * mod(column, 2 * bit) >= bit for each bit, so the database evaluates it without a bitwise operator.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private Expression<?> visitEnumOperator(BinaryOperatorKind binaryOperatorKind, Expression<?> lhs, EnumLiteral literal) throws ODataApplicationException {
+        if (lhs instanceof EnumPath<?>) {
+            EnumPath enumPath = (EnumPath) lhs;
+            List<Enum<?>> constants = literal.getConstants(enumPath.getType());
+
+            if (constants.size() != literal.getValues().size()) {
+                throw new ODataApplicationException("The enum literal " + literal + " doesn't match " + enumPath.getType().getSimpleName() + ".",
+                        HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ENGLISH);
+            }
+
+            // a jpa enum holds a single member, it can't equal or have several ones.
+            switch (binaryOperatorKind) {
+                case EQ:
+                case HAS:
+                    return constants.size() == 1 ? enumPath.eq(constants.get(0)) : Expressions.FALSE.isTrue();
+                case NE:
+                    return constants.size() == 1 ? enumPath.ne(constants.get(0)) : enumPath.isNotNull();
+                default:
+                    break;
+            }
+        } else if (lhs instanceof NumberExpression<?>) {
+            NumberExpression numberPath = (NumberExpression) lhs;
+            long mask = literal.getMask();
+
+            switch (binaryOperatorKind) {
+                case EQ:
+                    return numberPath.eq(toNumber(mask, numberPath.getType()));
+                case NE:
+                    return numberPath.ne(toNumber(mask, numberPath.getType()));
+                case HAS:
+                    if (!literal.isFlags()) {
+                        return numberPath.eq(toNumber(mask, numberPath.getType()));
+                    }
+
+                    BooleanExpression has = Expressions.TRUE.isTrue();
+                    for (long bits = mask; bits != 0; bits &= bits - 1) {
+                        long bit = Long.lowestOneBit(bits);
+                        BooleanExpression set = numberPath.mod(toNumber(bit << 1, numberPath.getType())).goe(toNumber(bit, numberPath.getType()));
+                        has = bits == mask ? set : has.and(set);
+                    }
+                    return has;
+                default:
+                    break;
+            }
+        }
+        throw new ODataApplicationException("The operator " + binaryOperatorKind + " isn't supported on the enum literal " + literal + ".",
+                HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ENGLISH);
+    }
+
+    private static Number toNumber(long value, Class<?> type) {
+        if (Integer.class.equals(type)) {
+            return (int) value;
+        } else if (Short.class.equals(type)) {
+            return (short) value;
+        } else if (Byte.class.equals(type)) {
+            return (byte) value;
+        }
+        return value;
     }
 
     @Override
@@ -164,9 +324,86 @@ public abstract class AbstractExpressionVisitor implements ExpressionVisitor<Exp
         return null;
     }
 
+    /**
+     * Translates the string and date functions of a $filter into querydsl operations, evaluated by the database.
+     */
     @Override
     public Expression<?> visitMethodCall(MethodKind methodKind, List<Expression<?>> list) throws ExpressionVisitException, ODataApplicationException {
-        throw new ODataApplicationException("Haven't been implemented yet.", HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ENGLISH);
+        switch (methodKind) {
+            case CONTAINS:
+                return stringOperand(methodKind, list).contains(stringArgument(methodKind, list, 1));
+            case STARTSWITH:
+                return stringOperand(methodKind, list).startsWith(stringArgument(methodKind, list, 1));
+            case ENDSWITH:
+                return stringOperand(methodKind, list).endsWith(stringArgument(methodKind, list, 1));
+            case INDEXOF:
+                return stringOperand(methodKind, list).indexOf(stringArgument(methodKind, list, 1));
+            case CONCAT:
+                return stringOperand(methodKind, list).concat(stringArgument(methodKind, list, 1));
+            case SUBSTRING:
+                // substring(s, start, length) ends at start + length, both indexes are zero based.
+                return list.size() > 2
+                        ? stringOperand(methodKind, list).substring(integerArgument(methodKind, list, 1),
+                                Expressions.numberOperation(Integer.class, Ops.ADD, integerArgument(methodKind, list, 1), integerArgument(methodKind, list, 2)))
+                        : stringOperand(methodKind, list).substring(integerArgument(methodKind, list, 1));
+            case LENGTH:
+                return stringOperand(methodKind, list).length();
+            case TOLOWER:
+                return stringOperand(methodKind, list).toLowerCase();
+            case TOUPPER:
+                return stringOperand(methodKind, list).toUpperCase();
+            case TRIM:
+                return stringOperand(methodKind, list).trim();
+            case YEAR:
+                return Expressions.numberOperation(Integer.class, Ops.DateTimeOps.YEAR, temporalArgument(methodKind, list, 0));
+            case MONTH:
+                return Expressions.numberOperation(Integer.class, Ops.DateTimeOps.MONTH, temporalArgument(methodKind, list, 0));
+            case DAY:
+                return Expressions.numberOperation(Integer.class, Ops.DateTimeOps.DAY_OF_MONTH, temporalArgument(methodKind, list, 0));
+            case HOUR:
+                return Expressions.numberOperation(Integer.class, Ops.DateTimeOps.HOUR, temporalArgument(methodKind, list, 0));
+            case MINUTE:
+                return Expressions.numberOperation(Integer.class, Ops.DateTimeOps.MINUTE, temporalArgument(methodKind, list, 0));
+            case SECOND:
+                return Expressions.numberOperation(Integer.class, Ops.DateTimeOps.SECOND, temporalArgument(methodKind, list, 0));
+            default:
+                throw new ODataApplicationException("The method " + methodKind + " hasn't been implemented yet.",
+                        HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ENGLISH);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private StringExpression stringOperand(MethodKind methodKind, List<Expression<?>> list) throws ODataApplicationException {
+        Expression<String> operand = stringArgument(methodKind, list, 0);
+        return operand instanceof StringExpression ? (StringExpression) operand : Expressions.asString(operand);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Expression<String> stringArgument(MethodKind methodKind, List<Expression<?>> list, int index) throws ODataApplicationException {
+        return (Expression<String>) argument(methodKind, list, index, String.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Expression<Integer> integerArgument(MethodKind methodKind, List<Expression<?>> list, int index) throws ODataApplicationException {
+        return (Expression<Integer>) argument(methodKind, list, index, Integer.class);
+    }
+
+    private Expression<?> temporalArgument(MethodKind methodKind, List<Expression<?>> list, int index) throws ODataApplicationException {
+        return argument(methodKind, list, index, Temporal.class, Date.class);
+    }
+
+    private Expression<?> argument(MethodKind methodKind, List<Expression<?>> list, int index, Class<?>... types) throws ODataApplicationException {
+        Expression<?> argument = index < list.size() ? list.get(index) : null;
+
+        if (argument != null && !isShiftedDate(argument)) {
+            for (Class<?> type : types) {
+                if (type.isAssignableFrom(argument.getType())) {
+                    return argument;
+                }
+            }
+        }
+        throw new ODataApplicationException("The argument " + (index + 1) + " of the method " + methodKind + " isn't supported.",
+                HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ENGLISH);
     }
 
     @Override
@@ -189,9 +426,33 @@ public abstract class AbstractExpressionVisitor implements ExpressionVisitor<Exp
         throw new ODataApplicationException("Haven't been implemented yet.", HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ENGLISH);
     }
 
+    /**
+     * Compiles in, e.g. Name in ('a', 'b'), into a single in of the literals, or an or of equalities when a member isn't a literal.
+     */
     @Override
     public Expression<?> visitBinaryOperator(BinaryOperatorKind binaryOperatorKind, Expression<?> expression, List<Expression<?>> list) throws ExpressionVisitException, ODataApplicationException {
-        throw new ODataApplicationException("Haven't been implemented yet.", HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ENGLISH);
+        if (binaryOperatorKind != BinaryOperatorKind.IN) {
+            throw new ODataApplicationException("The operator " + binaryOperatorKind + " hasn't been implemented yet.",
+                    HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ENGLISH);
+        }
+
+        List<Object> values = new ArrayList<>();
+        BooleanExpression any = null;
+
+        for (Expression<?> member : list) {
+            if (member instanceof Constant<?>) {
+                values.add(((Constant<?>) coerce(member, expression.getType())).getConstant());
+            } else {
+                BooleanExpression equal = visitComparison(Ops.EQ, expression, member);
+                any = any == null ? equal : any.or(equal);
+            }
+        }
+
+        if (values.isEmpty()) {
+            return any;
+        }
+        BooleanExpression in = Expressions.booleanOperation(Ops.IN, expression, Expressions.constant(values));
+        return any == null ? in : in.or(any);
     }
 
     @Override
@@ -204,25 +465,12 @@ public abstract class AbstractExpressionVisitor implements ExpressionVisitor<Exp
             return null;
         }
 
-        switch (type.getName()) {
-            case PrimitiveType.BYTE:
-            case PrimitiveType.INT16:
-            case PrimitiveType.INT32:
-                return Expressions.constant(Integer.valueOf(text));
-            case PrimitiveType.INT64:
-                return Expressions.constant(Long.valueOf(text));
-            case PrimitiveType.DOUBLE:
-                return Expressions.constant(Double.valueOf(text));
-            case PrimitiveType.DECIMAL:
-                return Expressions.constant(BigDecimal.valueOf(Double.parseDouble(text)));
-            case PrimitiveType.BOOLEAN:
-                return Expressions.constant(Boolean.valueOf(text));
-            case PrimitiveType.DATE:
-                return Expressions.constant(LocalDate.parse(text));
-            case PrimitiveType.DATE_TIME:
-                return Expressions.constant(LocalDateTime.parse(text));
-            default:
-                return Expressions.constant(StringUtils.trimByChar(text, '\''));
+        Function<String, Object> parser = LITERALS.getOrDefault(type.getName(), Conversions::unquote);
+        try {
+            return Expressions.constant(parser.apply(text));
+        } catch (RuntimeException e) {
+            throw new ODataApplicationException("The literal " + text + " isn't a valid " + type.getName() + ".",
+                    HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ENGLISH);
         }
     }
 
@@ -231,4 +479,17 @@ public abstract class AbstractExpressionVisitor implements ExpressionVisitor<Exp
 
     @Override
     public abstract Expression<?> visitEnum(EdmEnumType edmEnumType, List<String> list) throws ExpressionVisitException, ODataApplicationException;
+
+    /**
+     * A date shifted by a duration literal, only compiled as the shift of the literal it is compared to.
+     */
+    private enum DateShift implements Operator {
+        PLUS,
+        MINUS;
+
+        @Override
+        public Class<?> getType() {
+            return Object.class;
+        }
+    }
 }
@@ -0,0 +1,155 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) [2020] [He Zhang]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished
+ *  to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.saturn.odata.uri;
+
+import com.github.saturn.odata.annotations.ODataEnumType;
+import org.springframework.util.ClassUtils;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Converts the value of a literal to the java type of the path it is compared to, e.g. the Int32 literal 5 to
+ * a Long or a BigDecimal, so the database compares values of the column's own type.
+ */
+public final class Conversions {
+
+    private static final Map<Class<?>, Function<Number, Object>> NUMBERS = new HashMap<>();
+    private static final Map<Class<?>, Function<String, Object>> PARSERS = new HashMap<>();
+
+    static {
+        NUMBERS.put(Byte.class, Number::byteValue);
+        NUMBERS.put(Short.class, Number::shortValue);
+        NUMBERS.put(Integer.class, Number::intValue);
+        NUMBERS.put(Long.class, Number::longValue);
+        NUMBERS.put(Float.class, Number::floatValue);
+        NUMBERS.put(Double.class, Number::doubleValue);
+        NUMBERS.put(BigDecimal.class, number -> number instanceof BigDecimal ? number : new BigDecimal(number.toString()));
+        NUMBERS.put(BigInteger.class, number -> number instanceof BigInteger ? number : new BigDecimal(number.toString()).toBigInteger());
+
+        PARSERS.put(String.class, Conversions::unquote);
+        PARSERS.put(Boolean.class, Boolean::valueOf);
+        PARSERS.put(LocalDate.class, LocalDate::parse);
+        PARSERS.put(LocalDateTime.class, Conversions::parseDateTime);
+        PARSERS.put(Date.class, text -> coerce(parseDateTime(text), Date.class));
+        PARSERS.put(LocalTime.class, LocalTime::parse);
+        PARSERS.put(Duration.class, text -> Duration.parse(unquote(text)));
+        PARSERS.put(UUID.class, UUID::fromString);
+    }
+
+    private Conversions() {
+    }
+
+    /**
+     * @return the value as an instance of the type, or the value itself when it can't be converted.
+     * @throws IllegalArgumentException if the value doesn't fit the type, e.g. an unknown enum constant.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    static Object coerce(final Object value, final Class<?> type) {
+        if (value == null || type == null || type.isInstance(value)) {
+            return value;
+        }
+
+        if (value instanceof Number && NUMBERS.containsKey(type)) {
+            return NUMBERS.get(type).apply((Number) value);
+        } else if (value instanceof String && type.isEnum()) {
+            return Enum.valueOf((Class<? extends Enum>) type, (String) value);
+        } else if (value instanceof Enum && type.isEnum()) {
+            return Enum.valueOf((Class<? extends Enum>) type, ((Enum<?>) value).name());
+        } else if (value instanceof Enum && NUMBERS.containsKey(type)) {
+            // an enum in a number column is its ordinal, or its bit for flags.
+            ODataEnumType oDataEnumType = value.getClass().getAnnotation(ODataEnumType.class);
+            int ordinal = ((Enum<?>) value).ordinal();
+            return NUMBERS.get(type).apply(oDataEnumType != null && oDataEnumType.isFlags() ? 1L << ordinal : ordinal);
+        } else if (value instanceof LocalDate && LocalDateTime.class.equals(type)) {
+            return ((LocalDate) value).atStartOfDay();
+        } else if (value instanceof LocalDate && Date.class.equals(type)) {
+            return Date.from(((LocalDate) value).atStartOfDay(ZoneId.systemDefault()).toInstant());
+        } else if (value instanceof LocalDateTime && Date.class.equals(type)) {
+            return Date.from(((LocalDateTime) value).atZone(ZoneId.systemDefault()).toInstant());
+        }
+        return value;
+    }
+
+    /**
+     * @return the value of the text of a key predicate, e.g. 5 or 'abc', as an instance of the type of the key.
+     * @throws IllegalArgumentException if the text isn't a valid value of the type.
+     */
+    static Object parse(final String text, final Class<?> type) {
+        return parser(type).apply(text);
+    }
+
+    /**
+     * Selects, once for a type, the parser of the texts of its literals, e.g. of the parameters of a function.
+     *
+     * @param type java type of the values, a primitive type is boxed.
+     * @return the parser of a literal text, e.g. 5, 'abc', 2020-01-01 or ns.Sex'MALE', to an instance of the type;
+     *         it throws an IllegalArgumentException (or DateTimeParseException) if the text isn't a valid value.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public static Function<String, Object> parser(final Class<?> type) {
+        Class<?> boxed = ClassUtils.resolvePrimitiveIfNecessary(type);
+        Function<Number, Object> number = NUMBERS.get(boxed);
+
+        if (number != null) {
+            return text -> number.apply(new BigDecimal(text));
+        } else if (boxed.isEnum()) {
+            return text -> Enum.valueOf((Class<? extends Enum>) boxed, unquote(text));
+        }
+        return PARSERS.getOrDefault(boxed, text -> coerce(unquote(text), boxed));
+    }
+
+    /**
+     * @return the local date time of a DateTimeOffset literal in the system zone, or of a literal without offset.
+     */
+    private static LocalDateTime parseDateTime(final String text) {
+        try {
+            return OffsetDateTime.parse(text).atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+        } catch (DateTimeParseException e) {
+            return LocalDateTime.parse(text);
+        }
+    }
+
+    /**
+     * @return the text between the quotes of a literal, e.g. O'Neil of 'O''Neil' or P1D of duration'P1D'.
+     */
+    public static String unquote(final String text) {
+        int first = text.indexOf('\'');
+        int last = text.lastIndexOf('\'');
+        return first < last ? text.substring(first + 1, last).replace("''", "'") : text;
+    }
+}
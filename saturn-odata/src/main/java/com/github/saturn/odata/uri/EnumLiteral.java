@@ -0,0 +1,103 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) [2020] [He Zhang]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished
+ *  to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.saturn.odata.uri;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Value of an enum literal of a $filter, e.g. NS.Sex'MALE' or NS.Permission'READ,WRITE' for a flags enum,
+ * as the values of its members. It is resolved against the path it is compared to: the constants of a jpa enum,
+ * or the ordinal / bit mask stored in a number column.
+ */
+final class EnumLiteral {
+
+    private final boolean flags;
+    private final List<Long> values;
+
+    EnumLiteral(final boolean flags, final List<Long> values) {
+        this.flags = flags;
+        this.values = Collections.unmodifiableList(new ArrayList<>(values));
+    }
+
+    boolean isFlags() {
+        return flags;
+    }
+
+    List<Long> getValues() {
+        return values;
+    }
+
+    /**
+     * @return the members combined, the bit mask of a flags enum or the single value of another enum.
+     */
+    long getMask() {
+        long mask = 0;
+        for (Long value : values) {
+            mask |= value;
+        }
+        return mask;
+    }
+
+    /**
+     * @return the constants of the java enum the members stand for, by ordinal (or by bit for a flags enum).
+     */
+    List<Enum<?>> getConstants(final Class<?> enumClass) {
+        Object[] constants = enumClass.getEnumConstants();
+        List<Enum<?>> res = new ArrayList<>();
+
+        for (Long value : values) {
+            int ordinal = flags ? Long.numberOfTrailingZeros(value) : value.intValue();
+            if (ordinal >= 0 && ordinal < constants.length) {
+                res.add((Enum<?>) constants[ordinal]);
+            }
+        }
+        return res;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof EnumLiteral)) {
+            return false;
+        }
+        EnumLiteral that = (EnumLiteral) o;
+        return flags == that.flags && values.equals(that.values);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(flags, values);
+    }
+
+    @Override
+    public String toString() {
+        return (flags ? "flags" : "enum") + values;
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) [2020] [He Zhang]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished
+ *  to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.saturn.odata.uri;
+
+import org.springframework.data.domain.Page;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of a collection read, the rows inside the requested $skip/$top window and,
+ * when $count=true was requested, the total count of the matching rows.
+ */
+public class PageResult<T> {
+
+    private final List<T> content;
+    private final Long count;
+
+    public PageResult(final List<T> content, final Long count) {
+        this.content = content == null ? Collections.<T>emptyList() : content;
+        this.count = count;
+    }
+
+    public static <T> PageResult<T> of(final List<T> content) {
+        return new PageResult<>(content, null);
+    }
+
+    public static <T> PageResult<T> of(final List<T> content, final Long count) {
+        return new PageResult<>(content, count);
+    }
+
+    /**
+     * @param page         page read through a {@link org.springframework.data.domain.Pageable}.
+     * @param queryOptions options of the read, the total of the page is only kept when $count was requested.
+     * @return the page result.
+     */
+    public static <T> PageResult<T> of(final Page<T> page, final QueryOptions queryOptions) {
+        Long count = queryOptions != null && queryOptions.isCount() ? page.getTotalElements() : null;
+        return new PageResult<>(page.getContent(), count);
+    }
+
+    public static <T> PageResult<T> empty() {
+        return new PageResult<>(Collections.<T>emptyList(), null);
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    /**
+     * @return the total count of the matching rows, null if it wasn't computed.
+     */
+    public Long getCount() {
+        return count;
+    }
+}
@@ -24,24 +24,58 @@
 
 package com.github.saturn.odata.uri;
 
+import com.querydsl.core.types.EntityPath;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Ops;
 import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.Path;
 import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAUpdateClause;
+import org.apache.olingo.server.api.uri.UriParameter;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.querydsl.QuerydslPredicateExecutor;
 
+import com.github.saturn.odata.annotations.ODataEntityType;
+import com.github.saturn.odata.utils.ClassUtils;
+import com.github.saturn.odata.utils.StringUtils;
+
+import javax.persistence.EntityGraph;
+import javax.persistence.EntityManager;
+import javax.persistence.Subgraph;
+import java.lang.reflect.Field;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class QueryExpression {
 
+    public static final String HINT_FETCH_SIZE = "org.hibernate.fetchSize";
+    public static final String HINT_READ_ONLY = "org.hibernate.readOnly";
+    public static final String HINT_LOAD_GRAPH = "javax.persistence.loadgraph";
+
     private Pageable pageable = null;
     private BooleanExpression booleanExpression = null;
+    private BooleanExpression filterExpression = null;
+    private Expression<?> projection = null;
+    private List<String> fetchPaths = Collections.emptyList();
     private OrderSpecifier<?>[] orderSpecifiers = null;
 
     public QueryExpression(OrderSpecifier<?>[] orderSpecifiers, BooleanExpression booleanExpression) {
         this.orderSpecifiers = orderSpecifiers;
         this.booleanExpression = booleanExpression;
+        this.filterExpression = booleanExpression;
     }
 
     public Pageable getPageable() {
@@ -57,6 +91,46 @@ public class QueryExpression {
         return booleanExpression;
     }
 
+    /**
+     * @return the $filter predicate alone, without the seek predicate of a $skiptoken, to count the whole collection.
+     */
+    public BooleanExpression getFilterExpression() {
+        return filterExpression;
+    }
+
+    public QueryExpression setFilterExpression(BooleanExpression filterExpression) {
+        this.filterExpression = filterExpression;
+        return this;
+    }
+
+    /**
+     * @return projection of the jpa entity on the columns of the $select, null to read the whole entity.
+     *         Only {@link #launchPage(EntityManager, EntityPath, QueryExpression, QueryOptions)} and
+     *         {@link #launchStream} apply it, spring data predicate executors can't project.
+     */
+    public Expression<?> getProjection() {
+        return projection;
+    }
+
+    public QueryExpression setProjection(Expression<?> projection) {
+        this.projection = projection;
+        return this;
+    }
+
+    /**
+     * @return jpa attribute paths of the $expand to fetch with the rows, e.g. "author" or "comments.writer".
+     *         Only {@link #launchPage(EntityManager, EntityPath, QueryExpression, QueryOptions)} and
+     *         {@link #launchStream} apply them, as a load graph.
+     */
+    public List<String> getFetchPaths() {
+        return fetchPaths;
+    }
+
+    public QueryExpression setFetchPaths(List<String> fetchPaths) {
+        this.fetchPaths = fetchPaths == null ? Collections.<String>emptyList() : fetchPaths;
+        return this;
+    }
+
     public OrderSpecifier<?>[] getOrderSpecifiers() {
         return orderSpecifiers;
     }
@@ -81,4 +155,221 @@ public class QueryExpression {
         }
         return res;
     }
+
+    /**
+     * Reads the page described by the query expression, the total count is only kept when $count was requested
+     * and is always counted over the $filter alone.
+     */
+    public static <T> PageResult<T> launchPage(QuerydslPredicateExecutor<T> queryDslPredicateExecutor, QueryExpression queryExpression, QueryOptions queryOptions) {
+        boolean count = queryOptions != null && queryOptions.isCount();
+        boolean seek = queryOptions != null && queryOptions.getSkipToken().isPresent();
+
+        if (queryExpression.getPageable() == null || seek) {
+            List<T> content = launch(queryDslPredicateExecutor, queryExpression);
+            Long total = null;
+
+            if (count) {
+                total = seek ? queryDslPredicateExecutor.count(queryExpression.getFilterExpression()) : (long) content.size();
+            }
+            return PageResult.of(content, total);
+        }
+        return PageResult.of(queryDslPredicateExecutor.findAll(queryExpression.getBooleanExpression(), queryExpression.getPageable()), queryOptions);
+    }
+
+    /**
+     * Reads the page described by the query expression in one round trip. The $top of the query options includes
+     * one row beyond the page, so a page shorter than it is the last one and the total requested by $count is
+     * derived from it; the collection is only counted when a full page is read or a $skiptoken is sought from.
+     *
+     * @param entityManager entity manager of the read.
+     * @param entityPath    root path of the jpa entity, with the variable used by the query expression.
+     * @param queryOptions  options of the request.
+     */
+    public static <T> PageResult<T> launchPage(EntityManager entityManager, EntityPath<T> entityPath, QueryExpression queryExpression, QueryOptions queryOptions) {
+        List<T> content = createQuery(entityManager, entityPath, queryExpression).fetch();
+
+        if (queryOptions == null || !queryOptions.isCount()) {
+            return PageResult.of(content);
+        }
+
+        Pageable pageable = queryExpression.getPageable();
+        long offset = pageable == null ? 0 : pageable.getOffset();
+        boolean lastPage = pageable == null || content.size() < pageable.getPageSize();
+
+        if (lastPage && !queryOptions.getSkipToken().isPresent() && (offset == 0 || !content.isEmpty())) {
+            return PageResult.of(content, offset + content.size());
+        }
+
+        JPAQuery<T> countQuery = new JPAQuery<T>(entityManager).select(entityPath).from(entityPath);
+
+        if (queryExpression.getFilterExpression() != null) {
+            countQuery.where(queryExpression.getFilterExpression());
+        }
+        return PageResult.of(content, countQuery.fetchCount());
+    }
+
+    /**
+     * Streams the rows described by the query expression through a database cursor, the rows are read only
+     * and each one is detached from the entity manager when the next one is read, so the heap stays constant
+     * however many rows are streamed. The stream must be closed to release the cursor.
+     *
+     * @param entityManager entity manager of the read, it must stay open while the stream is consumed.
+     * @param entityPath    root path of the jpa entity, with the variable used by the query expression.
+     * @param queryOptions  options of the request, with the fetch size.
+     */
+    public static <T> Stream<T> launchStream(EntityManager entityManager, EntityPath<T> entityPath, QueryExpression queryExpression, QueryOptions queryOptions) {
+        JPAQuery<T> query = createQuery(entityManager, entityPath, queryExpression);
+
+        query.setHint(HINT_READ_ONLY, true);
+        if (queryOptions != null && queryOptions.getFetchSize() > 0) {
+            query.setHint(HINT_FETCH_SIZE, queryOptions.getFetchSize());
+        }
+
+        @SuppressWarnings("unchecked")
+        Stream<T> rows = query.createQuery().getResultStream();
+        Iterator<T> iterator = rows.iterator();
+
+        Iterator<T> detaching = new Iterator<T>() {
+
+            private T previous;
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public T next() {
+                // projected rows aren't managed.
+                if (previous != null && queryExpression.getProjection() == null) {
+                    entityManager.detach(previous);
+                }
+                previous = iterator.next();
+                return previous;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(detaching, Spliterator.ORDERED), false).onClose(rows::close);
+    }
+
+    /**
+     * Updates the columns of the given properties, and only those, of the entity with the keys in one statement
+     * without reading it, e.g. with the properties of a PATCH. The values are read from the edm object.
+     *
+     * @param entityManager entity manager of the write, in a transaction.
+     * @param entityPath    root path of the jpa entity, with the jpaVariable of the edm class.
+     * @param properties    names of the edm properties to write, the keys are left out.
+     * @return the number of updated rows, 0 if there is no entity with the keys.
+     * @throws IllegalArgumentException if a property isn't a column of the jpa entity itself, e.g. a navigation property.
+     */
+    public static long launchUpdate(EntityManager entityManager, EntityPath<?> entityPath, Class<?> edmClass,
+                                    Map<String, UriParameter> parameterMap, List<String> properties, Object object) {
+        return createUpdate(new JPAUpdateClause(entityManager, entityPath), edmClass, parameterMap, properties, object).execute();
+    }
+
+    static JPAUpdateClause createUpdate(JPAUpdateClause update, Class<?> edmClass, Map<String, UriParameter> parameterMap,
+                                        List<String> properties, Object object) {
+        QueryExpressionVisitor visitor = new QueryExpressionVisitor(edmClass);
+        Set<String> keys = new HashSet<>(Arrays.asList(edmClass.getAnnotation(ODataEntityType.class).keys()));
+
+        for (String property : properties) {
+            if (keys.contains(property)) {
+                continue;
+            }
+
+            Path<Object> path = getColumn(visitor, edmClass, property);
+            Field field = ClassUtils.getFieldFromEdmClass(edmClass, property);
+            Object value;
+
+            try {
+                field.setAccessible(true);
+                value = Conversions.coerce(field.get(object), path.getType());
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+
+            if (value == null) {
+                update.setNull(path);
+            } else {
+                update.set(path, value);
+            }
+        }
+
+        for (Map.Entry<String, UriParameter> key : parameterMap.entrySet()) {
+            Path<Object> path = getColumn(visitor, edmClass, key.getKey());
+            update.where(Expressions.booleanOperation(Ops.EQ, path, Expressions.constant(Conversions.parse(key.getValue().getText(), path.getType()))));
+        }
+        return update;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Path<Object> getColumn(QueryExpressionVisitor visitor, Class<?> edmClass, String property) {
+        Expression<?> expression = visitor.visitProperty(property);
+
+        if (!(expression instanceof Path<?>) || ((Path<?>) expression).getMetadata().getParent() == null
+                || !((Path<?>) expression).getMetadata().getParent().getMetadata().isRoot()) {
+            throw new IllegalArgumentException(property + " isn't a column of the jpa entity of " + edmClass.getName() + ".");
+        }
+        return (Path<Object>) expression;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> JPAQuery<T> createQuery(EntityManager entityManager, EntityPath<T> entityPath, QueryExpression queryExpression) {
+        Expression<T> select = queryExpression.getProjection() == null ? entityPath : (Expression<T>) queryExpression.getProjection();
+        JPAQuery<T> query = new JPAQuery<T>(entityManager).select(select).from(entityPath);
+
+        if (queryExpression.getBooleanExpression() != null) {
+            query.where(queryExpression.getBooleanExpression());
+        }
+        if (queryExpression.getOrderSpecifiers() != null) {
+            query.orderBy(queryExpression.getOrderSpecifiers());
+        }
+
+        Pageable pageable = queryExpression.getPageable();
+
+        if (pageable != null) {
+            query.offset(pageable.getOffset());
+            if (pageable.getPageSize() != Integer.MAX_VALUE) {
+                query.limit(pageable.getPageSize());
+            }
+        }
+
+        if (queryExpression.getProjection() == null && !queryExpression.getFetchPaths().isEmpty()) {
+            query.setHint(HINT_LOAD_GRAPH, createEntityGraph(entityManager, entityPath.getType(), queryExpression.getFetchPaths()));
+        }
+        return query;
+    }
+
+    /**
+     * @return a load graph of the entity with a sub graph per path segment, e.g. "comments.writer".
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> EntityGraph<T> createEntityGraph(EntityManager entityManager, Class<? extends T> entityClass, List<String> fetchPaths) {
+        EntityGraph<T> entityGraph = entityManager.createEntityGraph((Class<T>) entityClass);
+        Map<String, Subgraph<?>> subgraphs = new HashMap<>();
+
+        for (String fetchPath : fetchPaths) {
+            // a path with nested paths is added as the sub graph of them.
+            if (fetchPaths.stream().anyMatch(path -> path.startsWith(fetchPath + StringUtils.POINT))) {
+                continue;
+            }
+
+            String[] attributes = fetchPath.split(StringUtils.REGEX_POINT);
+            Subgraph<?> subgraph = null;
+            String path = "";
+
+            for (int i = 0; i < attributes.length - 1; i++) {
+                path = path + attributes[i] + StringUtils.POINT;
+                Subgraph<?> parent = subgraph;
+                String attribute = attributes[i];
+                subgraph = subgraphs.computeIfAbsent(path, key -> parent == null ? entityGraph.addSubgraph(attribute) : parent.addSubgraph(attribute));
+            }
+
+            if (subgraph == null) {
+                entityGraph.addAttributeNodes(attributes[attributes.length - 1]);
+            } else {
+                subgraph.addAttributeNodes(attributes[attributes.length - 1]);
+            }
+        }
+        return entityGraph;
+    }
 }
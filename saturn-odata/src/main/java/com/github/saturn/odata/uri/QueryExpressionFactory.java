@@ -24,25 +24,44 @@
 
 package com.github.saturn.odata.uri;
 
+import com.github.saturn.odata.annotations.ODataEntityType;
+import com.github.saturn.odata.annotations.ODataNavigationProperty;
+import com.github.saturn.odata.utils.ClassUtils;
+import com.github.saturn.odata.utils.ODataUtils;
+import com.github.saturn.odata.utils.StringUtils;
+
 import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.types.Constant;
 import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.Ops;
 import com.querydsl.core.types.Path;
+import com.querydsl.core.types.Projections;
+import com.querydsl.core.types.QBean;
 import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.core.types.dsl.ComparableExpressionBase;
+import com.querydsl.core.types.dsl.Expressions;
 import org.apache.olingo.commons.api.http.HttpStatusCode;
 import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.uri.queryoption.ExpandItem;
+import org.apache.olingo.server.api.uri.queryoption.ExpandOption;
 import org.apache.olingo.server.api.uri.queryoption.FilterOption;
 import org.apache.olingo.server.api.uri.queryoption.OrderByItem;
 import org.apache.olingo.server.api.uri.queryoption.OrderByOption;
 import org.apache.olingo.server.api.uri.queryoption.expression.Expression;
 import org.apache.olingo.server.api.uri.queryoption.expression.ExpressionVisitException;
+import org.apache.olingo.server.api.uri.queryoption.expression.Literal;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.domain.Sort.Order;
 
+import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 public class QueryExpressionFactory {
@@ -51,19 +70,47 @@ public class QueryExpressionFactory {
     private QueryOptions queryOptions = null;
     private OrderByOption orderByOption = null;
     private Class<?> clazz = null;
+    private QueryPlanCache queryPlanCache = QueryPlanCache.getDefault();
 
     public QueryExpression generate() throws ODataApplicationException {
 
         BooleanExpression booleanExpression = generateBooleanExpression();
-        OrderSpecifier<?>[] orderSpecifiers = generateOrderSpecifiers();
-        QueryExpression queryExpression = new QueryExpression(orderSpecifiers, booleanExpression);
+        List<OrderSpecifier<?>> orderByItems = generateOrderSpecifiers();
+        List<OrderSpecifier<?>> keys = generateKeyOrderSpecifiers();
+        OrderSpecifier<?>[] orderSpecifiers = null;
+
+        if (orderByItems != null || !keys.isEmpty()) {
+            List<OrderSpecifier<?>> all = orderByItems == null ? new ArrayList<>() : new ArrayList<>(orderByItems);
+            all.addAll(keys);
+            orderSpecifiers = all.toArray(new OrderSpecifier<?>[0]);
+        }
+
+        BooleanExpression seekExpression = generateSeekExpression(orderByItems, orderSpecifiers);
+        BooleanExpression predicate = booleanExpression;
+
+        if (seekExpression != null) {
+            predicate = booleanExpression == null ? seekExpression : booleanExpression.and(seekExpression);
+        }
+        QueryExpression queryExpression = new QueryExpression(orderSpecifiers, predicate)
+                .setFilterExpression(booleanExpression)
+                .setProjection(generateProjection())
+                .setFetchPaths(generateFetchPaths());
 
         if (queryOptions != null && (!queryOptions.isDefaultSkip() || !queryOptions.isDefaultTop())) {
             List<Order> orders = orderSpecifiers == null ? null : Arrays.stream(orderSpecifiers)
                 .map(orderSpecifier -> {
                     com.querydsl.core.types.Expression<?> target = orderSpecifier.getTarget();
                     Object targetElement = target instanceof Path ? preparePropertyPath((Path<?>) target) : target;
-                    return Order.by(targetElement.toString()).with(orderSpecifier.isAscending() ? Sort.Direction.ASC : Sort.Direction.DESC);
+                    Order order = Order.by(targetElement.toString()).with(orderSpecifier.isAscending() ? Sort.Direction.ASC : Sort.Direction.DESC);
+
+                    switch (orderSpecifier.getNullHandling()) {
+                        case NullsFirst:
+                            return order.nullsFirst();
+                        case NullsLast:
+                            return order.nullsLast();
+                        default:
+                            return order;
+                    }
                 })
                 .collect(Collectors.toList());
 
@@ -83,18 +130,55 @@ public class QueryExpressionFactory {
             QueryExpressionVisitor visitor = new QueryExpressionVisitor(clazz);
 
             try {
-                com.querydsl.core.types.Expression<?> expression = filterExpression.accept(visitor);
-                return (BooleanExpression) expression;
+                QueryShape shape = queryPlanCache == null ? null : QueryShape.of(filterExpression);
+
+                if (shape == null) {
+                    return (BooleanExpression) filterExpression.accept(visitor);
+                }
+
+                List<Object> values = new ArrayList<>();
+                for (Literal literal : shape.getLiterals()) {
+                    values.add(((Constant<?>) visitor.visitLiteral(literal)).getConstant());
+                }
+
+                String key = StringUtils.FILTER + StringUtils.EQ + shape;
+                QueryPlanCache.FilterPlan plan = (QueryPlanCache.FilterPlan) queryPlanCache.get(clazz, key);
 
-            } catch (ExpressionVisitException | ODataApplicationException e) {
+                if (plan != null && plan.isBindable()) {
+                    return (BooleanExpression) plan.bind(values);
+                }
+
+                BooleanExpression expression = (BooleanExpression) filterExpression.accept(visitor);
+                if (plan == null) {
+                    queryPlanCache.put(clazz, key, QueryPlanCache.FilterPlan.of(expression, values));
+                }
+                return expression;
+
+            } catch (ExpressionVisitException e) {
                 throw new ODataApplicationException(e.getMessage(), HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode(), Locale.ENGLISH);
             }
         }
         return (BooleanExpression) new BooleanBuilder().getValue();
     }
 
-    private OrderSpecifier<?>[] generateOrderSpecifiers() throws ODataApplicationException {
+    @SuppressWarnings("unchecked")
+    private List<OrderSpecifier<?>> generateOrderSpecifiers() throws ODataApplicationException {
         if (orderByOption != null) {
+            String key = null;
+
+            try {
+                key = queryPlanCache == null ? null : generateOrderByShape();
+            } catch (ExpressionVisitException e) {
+                throw new ODataApplicationException(e.getMessage(), HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode(), Locale.ENGLISH);
+            }
+
+            if (key != null) {
+                List<OrderSpecifier<?>> cached = (List<OrderSpecifier<?>>) queryPlanCache.get(clazz, key);
+                if (cached != null) {
+                    return new ArrayList<>(cached);
+                }
+            }
+
             List<OrderByItem> orderByItems = orderByOption.getOrders();
             List<OrderSpecifier<?>> orderSpecifiers = new ArrayList<>();
 
@@ -108,18 +192,228 @@ public class QueryExpressionFactory {
 
                     if (expression instanceof ComparableExpressionBase<?>) {
                         ComparableExpressionBase<?> comparableExpression = (ComparableExpressionBase<?>) expression;
-                        orderSpecifiers.add(descendOrder ? comparableExpression.desc() : comparableExpression.asc());
+                        // nulls are ordered as the smallest values on every database, the seek predicate relies on it.
+                        orderSpecifiers.add(descendOrder ? comparableExpression.desc().nullsLast() : comparableExpression.asc().nullsFirst());
                     }
-                } catch (ExpressionVisitException | ODataApplicationException e) {
+                } catch (ExpressionVisitException e) {
                     throw new ODataApplicationException(e.getMessage(), HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode(), Locale.ENGLISH);
                 }
             }
-            return orderSpecifiers.toArray(new OrderSpecifier<?>[0]);
+
+            if (key != null) {
+                queryPlanCache.put(clazz, key, Collections.unmodifiableList(new ArrayList<>(orderSpecifiers)));
+            }
+            return orderSpecifiers;
         }
         return null;
     }
 
-    private QueryExpressionFactory setQueryOptions(QueryOptions queryOptions) {
+    /**
+     * @return the key of the $orderby in the query plan cache, null if it can't be cached, e.g. with a literal.
+     */
+    private String generateOrderByShape() throws ExpressionVisitException, ODataApplicationException {
+        StringBuilder key = new StringBuilder(StringUtils.ORDERBY).append(StringUtils.EQ);
+
+        for (OrderByItem item : orderByOption.getOrders()) {
+            QueryShape shape = QueryShape.of(item.getExpression());
+
+            if (shape == null || !shape.getLiterals().isEmpty()) {
+                return null;
+            }
+            key.append(shape).append(item.isDescending() ? " desc," : " asc,");
+        }
+        return key.toString();
+    }
+
+    /**
+     * Projects the jpa entity on the columns of the $select and the keys, the rows are then instances of the jpa entity
+     * with only those fields set. No projection is made, i.e. the whole entity is read, if a selected property isn't
+     * a column of the jpa entity itself, e.g. a complex property or a property of a super entity, or if the query
+     * has a $expand: the navigation fields of a projected row are left null and the fetch paths can't be applied
+     * to it, so the expanded entities could only be read by the operation's retrieveByParents. The properties of
+     * the $orderby are projected too, the $skiptoken of the next page is made of their values.
+     */
+    private QBean<?> generateProjection() {
+        Set<String> selected = queryOptions == null ? null : ODataUtils.getSelectedProperties(queryOptions.getSelectOption().orElse(null));
+        ODataEntityType oDataEntityType = clazz == null ? null : clazz.getAnnotation(ODataEntityType.class);
+
+        if (selected == null || oDataEntityType == null || oDataEntityType.jpaEntity().equals(Object.class)
+                || queryOptions.getExpandOption().isPresent()) {
+            return null;
+        }
+
+        Set<String> properties = new LinkedHashSet<>(Arrays.asList(oDataEntityType.keys()));
+        properties.addAll(selected);
+
+        if (orderByOption != null) {
+            for (OrderByItem item : orderByOption.getOrders()) {
+                String name = SkipToken.getPropertyName(item);
+                if (name != null) {
+                    properties.add(name);
+                }
+            }
+        }
+        List<com.querydsl.core.types.Expression<?>> paths = new ArrayList<>();
+
+        for (String property : properties) {
+            com.querydsl.core.types.Expression<?> expression = new QueryExpressionVisitor(clazz).visitProperty(property);
+
+            if (!(expression instanceof Path<?>) || ((Path<?>) expression).getMetadata().getParent() == null
+                    || !((Path<?>) expression).getMetadata().getParent().getMetadata().isRoot()) {
+                return null;
+            }
+            paths.add(expression);
+        }
+        return Projections.fields(oDataEntityType.jpaEntity(), paths.toArray(new com.querydsl.core.types.Expression<?>[0]));
+    }
+
+    /**
+     * Turns the $expand, nested items too, into the jpa attribute paths to fetch with the rows, e.g. "author" and
+     * "comments.writer", through the jpaVariable of the navigation properties. When the rows are paged the paths
+     * through a collection are left out, the jpa provider would otherwise page the joined rows in memory; those
+     * are better loaded by {@link com.github.saturn.odata.interfaces.EntityOperation#retrieveByParents}.
+     */
+    private List<String> generateFetchPaths() {
+        List<String> fetchPaths = new ArrayList<>();
+        ExpandOption expandOption = queryOptions == null ? null : queryOptions.getExpandOption().orElse(null);
+
+        if (clazz != null && expandOption != null) {
+            boolean paged = queryOptions.getSkip() > 0 || queryOptions.getTop() != Integer.MAX_VALUE;
+            generateFetchPaths(clazz, "", expandOption, paged, fetchPaths);
+        }
+        return fetchPaths;
+    }
+
+    private void generateFetchPaths(Class<?> edmClass, String prefix, ExpandOption expandOption, boolean paged, List<String> fetchPaths) {
+        ODataEntityType oDataEntityType = edmClass.getAnnotation(ODataEntityType.class);
+
+        for (ExpandItem expandItem : expandOption.getExpandItems()) {
+            if (expandItem.getResourcePath() == null || expandItem.getResourcePath().getUriResourceParts().isEmpty()) {
+                continue;
+            }
+
+            String propertyName = expandItem.getResourcePath().getUriResourceParts().get(0).getSegmentValue();
+            Field field = ClassUtils.getFieldFromEdmClass(edmClass, propertyName);
+            ODataNavigationProperty oDataNavigationProperty = field == null ? null : field.getAnnotation(ODataNavigationProperty.class);
+
+            if (oDataNavigationProperty == null) {
+                continue;
+            }
+
+            boolean collection = Collection.class.isAssignableFrom(field.getType());
+
+            if (collection && paged) {
+                continue;
+            }
+
+            String attribute = oDataNavigationProperty.jpaVariable().trim().isEmpty() ? field.getName() : oDataNavigationProperty.jpaVariable();
+
+            if (oDataEntityType != null && !oDataEntityType.superEntityName().trim().isEmpty()) {
+                attribute = oDataEntityType.superEntityName() + StringUtils.POINT + attribute;
+            }
+
+            String fetchPath = prefix + attribute;
+            fetchPaths.add(fetchPath);
+
+            Class<?> childClass = ClassUtils.getElementType(field);
+
+            if (expandItem.getExpandOption() != null) {
+                generateFetchPaths(childClass, fetchPath + StringUtils.POINT, expandItem.getExpandOption(), paged, fetchPaths);
+            }
+        }
+    }
+
+    /**
+     * The keys which aren't ordered by yet are appended to the ordering, so the order is total
+     * and a page can be sought from the last row of the previous one.
+     */
+    private List<OrderSpecifier<?>> generateKeyOrderSpecifiers() {
+        List<OrderSpecifier<?>> orderSpecifiers = new ArrayList<>();
+        ODataEntityType oDataEntityType = clazz == null ? null : clazz.getAnnotation(ODataEntityType.class);
+
+        if (oDataEntityType == null) {
+            return orderSpecifiers;
+        }
+
+        for (String key : oDataEntityType.keys()) {
+            if (SkipToken.isOrderedBy(orderByOption, key)) {
+                continue;
+            }
+            com.querydsl.core.types.Expression<?> expression = new QueryExpressionVisitor(clazz).visitProperty(key);
+
+            if (!(expression instanceof ComparableExpressionBase<?>)) {
+                return new ArrayList<>();
+            }
+            orderSpecifiers.add(((ComparableExpressionBase<?>) expression).asc());
+        }
+        return orderSpecifiers;
+    }
+
+    /**
+     * Turns the $skiptoken into the predicate of the rows after the last row of the previous page,
+     * (o1 > v1) or (o1 = v1 and o2 > v2) or ..., so the page costs the same at any depth.
+     * The $orderby items order the nulls first, descending last, so a null value of the token is sought
+     * with {@code is null} and {@code is not null} instead of comparisons which never match a null.
+     */
+    private BooleanExpression generateSeekExpression(List<OrderSpecifier<?>> orderByItems, OrderSpecifier<?>[] orderSpecifiers) throws ODataApplicationException {
+        SkipToken skipToken = queryOptions == null ? null : queryOptions.getSkipToken().orElse(null);
+
+        if (skipToken == null) {
+            return null;
+        }
+
+        int orderByCount = orderByOption == null ? 0 : orderByOption.getOrders().size();
+        List<Object> values = skipToken.getValues();
+
+        if (orderSpecifiers == null || (orderByItems == null ? 0 : orderByItems.size()) != orderByCount || orderSpecifiers.length != values.size()) {
+            throw skipTokenMismatch();
+        }
+
+        BooleanExpression seekExpression = null;
+
+        for (int i = orderSpecifiers.length - 1; i >= 0; i--) {
+            OrderSpecifier<?> orderSpecifier = orderSpecifiers[i];
+            com.querydsl.core.types.Expression<?> target = orderSpecifier.getTarget();
+            Object value = values.get(i);
+            BooleanExpression after = generateAfter(orderSpecifier, value == null ? null : convert(value, target.getType()));
+
+            if (seekExpression == null) {
+                seekExpression = after == null ? Expressions.FALSE.isTrue() : after;
+                continue;
+            }
+
+            BooleanExpression equal = value == null ? Expressions.booleanOperation(Ops.IS_NULL, target)
+                    : Expressions.booleanOperation(Ops.EQ, target, Expressions.constant(convert(value, target.getType())));
+            seekExpression = after == null ? equal.and(seekExpression) : after.or(equal.and(seekExpression));
+        }
+        return seekExpression;
+    }
+
+    /**
+     * @return the predicate of the values ordered after the value, null if none is, i.e. after a null ordered last.
+     */
+    private static BooleanExpression generateAfter(OrderSpecifier<?> orderSpecifier, Object value) {
+        com.querydsl.core.types.Expression<?> target = orderSpecifier.getTarget();
+        boolean nullsFirst = orderSpecifier.getNullHandling() == OrderSpecifier.NullHandling.NullsFirst;
+        boolean nullsLast = orderSpecifier.getNullHandling() == OrderSpecifier.NullHandling.NullsLast;
+
+        if (value == null) {
+            return nullsFirst ? Expressions.booleanOperation(Ops.IS_NOT_NULL, target) : null;
+        }
+
+        BooleanExpression after = Expressions.booleanOperation(orderSpecifier.isAscending() ? Ops.GT : Ops.LT, target, Expressions.constant(value));
+        return nullsLast ? after.or(Expressions.booleanOperation(Ops.IS_NULL, target)) : after;
+    }
+
+    private Object convert(Object value, Class<?> type) throws ODataApplicationException {
+        try {
+            return Conversions.coerce(value, type);
+        } catch (IllegalArgumentException e) {
+            throw skipTokenMismatch();
+        }
+    }
+
+    public QueryExpressionFactory setQueryOptions(QueryOptions queryOptions) {
         this.queryOptions = queryOptions;
 
         if (queryOptions != null) {
@@ -129,6 +423,10 @@ public class QueryExpressionFactory {
         return this;
     }
 
+    private ODataApplicationException skipTokenMismatch() {
+        return new ODataApplicationException("The $skiptoken doesn't match the $orderby of the request.", HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ENGLISH);
+    }
+
     private String preparePropertyPath(Path<?> path) {
         Path<?> root = path.getRoot();
         return root == null || path.equals(root) ? path.toString()
@@ -139,4 +437,13 @@ public class QueryExpressionFactory {
         this.clazz = clazz;
         return this;
     }
+
+    /**
+     * @param queryPlanCache cache of the compiled $filter and $orderby, {@link QueryPlanCache#getDefault()} unless set,
+     *                       null to compile them on every request.
+     */
+    public QueryExpressionFactory setQueryPlanCache(QueryPlanCache queryPlanCache) {
+        this.queryPlanCache = queryPlanCache;
+        return this;
+    }
 }
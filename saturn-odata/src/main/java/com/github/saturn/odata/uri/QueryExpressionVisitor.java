@@ -33,13 +33,23 @@ import com.github.saturn.odata.utils.ExceptionUtils;
 import com.github.saturn.odata.utils.StringUtils;
 
 import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Ops;
 import com.querydsl.core.types.Path;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.Expressions;
 import com.querydsl.core.types.dsl.PathBuilder;
+import com.querydsl.jpa.JPAExpressions;
+import com.querydsl.jpa.JPQLQuery;
 import org.apache.olingo.commons.api.edm.EdmEnumType;
-import org.apache.olingo.commons.api.edm.constants.EdmTypeKind;
+import org.apache.olingo.commons.api.edm.EdmMember;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
 import org.apache.olingo.server.api.ODataApplicationException;
 import org.apache.olingo.server.api.uri.UriInfoResource;
 import org.apache.olingo.server.api.uri.UriResource;
+import org.apache.olingo.server.api.uri.UriResourceKind;
+import org.apache.olingo.server.api.uri.UriResourceLambdaAll;
+import org.apache.olingo.server.api.uri.UriResourceLambdaAny;
+import org.apache.olingo.server.api.uri.UriResourceLambdaVariable;
 import org.apache.olingo.server.api.uri.UriResourcePrimitiveProperty;
 import org.apache.olingo.server.api.uri.UriResourceNavigation;
 import org.apache.olingo.server.api.uri.UriResourceComplexProperty;
@@ -52,8 +62,14 @@ import javax.persistence.Entity;
 import java.lang.reflect.Field;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.temporal.Temporal;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 public class QueryExpressionVisitor extends AbstractExpressionVisitor {
 
@@ -62,25 +78,49 @@ public class QueryExpressionVisitor extends AbstractExpressionVisitor {
     // JPA Entity and OData Edm are combined
     private Class<?> oDataEntityClass;
 
+    // variables of the lambda expressions the visited expression is nested in.
+    private final Map<String, LambdaVariable> lambdaVariables;
+
     public QueryExpressionVisitor(Class<?> oDataEntityClass) {
+        this(oDataEntityClass, Collections.emptyMap());
+    }
+
+    private QueryExpressionVisitor(Class<?> oDataEntityClass, Map<String, LambdaVariable> lambdaVariables) {
         this.oDataEntityClass = oDataEntityClass;
+        this.lambdaVariables = lambdaVariables;
     }
 
     @Override
     public Expression<?> visitMember(Member member) throws ExpressionVisitException, ODataApplicationException {
 
         UriInfoResource uriInfoResource = member.getResourcePath();
-        ODataEntityType oDataEntityType = oDataEntityClass.getAnnotation(ODataEntityType.class);
+        List<UriResource> uriResources = uriInfoResource.getUriResourceParts();
+        Class<?> edmClass = oDataEntityClass;
+        ODataEntityType oDataEntityType = edmClass.getAnnotation(ODataEntityType.class);
         Class<?> jpaEntityClass = oDataEntityType.jpaEntity();
         PathBuilder<?> pathBuilder = new PathBuilder<>(jpaEntityClass, oDataEntityType.jpaVariable());
 
-        for (UriResource uriResource : uriInfoResource.getUriResourceParts()) {
+        for (int i = 0; i < uriResources.size(); i++) {
+            UriResource uriResource = uriResources.get(i);
 
             switch (uriResource.getKind()) {
+                case lambdaVariable: {
+                    String variableName = ((UriResourceLambdaVariable) uriResource).getVariableName();
+                    LambdaVariable lambdaVariable = lambdaVariables.get(variableName);
+
+                    if (lambdaVariable == null) {
+                        throw new ODataApplicationException("Unknown lambda variable " + variableName + ".", HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ENGLISH);
+                    }
+                    edmClass = lambdaVariable.edmClass;
+                    oDataEntityType = edmClass.getAnnotation(ODataEntityType.class);
+                    jpaEntityClass = lambdaVariable.pathBuilder.getType();
+                    pathBuilder = lambdaVariable.pathBuilder;
+                    break;
+                }
                 case primitiveProperty: {
                     UriResourcePrimitiveProperty primitiveProperty = (UriResourcePrimitiveProperty) uriResource;
                     String propertyName = primitiveProperty.getProperty().getName();
-                    Field field = ClassUtils.getFieldFromEdmClass(oDataEntityClass, propertyName);
+                    Field field = ClassUtils.getFieldFromEdmClass(edmClass, propertyName);
                     String jpaEntityFieldNameWithPath = null;
                     // this part should be tested carefully.
                     // todo
@@ -95,10 +135,6 @@ public class QueryExpressionVisitor extends AbstractExpressionVisitor {
                         }
 
                         jpaEntityFieldNameWithPath = oDataEntityType.superEntityName() + StringUtils.POINT + jpaEntityFieldNameWithPath;
-
-                        if (primitiveProperty.getProperty().getType().getKind().equals(EdmTypeKind.ENUM)) {
-                            oDataEntityClass = field.getType();
-                        }
                     } catch (SaturnODataException e) {
                         // just for assert part
                         LOG.error(e.getMessage());
@@ -108,8 +144,8 @@ public class QueryExpressionVisitor extends AbstractExpressionVisitor {
                 case navigationProperty: {
                     UriResourceNavigation navigation = (UriResourceNavigation) uriResource;
                     String propertyName = navigation.getProperty().getName();
-                    Field field = ClassUtils.getFieldFromEdmClass(oDataEntityClass, propertyName);
-                    String jpaEntityFieldNameWithPath = null;
+                    Field field = ClassUtils.getFieldFromEdmClass(edmClass, propertyName);
+                    String jpaEntityFieldName = null;
                     // this part should be tested carefully.
                     // todo
                     try {
@@ -117,21 +153,28 @@ public class QueryExpressionVisitor extends AbstractExpressionVisitor {
                         ODataNavigationProperty oDataNavigationProperty = field.getAnnotation(ODataNavigationProperty.class);
 
                         if (oDataNavigationProperty == null) {
-                            jpaEntityFieldNameWithPath = field.getName();
+                            jpaEntityFieldName = field.getName();
                         } else {
-                            jpaEntityFieldNameWithPath = oDataNavigationProperty.jpaVariable().trim().isEmpty() ? field.getName() : oDataNavigationProperty.jpaVariable();
+                            jpaEntityFieldName = oDataNavigationProperty.jpaVariable().trim().isEmpty() ? field.getName() : oDataNavigationProperty.jpaVariable();
                         }
 
-                        jpaEntityFieldNameWithPath = oDataEntityType.superEntityName() + StringUtils.POINT + jpaEntityFieldNameWithPath;
-                        pathBuilder = (PathBuilder<?>) getJPAEntityPath(jpaEntityClass, pathBuilder, jpaEntityFieldNameWithPath);
-                        oDataEntityClass = field.getType();
-                        ODataEntityType naviEntityType = oDataEntityClass.getAnnotation(ODataEntityType.class);
+                        if (!oDataEntityType.superEntityName().trim().isEmpty()) {
+                            pathBuilder = (PathBuilder<?>) getJPAEntityPath(jpaEntityClass, pathBuilder, oDataEntityType.superEntityName());
+                        }
 
-                        if (oDataNavigationProperty != null && oDataNavigationProperty.jpaEntity().equals(Object.class)) {
-                            jpaEntityClass = oDataNavigationProperty.jpaEntity();
-                        } else {
-                            jpaEntityClass = naviEntityType.jpaEntity();
+                        edmClass = ClassUtils.getElementType(field);
+                        ODataEntityType naviEntityType = edmClass.getAnnotation(ODataEntityType.class);
+                        Class<?> naviJpaEntityClass = oDataNavigationProperty != null && !oDataNavigationProperty.jpaEntity().equals(Object.class)
+                                ? oDataNavigationProperty.jpaEntity() : naviEntityType.jpaEntity();
+
+                        if (i + 1 < uriResources.size() && (uriResources.get(i + 1).getKind() == UriResourceKind.lambdaAny
+                                || uriResources.get(i + 1).getKind() == UriResourceKind.lambdaAll)) {
+                            return visitLambda(uriResources.get(i + 1), pathBuilder, jpaEntityFieldName, edmClass, naviJpaEntityClass);
                         }
+
+                        pathBuilder = pathBuilder.get(jpaEntityFieldName, naviJpaEntityClass);
+                        oDataEntityType = naviEntityType;
+                        jpaEntityClass = naviJpaEntityClass;
                     } catch (SaturnODataException e) {
                         // just for assert part
                         LOG.error(e.getMessage());
@@ -141,7 +184,7 @@ public class QueryExpressionVisitor extends AbstractExpressionVisitor {
                 case complexProperty: {
                     UriResourceComplexProperty complexProperty = (UriResourceComplexProperty) uriResource;
                     String propertyName = complexProperty.getProperty().getName();
-                    Field field = ClassUtils.getFieldFromEdmClass(oDataEntityClass, propertyName);
+                    Field field = ClassUtils.getFieldFromEdmClass(edmClass, propertyName);
                     String jpaEntityFieldNameWithPath = null;
 
                     try {
@@ -151,10 +194,10 @@ public class QueryExpressionVisitor extends AbstractExpressionVisitor {
                         // need to check here
                         ODataEntityType complexEntityType = oDataEntityType;
 
-                        if (!field.getDeclaringClass().equals(oDataEntityClass)) {
+                        if (!field.getDeclaringClass().equals(edmClass)) {
                             pathBuilder = (PathBuilder<?>) getJPAEntityPath(jpaEntityClass, pathBuilder, oDataEntityType.superEntityName());
-                            oDataEntityClass = field.getDeclaringClass();
-                            complexEntityType = oDataEntityClass.getAnnotation(ODataEntityType.class);
+                            edmClass = field.getDeclaringClass();
+                            complexEntityType = edmClass.getAnnotation(ODataEntityType.class);
                             if (complexEntityType != null) {
                                 jpaEntityClass = complexEntityType.jpaEntity();
                             }
@@ -174,7 +217,7 @@ public class QueryExpressionVisitor extends AbstractExpressionVisitor {
                                 jpaEntityClass = complexEntityType.jpaEntity();
                             }
                         }
-                        oDataEntityClass = field.getType();
+                        edmClass = field.getType();
                     } catch (SaturnODataException e) {
                         // just for assert part
                         LOG.error(e.getMessage());
@@ -189,35 +232,111 @@ public class QueryExpressionVisitor extends AbstractExpressionVisitor {
         return pathBuilder;
     }
 
+    /**
+     * Compiles any/all on a navigation collection into a correlated subquery, e.g. Hobbies/any(h: h/Name eq 'chess') into
+     * exists(select 1 from Student student_h inner join student_h.hobbies h where student_h = student and h.name = 'chess'),
+     * and all into (select count(h) ...) = (select count(h) ... and (predicate)), null-safe: an element whose predicate
+     * is null doesn't match all(), where not exists(... where not (predicate)) would skip it.
+     *
+     * @param parent     path of the entity owning the collection.
+     * @param attribute  jpa attribute of the collection.
+     * @param edmClass   edm class of the elements of the collection.
+     * @param jpaEntity  jpa entity of the elements of the collection.
+     */
     @SuppressWarnings("unchecked")
+    private Expression<?> visitLambda(UriResource lambda, PathBuilder<?> parent, String attribute, Class<?> edmClass, Class<?> jpaEntity)
+            throws ExpressionVisitException, ODataApplicationException {
+        boolean any = lambda.getKind() == UriResourceKind.lambdaAny;
+        String variableName = any ? ((UriResourceLambdaAny) lambda).getLambdaVariable() : ((UriResourceLambdaAll) lambda).getLambdaVariable();
+        org.apache.olingo.server.api.uri.queryoption.expression.Expression lambdaExpression = any
+                ? ((UriResourceLambdaAny) lambda).getExpression() : ((UriResourceLambdaAll) lambda).getExpression();
+
+        // any() has no lambda variable.
+        String alias = variableName == null ? attribute : variableName;
+        PathBuilder<Object> correlated = new PathBuilder<>((Class<Object>) parent.getType(), parent.getMetadata().getName() + "_" + alias);
+        PathBuilder<Object> element = new PathBuilder<>((Class<Object>) jpaEntity, alias);
+        JPQLQuery<Integer> subQuery = JPAExpressions.selectOne()
+                .from(correlated)
+                .innerJoin(correlated.getCollection(attribute, (Class<Object>) jpaEntity), element)
+                .where(Expressions.booleanOperation(Ops.EQ, correlated, parent));
+
+        if (lambdaExpression == null) {
+            return any ? subQuery.exists() : Expressions.TRUE.isTrue();
+        }
+
+        Map<String, LambdaVariable> variables = new HashMap<>(lambdaVariables);
+        variables.put(variableName, new LambdaVariable(edmClass, element));
+        BooleanExpression predicate = (BooleanExpression) lambdaExpression.accept(new QueryExpressionVisitor(oDataEntityClass, variables));
+
+        if (predicate == null) {
+            throw new ODataApplicationException("The expression of the lambda " + variableName + " isn't supported.",
+                    HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ENGLISH);
+        }
+        if (any) {
+            return subQuery.where(predicate).exists();
+        }
+        return count(correlated, attribute, element, parent).eq(count(correlated, attribute, element, parent).where(predicate));
+    }
+
+    /**
+     * @return count of the elements of the collection of the parent, correlated as in the lambda subquery.
+     */
+    @SuppressWarnings("unchecked")
+    private static JPQLQuery<Long> count(PathBuilder<Object> correlated, String attribute, PathBuilder<Object> element, PathBuilder<?> parent) {
+        return JPAExpressions.select(element.count())
+                .from(correlated)
+                .innerJoin(correlated.getCollection(attribute, (Class<Object>) element.getType()), element)
+                .where(Expressions.booleanOperation(Ops.EQ, correlated, parent));
+    }
+
+    /**
+     * @param propertyName name of a first level primitive property of the edm class, e.g. a key.
+     * @return the path of the property in the jpa entity, null if the edm class has no such property.
+     */
+    public Expression<?> visitProperty(String propertyName) {
+        ODataEntityType oDataEntityType = oDataEntityClass.getAnnotation(ODataEntityType.class);
+        Field field = ClassUtils.getFieldFromEdmClass(oDataEntityClass, propertyName);
+
+        if (oDataEntityType == null || field == null) {
+            return null;
+        }
+
+        ODataProperty oDataProperty = field.getAnnotation(ODataProperty.class);
+        String jpaEntityFieldName = oDataProperty == null || oDataProperty.jpaVariable().trim().isEmpty() ? field.getName() : oDataProperty.jpaVariable();
+        Class<?> jpaEntityClass = oDataEntityType.jpaEntity();
+        PathBuilder<?> pathBuilder = new PathBuilder<>(jpaEntityClass, oDataEntityType.jpaVariable());
+
+        return getJPAEntityPath(jpaEntityClass, pathBuilder, oDataEntityType.superEntityName() + StringUtils.POINT + jpaEntityFieldName);
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
     private Expression<?> getJPAEntityPath(Class<?> jpaEntity, Path<?> path, String jpaEntityFieldNameWithPath) {
         String[] paths = jpaEntityFieldNameWithPath.split(StringUtils.REGEX_POINT);
         Class<?> entity = jpaEntity;
         PathBuilder<?> pathBuilder = (PathBuilder<?>) path;
 
         for (String fieldName : paths) {
-            List<Field> fields = ClassUtils.getFields(entity);
-            for (Field field : fields) {
-                if (field.getName().equals(fieldName)) {
-                    entity = field.getType();
-                    if (entity.isAssignableFrom(Integer.class)) {
-                        return pathBuilder.getNumber(fieldName, (Class<Integer>) entity);
-                    } else if (entity.isAssignableFrom(Long.class)) {
-                        return pathBuilder.getNumber(fieldName, (Class<Long>) entity);
-                    } else if (entity.isAssignableFrom(String.class)) {
-                        return pathBuilder.getString(fieldName);
-                    } else if (entity.isAssignableFrom(Boolean.class)) {
-                        return pathBuilder.getBoolean(fieldName);
-                    } else if (entity.isAssignableFrom(Date.class)) {
-                        return pathBuilder.getDate(fieldName, (Class<Date>) entity);
-                    } else if (entity.isAssignableFrom(LocalDate.class)) {
-                        return pathBuilder.getDate(fieldName, (Class<LocalDate>) entity);
-                    } else if (entity.isAssignableFrom(LocalDateTime.class)) {
-                        return pathBuilder.getDate(fieldName, (Class<LocalDateTime>) entity);
-                    } else if (entity.isAnnotationPresent(Entity.class)) {
-                        pathBuilder = pathBuilder.get(fieldName, entity);
-                    }
-                    break;
+            Field field = ClassUtils.getField(entity, fieldName);
+            if (field != null) {
+                entity = org.springframework.util.ClassUtils.resolvePrimitiveIfNecessary(field.getType());
+                if (Number.class.isAssignableFrom(entity) && Comparable.class.isAssignableFrom(entity)) {
+                    return pathBuilder.getNumber(fieldName, (Class) entity);
+                } else if (entity.isAssignableFrom(String.class)) {
+                    return pathBuilder.getString(fieldName);
+                } else if (entity.isAssignableFrom(Boolean.class)) {
+                    return pathBuilder.getBoolean(fieldName);
+                } else if (entity.isAssignableFrom(Date.class)) {
+                    return pathBuilder.getDate(fieldName, (Class<Date>) entity);
+                } else if (entity.isAssignableFrom(LocalDate.class)) {
+                    return pathBuilder.getDate(fieldName, (Class<LocalDate>) entity);
+                } else if (entity.isAssignableFrom(LocalDateTime.class)) {
+                    return pathBuilder.getDate(fieldName, (Class<LocalDateTime>) entity);
+                } else if (Temporal.class.isAssignableFrom(entity) && Comparable.class.isAssignableFrom(entity)) {
+                    return pathBuilder.getComparable(fieldName, (Class) entity);
+                } else if (entity.isEnum()) {
+                    return pathBuilder.getEnum(fieldName, (Class<Enum>) entity);
+                } else if (entity.isAnnotationPresent(Entity.class)) {
+                    pathBuilder = pathBuilder.get(fieldName, entity);
                 }
             }
         }
@@ -226,7 +345,18 @@ public class QueryExpressionVisitor extends AbstractExpressionVisitor {
 
     @Override
     public Expression<?> visitEnum(EdmEnumType edmEnumType, List<String> list) throws ExpressionVisitException, ODataApplicationException {
-        return null;
+        List<Long> values = new ArrayList<>();
+
+        for (String name : list) {
+            EdmMember member = edmEnumType.getMember(name);
+            try {
+                values.add(Long.valueOf(member == null ? name : member.getValue()));
+            } catch (NumberFormatException e) {
+                throw new ODataApplicationException("Unknown member " + name + " of the enum " + edmEnumType.getFullQualifiedName() + ".",
+                        HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ENGLISH);
+            }
+        }
+        return Expressions.constant(new EnumLiteral(edmEnumType.isFlags(), values));
     }
 
     public Class<?> getoDataEntityClass() {
@@ -236,4 +366,18 @@ public class QueryExpressionVisitor extends AbstractExpressionVisitor {
     public void setoDataEntityClass(Class<?> oDataEntityClass) {
         this.oDataEntityClass = oDataEntityClass;
     }
+
+    /**
+     * Element of a navigation collection bound by any/all.
+     */
+    private static final class LambdaVariable {
+
+        private final Class<?> edmClass;
+        private final PathBuilder<?> pathBuilder;
+
+        private LambdaVariable(Class<?> edmClass, PathBuilder<?> pathBuilder) {
+            this.edmClass = edmClass;
+            this.pathBuilder = pathBuilder;
+        }
+    }
 }
@@ -33,16 +33,19 @@ import java.util.Optional;
 
 public class QueryOptions {
 
-    private Optional<ExpandOption> expandOption;
-    private Optional<FilterOption> filterOption;
-    private Optional<SelectOption> selectOption;
-    private Optional<OrderByOption> orderByOption;
+    private Optional<ExpandOption> expandOption = Optional.empty();
+    private Optional<FilterOption> filterOption = Optional.empty();
+    private Optional<SelectOption> selectOption = Optional.empty();
+    private Optional<OrderByOption> orderByOption = Optional.empty();
+    private Optional<SkipToken> skipToken = Optional.empty();
 
     private int skip = 0;
     private int top = Integer.MAX_VALUE;
+    private boolean count = false;
+    private int fetchSize = 0;
 
-    private boolean defaultSkip = true;
-    private boolean defaultTop = true;
+    private boolean defaultSkip = false;
+    private boolean defaultTop = false;
 
     public QueryOptions(final ExpandOption expandOption, final FilterOption filterOption, final SelectOption selectOption, final OrderByOption orderByOption) {
         super();
@@ -108,6 +111,52 @@ public class QueryOptions {
         this.top = top;
     }
 
+    /**
+     * @return the decoded $skiptoken, the page starts after the row it was generated from.
+     */
+    public Optional<SkipToken> getSkipToken() {
+        return skipToken;
+    }
+
+    public void setSkipToken(Optional<SkipToken> skipToken) {
+        this.skipToken = skipToken;
+    }
+
+    /**
+     * @return options for counting the whole collection, the same filter without the window and the $skiptoken.
+     */
+    public QueryOptions forCount() {
+        QueryOptions options = new QueryOptions(null, filterOption.orElse(null), null, null);
+        options.setCount(count);
+        return options;
+    }
+
+    /**
+     * @return true if $count=true was requested, the total count should then be returned with the page.
+     */
+    public boolean isCount() {
+        return count;
+    }
+
+    public void setCount(boolean count) {
+        this.count = count;
+    }
+
+    /**
+     * @return number of rows the jdbc driver should fetch per round trip when the rows are streamed, 0 for the driver default.
+     */
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * @return true if the processor applies the $skip in memory, see
+     *         {@link com.github.saturn.odata.metadata.SaturnEdmContext#isDefaultSkip()}; the skip is then 0.
+     */
     public boolean isDefaultSkip() {
         return defaultSkip;
     }
@@ -116,6 +165,10 @@ public class QueryOptions {
         this.defaultSkip = defaultSkip;
     }
 
+    /**
+     * @return true if the processor applies the $top in memory, see
+     *         {@link com.github.saturn.odata.metadata.SaturnEdmContext#isDefaultTop()}; the top is then unbounded.
+     */
     public boolean isDefaultTop() {
         return defaultTop;
     }
@@ -0,0 +1,222 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) [2020] [He Zhang]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished
+ *  to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.saturn.odata.uri;
+
+import com.querydsl.core.types.Constant;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.ExpressionUtils;
+import com.querydsl.core.types.Operation;
+import com.querydsl.core.types.dsl.Expressions;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded, least recently used cache of the querydsl expressions compiled from a $filter or an $orderby, by edm class
+ * and {@link QueryShape}. A request of a cached shape only binds its literals to the constants of the cached expression,
+ * without walking the olingo tree nor resolving the jpa paths again.
+ */
+public final class QueryPlanCache {
+
+    public static final int DEFAULT_MAX_SIZE = 256;
+
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private static final QueryPlanCache DEFAULT = new QueryPlanCache(DEFAULT_MAX_SIZE);
+
+    private final Map<Key, Object> plans;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public QueryPlanCache(final int maxSize) {
+        this.plans = new LinkedHashMap<Key, Object>(Math.min(maxSize, DEFAULT_MAX_SIZE), LOAD_FACTOR, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Key, Object> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * @return the cache shared by the {@link QueryExpressionFactory}s which aren't given one.
+     */
+    public static QueryPlanCache getDefault() {
+        return DEFAULT;
+    }
+
+    Object get(final Class<?> clazz, final String shape) {
+        Object plan;
+        synchronized (plans) {
+            plan = plans.get(new Key(clazz, shape));
+        }
+        (plan == null ? misses : hits).increment();
+        return plan;
+    }
+
+    void put(final Class<?> clazz, final String shape, final Object plan) {
+        synchronized (plans) {
+            plans.put(new Key(clazz, shape), plan);
+        }
+    }
+
+    public int size() {
+        synchronized (plans) {
+            return plans.size();
+        }
+    }
+
+    public void clear() {
+        synchronized (plans) {
+            plans.clear();
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * A compiled $filter whose constants are, in order, the literals of its shape.
+     */
+    static final class FilterPlan {
+
+        private final Expression<?> template;
+        private final boolean bindable;
+
+        private FilterPlan(final Expression<?> template, final boolean bindable) {
+            this.template = template;
+            this.bindable = bindable;
+        }
+
+        /**
+         * @param values values of the literals the expression was compiled from, the expression can only be bound
+         *               to other values if its constants are exactly those values.
+         */
+        static FilterPlan of(final Expression<?> expression, final List<Object> values) {
+            List<Constant<?>> constants = new ArrayList<>();
+            collectConstants(expression, constants);
+
+            boolean bindable = expression != null && constants.size() == values.size();
+            for (int i = 0; bindable && i < constants.size(); i++) {
+                bindable = constants.get(i).getConstant().equals(coerce(values.get(i), constants.get(i).getType()));
+            }
+            return new FilterPlan(expression, bindable);
+        }
+
+        boolean isBindable() {
+            return bindable;
+        }
+
+        /**
+         * @return the expression with the values instead of its constants.
+         */
+        Expression<?> bind(final List<Object> values) {
+            return bind(template, values.iterator());
+        }
+
+        private static void collectConstants(final Expression<?> expression, final List<Constant<?>> constants) {
+            if (expression instanceof Constant<?>) {
+                constants.add((Constant<?>) expression);
+            } else if (expression instanceof Operation<?>) {
+                for (Expression<?> arg : ((Operation<?>) expression).getArgs()) {
+                    collectConstants(arg, constants);
+                }
+            }
+        }
+
+        /**
+         * @return the value of a literal as the type of the constant it was compiled to, e.g. a Long for a Long column.
+         */
+        private static Object coerce(final Object value, final Class<?> type) {
+            try {
+                return Conversions.coerce(value, type);
+            } catch (IllegalArgumentException e) {
+                return value;
+            }
+        }
+
+        private static Expression<?> bind(final Expression<?> expression, final Iterator<Object> values) {
+            if (expression instanceof Constant<?>) {
+                return Expressions.constant(coerce(values.next(), ((Constant<?>) expression).getType()));
+            }
+            if (!(expression instanceof Operation<?>)) {
+                return expression;
+            }
+
+            Operation<?> operation = (Operation<?>) expression;
+            Expression<?>[] args = new Expression<?>[operation.getArgs().size()];
+            boolean bound = false;
+
+            for (int i = 0; i < args.length; i++) {
+                args[i] = bind(operation.getArg(i), values);
+                bound |= args[i] != operation.getArg(i);
+            }
+
+            if (!bound) {
+                return expression;
+            }
+            return Boolean.class.equals(operation.getType())
+                    ? Expressions.booleanOperation(operation.getOperator(), args)
+                    : ExpressionUtils.operation(operation.getType(), operation.getOperator(), args);
+        }
+    }
+
+    private static final class Key {
+
+        private final Class<?> clazz;
+        private final String shape;
+
+        private Key(final Class<?> clazz, final String shape) {
+            this.clazz = clazz;
+            this.shape = shape;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return Objects.equals(clazz, key.clazz) && shape.equals(key.shape);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(clazz, shape);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) [2020] [He Zhang]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished
+ *  to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.saturn.odata.uri;
+
+import org.apache.olingo.commons.api.edm.EdmEnumType;
+import org.apache.olingo.commons.api.edm.EdmType;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.uri.UriResource;
+import org.apache.olingo.server.api.uri.UriResourceKind;
+import org.apache.olingo.server.api.uri.queryoption.expression.BinaryOperatorKind;
+import org.apache.olingo.server.api.uri.queryoption.expression.Expression;
+import org.apache.olingo.server.api.uri.queryoption.expression.ExpressionVisitException;
+import org.apache.olingo.server.api.uri.queryoption.expression.ExpressionVisitor;
+import org.apache.olingo.server.api.uri.queryoption.expression.Literal;
+import org.apache.olingo.server.api.uri.queryoption.expression.Member;
+import org.apache.olingo.server.api.uri.queryoption.expression.MethodKind;
+import org.apache.olingo.server.api.uri.queryoption.expression.UnaryOperatorKind;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Shape of an olingo expression, the expression with its literals replaced by their types, e.g.
+ * "GT(primitiveProperty:Age, ?Edm.Int32)". The literals are kept in order to be bound to a cached plan.
+ */
+final class QueryShape implements ExpressionVisitor<String> {
+
+    private final List<Literal> literals = new ArrayList<>();
+    private boolean cacheable = true;
+    private String shape;
+
+    private QueryShape() {
+    }
+
+    /**
+     * @return the shape of the expression, null if it can't be cached, e.g. with an alias or a lambda.
+     */
+    static QueryShape of(final Expression expression) throws ExpressionVisitException, ODataApplicationException {
+        QueryShape queryShape = new QueryShape();
+        queryShape.shape = expression.accept(queryShape);
+        return queryShape.cacheable && queryShape.shape != null ? queryShape : null;
+    }
+
+    List<Literal> getLiterals() {
+        return literals;
+    }
+
+    @Override
+    public String toString() {
+        return shape;
+    }
+
+    @Override
+    public String visitBinaryOperator(BinaryOperatorKind binaryOperatorKind, String lhs, String rhs) {
+        return binaryOperatorKind + "(" + lhs + ", " + rhs + ")";
+    }
+
+    @Override
+    public String visitUnaryOperator(UnaryOperatorKind unaryOperatorKind, String operand) {
+        return unaryOperatorKind + "(" + operand + ")";
+    }
+
+    @Override
+    public String visitMethodCall(MethodKind methodKind, List<String> parameters) {
+        return methodKind + "(" + String.join(", ", parameters) + ")";
+    }
+
+    @Override
+    public String visitLambdaExpression(String lambdaFunction, String lambdaVariable, Expression expression) {
+        cacheable = false;
+        return null;
+    }
+
+    @Override
+    public String visitLiteral(Literal literal) {
+        if (literal.getType() == null) {
+            return "null";
+        }
+        literals.add(literal);
+        return "?" + literal.getType().getFullQualifiedName();
+    }
+
+    @Override
+    public String visitMember(Member member) {
+        List<String> segments = new ArrayList<>();
+
+        for (UriResource uriResource : member.getResourcePath().getUriResourceParts()) {
+            if (uriResource.getKind() == UriResourceKind.lambdaAll || uriResource.getKind() == UriResourceKind.lambdaAny
+                    || uriResource.getKind() == UriResourceKind.lambdaVariable) {
+                cacheable = false;
+            }
+            segments.add(uriResource.getKind() + ":" + uriResource.getSegmentValue());
+        }
+        return String.join("/", segments);
+    }
+
+    @Override
+    public String visitAlias(String aliasName) {
+        cacheable = false;
+        return null;
+    }
+
+    @Override
+    public String visitTypeLiteral(EdmType edmType) {
+        return "type:" + edmType.getFullQualifiedName();
+    }
+
+    @Override
+    public String visitLambdaReference(String variableName) {
+        cacheable = false;
+        return null;
+    }
+
+    @Override
+    public String visitEnum(EdmEnumType edmEnumType, List<String> values) {
+        return "enum:" + edmEnumType.getFullQualifiedName() + values;
+    }
+
+    @Override
+    public String visitBinaryOperator(BinaryOperatorKind binaryOperatorKind, String lhs, List<String> rhs) {
+        return binaryOperatorKind + "(" + lhs + ", " + rhs.stream().collect(Collectors.joining(", ", "[", "]")) + ")";
+    }
+}
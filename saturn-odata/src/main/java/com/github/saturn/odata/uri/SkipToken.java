@@ -0,0 +1,234 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) [2020] [He Zhang]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished
+ *  to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.saturn.odata.uri;
+
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.uri.UriInfoResource;
+import org.apache.olingo.server.api.uri.UriResource;
+import org.apache.olingo.server.api.uri.UriResourcePrimitiveProperty;
+import org.apache.olingo.server.api.uri.queryoption.OrderByItem;
+import org.apache.olingo.server.api.uri.queryoption.OrderByOption;
+import org.apache.olingo.server.api.uri.queryoption.expression.Member;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Opaque $skiptoken of the keyset paging, the $orderby values of the last row of a page followed
+ * by its keys which aren't already ordered by.
+ *
+ * The values are written in a small tagged binary form and encoded as url safe base64, so the token
+ * can be put in a next link as it is.
+ */
+public final class SkipToken {
+
+    private static final byte VERSION = 1;
+
+    private static final byte NULL = 'N';
+    private static final byte LONG = 'L';
+    private static final byte DOUBLE = 'D';
+    private static final byte DECIMAL = 'M';
+    private static final byte STRING = 'S';
+    private static final byte BOOLEAN = 'B';
+    private static final byte ENUM = 'E';
+    private static final byte LOCAL_DATE = 'd';
+    private static final byte LOCAL_DATE_TIME = 't';
+    private static final byte DATE = 'T';
+
+    private final List<Object> values;
+
+    private SkipToken(final List<Object> values) {
+        this.values = Collections.unmodifiableList(values);
+    }
+
+    /**
+     * @return the values of the token, enums are decoded as their names, a null value stays null.
+     */
+    public List<Object> getValues() {
+        return values;
+    }
+
+    /**
+     * @param values the seek values of the last row.
+     * @return the token, null if a value is of a type which can't be written.
+     */
+    public static String encode(final List<?> values) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeShort(values.size());
+
+            for (Object value : values) {
+                if (!write(out, value)) {
+                    return null;
+                }
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+
+    /**
+     * @param token the $skiptoken sent by the client.
+     * @return the decoded token.
+     * @throws ODataApplicationException with status 400 if the token is malformed.
+     */
+    public static SkipToken decode(final String token) throws ODataApplicationException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(token)))) {
+            if (in.readByte() != VERSION) {
+                throw invalid(token);
+            }
+            int size = in.readUnsignedShort();
+            List<Object> values = new ArrayList<>(size);
+
+            for (int i = 0; i < size; i++) {
+                values.add(read(in, token));
+            }
+            if (in.available() > 0) {
+                throw invalid(token);
+            }
+            return new SkipToken(values);
+        } catch (IOException | IllegalArgumentException | DateTimeException e) {
+            throw invalid(token);
+        }
+    }
+
+    /**
+     * @return true if the first level primitive property is one of the $orderby items, a key ordered by
+     *         isn't appended again to the seek values.
+     */
+    public static boolean isOrderedBy(final OrderByOption orderByOption, final String propertyName) {
+        if (orderByOption == null) {
+            return false;
+        }
+        for (OrderByItem item : orderByOption.getOrders()) {
+            if (propertyName.equals(getPropertyName(item))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the name of the property ordered by, if the item orders by a first level primitive property,
+     *         otherwise null.
+     */
+    public static String getPropertyName(final OrderByItem item) {
+        if (!(item.getExpression() instanceof Member)) {
+            return null;
+        }
+        UriInfoResource resource = ((Member) item.getExpression()).getResourcePath();
+        List<UriResource> parts = resource.getUriResourceParts();
+
+        if (parts.size() != 1 || !(parts.get(0) instanceof UriResourcePrimitiveProperty)) {
+            return null;
+        }
+        return ((UriResourcePrimitiveProperty) parts.get(0)).getProperty().getName();
+    }
+
+    private static boolean write(final DataOutputStream out, final Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            out.writeByte(LONG);
+            out.writeLong(((Number) value).longValue());
+        } else if (value instanceof Double || value instanceof Float) {
+            out.writeByte(DOUBLE);
+            out.writeDouble(((Number) value).doubleValue());
+        } else if (value instanceof BigDecimal) {
+            out.writeByte(DECIMAL);
+            out.writeUTF(value.toString());
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            out.writeUTF((String) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Enum) {
+            out.writeByte(ENUM);
+            out.writeUTF(((Enum<?>) value).name());
+        } else if (value instanceof LocalDate) {
+            out.writeByte(LOCAL_DATE);
+            out.writeLong(((LocalDate) value).toEpochDay());
+        } else if (value instanceof LocalDateTime) {
+            out.writeByte(LOCAL_DATE_TIME);
+            out.writeUTF(value.toString());
+        } else if (value instanceof Date) {
+            out.writeByte(DATE);
+            out.writeLong(((Date) value).getTime());
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    private static Object read(final DataInputStream in, final String token) throws IOException, ODataApplicationException {
+        byte tag = in.readByte();
+
+        switch (tag) {
+            case NULL:
+                return null;
+            case LONG:
+                return in.readLong();
+            case DOUBLE:
+                return in.readDouble();
+            case DECIMAL:
+                return new BigDecimal(in.readUTF());
+            case STRING:
+            case ENUM:
+                return in.readUTF();
+            case BOOLEAN:
+                return in.readBoolean();
+            case LOCAL_DATE:
+                return LocalDate.ofEpochDay(in.readLong());
+            case LOCAL_DATE_TIME:
+                return LocalDateTime.parse(in.readUTF());
+            case DATE:
+                return new Date(in.readLong());
+            default:
+                throw invalid(token);
+        }
+    }
+
+    private static ODataApplicationException invalid(final String token) {
+        return new ODataApplicationException("Invalid $skiptoken " + token + ".", HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ENGLISH);
+    }
+}
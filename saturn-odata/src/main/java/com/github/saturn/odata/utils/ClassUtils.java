@@ -32,44 +32,67 @@ import org.springframework.core.type.filter.AnnotationTypeFilter;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public final class ClassUtils {
 
+    private static final ClassValue<FieldIndex> FIELD_INDEX = new ClassValue<FieldIndex>() {
+        @Override
+        protected FieldIndex computeValue(final Class<?> clazz) {
+            return new FieldIndex(clazz);
+        }
+    };
+
     private ClassUtils() { }
 
+    /**
+     * @return the fields declared by the class and all its super classes, the subclass' fields first.
+     *         The list is built once per class and can't be modified.
+     */
     public static List<Field> getFields(final Class<?> clazz) {
         return getFields(clazz, true);
     }
 
     public static List<Field> getFields(final Class<?> clazz, final boolean superClass) {
-        List<Field> fields = new ArrayList<>(Arrays.asList(clazz.getDeclaredFields()));
-        if (superClass) {
-            Class<?> superClazz = clazz.getSuperclass();
-            if (superClazz != null) {
-                fields.addAll(Arrays.asList(superClazz.getDeclaredFields()));
-            }
-        }
-        return fields;
+        FieldIndex index = FIELD_INDEX.get(clazz);
+        return superClass ? index.fields : index.declaredFields;
     }
 
+    /**
+     * @param propertyName edm name of a property or navigation property, or the name of the field.
+     * @return the field of the edm class or its super classes, null if there is none.
+     */
     public static Field getFieldFromEdmClass(Class<?> edmClass, String propertyName) {
-        List<Field> fields = getFields(edmClass);
-        for (Field field : fields) {
-            ODataProperty oDataProperty = field.getAnnotation(ODataProperty.class);
-            ODataNavigationProperty oDataNavigationProperty = field.getAnnotation(ODataNavigationProperty.class);
-            if ((oDataProperty == null && field.getName().equals(propertyName))
-                    || (oDataProperty != null && !oDataProperty.name().isEmpty() && oDataProperty.name().equals(propertyName))
-                    || (oDataProperty != null && oDataProperty.name().isEmpty() && field.getName().equals(propertyName))
-                    || (oDataNavigationProperty == null && field.getName().equals(propertyName))
-                    || (oDataNavigationProperty != null && !oDataNavigationProperty.name().isEmpty() && oDataNavigationProperty.name().equals(propertyName))
-                    || (oDataNavigationProperty != null && oDataNavigationProperty.name().isEmpty() && field.getName().equals(propertyName))) {
-                return field;
+        return FIELD_INDEX.get(edmClass).byEdmName.get(propertyName);
+    }
+
+    /**
+     * @param fieldName name of a field, e.g. a jpa variable of a jpa entity.
+     * @return the field of the class or its super classes, null if there is none.
+     */
+    public static Field getField(Class<?> clazz, String fieldName) {
+        return FIELD_INDEX.get(clazz).byName.get(fieldName);
+    }
+
+    /**
+     * @return the type of the field, or the type of its elements for a collection, e.g. a collection navigation property.
+     */
+    public static Class<?> getElementType(final Field field) {
+        if (Collection.class.isAssignableFrom(field.getType()) && field.getGenericType() instanceof ParameterizedType) {
+            Type elementType = ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0];
+            if (elementType instanceof Class<?>) {
+                return (Class<?>) elementType;
             }
         }
-        return null;
+        return field.getType();
     }
 
     public static ClassPathScanningCandidateComponentProvider createComponentScanner(final Iterable<Class<? extends Annotation>> annotations) {
@@ -80,4 +103,39 @@ public final class ClassUtils {
         }
         return provider;
     }
+
+    /**
+     * Fields of a class across its inheritance chain, by field name and by edm name.
+     */
+    private static final class FieldIndex {
+
+        private final List<Field> fields;
+        private final List<Field> declaredFields;
+        private final Map<String, Field> byName = new HashMap<>();
+        private final Map<String, Field> byEdmName = new HashMap<>();
+
+        private FieldIndex(final Class<?> clazz) {
+            List<Field> all = new ArrayList<>();
+            for (Class<?> current = clazz; current != null && current != Object.class; current = current.getSuperclass()) {
+                all.addAll(Arrays.asList(current.getDeclaredFields()));
+            }
+            this.fields = Collections.unmodifiableList(all);
+            this.declaredFields = Collections.unmodifiableList(Arrays.asList(clazz.getDeclaredFields()));
+
+            // the first field of a name wins, as the subclass' fields come first.
+            for (Field field : all) {
+                ODataProperty oDataProperty = field.getAnnotation(ODataProperty.class);
+                ODataNavigationProperty oDataNavigationProperty = field.getAnnotation(ODataNavigationProperty.class);
+
+                byName.putIfAbsent(field.getName(), field);
+                byEdmName.putIfAbsent(field.getName(), field);
+                if (oDataProperty != null && !oDataProperty.name().isEmpty()) {
+                    byEdmName.putIfAbsent(oDataProperty.name(), field);
+                }
+                if (oDataNavigationProperty != null && !oDataNavigationProperty.name().isEmpty()) {
+                    byEdmName.putIfAbsent(oDataNavigationProperty.name(), field);
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,151 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) [2020] [He Zhang]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished
+ *  to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.saturn.odata.utils;
+
+import org.hibernate.Session;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.SessionImplementor;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+/**
+ * Writes many jpa entities through one entity manager as JDBC batches: the session batches the statements by
+ * {@code batchSize} and each batch is flushed then its entities are detached, so the persistence context doesn't
+ * grow with the number of rows while the entities the caller already manages stay managed. The JDBC batch size of
+ * the session is restored afterwards. Hibernate only batches the inserts of entities whose ids aren't generated
+ * by the database (IDENTITY), and orders them by entity with {@code hibernate.order_inserts=true}.
+ */
+public final class JpaBatchUtils {
+
+    public static final int DEFAULT_BATCH_SIZE = 50;
+
+    private JpaBatchUtils() {
+    }
+
+    /**
+     * Persists the entities inside the current transaction.
+     *
+     * @return the entities, detached unless the caller manages them.
+     */
+    public static <T> List<T> persistAll(final EntityManager entityManager, final List<T> entities, final int batchSize) {
+        return writeAll(entityManager, entities, batchSize, entity -> {
+            entityManager.persist(entity);
+            return entity;
+        });
+    }
+
+    public static <T> List<T> persistAll(final EntityManager entityManager, final List<T> entities) {
+        return persistAll(entityManager, entities, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Merges the entities inside the current transaction.
+     *
+     * @return the merged entities, in the order of the entities, detached unless the caller manages them.
+     */
+    public static <T> List<T> mergeAll(final EntityManager entityManager, final List<T> entities, final int batchSize) {
+        return writeAll(entityManager, entities, batchSize, entityManager::merge);
+    }
+
+    public static <T> List<T> mergeAll(final EntityManager entityManager, final List<T> entities) {
+        return mergeAll(entityManager, entities, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Writes the entities by batches, only the entities managed by the write are detached after their batch: the
+     * result of a merge may be the instance the caller already manages for the id of a detached copy.
+     */
+    private static <T> List<T> writeAll(final EntityManager entityManager, final List<T> entities, final int batchSize,
+                                        final UnaryOperator<T> write) {
+        Session session = getSession(entityManager);
+        Integer jdbcBatchSize = session == null ? null : session.getJdbcBatchSize();
+        List<T> written = new ArrayList<>(entities.size());
+        List<T> batch = new ArrayList<>(batchSize);
+        Set<Object> callers = getManagedEntities(session);
+
+        // batches the statements of the session even if hibernate.jdbc.batch_size isn't configured.
+        if (session != null) {
+            session.setJdbcBatchSize(batchSize);
+        }
+
+        try {
+            for (T entity : entities) {
+                boolean managed = callers == null ? entityManager.contains(entity) : callers.contains(entity);
+                T result = write.apply(entity);
+                written.add(result);
+
+                if (!managed && (callers == null || !callers.contains(result))) {
+                    batch.add(result);
+                }
+                if (written.size() % batchSize == 0) {
+                    entityManager.flush();
+                    batch.forEach(entityManager::detach);
+                    batch.clear();
+                }
+            }
+            entityManager.flush();
+            batch.forEach(entityManager::detach);
+        } finally {
+            if (session != null) {
+                session.setJdbcBatchSize(jdbcBatchSize);
+            }
+        }
+        return written;
+    }
+
+    /**
+     * @return the entities of the persistence context of the session, null if it isn't a hibernate session.
+     */
+    private static Set<Object> getManagedEntities(final Session session) {
+        if (!(session instanceof SessionImplementor)) {
+            return null;
+        }
+        Set<Object> entities = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Map.Entry<Object, EntityEntry> entry : ((SessionImplementor) session).getPersistenceContext().reentrantSafeEntityEntries()) {
+            entities.add(entry.getKey());
+        }
+        return entities;
+    }
+
+    /**
+     * @return the hibernate session of the entity manager, null if it isn't a hibernate entity manager,
+     *         its own configuration then applies.
+     */
+    private static Session getSession(final EntityManager entityManager) {
+        try {
+            return entityManager.unwrap(Session.class);
+        } catch (PersistenceException e) {
+            return null;
+        }
+    }
+}
@@ -47,6 +47,9 @@ import org.apache.olingo.commons.api.edm.provider.CsdlFunction;
 import org.apache.olingo.commons.api.edm.provider.CsdlReturnType;
 import org.apache.olingo.commons.api.edm.provider.CsdlParameter;
 import org.apache.olingo.commons.api.edm.provider.CsdlAction;
+import org.apache.olingo.server.api.uri.UriResource;
+import org.apache.olingo.server.api.uri.queryoption.SelectItem;
+import org.apache.olingo.server.api.uri.queryoption.SelectOption;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -58,8 +61,10 @@ import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 public final class ODataUtils {
@@ -504,11 +509,16 @@ public final class ODataUtils {
                 .setCollection(isCollectionType)
                 .setPrecision(oDataReturnType.precision());
 
-        if (isCollectionType) {
-            csdlReturnType.setType(
-                    generateCollectionType(namespace, getTypeStringFromCollection(oDataReturnType.type())));
+        String typeName = getTypeStringFromCollection(oDataReturnType.type());
+        EdmPrimitiveTypeKind typeKind = getEdmPrimitiveType(typeName);
+
+        // primitive types are in the Edm namespace, not in the namespace of the service.
+        if (typeKind != null) {
+            csdlReturnType.setType(typeKind.getFullQualifiedName());
+        } else if (isCollectionType) {
+            csdlReturnType.setType(generateCollectionType(namespace, typeName));
         } else {
-            csdlReturnType.setType(generateFQN(namespace, oDataReturnType.type()));
+            csdlReturnType.setType(generateFQN(namespace, typeName));
         }
         return csdlReturnType;
     }
@@ -549,4 +559,27 @@ public final class ODataUtils {
         entityId = StringUtils.replace(entityId, StringUtils.BLANK, StringUtils.BLANK_CODE);
         return entityId;
     }
+
+    /**
+     * @param selectOption $select of the request.
+     * @return names of the first level properties selected, null if all of them are, i.e. no $select or a *.
+     */
+    public static Set<String> getSelectedProperties(final SelectOption selectOption) {
+        if (selectOption == null || selectOption.getSelectItems() == null || selectOption.getSelectItems().isEmpty()) {
+            return null;
+        }
+
+        Set<String> selected = new HashSet<>();
+
+        for (SelectItem selectItem : selectOption.getSelectItems()) {
+            if (selectItem.isStar() || selectItem.getResourcePath() == null) {
+                return null;
+            }
+            List<UriResource> parts = selectItem.getResourcePath().getUriResourceParts();
+            if (!parts.isEmpty()) {
+                selected.add(parts.get(0).getSegmentValue());
+            }
+        }
+        return selected;
+    }
 }
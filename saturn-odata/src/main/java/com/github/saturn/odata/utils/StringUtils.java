@@ -62,6 +62,10 @@ public final class StringUtils extends org.apache.commons.lang.StringUtils {
     public static final String COUNT_URL = DOLLAR_CODE + "count";
     public static final String SKIP = DOLLAR + "skip";
     public static final String SKIP_URL = DOLLAR_CODE + "skip";
+    public static final String SKIPTOKEN = DOLLAR + "skiptoken";
+    public static final String SKIPTOKEN_URL = DOLLAR_CODE + "skiptoken";
+    public static final String FILTER = DOLLAR + "filter";
+    public static final String ORDERBY = DOLLAR + "orderby";
 
     //--------------------------------- BOOLEAN ----------------------------------------------
     public static final String TRUE = "true";
@@ -0,0 +1,87 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) [2020] [He Zhang]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished
+ *  to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.saturn.odata.benchmarks;
+
+import com.github.saturn.odata.entities.Course;
+import com.github.saturn.odata.entities.Teacher;
+import com.github.saturn.odata.entities.enums.Sex2;
+import com.github.saturn.odata.metadata.SaturnEdmContext;
+import com.github.saturn.odata.metadata.SaturnEdmProvider;
+import com.github.saturn.odata.utils.Constant;
+import org.apache.olingo.commons.api.http.HttpMethod;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.ODataRequest;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Shared fixtures of the benchmarks, registers a small edm without scanning the classpath.
+ */
+final class BenchmarkFixtures {
+
+    static final String BASE_URI = "http://localhost/odata";
+
+    private BenchmarkFixtures() {
+    }
+
+    static SaturnEdmContext context() {
+        SaturnEdmContext context = new SaturnEdmContext()
+                .setNameSpace(Constant.NAMESPACE)
+                .setDefaultEdmPkg(Constant.NAMESPACE)
+                .setContainerName("Container")
+                .setServiceRoot(BASE_URI);
+        context.getEntityTypes().put("Teacher", Teacher.class);
+        context.getEntityTypes().put("Course", Course.class);
+        context.getEntitySets().put("Teachers", Teacher.class);
+        context.getEntitySets().put("Courses", Course.class);
+        context.getEnums().put("Sex2", Sex2.class);
+        return context;
+    }
+
+    static SaturnEdmProvider provider() throws ODataApplicationException {
+        return new SaturnEdmProvider().initialize(context());
+    }
+
+    static ODataRequest get(final String path) {
+        ODataRequest request = new ODataRequest();
+        request.setMethod(HttpMethod.GET);
+        request.setProtocol("HTTP/1.1");
+        request.setRawBaseUri(BASE_URI);
+        request.setRawODataPath(path);
+        request.setRawRequestUri(BASE_URI + path);
+        request.setRawServiceResolutionUri("");
+        request.setBody(new ByteArrayInputStream(new byte[0]));
+        return request;
+    }
+
+    static ODataRequest post(final String path, final String body) {
+        ODataRequest request = get(path);
+        request.setMethod(HttpMethod.POST);
+        request.addHeader("Content-Type", "application/json");
+        request.setBody(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+        return request;
+    }
+}
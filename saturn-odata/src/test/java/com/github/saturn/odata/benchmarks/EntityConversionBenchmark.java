@@ -0,0 +1,109 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) [2020] [He Zhang]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished
+ *  to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.saturn.odata.benchmarks;
+
+import com.github.saturn.odata.entities.Teacher;
+import com.github.saturn.odata.entities.enums.Sex2;
+import com.github.saturn.odata.exceptions.SaturnODataException;
+import com.github.saturn.odata.interfaces.SaturnEdmRegistry;
+import com.github.saturn.odata.metadata.SaturnEdmContext;
+import com.github.saturn.odata.processors.SaturnProcessor;
+import org.apache.olingo.commons.api.data.Entity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Converts a page of entities the way the processors do before serializing a collection,
+ * with method handle getters or with the accessors generated by saturn-processor.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EntityConversionBenchmark {
+
+    @Param({"10000"})
+    private int rows;
+
+    @Param({"false", "true"})
+    private boolean generatedAccessors;
+
+    private List<Teacher> teachers;
+    private Converter converter;
+
+    @Setup
+    public void setup() {
+        SaturnEdmContext context = BenchmarkFixtures.context();
+        if (generatedAccessors) {
+            for (SaturnEdmRegistry registry : ServiceLoader.load(SaturnEdmRegistry.class)) {
+                context.getAccessors().putAll(registry.getAccessors());
+            }
+        }
+        converter = new Converter();
+        converter.initialize(context);
+        teachers = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            Teacher teacher = new Teacher();
+            teacher.setId(i);
+            teacher.setName("teacher " + i);
+            teacher.setAge(i % 60);
+            teacher.setBirthday(LocalDate.of(1980, 1, 1).plusDays(i));
+            teacher.setSex(i % 2 == 0 ? Sex2.MALE : Sex2.FAMALE);
+            teachers.add(teacher);
+        }
+    }
+
+    @Benchmark
+    public void fromObject2Entity(final Blackhole blackhole) throws SaturnODataException, IllegalAccessException {
+        for (Teacher teacher : teachers) {
+            blackhole.consume(converter.convert(teacher));
+        }
+    }
+
+    static final class Converter extends SaturnProcessor {
+
+        Entity convert(final Object object) throws SaturnODataException, IllegalAccessException {
+            return fromObject2Entity(object);
+        }
+    }
+}
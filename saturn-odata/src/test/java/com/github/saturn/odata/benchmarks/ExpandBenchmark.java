@@ -0,0 +1,136 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) [2020] [He Zhang]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished
+ *  to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.saturn.odata.benchmarks;
+
+import com.github.saturn.odata.entities.Course;
+import com.github.saturn.odata.entities.Teacher;
+import com.github.saturn.odata.exceptions.SaturnODataException;
+import com.github.saturn.odata.processors.ExpandTree;
+import com.github.saturn.odata.processors.SaturnProcessor;
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.server.api.OData;
+import org.apache.olingo.server.api.uri.UriResourceKind;
+import org.apache.olingo.server.api.uri.queryoption.ExpandItem;
+import org.apache.olingo.server.api.uri.queryoption.ExpandOption;
+import org.apache.olingo.server.core.uri.parser.Parser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-row cost of finding the expand item of a navigation property, with the nested parallel streams over the
+ * expand items the conversion used to run for every navigation field of every row, or with the expand tree
+ * compiled once per request, alone and within the whole conversion of an expanded row.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class ExpandBenchmark {
+
+    private static final int COURSES = 3;
+
+    @Param({"$expand=Courses"})
+    private String query;
+
+    private ExpandOption expandOption;
+    private ExpandTree expandTree;
+    private Teacher teacher;
+    private Converter converter;
+
+    @Setup
+    public void setup() throws Exception {
+        OData odata = OData.newInstance();
+        expandOption = new Parser(odata.createServiceMetadata(BenchmarkFixtures.provider(), Collections.emptyList()).getEdm(), odata)
+                .parseUri("Teachers", query, null, BenchmarkFixtures.BASE_URI)
+                .getExpandOption();
+        expandTree = ExpandTree.compile(expandOption);
+        converter = new Converter();
+        converter.initialize(BenchmarkFixtures.context());
+
+        List<Course> courses = new ArrayList<>();
+        for (int i = 0; i < COURSES; i++) {
+            Course course = new Course();
+            course.setId(i);
+            course.setName("course " + i);
+            courses.add(course);
+        }
+        teacher = new Teacher();
+        teacher.setId(1);
+        teacher.setName("teacher");
+        teacher.setCourses(courses);
+    }
+
+    @Benchmark
+    public Optional<ExpandItem> parallelStreamMatching() {
+        return expandOption
+                .getExpandItems()
+                .parallelStream()
+                .filter(expandItem -> expandItem
+                        .getResourcePath()
+                        .getUriResourceParts()
+                        .parallelStream()
+                        .anyMatch(uriResource -> uriResource
+                                .getKind().equals(UriResourceKind.navigationProperty)
+                                && uriResource.getSegmentValue().equals("Courses")))
+                .findFirst();
+    }
+
+    @Benchmark
+    public ExpandTree compiledLookup() {
+        return expandTree.get("Courses");
+    }
+
+    @Benchmark
+    public void fromObject2Entity(final Blackhole blackhole) throws SaturnODataException, IllegalAccessException {
+        blackhole.consume(converter.convert(teacher, expandTree));
+    }
+
+    static final class Converter extends SaturnProcessor {
+
+        Entity convert(final Object object, final ExpandTree expandTree) throws SaturnODataException, IllegalAccessException {
+            return fromObject2Entity(object, expandTree, null, null);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) [2020] [He Zhang]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished
+ *  to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.saturn.odata.benchmarks;
+
+import com.github.saturn.odata.handlers.SaturnHandlerFactory;
+import com.github.saturn.odata.metadata.SaturnEdmProvider;
+import com.github.saturn.odata.processors.EntityProcessor;
+import com.github.saturn.odata.processors.PrimitiveProcessor;
+import org.apache.olingo.commons.api.edmx.EdmxReference;
+import org.apache.olingo.server.api.OData;
+import org.apache.olingo.server.api.ODataHandler;
+import org.apache.olingo.server.api.ODataResponse;
+import org.apache.olingo.server.api.ServiceMetadata;
+import org.apache.olingo.server.api.processor.Processor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares building OData, ServiceMetadata and handler on every request with
+ * handlers created from a shared {@link SaturnHandlerFactory}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HandlerFactoryBenchmark {
+
+    @Param({"/", "/$metadata"})
+    private String path;
+
+    private SaturnEdmProvider provider;
+    private List<Processor> processors;
+    private SaturnHandlerFactory factory;
+
+    @Setup
+    public void setup() throws Exception {
+        provider = BenchmarkFixtures.provider();
+        processors = Arrays.asList(new EntityProcessor(), new PrimitiveProcessor());
+        factory = new SaturnHandlerFactory().initialize(provider, processors);
+    }
+
+    @Benchmark
+    public void perRequest(final Blackhole blackhole) throws IOException {
+        OData odata = OData.newInstance();
+        ServiceMetadata serviceMetadata = odata.createServiceMetadata(provider, new ArrayList<EdmxReference>());
+        ODataHandler handler = odata.createRawHandler(serviceMetadata);
+        for (Processor processor : processors) {
+            handler.register(processor);
+        }
+        consume(handler.process(BenchmarkFixtures.get(path)), blackhole);
+    }
+
+    @Benchmark
+    public void sharedFactory(final Blackhole blackhole) throws IOException {
+        consume(factory.createHandler().process(BenchmarkFixtures.get(path)), blackhole);
+    }
+
+    private static void consume(final ODataResponse response, final Blackhole blackhole) throws IOException {
+        blackhole.consume(response.getStatusCode());
+        InputStream content = response.getContent();
+        if (content == null) {
+            return;
+        }
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = content.read(buffer)) != -1) {
+            blackhole.consume(read);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) [2020] [He Zhang]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished
+ *  to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.saturn.odata.benchmarks;
+
+import com.github.saturn.odata.handlers.SaturnHandlerFactory;
+import com.github.saturn.odata.interfaces.EntityOperation;
+import com.github.saturn.odata.metadata.SaturnEdmProvider;
+import com.github.saturn.odata.processors.EntityProcessor;
+import com.github.saturn.odata.uri.QueryOptions;
+import org.apache.olingo.server.api.uri.UriParameter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.support.StaticApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Imports rows through the handler, one POST per row or one POST of the whole collection. The operation
+ * stands for a database: each statement round trip costs {@link #ROUND_TRIP_TOKENS}, and {@code createAll}
+ * sends the rows as JDBC batches of {@link #BATCH_SIZE}, like {@code JpaBatchUtils.persistAll}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class ImportBenchmark {
+
+    private static final long ROUND_TRIP_TOKENS = 20_000;
+
+    private static final int BATCH_SIZE = 50;
+
+    @Param({"1000", "10000", "100000"})
+    private int rows;
+
+    private SaturnHandlerFactory factory;
+    private List<String> bodies;
+    private String collectionBody;
+
+    @Setup
+    public void setup() throws Exception {
+        StaticApplicationContext applicationContext = new StaticApplicationContext();
+        applicationContext.getBeanFactory().registerSingleton("teacherOperation", new TeacherOperation());
+        applicationContext.refresh();
+
+        EntityProcessor processor = new EntityProcessor().initialize(BenchmarkFixtures.context(), applicationContext);
+        factory = new SaturnHandlerFactory().initialize(new SaturnEdmProvider().initialize(BenchmarkFixtures.context()),
+                Collections.singletonList(processor));
+
+        bodies = new ArrayList<>(rows);
+        StringBuilder collection = new StringBuilder("{\"value\":[");
+        for (int i = 0; i < rows; i++) {
+            String body = "{\"Id\":" + i + ",\"Name\":\"teacher " + i + "\",\"Age\":" + (i % 60) + "}";
+            bodies.add(body);
+            collection.append(i == 0 ? "" : ",").append(body);
+        }
+        collectionBody = collection.append("]}").toString();
+    }
+
+    @Benchmark
+    public int rowByRow() {
+        int created = 0;
+        for (String body : bodies) {
+            created += factory.createHandler().process(BenchmarkFixtures.post("/Teachers", body)).getStatusCode();
+        }
+        return created;
+    }
+
+    @Benchmark
+    public int collection() {
+        return factory.createHandler().process(BenchmarkFixtures.post("/Teachers", collectionBody)).getStatusCode();
+    }
+
+    static final class TeacherOperation implements EntityOperation {
+
+        @Override
+        public String forEntity() {
+            return "Teacher";
+        }
+
+        @Override
+        public Object create(Object object, Object superObject) {
+            Blackhole.consumeCPU(ROUND_TRIP_TOKENS);
+            return object;
+        }
+
+        @Override
+        public List<?> createAll(List<?> objects, Object superObject) {
+            for (int i = 0; i < objects.size(); i += BATCH_SIZE) {
+                Blackhole.consumeCPU(ROUND_TRIP_TOKENS);
+            }
+            return objects;
+        }
+
+        @Override
+        public List<?> retrieveAll(QueryOptions queryOptions, Object superObject) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public Long count(QueryOptions queryOptions) {
+            return 0L;
+        }
+
+        @Override
+        public Object retrieveByKey(Map<String, UriParameter> parameterMap, QueryOptions queryOptions, Object superObject) {
+            return null;
+        }
+
+        @Override
+        public Object update(Map<String, UriParameter> parameterMap, List<String> properties, Object object, Object superObject) {
+            return object;
+        }
+
+        @Override
+        public Object delete(Map<String, UriParameter> parameterMap, Object superObject) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) [2020] [He Zhang]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished
+ *  to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.saturn.odata.benchmarks;
+
+import com.github.saturn.odata.entities.Course;
+import com.github.saturn.odata.entities.Teacher;
+import com.github.saturn.odata.handlers.SaturnHandlerFactory;
+import com.github.saturn.odata.interfaces.EntityOperation;
+import com.github.saturn.odata.metadata.SaturnEdmContext;
+import com.github.saturn.odata.metadata.SaturnEdmProvider;
+import com.github.saturn.odata.processors.ConversionMetrics;
+import com.github.saturn.odata.processors.EntityProcessor;
+import com.github.saturn.odata.uri.QueryOptions;
+import org.apache.olingo.server.api.ODataRequest;
+import org.apache.olingo.server.api.uri.UriParameter;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.support.StaticApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads a large page with an expanded collection through the handler, converted on the request thread
+ * or by chunks on a dedicated executor. The pages converted sequentially and in parallel are reported as
+ * auxiliary counters of the iterations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParallelConversionBenchmark {
+
+    private static final int COURSES = 10;
+
+    @Param({"10000"})
+    private int rows;
+
+    @Param({"0", "4"})
+    private int threads;
+
+    private ExecutorService executor;
+    private EntityProcessor processor;
+    private SaturnHandlerFactory factory;
+
+    @Setup
+    public void setup() throws Exception {
+        SaturnEdmContext context = BenchmarkFixtures.context().setTopMaxValue(rows);
+        if (threads > 0) {
+            executor = Executors.newFixedThreadPool(threads);
+            context.setConversionExecutor(executor);
+        }
+
+        StaticApplicationContext applicationContext = new StaticApplicationContext();
+        applicationContext.getBeanFactory().registerSingleton("teacherOperation", new TeacherOperation(rows));
+        applicationContext.refresh();
+
+        processor = new EntityProcessor().initialize(context, applicationContext);
+        factory = new SaturnHandlerFactory().initialize(new SaturnEdmProvider().initialize(context), Collections.singletonList(processor));
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Benchmark
+    public int readExpandedPage(ConversionCounters counters) {
+        ConversionMetrics metrics = processor.getConversionMetrics();
+        long sequentialPages = metrics.getSequentialPages();
+        long parallelPages = metrics.getParallelPages();
+
+        ODataRequest request = BenchmarkFixtures.get("/Teachers");
+        request.setRawQueryPath("$expand=Courses");
+        request.setRawRequestUri(BenchmarkFixtures.BASE_URI + "/Teachers?$expand=Courses");
+        int status = factory.createHandler().process(request).getStatusCode();
+
+        counters.sequentialPages += metrics.getSequentialPages() - sequentialPages;
+        counters.parallelPages += metrics.getParallelPages() - parallelPages;
+        return status;
+    }
+
+    /**
+     * Pages of the iteration converted on the request thread and on the executor.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class ConversionCounters {
+
+        public long sequentialPages;
+        public long parallelPages;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            sequentialPages = 0;
+            parallelPages = 0;
+        }
+    }
+
+    static final class TeacherOperation implements EntityOperation {
+
+        private final List<Teacher> teachers = new ArrayList<>();
+
+        TeacherOperation(final int rows) {
+            for (int i = 0; i < rows; i++) {
+                List<Course> courses = new ArrayList<>();
+                for (int j = 0; j < COURSES; j++) {
+                    Course course = new Course();
+                    course.setId(i * COURSES + j);
+                    course.setName("course " + j);
+                    courses.add(course);
+                }
+                Teacher teacher = new Teacher();
+                teacher.setId(i);
+                teacher.setName("teacher " + i);
+                teacher.setCourses(courses);
+                teachers.add(teacher);
+            }
+        }
+
+        @Override
+        public String forEntity() {
+            return "Teacher";
+        }
+
+        @Override
+        public List<?> retrieveAll(QueryOptions queryOptions, Object superObject) {
+            int from = Math.min(queryOptions.getSkip(), teachers.size());
+            return teachers.subList(from, (int) Math.min((long) from + queryOptions.getTop(), teachers.size()));
+        }
+
+        @Override
+        public Long count(QueryOptions queryOptions) {
+            return (long) teachers.size();
+        }
+
+        @Override
+        public Object create(Object object, Object superObject) {
+            return object;
+        }
+
+        @Override
+        public Object retrieveByKey(Map<String, UriParameter> parameterMap, QueryOptions queryOptions, Object superObject) {
+            return null;
+        }
+
+        @Override
+        public Object update(Map<String, UriParameter> parameterMap, List<String> properties, Object object, Object superObject) {
+            return object;
+        }
+
+        @Override
+        public Object delete(Map<String, UriParameter> parameterMap, Object superObject) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) [2020] [He Zhang]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished
+ *  to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.saturn.odata.entities;
+
+import com.github.saturn.odata.annotations.ODataEntitySet;
+import com.github.saturn.odata.annotations.ODataEntityType;
+import com.github.saturn.odata.annotations.ODataNavigationProperty;
+import com.github.saturn.odata.annotations.ODataProperty;
+import com.github.saturn.odata.entities.enums.Sex2;
+import com.github.saturn.odata.utils.Constant;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@ODataEntityType(namespace = Constant.NAMESPACE, name = "Teacher", keys = "Id")
+@ODataEntitySet(name = "Teachers")
+public class Teacher {
+
+    @ODataProperty(name = "Id")
+    private long id;
+
+    @ODataProperty(name = "Name")
+    private String name;
+
+    @ODataProperty(name = "Age")
+    private int age;
+
+    @ODataProperty(name = "Birthday")
+    private LocalDate birthday;
+
+    @ODataProperty(name = "Sex")
+    private Sex2 sex;
+
+    @ODataNavigationProperty(name = "Courses")
+    private List<Course> courses;
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public int getAge() {
+        return age;
+    }
+
+    public void setAge(int age) {
+        this.age = age;
+    }
+
+    public LocalDate getBirthday() {
+        return birthday;
+    }
+
+    public void setBirthday(LocalDate birthday) {
+        this.birthday = birthday;
+    }
+
+    public Sex2 getSex() {
+        return sex;
+    }
+
+    public void setSex(Sex2 sex) {
+        this.sex = sex;
+    }
+
+    public List<Course> getCourses() {
+        return courses;
+    }
+
+    public void setCourses(List<Course> courses) {
+        this.courses = courses;
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) [2020] [He Zhang]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished
+ *  to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.saturn.odata.metadata;
+
+import com.github.saturn.odata.entities.Teacher;
+import com.github.saturn.odata.utils.Constant;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SaturnEdmContextTest {
+
+    @Test
+    void registryMatchesScanTest() throws ODataApplicationException {
+        SaturnEdmContext registered = new SaturnEdmContext().setDefaultEdmPkg(Constant.NAMESPACE).setUseRegistry(true).initialize();
+        SaturnEdmContext scanned = new SaturnEdmContext().setDefaultEdmPkg(Constant.NAMESPACE).initialize();
+
+        assertEquals(scanned.getEntityTypes(), registered.getEntityTypes());
+        assertEquals(scanned.getEntitySets(), registered.getEntitySets());
+        assertEquals(scanned.getComplexTypes(), registered.getComplexTypes());
+        assertEquals(scanned.getEnums(), registered.getEnums());
+        assertEquals(scanned.getFunctions(), registered.getFunctions());
+        assertEquals(scanned.getActions(), registered.getActions());
+
+        assertNotNull(registered.getAccessor(Teacher.class));
+        assertNull(scanned.getAccessor(Teacher.class));
+    }
+
+    @Test
+    void registryOutsideDefaultEdmPkgTest() throws ODataApplicationException {
+        SaturnEdmContext context = new SaturnEdmContext().setDefaultEdmPkg(Constant.NAMESPACE + ".enums").setUseRegistry(true).initialize();
+
+        assertEquals(2, context.getEnums().size());
+        assertTrue(context.getEntityTypes().isEmpty());
+        assertTrue(context.getAccessors().isEmpty());
+    }
+}
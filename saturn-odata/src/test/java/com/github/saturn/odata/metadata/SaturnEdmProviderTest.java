@@ -0,0 +1,93 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) [2020] [He Zhang]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished
+ *  to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.saturn.odata.metadata;
+
+import com.github.saturn.odata.entities.Course;
+import com.github.saturn.odata.entities.Teacher;
+import com.github.saturn.odata.entities.enums.Sex2;
+import com.github.saturn.odata.utils.Constant;
+import org.apache.olingo.commons.api.edm.FullQualifiedName;
+import org.apache.olingo.commons.api.edm.provider.CsdlEntityType;
+import org.apache.olingo.commons.api.edm.provider.CsdlSchema;
+import org.apache.olingo.commons.api.ex.ODataException;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SaturnEdmProviderTest {
+
+    private SaturnEdmProvider provider;
+
+    @BeforeEach
+    void setUp() throws ODataApplicationException {
+        SaturnEdmContext context = new SaturnEdmContext()
+                .setNameSpace(Constant.NAMESPACE)
+                .setContainerName("Container");
+        context.getEntityTypes().put("Teacher", Teacher.class);
+        context.getEntityTypes().put("Course", Course.class);
+        context.getEntitySets().put("Teachers", Teacher.class);
+        context.getEntitySets().put("Courses", Course.class);
+        context.getEnums().put("Sex2", Sex2.class);
+        provider = new SaturnEdmProvider().initialize(context);
+    }
+
+    @Test
+    void lookupsReadSnapshotTest() throws ODataException {
+        FullQualifiedName teacher = new FullQualifiedName(Constant.NAMESPACE, "Teacher");
+        CsdlEntityType csdlEntityType = provider.getEntityType(teacher);
+
+        assertNotNull(csdlEntityType);
+        assertSame(csdlEntityType, provider.getEntityType(teacher));
+        assertSame(provider.getSnapshot().getEntityTypes().get("Teacher"), csdlEntityType);
+        assertEquals(1, csdlEntityType.getNavigationProperties().size());
+        assertNull(provider.getEntityType(new FullQualifiedName(Constant.NAMESPACE, "Unknown")));
+
+        FullQualifiedName container = new FullQualifiedName(Constant.NAMESPACE, "Container");
+        assertSame(provider.getEntitySet(container, "Teachers"), provider.getEntitySet(container, "Teachers"));
+        assertEquals(2, provider.getEnumType(new FullQualifiedName(Constant.NAMESPACE, "Sex2")).getMembers().size());
+    }
+
+    @Test
+    void schemasTest() throws ODataException {
+        List<CsdlSchema> schemas = provider.getSchemas();
+
+        assertSame(schemas, provider.getSchemas());
+        assertEquals(1, schemas.size());
+
+        CsdlSchema schema = schemas.get(0);
+        List<String> entityTypes = schema.getEntityTypes().stream().map(CsdlEntityType::getName).collect(Collectors.toList());
+        assertEquals(2, entityTypes.size());
+        assertEquals("Course", entityTypes.get(0));
+        assertEquals("Teacher", entityTypes.get(1));
+        assertSame(provider.getEntityContainer(), schema.getEntityContainer());
+        assertEquals(2, schema.getEntityContainer().getEntitySets().size());
+        assertThrows(UnsupportedOperationException.class, () -> schemas.add(new CsdlSchema()));
+    }
+}
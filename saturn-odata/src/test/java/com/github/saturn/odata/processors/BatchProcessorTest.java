@@ -0,0 +1,242 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) [2020] [He Zhang]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished
+ *  to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.saturn.odata.processors;
+
+import com.github.saturn.odata.entities.Course;
+import com.github.saturn.odata.entities.Teacher;
+import com.github.saturn.odata.entities.enums.Sex2;
+import com.github.saturn.odata.handlers.SaturnHandlerFactory;
+import com.github.saturn.odata.metadata.SaturnEdmContext;
+import com.github.saturn.odata.metadata.SaturnEdmProvider;
+import com.github.saturn.odata.uri.QueryOptions;
+import com.github.saturn.odata.utils.Constant;
+import org.apache.olingo.commons.api.http.HttpMethod;
+import org.apache.olingo.server.api.ODataRequest;
+import org.apache.olingo.server.api.ODataResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Scanner;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchProcessorTest {
+
+    private static final String BASE_URI = "http://localhost/odata";
+
+    private final CountingTransactionManager transactionManager = new CountingTransactionManager();
+    private final ThreadPoolExecutor executor = (ThreadPoolExecutor) Executors.newFixedThreadPool(2);
+
+    private final AtomicInteger decorated = new AtomicInteger();
+
+    private SaturnHandlerFactory factory;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        SaturnEdmContext context = new SaturnEdmContext()
+                .setNameSpace(Constant.NAMESPACE)
+                .setDefaultEdmPkg(Constant.NAMESPACE)
+                .setContainerName("Container")
+                .setServiceRoot(BASE_URI)
+                .setTopMaxValue(100)
+                .setStreamedCollections(true)
+                .setBatchExecutor(executor)
+                .setBatchTaskDecorator(task -> {
+                    decorated.incrementAndGet();
+                    return task;
+                });
+        context.getEntityTypes().put("Teacher", Teacher.class);
+        context.getEntityTypes().put("Course", Course.class);
+        context.getEntitySets().put("Teachers", Teacher.class);
+        context.getEntitySets().put("Courses", Course.class);
+        context.getEnums().put("Sex2", Sex2.class);
+
+        StaticApplicationContext applicationContext = new StaticApplicationContext();
+        applicationContext.getBeanFactory().registerSingleton("teacherOperation", new FailingTeacherOperation(5));
+        applicationContext.getBeanFactory().registerSingleton("transactionManager", transactionManager);
+        applicationContext.refresh();
+
+        factory = new SaturnHandlerFactory().initialize(new SaturnEdmProvider().initialize(context), Arrays.asList(
+                new EntityProcessor().initialize(context, applicationContext),
+                new BatchProcessor().initialize(context, applicationContext)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void batchTest() {
+        String body = batch(
+                part("GET Teachers?$top=1&$select=Name HTTP/1.1\r\nAccept: application/json\r\n\r\n"),
+                part("GET Teachers?$top=1&$skip=3&$select=Name HTTP/1.1\r\nAccept: application/json\r\n\r\n"),
+                changeSet(part("POST Teachers HTTP/1.1\r\nContent-Type: application/json\r\n\r\n{\"Id\":7,\"Name\":\"T7\"}")),
+                part("GET Teachers?$top=1&$skip=1&$select=Name HTTP/1.1\r\nAccept: application/json\r\n\r\n"));
+
+        assertTrue(body.indexOf("\"T0\"") < body.indexOf("\"T3\""));
+        assertTrue(body.indexOf("\"T3\"") < body.indexOf("201 Created"));
+        assertTrue(body.indexOf("201 Created") < body.indexOf("\"T1\""));
+        assertEquals(3, decorated.get());
+        assertEquals(1, transactionManager.commits);
+        assertEquals(0, transactionManager.rollbacks);
+    }
+
+    @Test
+    void failedChangeSetTest() {
+        String body = batch(changeSet(
+                part("POST Teachers HTTP/1.1\r\nContent-Type: application/json\r\n\r\n{\"Id\":7,\"Name\":\"T7\"}"),
+                part("POST Teachers HTTP/1.1\r\nContent-Type: application/json\r\n\r\n{\"Id\":\"seven\"}")));
+
+        assertFalse(body.contains("201 Created"));
+        assertTrue(body.contains("400 Bad Request"));
+        assertEquals(0, transactionManager.commits);
+        assertEquals(1, transactionManager.rollbacks);
+    }
+
+    @Test
+    void failedReadTest() {
+        String body = batch(
+                part("GET Teachers?$filter=Id%20eq%201 HTTP/1.1\r\nAccept: application/json\r\n\r\n"),
+                part("GET Teachers?$top=1&$select=Name HTTP/1.1\r\nAccept: application/json\r\n\r\n"));
+
+        assertTrue(body.contains("500 Internal Server Error"));
+        assertTrue(body.contains("Teachers unreadable"));
+        assertTrue(body.indexOf("500 Internal Server Error") < body.indexOf("\"T0\""));
+        assertEquals(2, decorated.get());
+    }
+
+    private String part(final String request) {
+        return "Content-Type: application/http\r\nContent-Transfer-Encoding: binary\r\n\r\n" + request + "\r\n";
+    }
+
+    private String changeSet(final String... parts) {
+        StringBuilder changeSet = new StringBuilder("Content-Type: multipart/mixed; boundary=changeset_1\r\n\r\n");
+        for (int i = 0; i < parts.length; i++) {
+            changeSet.append("--changeset_1\r\n").append(parts[i].replace("binary\r\n", "binary\r\nContent-ID: " + (i + 1) + "\r\n"));
+        }
+        return changeSet.append("--changeset_1--\r\n").toString();
+    }
+
+    private String batch(final String... parts) {
+        StringBuilder body = new StringBuilder();
+        for (String part : parts) {
+            body.append("--batch_1\r\n").append(part);
+        }
+        body.append("--batch_1--\r\n");
+
+        ODataRequest request = new ODataRequest();
+        request.setMethod(HttpMethod.POST);
+        request.setProtocol("HTTP/1.1");
+        request.setRawBaseUri(BASE_URI);
+        request.setRawODataPath("/$batch");
+        request.setRawRequestUri(BASE_URI + "/$batch");
+        request.setRawServiceResolutionUri("");
+        request.addHeader("Content-Type", "multipart/mixed; boundary=batch_1");
+        request.setBody(new ByteArrayInputStream(body.toString().getBytes(StandardCharsets.UTF_8)));
+
+        ODataResponse response = factory.createHandler().process(request);
+        assertEquals(202, response.getStatusCode());
+        try (Scanner scanner = new Scanner(response.getContent(), "UTF-8")) {
+            return scanner.useDelimiter("\\A").next();
+        }
+    }
+
+    /**
+     * Fails while its stream is written when the read has a $filter.
+     */
+    static class FailingTeacherOperation extends EntityProcessorTest.TeacherOperation {
+
+        FailingTeacherOperation(final int size) {
+            super(size);
+        }
+
+        @Override
+        public Stream<?> retrieveStream(QueryOptions queryOptions, Object superObject) {
+            if (queryOptions.getFilterOption().isPresent()) {
+                return Stream.generate(() -> {
+                    throw new IllegalStateException("Teachers unreadable");
+                });
+            }
+            return super.retrieveStream(queryOptions, superObject);
+        }
+    }
+
+    /**
+     * Transaction manager without resources, counting the commits and the rollbacks of the transactions of the thread.
+     */
+    static class CountingTransactionManager extends AbstractPlatformTransactionManager {
+
+        private final ThreadLocal<Boolean> active = ThreadLocal.withInitial(() -> false);
+        private int commits;
+        private int rollbacks;
+
+        @Override
+        protected Object doGetTransaction() {
+            return active.get();
+        }
+
+        @Override
+        protected boolean isExistingTransaction(Object transaction) {
+            return (Boolean) transaction;
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+            active.set(true);
+        }
+
+        @Override
+        protected void doSetRollbackOnly(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doCleanupAfterCompletion(Object transaction) {
+            active.set(false);
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+            commits++;
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+            rollbacks++;
+        }
+    }
+}
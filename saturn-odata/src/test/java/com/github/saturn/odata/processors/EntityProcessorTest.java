@@ -0,0 +1,552 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) [2020] [He Zhang]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished
+ *  to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.saturn.odata.processors;
+
+import com.github.saturn.odata.entities.Course;
+import com.github.saturn.odata.entities.Teacher;
+import com.github.saturn.odata.entities.enums.Sex2;
+import com.github.saturn.odata.exceptions.SaturnODataException;
+import com.github.saturn.odata.handlers.SaturnHandlerFactory;
+import com.github.saturn.odata.interfaces.EntityOperation;
+import com.github.saturn.odata.metadata.SaturnEdmContext;
+import com.github.saturn.odata.metadata.SaturnEdmProvider;
+import com.github.saturn.odata.uri.QueryOptions;
+import com.github.saturn.odata.uri.SkipToken;
+import com.github.saturn.odata.utils.Constant;
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.Link;
+import org.apache.olingo.commons.api.http.HttpMethod;
+import org.apache.olingo.server.api.ODataRequest;
+import org.apache.olingo.server.api.ODataResponse;
+import org.apache.olingo.server.api.uri.UriParameter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.StaticApplicationContext;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EntityProcessorTest {
+
+    private static final String BASE_URI = "http://localhost/odata";
+
+    private final TeacherOperation operation = new TeacherOperation(5);
+
+    private SaturnEdmContext context;
+    private SaturnHandlerFactory factory;
+    private EntityProcessor processor;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        context = new SaturnEdmContext()
+                .setNameSpace(Constant.NAMESPACE)
+                .setDefaultEdmPkg(Constant.NAMESPACE)
+                .setContainerName("Container")
+                .setServiceRoot(BASE_URI)
+                .setTopMaxValue(100);
+        context.getEntityTypes().put("Teacher", Teacher.class);
+        context.getEntityTypes().put("Course", Course.class);
+        context.getEntitySets().put("Teachers", Teacher.class);
+        context.getEntitySets().put("Courses", Course.class);
+        context.getEnums().put("Sex2", Sex2.class);
+
+        StaticApplicationContext applicationContext = new StaticApplicationContext();
+        applicationContext.getBeanFactory().registerSingleton("teacherOperation", operation);
+        applicationContext.getBeanFactory().registerSingleton("courseOperation", new CourseOperation());
+        applicationContext.refresh();
+
+        processor = new EntityProcessor().initialize(context, applicationContext);
+        factory = new SaturnHandlerFactory().initialize(new SaturnEdmProvider().initialize(context), Collections.singletonList(processor));
+    }
+
+    @Test
+    void pushesWindowDownTest() {
+        context.setDefaultSkip(false).setDefaultTop(false);
+        String body = read("/Teachers", "$top=2&$skip=1&$count=true");
+
+        assertEquals(1, operation.lastOptions.getSkip());
+        assertEquals(3, operation.lastOptions.getTop());
+        assertTrue(operation.lastOptions.isCount());
+        assertEquals(1, operation.counted);
+        assertTrue(body.contains("\"@odata.count\":5"));
+        assertTrue(body.contains("\"Id\":1,") && body.contains("\"Id\":2,") && !body.contains("\"Id\":3,"));
+        assertTrue(body.contains("$skip=3"));
+        assertFalse(body.contains("$skip=1"));
+    }
+
+    @Test
+    void unpagedOperationTest() {
+        operation.unpaged = true;
+        String body = read("/Teachers", "$top=2&$skip=2&$count=true");
+
+        assertTrue(body.contains("\"Id\":2,") && body.contains("\"Id\":3,"));
+        assertFalse(body.contains("\"Id\":1,") || body.contains("\"Id\":4,"));
+        assertTrue(body.contains("\"@odata.count\":5"));
+        assertTrue(body.contains("$skip=4"));
+        assertEquals(0, operation.counted);
+    }
+
+    @Test
+    void inMemoryWindowTest() {
+        operation.unpaged = true;
+        String body = read("/Teachers", "$top=5&$skip=3&$count=true");
+
+        // the operation gets no window, the collection is smaller than the page it would be given.
+        assertEquals(0, operation.lastOptions.getSkip());
+        assertEquals(Integer.MAX_VALUE, operation.lastOptions.getTop());
+        assertTrue(body.contains("\"Id\":3,") && body.contains("\"Id\":4,"));
+        assertFalse(body.contains("\"Id\":2,"));
+        assertTrue(body.contains("\"@odata.count\":5"));
+        assertFalse(body.contains("nextLink"));
+        assertEquals(0, operation.counted);
+
+        context.setStreamedCollections(true);
+        String streamed = read("/Teachers", "$top=5&$skip=3");
+        assertTrue(streamed.contains("\"Id\":3,") && streamed.contains("\"Id\":4,"));
+        assertFalse(streamed.contains("\"Id\":2,"));
+    }
+
+    @Test
+    void lastPageHasNoNextLinkTest() {
+        String body = read("/Teachers", "$top=2&$skip=4");
+
+        assertFalse(operation.lastOptions.isCount());
+        assertEquals(0, operation.counted);
+        assertTrue(body.contains("\"Id\":4,") && !body.contains("\"Id\":3,"));
+        assertFalse(body.contains("nextLink"));
+    }
+
+    @Test
+    void selectTest() {
+        String body = read("/Teachers", "$select=Name&$top=1");
+
+        assertTrue(operation.lastOptions.getSelectOption().isPresent());
+        assertTrue(body.contains("\"Id\":0,\"Name\":\"T0\""));
+        assertFalse(body.contains("Age"));
+    }
+
+    @Test
+    void selectWithExpandTest() {
+        String body = read("/Teachers", "$select=Name&$expand=Courses&$top=2");
+
+        assertTrue(operation.lastOptions.getSelectOption().isPresent());
+        assertTrue(operation.lastOptions.getExpandOption().isPresent());
+        assertTrue(body.contains("\"Id\":0,\"Name\":\"T0\",\"Courses\":[{\"Id\":0,"));
+        assertTrue(body.contains("\"Courses\":[{\"Id\":10,"));
+        assertFalse(body.contains("Age"));
+    }
+
+    @Test
+    void batchedExpandTest() {
+        String buffered = read("/Teachers", "$expand=Courses&$top=3");
+        assertEquals(1, operation.batches);
+        assertTrue(buffered.contains("\"Courses\":[{\"Id\":20,"));
+
+        context.setStreamedCollections(true);
+        assertEquals(buffered, read("/Teachers", "$expand=Courses&$top=3"));
+        assertEquals(2, operation.batches);
+    }
+
+    @Test
+    void parallelConversionTest() {
+        String sequential = read("/Teachers", "$expand=Courses");
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            context.setConversionExecutor(executor).setParallelConversionThreshold(2).setConversionChunkSize(2);
+            assertEquals(sequential, read("/Teachers", "$expand=Courses"));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, processor.getConversionMetrics().getSequentialPages());
+        assertEquals(1, processor.getConversionMetrics().getParallelPages());
+        assertEquals(5, processor.getConversionMetrics().getParallelRows());
+    }
+
+    @Test
+    void unprefetchedExpandIsSequentialTest() {
+        operation.unbatched = true;
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            context.setConversionExecutor(executor).setParallelConversionThreshold(2).setConversionChunkSize(2);
+            read("/Teachers", "$expand=Courses");
+            read("/Teachers", "$top=5");
+        } finally {
+            executor.shutdownNow();
+        }
+        // the courses are read from each row, which may be a lazy association bound to the request thread.
+        assertEquals(1, processor.getConversionMetrics().getSequentialPages());
+        assertEquals(1, processor.getConversionMetrics().getParallelPages());
+    }
+
+    @Test
+    void lastPageCountTest() {
+        String body = read("/Teachers", "$top=2&$skip=3&$count=true");
+
+        assertEquals(0, operation.counted);
+        assertTrue(body.contains("\"@odata.count\":5"));
+        assertFalse(body.contains("nextLink"));
+    }
+
+    @Test
+    void skipTokenNextLinkTest() throws Exception {
+        context.setSkipTokenPaging(true);
+
+        String token = nextSkipToken(read("/Teachers", "$top=2"));
+        assertEquals(Collections.singletonList(1L), SkipToken.decode(token).getValues());
+
+        String body = read("/Teachers", "$top=2&$skiptoken=" + token);
+        assertTrue(operation.lastOptions.getSkipToken().isPresent());
+        assertTrue(body.contains("\"Id\":2,") && body.contains("\"Id\":3,") && !body.contains("\"Id\":1,"));
+        assertEquals(Collections.singletonList(3L), SkipToken.decode(nextSkipToken(body)).getValues());
+        assertFalse(body.contains("$skip="));
+    }
+
+    @Test
+    void streamedCollectionTest() {
+        String buffered = read("/Teachers", "$top=2&$skip=1&$count=true");
+        context.setStreamedCollections(true);
+        String streamed = read("/Teachers", "$top=2&$skip=1&$count=true");
+
+        assertEquals(buffered, streamed);
+        assertTrue(operation.closed);
+    }
+
+    @Test
+    void streamedNextLinkTest() {
+        context.setStreamedCollections(true).setFetchSize(50);
+        String body = read("/Teachers", "$top=2");
+
+        assertEquals(50, operation.lastOptions.getFetchSize());
+        assertTrue(operation.closed);
+        assertTrue(body.contains("\"Id\":0,") && body.contains("\"Id\":1,"));
+        assertTrue(body.contains("\"@odata.nextLink\":\"http://localhost/odata/Teachers?$skip=2"));
+    }
+
+    @Test
+    void bindingLinksTest() throws Exception {
+        Entity entity = new Entity();
+        Link link = new Link();
+        link.setTitle("Colleagues");
+        link.setBindingLinks(Arrays.asList("Teachers(1)", BASE_URI + "/Teachers(3)", "Teachers(1)"));
+        entity.getNavigationBindings().add(link);
+
+        processor.fromNaviBindings2NaviLinks(entity, processor.entityOperationMap, BASE_URI + "/");
+
+        assertEquals(1, operation.keyLookups);
+        assertEquals(Arrays.asList(1L, 3L, 1L), entity.getNavigationLink("Colleagues").getInlineEntitySet().getEntities()
+                .stream().map(teacher -> teacher.getProperty("Id").getValue()).collect(Collectors.toList()));
+
+        Entity missing = new Entity();
+        Link missingLink = new Link();
+        missingLink.setTitle("Colleague");
+        missingLink.setBindingLink("Teachers(9)");
+        missing.getNavigationBindings().add(missingLink);
+
+        SaturnODataException e = assertThrows(SaturnODataException.class,
+                () -> processor.fromNaviBindings2NaviLinks(missing, processor.entityOperationMap, BASE_URI + "/"));
+        assertTrue(e.getMessage().contains("Teachers(9)"));
+    }
+
+    @Test
+    void createTest() {
+        ODataResponse response = write(HttpMethod.POST, "/Teachers", "{\"Id\":7,\"Name\":\"T7\",\"Sex\":\"FAMALE\"}");
+
+        assertEquals(201, response.getStatusCode());
+        assertEquals(BASE_URI + "/Teachers(7)", response.getHeader("Location"));
+        assertEquals(1, operation.created.size());
+        assertEquals("T7", operation.created.get(0).getName());
+        assertEquals(Sex2.FAMALE, operation.created.get(0).getSex());
+        assertEquals(0, operation.bulkCreates);
+    }
+
+    @Test
+    void createCollectionTest() {
+        ODataResponse response = write(HttpMethod.POST, "/Teachers",
+                "{\"@odata.context\":\"$metadata#Teachers\",\"value\":[{\"Id\":7,\"Name\":\"T7\"},{\"Id\":8,\"Name\":\"T8\"}]}");
+
+        assertEquals(201, response.getStatusCode());
+        assertEquals(1, operation.bulkCreates);
+        assertEquals(Arrays.asList(7L, 8L), operation.created.stream().map(Teacher::getId).collect(Collectors.toList()));
+        try (Scanner scanner = new Scanner(response.getContent(), "UTF-8")) {
+            String body = scanner.useDelimiter("\\A").next();
+            assertTrue(body.contains("\"value\":[{\"Id\":7,") && body.contains("{\"Id\":8,"));
+        }
+    }
+
+    @Test
+    void updateAndDeleteTest() {
+        assertEquals(204, write(HttpMethod.PUT, "/Teachers(2)", "{\"Id\":2,\"Name\":\"T2\",\"Age\":40}").getStatusCode());
+        assertEquals(40, operation.updated.getAge());
+        assertNull(operation.updatedProperties);
+
+        assertEquals(204, write(HttpMethod.PATCH, "/Teachers(2)", "{\"Age\":41,\"Name\":null}").getStatusCode());
+        assertEquals(Arrays.asList("Name", "Age"), operation.updatedProperties);
+        assertEquals(41, operation.updated.getAge());
+
+        assertEquals(204, write(HttpMethod.DELETE, "/Teachers(2)", "").getStatusCode());
+        assertEquals("2", operation.deleted.get("Id").getText());
+    }
+
+    @Test
+    void patchWithBindingTest() {
+        ODataResponse response = write(HttpMethod.PATCH, "/Teachers(2)", "{\"Age\":41,\"Courses@odata.bind\":[\"Courses(3)\"]}");
+
+        assertEquals(204, response.getStatusCode());
+        assertEquals(Collections.singletonList("Age"), operation.updatedProperties);
+        assertEquals(41, operation.updated.getAge());
+        assertEquals(Collections.singletonList(3L), operation.updated.getCourses().stream().map(Course::getId).collect(Collectors.toList()));
+
+        // Age is an int.
+        assertEquals(400, write(HttpMethod.PATCH, "/Teachers(2)", "{\"Age\":null}").getStatusCode());
+
+        // e.g. QueryExpression.launchUpdate with a property which isn't a column.
+        operation.unwritable = "Age";
+        assertEquals(400, write(HttpMethod.PATCH, "/Teachers(2)", "{\"Age\":42}").getStatusCode());
+    }
+
+    private ODataResponse write(final HttpMethod method, final String path, final String body) {
+        ODataRequest request = new ODataRequest();
+        request.setMethod(method);
+        request.setProtocol("HTTP/1.1");
+        request.setRawBaseUri(BASE_URI);
+        request.setRawODataPath(path);
+        request.setRawRequestUri(BASE_URI + path);
+        request.setRawServiceResolutionUri("");
+        request.addHeader("Content-Type", "application/json");
+        request.setBody(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+
+        return factory.createHandler().process(request);
+    }
+
+    private String nextSkipToken(final String body) {
+        Matcher matcher = Pattern.compile("\\$skiptoken=([A-Za-z0-9_-]+)").matcher(body);
+        assertTrue(matcher.find());
+        return matcher.group(1);
+    }
+
+    private String read(final String path, final String query) {
+        ODataRequest request = new ODataRequest();
+        request.setMethod(HttpMethod.GET);
+        request.setProtocol("HTTP/1.1");
+        request.setRawBaseUri(BASE_URI);
+        request.setRawODataPath(path);
+        request.setRawQueryPath(query);
+        request.setRawRequestUri(BASE_URI + path + "?" + query);
+        request.setRawServiceResolutionUri("");
+        request.setBody(new ByteArrayInputStream(new byte[0]));
+
+        ODataResponse response = factory.createHandler().process(request);
+        assertEquals(200, response.getStatusCode());
+
+        if (response.getContent() == null) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            response.getODataContent().write(out);
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+        try (Scanner scanner = new Scanner(response.getContent(), "UTF-8")) {
+            return scanner.useDelimiter("\\A").next();
+        }
+    }
+
+    /**
+     * In memory operation honouring the window of the query options.
+     */
+    static class TeacherOperation implements EntityOperation {
+
+        private final List<Teacher> teachers;
+        private QueryOptions lastOptions;
+        private boolean closed;
+        private int batches;
+        private int counted;
+        private int keyLookups;
+        private int bulkCreates;
+        private final List<Teacher> created = new ArrayList<>();
+        private Teacher updated;
+        private List<String> updatedProperties;
+        private Map<String, UriParameter> deleted;
+        private boolean unpaged;
+        private String unwritable;
+        private boolean unbatched;
+
+        TeacherOperation(final int size) {
+            teachers = LongStream.range(0, size).mapToObj(id -> {
+                Teacher teacher = new Teacher();
+                teacher.setId(id);
+                teacher.setName("T" + id);
+                return teacher;
+            }).collect(Collectors.toList());
+        }
+
+        @Override
+        public String forEntity() {
+            return "Teacher";
+        }
+
+        @Override
+        public List<?> retrieveAll(QueryOptions queryOptions, Object superObject) {
+            lastOptions = queryOptions;
+            long after = queryOptions.getSkipToken().map(token -> (Long) token.getValues().get(0)).orElse(-1L);
+            if (unpaged) {
+                return new ArrayList<>(teachers);
+            }
+            return new ArrayList<>(teachers.stream()
+                    .filter(teacher -> teacher.getId() > after)
+                    .skip(queryOptions.getSkip())
+                    .limit(queryOptions.getTop())
+                    .collect(Collectors.toList()));
+        }
+
+        @Override
+        public Stream<?> retrieveStream(QueryOptions queryOptions, Object superObject) {
+            return retrieveAll(queryOptions, superObject).stream().onClose(() -> closed = true);
+        }
+
+        @Override
+        public Map<Object, ?> retrieveByParents(String navigationProperty, List<?> parents, QueryOptions queryOptions) {
+            if (unbatched) {
+                return null;
+            }
+            batches++;
+            Map<Object, List<Course>> courses = new IdentityHashMap<>();
+            for (Object parent : parents) {
+                Course course = new Course();
+                course.setId(((Teacher) parent).getId() * 10);
+                courses.put(parent, Collections.singletonList(course));
+            }
+            return courses;
+        }
+
+        @Override
+        public List<?> retrieveByKeys(List<Map<String, UriParameter>> parameterMaps) {
+            keyLookups++;
+            return parameterMaps.stream()
+                    .map(parameterMap -> Long.valueOf(parameterMap.get("Id").getText()))
+                    .map(id -> teachers.stream().filter(teacher -> teacher.getId() == id).findFirst().orElse(null))
+                    .collect(Collectors.toList());
+        }
+
+        @Override
+        public Long count(QueryOptions queryOptions) {
+            counted++;
+            return (long) teachers.size();
+        }
+
+        @Override
+        public Object create(Object object, Object superObject) {
+            created.add((Teacher) object);
+            return object;
+        }
+
+        @Override
+        public List<?> createAll(List<?> objects, Object superObject) {
+            bulkCreates++;
+            objects.forEach(object -> created.add((Teacher) object));
+            return objects;
+        }
+
+        @Override
+        public Object retrieveByKey(Map<String, UriParameter> parameterMap, QueryOptions queryOptions, Object superObject) {
+            return null;
+        }
+
+        @Override
+        public Object update(Map<String, UriParameter> parameterMap, List<String> properties, Object object, Object superObject) {
+            if (properties != null && properties.contains(unwritable)) {
+                throw new IllegalArgumentException(unwritable + " isn't a column of the jpa entity of " + Teacher.class.getName() + ".");
+            }
+            updated = (Teacher) object;
+            updatedProperties = properties;
+            return object;
+        }
+
+        @Override
+        public Object delete(Map<String, UriParameter> parameterMap, Object superObject) {
+            deleted = parameterMap;
+            return null;
+        }
+    }
+
+    /**
+     * Only reads the courses bound by the payloads.
+     */
+    static class CourseOperation implements EntityOperation {
+
+        @Override
+        public String forEntity() {
+            return "Course";
+        }
+
+        @Override
+        public Object retrieveByKey(Map<String, UriParameter> parameterMap, QueryOptions queryOptions, Object superObject) {
+            Course course = new Course();
+            course.setId(Long.parseLong(parameterMap.get("Id").getText()));
+            return course;
+        }
+
+        @Override
+        public List<?> retrieveAll(QueryOptions queryOptions, Object superObject) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public Long count(QueryOptions queryOptions) {
+            return 0L;
+        }
+
+        @Override
+        public Object create(Object object, Object superObject) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Object update(Map<String, UriParameter> parameterMap, List<String> properties, Object object, Object superObject) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Object delete(Map<String, UriParameter> parameterMap, Object superObject) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) [2020] [He Zhang]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished
+ *  to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.saturn.odata.processors;
+
+import com.github.saturn.odata.annotations.ODataFunction;
+import com.github.saturn.odata.annotations.ODataFunctionImport;
+import com.github.saturn.odata.annotations.ODataParameter;
+import com.github.saturn.odata.annotations.ODataReturnType;
+import com.github.saturn.odata.entities.Course;
+import com.github.saturn.odata.entities.Teacher;
+import com.github.saturn.odata.entities.enums.Sex2;
+import com.github.saturn.odata.handlers.SaturnHandlerFactory;
+import com.github.saturn.odata.interfaces.CustomOperation;
+import com.github.saturn.odata.metadata.SaturnEdmContext;
+import com.github.saturn.odata.metadata.SaturnEdmProvider;
+import com.github.saturn.odata.utils.Constant;
+import org.apache.olingo.commons.api.http.HttpMethod;
+import org.apache.olingo.server.api.ODataRequest;
+import org.apache.olingo.server.api.ODataResponse;
+import org.apache.olingo.server.api.uri.UriParameter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.StaticApplicationContext;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FunctionProcessorTest {
+
+    private static final String BASE_URI = "http://localhost/odata";
+
+    private static final List<Teacher> TEACHERS = IntStream.range(0, 5).mapToObj(i -> {
+        Teacher teacher = new Teacher();
+        teacher.setId(i);
+        teacher.setName("T" + i);
+        teacher.setAge(30 + i);
+        return teacher;
+    }).collect(Collectors.toList());
+
+    private final CountOlder countOlder = new CountOlder();
+    private final TeachersNamed teachersNamed = new TeachersNamed();
+
+    private SaturnHandlerFactory factory;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        SaturnEdmContext context = new SaturnEdmContext()
+                .setNameSpace(Constant.NAMESPACE)
+                .setDefaultEdmPkg(Constant.NAMESPACE)
+                .setContainerName("Container")
+                .setServiceRoot(BASE_URI);
+        context.getEntityTypes().put("Teacher", Teacher.class);
+        context.getEntityTypes().put("Course", Course.class);
+        context.getEntitySets().put("Teachers", Teacher.class);
+        context.getEntitySets().put("Courses", Course.class);
+        context.getEnums().put("Sex2", Sex2.class);
+        context.getFunctions().put("CountOlder", CountOlder.class);
+        context.getFunctionImports().put("CountOlder", CountOlder.class);
+        context.getFunctions().put("TeachersNamed", TeachersNamed.class);
+        context.getFunctionImports().put("TeachersNamed", TeachersNamed.class);
+
+        StaticApplicationContext applicationContext = new StaticApplicationContext();
+        applicationContext.getBeanFactory().registerSingleton("countOlder", countOlder);
+        applicationContext.getBeanFactory().registerSingleton("teachersNamed", teachersNamed);
+        applicationContext.refresh();
+
+        factory = new SaturnHandlerFactory().initialize(new SaturnEdmProvider().initialize(context), Arrays.asList(
+                new EntityProcessor().initialize(context, applicationContext),
+                new PrimitiveProcessor().initialize(context, applicationContext),
+                new FunctionProcessor().initialize(context, applicationContext)));
+    }
+
+    @Test
+    void primitiveTest() {
+        ODataResponse response = read("/CountOlder(Age=31,Born=2000-01-31)", null);
+
+        assertEquals(200, response.getStatusCode());
+        assertTrue(body(response).contains("\"value\":3"));
+        assertEquals(31, countOlder.parameters.get("Age"));
+        assertEquals(LocalDate.of(2000, 1, 31), countOlder.parameters.get("Born"));
+    }
+
+    @Test
+    void entityCollectionTest() {
+        ODataResponse response = read("/TeachersNamed(Names=@names)", "@names=[\"T1\",\"T3\"]");
+        String body = body(response);
+
+        assertEquals(200, response.getStatusCode());
+        assertEquals(Arrays.asList("T1", "T3"), teachersNamed.names);
+        assertTrue(body.contains("$metadata#Teachers"));
+        assertTrue(body.contains("\"Name\":\"T1\"") && body.contains("\"Name\":\"T3\""));
+        assertFalse(body.contains("\"Name\":\"T2\""));
+    }
+
+    @Test
+    void invalidParameterTest() {
+        assertEquals(400, read("/CountOlder(Age=null,Born=null)", null).getStatusCode());
+        assertEquals(400, read("/TeachersNamed(Names=@names)", "@names=[\"T1\",{}]").getStatusCode());
+    }
+
+    private ODataResponse read(final String path, final String query) {
+        ODataRequest request = new ODataRequest();
+        request.setMethod(HttpMethod.GET);
+        request.setProtocol("HTTP/1.1");
+        request.setRawBaseUri(BASE_URI);
+        request.setRawODataPath(path);
+        request.setRawQueryPath(query);
+        request.setRawRequestUri(BASE_URI + path + (query == null ? "" : "?" + query));
+        request.setRawServiceResolutionUri("");
+        request.setBody(new ByteArrayInputStream(new byte[0]));
+
+        return factory.createHandler().process(request);
+    }
+
+    private static String body(final ODataResponse response) {
+        if (response.getContent() == null) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            response.getODataContent().write(out);
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+        try (Scanner scanner = new Scanner(response.getContent(), "UTF-8")) {
+            return scanner.useDelimiter("\\A").next();
+        }
+    }
+
+    @ODataFunction(name = "CountOlder", namespace = Constant.NAMESPACE)
+    @ODataFunctionImport(name = "CountOlder", namespace = Constant.NAMESPACE)
+    @ODataReturnType(type = "Edm.Int64")
+    static class CountOlder implements CustomOperation<Long> {
+
+        @ODataParameter(name = "Age", nullable = false)
+        private int age;
+
+        @ODataParameter(name = "Born")
+        private LocalDate born;
+
+        private Map<String, Object> parameters;
+
+        @Override
+        public Long process(final Map<String, UriParameter> parameterMap, final boolean isBound) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Long process(final Map<String, UriParameter> parameterMap, final Map<String, Object> parameters, final boolean isBound) {
+            this.parameters = parameters;
+            int min = (Integer) parameters.get("Age");
+            return TEACHERS.stream().filter(teacher -> teacher.getAge() > min).count();
+        }
+    }
+
+    @ODataFunction(name = "TeachersNamed", namespace = Constant.NAMESPACE)
+    @ODataFunctionImport(name = "TeachersNamed", namespace = Constant.NAMESPACE, entitySet = "Teachers")
+    @ODataReturnType(type = "Collection(Teacher)")
+    static class TeachersNamed implements CustomOperation<List<Teacher>> {
+
+        @ODataParameter(name = "Names")
+        private Collection<String> names;
+
+        @Override
+        public List<Teacher> process(final Map<String, UriParameter> parameterMap, final boolean isBound) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public List<Teacher> process(final Map<String, UriParameter> parameterMap, final Map<String, Object> parameters, final boolean isBound) {
+            names = (Collection<String>) parameters.get("Names");
+            return TEACHERS.stream().filter(teacher -> names.contains(teacher.getName())).collect(Collectors.toList());
+        }
+    }
+}
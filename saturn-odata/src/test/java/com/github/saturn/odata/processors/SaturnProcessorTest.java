@@ -0,0 +1,95 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) [2020] [He Zhang]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished
+ *  to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.saturn.odata.processors;
+
+import com.github.saturn.odata.entities.Course;
+import com.github.saturn.odata.entities.Teacher;
+import com.github.saturn.odata.entities.enums.Sex2;
+import com.github.saturn.odata.exceptions.SaturnODataException;
+import com.github.saturn.odata.metadata.SaturnEdmContext;
+import com.github.saturn.odata.utils.Constant;
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.ValueType;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.GregorianCalendar;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SaturnProcessorTest {
+
+    private final SaturnProcessor processor = new SaturnProcessor().initialize(new SaturnEdmContext().setNameSpace(Constant.NAMESPACE));
+
+    @Test
+    void fromObject2EntityTest() throws SaturnODataException, IllegalAccessException {
+        Teacher teacher = new Teacher();
+        teacher.setId(7L);
+        teacher.setName("Ada");
+        teacher.setBirthday(LocalDate.of(1990, 1, 2));
+        teacher.setSex(Sex2.FAMALE);
+
+        Entity entity = processor.fromObject2Entity(teacher);
+
+        assertEquals(Constant.NAMESPACE + ".Teacher", entity.getType());
+        assertEquals("Teachers(Id=7)", entity.getId().toString());
+        assertEquals(5, entity.getProperties().size());
+        assertEquals("Ada", entity.getProperty("Name").getValue());
+        assertEquals(1, entity.getProperty("Sex").getValue());
+        assertEquals(ValueType.ENUM, entity.getProperty("Sex").getValueType());
+        assertTrue(entity.getProperty("Birthday").getValue() instanceof GregorianCalendar);
+        assertTrue(entity.getNavigationLinks().isEmpty());
+    }
+
+    @Test
+    void generatedAccessorTest() throws Exception {
+        SaturnProcessor generated = new SaturnProcessor().initialize(
+                new SaturnEdmContext().setNameSpace(Constant.NAMESPACE).setDefaultEdmPkg(Constant.NAMESPACE).setUseRegistry(true).initialize());
+        Teacher teacher = new Teacher();
+        teacher.setId(3L);
+        teacher.setName("Grace");
+        teacher.setAge(40);
+
+        Teacher copy = (Teacher) generated.fromEntity2Object(generated.fromObject2Entity(teacher), Teacher.class);
+
+        assertNotNull(generated.getSaturnEdmContext().getAccessor(Teacher.class));
+        assertEquals(3L, copy.getId());
+        assertEquals("Grace", copy.getName());
+        assertEquals(40, copy.getAge());
+    }
+
+    @Test
+    void writePlanTest() throws SaturnODataException, IllegalAccessException {
+        EntityWritePlan plan = processor.getWritePlan(Teacher.class);
+
+        assertSame(plan, processor.getWritePlan(Teacher.class));
+        assertTrue(plan.isEntityType());
+        assertEquals("Teachers", plan.getEntitySetName());
+        assertEquals(1, plan.getNavigations().size());
+        assertTrue(plan.getNavigations().get(0).isCollection());
+        assertNotSame(plan, processor.getWritePlan(Course.class));
+        assertThrows(SaturnODataException.class, () -> processor.getWritePlan(String.class));
+    }
+}
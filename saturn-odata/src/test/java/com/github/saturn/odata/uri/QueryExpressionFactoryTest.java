@@ -0,0 +1,352 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) [2020] [He Zhang]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished
+ *  to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.saturn.odata.uri;
+
+import com.github.saturn.odata.annotations.ODataEntitySet;
+import com.github.saturn.odata.annotations.ODataEntityType;
+import com.github.saturn.odata.annotations.ODataEnumType;
+import com.github.saturn.odata.annotations.ODataNavigationProperty;
+import com.github.saturn.odata.annotations.ODataProperty;
+import com.github.saturn.odata.metadata.SaturnEdmContext;
+import com.github.saturn.odata.metadata.SaturnEdmProvider;
+import com.github.saturn.odata.utils.Constant;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.QBean;
+import com.querydsl.core.types.dsl.PathBuilder;
+import com.querydsl.jpa.JPQLSerializer;
+import com.querydsl.jpa.JPQLTemplates;
+import com.querydsl.jpa.impl.JPAUpdateClause;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.OData;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.uri.UriInfo;
+import org.apache.olingo.server.core.uri.UriParameterImpl;
+import org.apache.olingo.server.core.uri.parser.Parser;
+import org.junit.jupiter.api.Test;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.OneToMany;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryExpressionFactoryTest {
+
+    @Test
+    void selectProjectionTest() throws Exception {
+        QueryExpression queryExpression = generate("$select=Name");
+
+        assertTrue(queryExpression.getProjection() instanceof QBean);
+        assertEquals(ArticleEntity.class, queryExpression.getProjection().getType());
+        assertEquals(2, ((QBean<?>) queryExpression.getProjection()).getArgs().size());
+        assertTrue(queryExpression.getProjection().toString().contains("id"));
+        assertTrue(queryExpression.getProjection().toString().contains("title"));
+        assertFalse(queryExpression.getProjection().toString().contains("body"));
+    }
+
+    @Test
+    void noProjectionTest() throws Exception {
+        assertNull(generate(null).getProjection());
+        assertNull(generate("$select=*").getProjection());
+    }
+
+    @Test
+    void selectWithOrderByTest() throws Exception {
+        // the token of the next page is made of the ordered values, they are read even if they aren't selected.
+        String token = SkipToken.encode(Arrays.asList(LocalDate.of(2020, 1, 2), 3L));
+        QueryExpression queryExpression = generate("$select=Name&$orderby=Published&$skiptoken=" + token);
+
+        assertEquals(3, ((QBean<?>) queryExpression.getProjection()).getArgs().size());
+        assertTrue(queryExpression.getProjection().toString().contains("published"));
+        assertFalse(queryExpression.getProjection().toString().contains("body"));
+        assertEquals("article.published > ?1 or article.published = ?1 and article.id > ?2", jpql(queryExpression.getBooleanExpression()));
+    }
+
+    @Test
+    void selectWithExpandTest() throws Exception {
+        // a projected row has no navigation fields, the whole entity is read to fetch them.
+        QueryExpression queryExpression = generate("$select=Name&$expand=Author");
+
+        assertNull(queryExpression.getProjection());
+        assertEquals(Collections.singletonList("writer"), queryExpression.getFetchPaths());
+    }
+
+    @Test
+    void expandFetchPathsTest() throws Exception {
+        assertEquals(Arrays.asList("writer", "comments", "comments.writer"), generate("$expand=Author,Comments($expand=Author)").getFetchPaths());
+        assertTrue(generate(null).getFetchPaths().isEmpty());
+    }
+
+    @Test
+    void pagedExpandFetchPathsTest() throws Exception {
+        // collections aren't fetched with a page, the jpa provider would page the joined rows in memory.
+        assertEquals(Collections.singletonList("writer"), generate("$expand=Author,Comments&$top=2").getFetchPaths());
+    }
+
+    @Test
+    void methodCallTest() throws Exception {
+        assertEquals("contains(article.title,sql)", generate("$filter=contains(Name,'sql')").getBooleanExpression().toString());
+        assertEquals("startsWith(article.title,sql) || endsWith(article.title,sql)",
+                generate("$filter=startswith(Name,'sql') or endswith(Name,'sql')").getBooleanExpression().toString());
+        assertEquals("lower(article.title) = sql", generate("$filter=tolower(Name) eq 'sql'").getBooleanExpression().toString());
+        assertEquals("year(article.published) = 2020 && month(article.published) > 6",
+                generate("$filter=year(Published) eq 2020 and month(Published) gt 6").getBooleanExpression().toString());
+
+        ODataApplicationException e = assertThrows(ODataApplicationException.class, () -> generate("$filter=round(Rating) eq 1"));
+        assertEquals(HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), e.getStatusCode());
+    }
+
+    @Test
+    void lambdaTest() throws Exception {
+        String correlation = "select 1 from QueryExpressionFactoryTest$ArticleEntity article_c inner join article_c.comments as c where article_c = article";
+
+        assertEquals("exists (" + correlation + " and c.text = ?1)",
+                jpql(generate("$filter=Comments/any(c:c/Text eq 'nice')").getBooleanExpression()));
+        // all() compares the counts, a comment whose text is null doesn't match.
+        String count = correlation.replace("select 1", "select count(c)");
+        assertEquals("(" + count + ") = (" + count + " and c.text = ?1) and article.title = ?2",
+                jpql(generate("$filter=Comments/all(c:c/Text eq 'nice') and Name eq 'a'").getBooleanExpression()));
+        assertTrue(jpql(generate("$filter=Comments/any()").getBooleanExpression()).startsWith("exists (select 1"));
+    }
+
+    @Test
+    void nullSeekTest() throws Exception {
+        String nullName = SkipToken.encode(Arrays.asList(null, 3L));
+        String name = SkipToken.encode(Arrays.asList("b", 3L));
+
+        // nulls are ordered first, a null of the token is followed by the other nulls then by every value.
+        QueryExpression ascending = generate("$orderby=Name&$skiptoken=" + nullName);
+        assertEquals(OrderSpecifier.NullHandling.NullsFirst, ascending.getOrderSpecifiers()[0].getNullHandling());
+        assertEquals("article.title is not null or article.title is null and article.id > ?1", jpql(ascending.getBooleanExpression()));
+        assertEquals("article.title > ?1 or article.title = ?1 and article.id > ?2",
+                jpql(generate("$orderby=Name&$skiptoken=" + name).getBooleanExpression()));
+
+        // and last when descending, they follow every value.
+        QueryExpression descending = generate("$orderby=Name desc&$skiptoken=" + name);
+        assertEquals(OrderSpecifier.NullHandling.NullsLast, descending.getOrderSpecifiers()[0].getNullHandling());
+        assertEquals("article.title < ?1 or article.title is null or article.title = ?1 and article.id > ?2", jpql(descending.getBooleanExpression()));
+        assertEquals("article.title is null and article.id > ?1",
+                jpql(generate("$orderby=Name desc&$skiptoken=" + nullName).getBooleanExpression()));
+    }
+
+    private String jpql(final Expression<?> expression) {
+        return new JPQLSerializer(JPQLTemplates.DEFAULT).handle(expression).toString().replaceAll("\\s+", " ");
+    }
+
+    @Test
+    void enumTest() throws Exception {
+        assertEquals("article.status = PUBLISHED", generate("$filter=Status eq " + Constant.NAMESPACE + ".Status'PUBLISHED'").getBooleanExpression().toString());
+        assertEquals("article.status != DRAFT", generate("$filter=Status ne " + Constant.NAMESPACE + ".Status'DRAFT'").getBooleanExpression().toString());
+        assertEquals("article.permissions = 5", generate("$filter=Permissions eq " + Constant.NAMESPACE + ".Permission'READ,SHARE'").getBooleanExpression().toString());
+        assertEquals("article.permissions % 2 >= 1 && article.permissions % 8 >= 4",
+                generate("$filter=Permissions has " + Constant.NAMESPACE + ".Permission'READ,SHARE'").getBooleanExpression().toString());
+    }
+
+    @Test
+    void operatorTest() throws Exception {
+        assertEquals("article.rating > 4.0 && article.price <= 9.99", generate("$filter=Rating gt 4 and Price le 9.99").getBooleanExpression().toString());
+        assertEquals("article.id > 1", generate("$filter=1 lt Id").getBooleanExpression().toString());
+        assertEquals("article.rating * 2.0 >= 9.0 && article.id % 2 = 0", generate("$filter=Rating mul 2 ge 9 and Id mod 2 eq 0").getBooleanExpression().toString());
+        assertEquals("article.published > 2020-01-01", generate("$filter=Published add duration'P7D' gt 2020-01-08").getBooleanExpression().toString());
+        assertEquals("article.title in [a, b]", generate("$filter=Name in ('a', 'b')").getBooleanExpression().toString());
+        assertEquals("article.id in [3000000000, 3000000001]", generate("$filter=Id in (3000000000, 3000000001)").getBooleanExpression().toString());
+    }
+
+    @Test
+    void updateTest() {
+        Article article = new Article();
+        article.name = "sql";
+        article.permissions = Permission.SHARE;
+
+        JPAUpdateClause update = QueryExpression.createUpdate(new JPAUpdateClause(null, new PathBuilder<>(ArticleEntity.class, "article"), JPQLTemplates.DEFAULT),
+                Article.class, Collections.singletonMap("Id", new UriParameterImpl().setName("Id").setText("7")),
+                Arrays.asList("Id", "Name", "Permissions", "Body"), article);
+
+        assertEquals("update QueryExpressionFactoryTest$ArticleEntity article set article.title = ?1, article.permissions = ?2, article.body = null where article.id = ?3",
+                update.toString().replaceAll("\\s+", " "));
+        assertThrows(IllegalArgumentException.class, () -> QueryExpression.createUpdate(new JPAUpdateClause(null, new PathBuilder<>(ArticleEntity.class, "article"),
+                JPQLTemplates.DEFAULT), Article.class, Collections.emptyMap(), Collections.singletonList("Author"), article));
+    }
+
+    @Test
+    void queryPlanCacheTest() throws Exception {
+        QueryPlanCache cache = new QueryPlanCache(8);
+
+        QueryExpression first = generate("$filter=Name eq 'a' and Id gt 1&$orderby=Name desc", cache);
+        QueryExpression second = generate("$filter=Name eq 'b' and Id gt 2&$orderby=Name desc", cache);
+
+        assertEquals(2, cache.size());
+        assertEquals(2, cache.getHits());
+        assertEquals(generate("$filter=Name eq 'b' and Id gt 2", null).getBooleanExpression(), second.getBooleanExpression());
+        assertNotEquals(first.getBooleanExpression(), second.getBooleanExpression());
+        assertArrayEquals(first.getOrderSpecifiers(), second.getOrderSpecifiers());
+
+        generate("$filter=Name eq null", cache);
+        generate("$filter=Id gt 3000000000", cache);
+        assertEquals(4, cache.size());
+    }
+
+    private QueryExpression generate(final String query) throws Exception {
+        return generate(query, QueryPlanCache.getDefault());
+    }
+
+    private QueryExpression generate(final String query, final QueryPlanCache cache) throws Exception {
+        SaturnEdmContext context = new SaturnEdmContext()
+                .setNameSpace(Constant.NAMESPACE)
+                .setContainerName("Container");
+        context.getEntityTypes().put("Article", Article.class);
+        context.getEntitySets().put("Articles", Article.class);
+        context.getEntityTypes().put("Writer", Writer.class);
+        context.getEntityTypes().put("Comment", Comment.class);
+        context.getEntitySets().put("Writers", Writer.class);
+        context.getEntitySets().put("Comments", Comment.class);
+        context.getEnums().put("Status", Status.class);
+        context.getEnums().put("Permission", Permission.class);
+
+        OData odata = OData.newInstance();
+        UriInfo uriInfo = new Parser(odata.createServiceMetadata(new SaturnEdmProvider().initialize(context), Collections.emptyList()).getEdm(), odata)
+                .parseUri("Articles", query, null, "http://localhost/odata");
+        QueryOptions queryOptions = new QueryOptions(uriInfo.getExpandOption(), uriInfo.getFilterOption(), uriInfo.getSelectOption(), uriInfo.getOrderByOption());
+
+        if (uriInfo.getTopOption() != null) {
+            queryOptions.setTop(uriInfo.getTopOption().getValue());
+        }
+        if (uriInfo.getSkipTokenOption() != null) {
+            queryOptions.setSkipToken(Optional.of(SkipToken.decode(uriInfo.getSkipTokenOption().getValue())));
+        }
+
+        return new QueryExpressionFactory().setClazz(Article.class).setQueryOptions(queryOptions).setQueryPlanCache(cache).generate();
+    }
+
+    @ODataEntityType(namespace = Constant.NAMESPACE, name = "Article", keys = "Id", jpaEntity = ArticleEntity.class, jpaVariable = "article")
+    @ODataEntitySet(name = "Articles")
+    static class Article {
+
+        @ODataProperty(name = "Id")
+        private long id;
+
+        @ODataProperty(name = "Name", jpaVariable = "title")
+        private String name;
+
+        @ODataProperty(name = "Body")
+        private String body;
+
+        @ODataProperty(name = "Published")
+        private LocalDate published;
+
+        @ODataProperty(name = "Rating")
+        private double rating;
+
+        @ODataProperty(name = "Price")
+        private BigDecimal price;
+
+        @ODataProperty(name = "Status")
+        private Status status;
+
+        @ODataProperty(name = "Permissions")
+        private Permission permissions;
+
+        @ODataNavigationProperty(name = "Author", jpaVariable = "writer")
+        private Writer author;
+
+        @ODataNavigationProperty(name = "Comments")
+        private List<Comment> comments;
+    }
+
+    @ODataEntityType(namespace = Constant.NAMESPACE, name = "Writer", keys = "Id")
+    @ODataEntitySet(name = "Writers")
+    static class Writer {
+
+        @ODataProperty(name = "Id")
+        private long id;
+    }
+
+    @ODataEntityType(namespace = Constant.NAMESPACE, name = "Comment", keys = "Id", jpaEntity = CommentEntity.class, jpaVariable = "comment")
+    @ODataEntitySet(name = "Comments")
+    static class Comment {
+
+        @ODataProperty(name = "Id")
+        private long id;
+
+        @ODataProperty(name = "Text")
+        private String text;
+
+        @ODataNavigationProperty(name = "Author", jpaVariable = "writer")
+        private Writer author;
+    }
+
+    @Entity
+    static class ArticleEntity {
+
+        @Id
+        private Long id;
+
+        private String title;
+
+        private String body;
+
+        private LocalDate published;
+
+        private double rating;
+
+        private BigDecimal price;
+
+        private Status status;
+
+        private int permissions;
+
+        @OneToMany
+        private List<CommentEntity> comments;
+    }
+
+    @ODataEnumType(namespace = Constant.NAMESPACE, name = "Status")
+    enum Status {
+        DRAFT,
+        PUBLISHED
+    }
+
+    @ODataEnumType(namespace = Constant.NAMESPACE, name = "Permission", isFlags = true)
+    enum Permission {
+        READ,
+        WRITE,
+        SHARE
+    }
+
+    @Entity
+    static class CommentEntity {
+
+        @Id
+        private Long id;
+
+        private String text;
+    }
+}
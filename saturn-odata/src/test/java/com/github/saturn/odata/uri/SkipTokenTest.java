@@ -0,0 +1,113 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) [2020] [He Zhang]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished
+ *  to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.saturn.odata.uri;
+
+import com.github.saturn.odata.annotations.ODataEntityType;
+import com.github.saturn.odata.annotations.ODataProperty;
+import com.github.saturn.odata.entities.enums.Sex2;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.junit.jupiter.api.Test;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SkipTokenTest {
+
+    @Test
+    void roundTripTest() throws ODataApplicationException {
+        LocalDateTime time = LocalDateTime.of(2020, 1, 2, 3, 4, 5);
+        String token = SkipToken.encode(Arrays.asList(7L, 3, 1.5d, new BigDecimal("2.50"), "a&b=c", true,
+                Sex2.FAMALE, LocalDate.of(2020, 1, 2), time, new Date(42L)));
+
+        assertTrue(token.matches("[A-Za-z0-9_-]+"));
+        assertEquals(Arrays.asList(7L, 3L, 1.5d, new BigDecimal("2.50"), "a&b=c", true,
+                "FAMALE", LocalDate.of(2020, 1, 2), time, new Date(42L)), SkipToken.decode(token).getValues());
+    }
+
+    @Test
+    void nullValueTest() throws ODataApplicationException {
+        assertEquals(Arrays.asList(null, 3L), SkipToken.decode(SkipToken.encode(Arrays.asList(null, 3L))).getValues());
+    }
+
+    @Test
+    void unsupportedValueTest() {
+        assertNull(SkipToken.encode(Collections.singletonList(new Object())));
+    }
+
+    @Test
+    void malformedTokenTest() {
+        ODataApplicationException e = assertThrows(ODataApplicationException.class, () -> SkipToken.decode("not a token"));
+        assertEquals(400, e.getStatusCode());
+        assertThrows(ODataApplicationException.class, () -> SkipToken.decode("AQAB"));
+    }
+
+    @Test
+    void seekExpressionTest() throws ODataApplicationException {
+        QueryOptions queryOptions = new QueryOptions(null, null, null, null);
+        queryOptions.setSkipToken(Optional.of(SkipToken.decode(SkipToken.encode(Collections.singletonList(5L)))));
+
+        QueryExpression queryExpression = new QueryExpressionFactory().setClazz(Item.class).setQueryOptions(queryOptions).generate();
+
+        assertEquals(1, queryExpression.getOrderSpecifiers().length);
+        assertTrue(queryExpression.getOrderSpecifiers()[0].isAscending());
+        assertTrue(queryExpression.getBooleanExpression().toString().contains("> 5"));
+        assertNull(queryExpression.getFilterExpression());
+        assertEquals("id: ASC", queryExpression.getPageable().getSort().toString());
+    }
+
+    @Test
+    void mismatchedTokenTest() throws ODataApplicationException {
+        QueryOptions queryOptions = new QueryOptions(null, null, null, null);
+        List<Object> values = Arrays.asList(5L, "extra");
+        queryOptions.setSkipToken(Optional.of(SkipToken.decode(SkipToken.encode(values))));
+
+        QueryExpressionFactory factory = new QueryExpressionFactory().setClazz(Item.class).setQueryOptions(queryOptions);
+        assertEquals(400, assertThrows(ODataApplicationException.class, factory::generate).getStatusCode());
+    }
+
+    @ODataEntityType(name = "Item", keys = "Id", jpaEntity = ItemEntity.class)
+    static class Item {
+
+        @ODataProperty(name = "Id")
+        private long id;
+    }
+
+    @Entity
+    static class ItemEntity {
+
+        @Id
+        private Long id;
+    }
+}
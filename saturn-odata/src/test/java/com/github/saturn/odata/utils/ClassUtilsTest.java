@@ -24,6 +24,8 @@
 
 package com.github.saturn.odata.utils;
 
+import com.github.saturn.odata.annotations.ODataNavigationProperty;
+import com.github.saturn.odata.annotations.ODataProperty;
 import com.github.saturn.odata.entities.Man;
 import com.github.saturn.odata.entities.Person;
 import com.github.saturn.odata.entities.Woman;
@@ -74,4 +76,40 @@ class ClassUtilsTest {
             assertTrue(actualWomanFields.contains(field));
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    void getFieldFromEdmClassTest() throws NoSuchFieldException {
+        assertEquals(Base.class.getDeclaredField("id"), ClassUtils.getFieldFromEdmClass(Leaf.class, "Id"));
+        assertEquals(Base.class.getDeclaredField("id"), ClassUtils.getFieldFromEdmClass(Leaf.class, "id"));
+        assertEquals(Middle.class.getDeclaredField("parent"), ClassUtils.getFieldFromEdmClass(Leaf.class, "Parent"));
+        assertEquals(Leaf.class.getDeclaredField("name"), ClassUtils.getFieldFromEdmClass(Leaf.class, "Name"));
+        assertNull(ClassUtils.getFieldFromEdmClass(Leaf.class, "Unknown"));
+
+        assertEquals(Base.class.getDeclaredField("id"), ClassUtils.getField(Leaf.class, "id"));
+        assertEquals(Leaf.class.getDeclaredField("name"), ClassUtils.getField(Leaf.class, "name"));
+        assertEquals(4, ClassUtils.getFields(Leaf.class).stream().filter(field -> !field.isSynthetic()).count());
+        assertSame(ClassUtils.getFields(Leaf.class), ClassUtils.getFields(Leaf.class));
+        assertThrows(UnsupportedOperationException.class, () -> ClassUtils.getFields(Leaf.class).clear());
+    }
+
+    static class Base {
+
+        @ODataProperty(name = "Id")
+        private long id;
+
+        @ODataProperty(name = "Name")
+        private String name;
+    }
+
+    static class Middle extends Base {
+
+        @ODataNavigationProperty(name = "Parent")
+        private Middle parent;
+    }
+
+    static class Leaf extends Middle {
+
+        @ODataProperty(name = "Name")
+        private String name;
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) [2020] [He Zhang]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished
+ *  to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.saturn.odata.utils;
+
+import org.hibernate.engine.spi.PersistenceContext;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.junit.jupiter.api.Test;
+
+import javax.persistence.EntityManager;
+import java.lang.reflect.Proxy;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JpaBatchUtilsTest {
+
+    private final Map<Object, Boolean> managed = new IdentityHashMap<>();
+    private final Map<Object, Object> targets = new IdentityHashMap<>();
+    private final List<String> calls = new ArrayList<>();
+    private Integer jdbcBatchSize = 20;
+
+    @Test
+    void persistAllTest() {
+        Object callers = new Object();
+        managed.put(callers, true);
+        List<Object> rows = Arrays.asList(new Object(), callers, new Object(), new Object());
+
+        assertEquals(rows, JpaBatchUtils.persistAll(entityManager(), rows, 2));
+
+        // only the rows the write made managed are detached, the caller's entities stay managed.
+        assertEquals(Arrays.asList("setJdbcBatchSize 2", "flush", "detach", "flush", "detach", "detach", "flush", "setJdbcBatchSize 20"), calls);
+        assertTrue(managed.containsKey(callers));
+        assertEquals(1, managed.size());
+        assertEquals(20, jdbcBatchSize);
+    }
+
+    @Test
+    void mergeAllTest() {
+        jdbcBatchSize = null;
+        List<Object> rows = Arrays.asList(new Object(), new Object(), new Object());
+        List<?> merged = JpaBatchUtils.mergeAll(entityManager(), rows, 2);
+
+        assertEquals(3, merged.size());
+        assertTrue(Collections.disjoint(rows, merged));
+        // the last batch is detached too.
+        assertEquals(Arrays.asList("setJdbcBatchSize 2", "flush", "detach", "detach", "flush", "detach", "setJdbcBatchSize null"), calls);
+        assertTrue(managed.isEmpty());
+        assertNull(jdbcBatchSize);
+    }
+
+    @Test
+    void mergeDetachedCopyTest() {
+        Object callers = new Object();
+        Object copy = new Object();
+        managed.put(callers, true);
+        targets.put(copy, callers);
+        List<?> merged = JpaBatchUtils.mergeAll(entityManager(), Arrays.asList(new Object(), copy), 2);
+
+        // the copy is merged into the caller's instance, which stays managed.
+        assertSame(callers, merged.get(1));
+        assertEquals(Arrays.asList("setJdbcBatchSize 2", "flush", "detach", "flush", "setJdbcBatchSize 20"), calls);
+        assertTrue(managed.containsKey(callers));
+        assertEquals(1, managed.size());
+    }
+
+    @SuppressWarnings("unchecked")
+    private PersistenceContext persistenceContext() {
+        return (PersistenceContext) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{PersistenceContext.class}, (proxy, method, args) -> {
+            if ("reentrantSafeEntityEntries".equals(method.getName())) {
+                return managed.keySet().stream().map(entity -> new AbstractMap.SimpleEntry<>(entity, null)).toArray(Map.Entry[]::new);
+            }
+            throw new UnsupportedOperationException(method.getName());
+        });
+    }
+
+    private EntityManager entityManager() {
+        return (EntityManager) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{SessionImplementor.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "unwrap":
+                    return proxy;
+                case "contains":
+                    return managed.containsKey(args[0]);
+                case "persist":
+                    managed.put(args[0], true);
+                    return null;
+                case "merge":
+                    Object target = targets.containsKey(args[0]) ? targets.get(args[0]) : new Object();
+                    managed.put(target, true);
+                    return target;
+                case "getPersistenceContext":
+                    return persistenceContext();
+                case "detach":
+                    managed.remove(args[0]);
+                    calls.add("detach");
+                    return null;
+                case "flush":
+                    calls.add("flush");
+                    return null;
+                case "getJdbcBatchSize":
+                    return jdbcBatchSize;
+                case "setJdbcBatchSize":
+                    jdbcBatchSize = (Integer) args[0];
+                    calls.add("setJdbcBatchSize " + args[0]);
+                    return null;
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+}
@@ -0,0 +1,512 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) [2020] [He Zhang]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished
+ *  to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.saturn.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Generates, at build time, what saturn-odata otherwise finds through reflection:
+ *
+ * - a {@code SaturnEdmRegistry} listing every class annotated with an edm annotation, registered as a
+ *   service so {@code SaturnEdmContext} can skip the classpath scan. The types are also indexed in
+ *   {@code META-INF/saturn/edm-types}, an incremental build merges the types it compiles with that index;
+ * - an {@code EntityAccessor} per entity and complex type, reading and writing the annotated fields
+ *   through their getters and setters.
+ *
+ * Annotations are matched by name, the processor has no dependency on saturn-odata.
+ */
+@SupportedAnnotationTypes({
+        SaturnEdmProcessor.ANNOTATIONS_PKG + ".ODataAction",
+        SaturnEdmProcessor.ANNOTATIONS_PKG + ".ODataActionImport",
+        SaturnEdmProcessor.ANNOTATIONS_PKG + ".ODataComplexType",
+        SaturnEdmProcessor.ANNOTATIONS_PKG + ".ODataEntitySet",
+        SaturnEdmProcessor.ANNOTATIONS_PKG + ".ODataEntityType",
+        SaturnEdmProcessor.ANNOTATIONS_PKG + ".ODataEnumType",
+        SaturnEdmProcessor.ANNOTATIONS_PKG + ".ODataFunction",
+        SaturnEdmProcessor.ANNOTATIONS_PKG + ".ODataFunctionImport"})
+public class SaturnEdmProcessor extends AbstractProcessor {
+
+    static final String ANNOTATIONS_PKG = "com.github.saturn.odata.annotations";
+    static final String INTERFACES_PKG  = "com.github.saturn.odata.interfaces";
+
+    private static final String ENTITY_TYPE         = ANNOTATIONS_PKG + ".ODataEntityType";
+    private static final String COMPLEX_TYPE        = ANNOTATIONS_PKG + ".ODataComplexType";
+    private static final String PROPERTY            = ANNOTATIONS_PKG + ".ODataProperty";
+    private static final String NAVIGATION_PROPERTY = ANNOTATIONS_PKG + ".ODataNavigationProperty";
+    private static final String REGISTRY            = INTERFACES_PKG + ".SaturnEdmRegistry";
+    private static final String ACCESSOR            = INTERFACES_PKG + ".EntityAccessor";
+
+    private static final String REGISTRY_NAME   = "GeneratedSaturnEdmRegistry";
+    private static final String INDEX           = "META-INF/saturn/edm-types";
+    private static final String ACCESSOR_SUFFIX = "SaturnAccessor";
+    private static final String GENERATED_BY    = " * Generated by " + SaturnEdmProcessor.class.getName() + ", do not edit.";
+
+    private boolean generated = false;
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv) {
+        if (generated || roundEnv.processingOver()) {
+            return false;
+        }
+
+        Map<String, TypeElement> types = new TreeMap<>();
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element instanceof TypeElement) {
+                    TypeElement type = (TypeElement) element;
+                    types.put(type.getQualifiedName().toString(), type);
+                }
+            }
+        }
+        if (types.isEmpty()) {
+            return false;
+        }
+        generated = true;
+
+        try {
+            Map<TypeElement, String> accessors = new LinkedHashMap<>();
+            for (TypeElement type : types.values()) {
+                if (hasAnnotation(type, ENTITY_TYPE) || hasAnnotation(type, COMPLEX_TYPE)) {
+                    String accessor = writeAccessor(type);
+                    if (accessor != null) {
+                        accessors.put(type, accessor);
+                    }
+                }
+            }
+            mergePreviousTypes(types, accessors);
+            writeRegistry(types.values(), accessors);
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Cannot generate the saturn edm registry: " + e.getMessage());
+        }
+        return false;
+    }
+
+    /**
+     * An incremental build only compiles the changed sources, so the types indexed by the previous build are
+     * kept while their classes are still annotated, with the accessors generated for them then.
+     */
+    private void mergePreviousTypes(final Map<String, TypeElement> types, final Map<TypeElement, String> accessors) {
+        for (String name : readIndex()) {
+            TypeElement type = processingEnv.getElementUtils().getTypeElement(name);
+
+            if (types.containsKey(name) || type == null || !isEdmType(type)) {
+                continue;
+            }
+            types.put(name, type);
+
+            String accessor = accessorName(type);
+            if (processingEnv.getElementUtils().getTypeElement(accessor) != null) {
+                accessors.put(type, accessor);
+            }
+        }
+    }
+
+    private List<String> readIndex() {
+        List<String> names = new ArrayList<>();
+
+        try {
+            FileObject index = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", INDEX);
+            try (BufferedReader reader = new BufferedReader(index.openReader(true))) {
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                    if (!line.trim().isEmpty()) {
+                        names.add(line.trim());
+                    }
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            // first build, or a clean one.
+            return names;
+        }
+        return names;
+    }
+
+    private boolean isEdmType(final TypeElement type) {
+        for (String annotation : getSupportedAnnotationTypes()) {
+            if (hasAnnotation(type, annotation)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String writeAccessor(final TypeElement type) throws IOException {
+        if (!instantiable(type)) {
+            warn(type, "no accessor generated for " + type + ", it should be a non-private top level or static nested class.");
+            return null;
+        }
+
+        String pkg = packageOf(type);
+        String typeName = type.getQualifiedName().toString();
+        String qualifiedName = accessorName(type);
+        String accessorName = pkg.isEmpty() ? qualifiedName : qualifiedName.substring(pkg.length() + 1);
+
+        JavaFileObject file = processingEnv.getFiler().createSourceFile(qualifiedName, type);
+        try (PrintWriter out = new PrintWriter(file.openWriter())) {
+            if (!pkg.isEmpty()) {
+                out.println("package " + pkg + ";");
+                out.println();
+            }
+            out.println("import java.util.HashMap;");
+            out.println("import java.util.Map;");
+            out.println("import java.util.function.BiConsumer;");
+            out.println("import java.util.function.Function;");
+            out.println();
+            out.println("/**");
+            out.println(GENERATED_BY);
+            out.println(" */");
+            out.println("@SuppressWarnings({\"unchecked\", \"rawtypes\"})");
+            out.println("public final class " + accessorName + " implements " + ACCESSOR + " {");
+            out.println();
+            out.println("    private static final Map<String, Function<Object, Object>> GETTERS = new HashMap<>();");
+            out.println("    private static final Map<String, BiConsumer<Object, Object>> SETTERS = new HashMap<>();");
+            out.println();
+            out.println("    static {");
+            for (VariableElement field : annotatedFields(type)) {
+                String name = field.getSimpleName().toString();
+                String getter = getterExpression(type, field, pkg, "((" + typeName + ") o)");
+                if (getter != null) {
+                    out.println("        GETTERS.put(\"" + name + "\", o -> " + getter + ");");
+                }
+                // a null can't be unboxed into a primitive field, it is rejected like Field.set does.
+                String value = field.asType().getKind().isPrimitive() ? "notNull(v, \"" + typeName + "." + name + "\")" : "v";
+                String setter = setterStatement(type, field, pkg, "((" + typeName + ") o)", castExpression(field.asType(), value));
+                if (setter != null) {
+                    out.println("        SETTERS.put(\"" + name + "\", (o, v) -> " + setter + ");");
+                }
+            }
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public Class<?> getType() {");
+            out.println("        return " + typeName + ".class;");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public Object newInstance() {");
+            out.println("        return " + (hasNoArgsConstructor(type, pkg) ? "new " + typeName + "()" : "null") + ";");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public Function<Object, Object> getter(final String fieldName) {");
+            out.println("        return GETTERS.get(fieldName);");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public BiConsumer<Object, Object> setter(final String fieldName) {");
+            out.println("        return SETTERS.get(fieldName);");
+            out.println("    }");
+            out.println();
+            out.println("    private static Object notNull(final Object value, final String field) {");
+            out.println("        if (value == null) {");
+            out.println("            throw new IllegalArgumentException(\"Can not set primitive field \" + field + \" to null value\");");
+            out.println("        }");
+            out.println("        return value;");
+            out.println("    }");
+            out.println("}");
+        }
+        return qualifiedName;
+    }
+
+    private String accessorName(final TypeElement type) {
+        String pkg = packageOf(type);
+        String typeName = type.getQualifiedName().toString();
+        String simpleName = pkg.isEmpty() ? typeName : typeName.substring(pkg.length() + 1);
+        String accessorName = simpleName.replace('.', '_') + ACCESSOR_SUFFIX;
+        return pkg.isEmpty() ? accessorName : pkg + "." + accessorName;
+    }
+
+    /**
+     * The types are listed by binary name and loaded when the registry is read, so a type which isn't visible
+     * from the package of the registry, e.g. a package private nested class, is registered as well.
+     */
+    private void writeRegistry(final Collection<TypeElement> types, final Map<TypeElement, String> accessors) throws IOException {
+        String pkg = commonPackage(types);
+        String qualifiedName = pkg.isEmpty() ? REGISTRY_NAME : pkg + "." + REGISTRY_NAME;
+
+        List<String> names = new ArrayList<>();
+        for (TypeElement type : types) {
+            names.add(processingEnv.getElementUtils().getBinaryName(type).toString());
+        }
+
+        JavaFileObject file = processingEnv.getFiler().createSourceFile(qualifiedName, types.toArray(new Element[0]));
+        try (PrintWriter out = new PrintWriter(file.openWriter())) {
+            if (!pkg.isEmpty()) {
+                out.println("package " + pkg + ";");
+                out.println();
+            }
+            out.println("import " + ACCESSOR + ";");
+            out.println();
+            out.println("import java.util.ArrayList;");
+            out.println("import java.util.Arrays;");
+            out.println("import java.util.Collections;");
+            out.println("import java.util.LinkedHashMap;");
+            out.println("import java.util.List;");
+            out.println("import java.util.Map;");
+            out.println();
+            out.println("/**");
+            out.println(GENERATED_BY);
+            out.println(" */");
+            out.println("public final class " + REGISTRY_NAME + " implements " + REGISTRY + " {");
+            out.println();
+            out.println("    private static final List<String> TYPES = Collections.unmodifiableList(Arrays.<String>asList(");
+            for (int i = 0; i < names.size(); i++) {
+                out.println("            \"" + names.get(i) + "\"" + (i == names.size() - 1 ? "" : ","));
+            }
+            out.println("            ));");
+            out.println();
+            out.println("    private static final Map<Class<?>, EntityAccessor> ACCESSORS = new LinkedHashMap<>();");
+            out.println();
+            out.println("    static {");
+            for (String accessor : accessors.values()) {
+                out.println("        register(new " + accessor + "());");
+            }
+            out.println("    }");
+            out.println();
+            out.println("    private static void register(final EntityAccessor accessor) {");
+            out.println("        ACCESSORS.put(accessor.getType(), accessor);");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public List<Class<?>> getTypes() {");
+            out.println("        List<Class<?>> types = new ArrayList<>();");
+            out.println("        for (String type : TYPES) {");
+            out.println("            try {");
+            out.println("                types.add(Class.forName(type, false, " + REGISTRY_NAME + ".class.getClassLoader()));");
+            out.println("            } catch (ClassNotFoundException e) {");
+            out.println("                throw new IllegalStateException(type + \" is registered but missing, the registry is stale.\", e);");
+            out.println("            }");
+            out.println("        }");
+            out.println("        return types;");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public Map<Class<?>, EntityAccessor> getAccessors() {");
+            out.println("        return Collections.unmodifiableMap(ACCESSORS);");
+            out.println("    }");
+            out.println("}");
+        }
+
+        FileObject service = processingEnv.getFiler().createResource(
+                StandardLocation.CLASS_OUTPUT, "", "META-INF/services/" + REGISTRY, types.toArray(new Element[0]));
+        try (Writer writer = service.openWriter()) {
+            writer.write(qualifiedName);
+            writer.write(System.lineSeparator());
+        }
+
+        FileObject index = processingEnv.getFiler().createResource(
+                StandardLocation.CLASS_OUTPUT, "", INDEX, types.toArray(new Element[0]));
+        try (Writer writer = index.openWriter()) {
+            for (TypeElement type : types) {
+                writer.write(type.getQualifiedName().toString());
+                writer.write(System.lineSeparator());
+            }
+        }
+    }
+
+    /**
+     * @return the non static fields annotated as property or navigation property, the subclass' field first when
+     * a name is declared twice.
+     */
+    private List<VariableElement> annotatedFields(final TypeElement type) {
+        Map<String, VariableElement> fields = new LinkedHashMap<>();
+        TypeElement current = type;
+
+        while (current != null && !Object.class.getName().equals(current.getQualifiedName().toString())) {
+            for (VariableElement field : ElementFilter.fieldsIn(current.getEnclosedElements())) {
+                boolean annotated = hasAnnotation(field, PROPERTY) || hasAnnotation(field, NAVIGATION_PROPERTY);
+                if (annotated && !field.getModifiers().contains(Modifier.STATIC)) {
+                    fields.putIfAbsent(field.getSimpleName().toString(), field);
+                }
+            }
+            TypeMirror superclass = current.getSuperclass();
+            current = superclass.getKind() == TypeKind.DECLARED ? (TypeElement) ((DeclaredType) superclass).asElement() : null;
+        }
+        return new ArrayList<>(fields.values());
+    }
+
+    private String getterExpression(final TypeElement type, final VariableElement field, final String pkg, final String target) {
+        String name = capitalize(field.getSimpleName().toString());
+        TypeMirror fieldType = erasure(field.asType());
+
+        for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type))) {
+            String methodName = method.getSimpleName().toString();
+            boolean named = methodName.equals("get" + name)
+                    || (methodName.equals("is" + name) && fieldType.getKind() == TypeKind.BOOLEAN);
+            if (named && method.getParameters().isEmpty() && !method.getModifiers().contains(Modifier.STATIC)
+                    && accessible(method, pkg) && sameType(method.getReturnType(), fieldType)) {
+                return target + "." + methodName + "()";
+            }
+        }
+        return accessible(field, pkg) ? target + "." + field.getSimpleName() : null;
+    }
+
+    private String setterStatement(final TypeElement type, final VariableElement field, final String pkg, final String target, final String value) {
+        String name = capitalize(field.getSimpleName().toString());
+        TypeMirror fieldType = erasure(field.asType());
+
+        for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type))) {
+            if (method.getSimpleName().contentEquals("set" + name) && method.getParameters().size() == 1
+                    && !method.getModifiers().contains(Modifier.STATIC) && accessible(method, pkg)
+                    && sameType(method.getParameters().get(0).asType(), fieldType)) {
+                return target + ".set" + name + "(" + value + ")";
+            }
+        }
+        boolean writable = accessible(field, pkg) && !field.getModifiers().contains(Modifier.FINAL);
+        return writable ? target + "." + field.getSimpleName() + " = " + value : null;
+    }
+
+    private String castExpression(final TypeMirror type, final String value) {
+        switch (type.getKind()) {
+            case BOOLEAN:
+                return "(Boolean) " + value;
+            case CHAR:
+                return "(Character) " + value;
+            case BYTE:
+                return "((Number) " + value + ").byteValue()";
+            case SHORT:
+                return "((Number) " + value + ").shortValue()";
+            case INT:
+                return "((Number) " + value + ").intValue()";
+            case LONG:
+                return "((Number) " + value + ").longValue()";
+            case FLOAT:
+                return "((Number) " + value + ").floatValue()";
+            case DOUBLE:
+                return "((Number) " + value + ").doubleValue()";
+            default:
+                return "(" + erasure(type) + ") " + value;
+        }
+    }
+
+    private boolean hasNoArgsConstructor(final TypeElement type, final String pkg) {
+        if (type.getModifiers().contains(Modifier.ABSTRACT)) {
+            return false;
+        }
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty() && accessible(constructor, pkg)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean instantiable(final TypeElement type) {
+        if (type.getKind() != ElementKind.CLASS || type.getModifiers().contains(Modifier.PRIVATE)) {
+            return false;
+        }
+        if (type.getNestingKind() == NestingKind.MEMBER) {
+            return type.getModifiers().contains(Modifier.STATIC) && instantiable((TypeElement) type.getEnclosingElement());
+        }
+        return type.getNestingKind() == NestingKind.TOP_LEVEL;
+    }
+
+    private boolean accessible(final Element member, final String pkg) {
+        Set<Modifier> modifiers = member.getModifiers();
+        if (modifiers.contains(Modifier.PUBLIC)) {
+            return true;
+        }
+        return !modifiers.contains(Modifier.PRIVATE) && packageOf(member).equals(pkg);
+    }
+
+    private boolean hasAnnotation(final Element element, final String annotation) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            Element annotationType = mirror.getAnnotationType().asElement();
+            if (((TypeElement) annotationType).getQualifiedName().contentEquals(annotation)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String commonPackage(final Collection<TypeElement> types) {
+        String common = null;
+        for (TypeElement type : types) {
+            String pkg = packageOf(type);
+            if (common == null) {
+                common = pkg;
+            }
+            while (!common.isEmpty() && !pkg.equals(common) && !pkg.startsWith(common + ".")) {
+                int dot = common.lastIndexOf('.');
+                common = dot < 0 ? "" : common.substring(0, dot);
+            }
+        }
+        return common == null ? "" : common;
+    }
+
+    private String packageOf(final Element element) {
+        return processingEnv.getElementUtils().getPackageOf(element).getQualifiedName().toString();
+    }
+
+    private TypeMirror erasure(final TypeMirror type) {
+        return processingEnv.getTypeUtils().erasure(type);
+    }
+
+    private boolean sameType(final TypeMirror left, final TypeMirror right) {
+        return processingEnv.getTypeUtils().isSameType(erasure(left), erasure(right));
+    }
+
+    private static String capitalize(final String name) {
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private void warn(final Element element, final String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, message, element);
+    }
+}
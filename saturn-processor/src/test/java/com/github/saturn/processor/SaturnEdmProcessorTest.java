@@ -0,0 +1,170 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) [2020] [He Zhang]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished
+ *  to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.saturn.processor;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SaturnEdmProcessorTest {
+
+    private static final String ODATA = "com/github/saturn/odata/";
+
+    @Test
+    void incrementalBuildKeepsRegistryTest(@TempDir final Path dir) throws Exception {
+        Path src = dir.resolve("src");
+        Path out = Files.createDirectories(dir.resolve("out"));
+
+        writeApi(src);
+        Path teacher = write(src, "app/model/Teacher.java", "package app.model;\n"
+                + "@com.github.saturn.odata.annotations.ODataEntityType\n"
+                + "public class Teacher {\n"
+                + "    @com.github.saturn.odata.annotations.ODataProperty\n"
+                + "    public String name;\n"
+                + "}\n");
+        write(src, "app/model/Course.java", "package app.model;\n"
+                + "@com.github.saturn.odata.annotations.ODataEntityType\n"
+                + "public class Course { }\n");
+        // not visible from the package of the registry, app.
+        write(src, "app/other/Holder.java", "package app.other;\n"
+                + "class Holder {\n"
+                + "    @com.github.saturn.odata.annotations.ODataEntityType\n"
+                + "    private static class Hidden { }\n"
+                + "}\n");
+
+        try (Stream<Path> files = Files.walk(src)) {
+            compile(out, files.filter(file -> file.toString().endsWith(".java")).collect(Collectors.toList()));
+        }
+        assertEquals(Arrays.asList("app.model.Course", "app.model.Teacher", "app.other.Holder$Hidden"), registeredTypes(out));
+
+        // only the changed source is compiled, against the classes of the previous build.
+        compile(out, Arrays.asList(teacher));
+        assertEquals(Arrays.asList("app.model.Course", "app.model.Teacher", "app.other.Holder$Hidden"), registeredTypes(out));
+    }
+
+    @Test
+    void primitiveSetterRejectsNullTest(@TempDir final Path dir) throws Exception {
+        Path src = dir.resolve("src");
+        Path out = Files.createDirectories(dir.resolve("out"));
+
+        writeApi(src);
+        write(src, "app/model/Teacher.java", "package app.model;\n"
+                + "@com.github.saturn.odata.annotations.ODataEntityType\n"
+                + "public class Teacher {\n"
+                + "    @com.github.saturn.odata.annotations.ODataProperty\n"
+                + "    public int age;\n"
+                + "}\n");
+
+        try (Stream<Path> files = Files.walk(src)) {
+            compile(out, files.filter(file -> file.toString().endsWith(".java")).collect(Collectors.toList()));
+        }
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[] {out.toUri().toURL()})) {
+            Object accessor = classLoader.loadClass("app.model.TeacherSaturnAccessor").getConstructor().newInstance();
+            Object object = classLoader.loadClass("app.model.Teacher").getConstructor().newInstance();
+            @SuppressWarnings("unchecked")
+            BiConsumer<Object, Object> setter = (BiConsumer<Object, Object>) accessor.getClass().getMethod("setter", String.class).invoke(accessor, "age");
+
+            setter.accept(object, 41);
+            assertEquals(41, object.getClass().getField("age").get(object));
+            // like Field.set, which the processors turn into a 400.
+            assertThrows(IllegalArgumentException.class, () -> setter.accept(object, null));
+        }
+    }
+
+    /**
+     * Stubs of the saturn-odata annotations and interfaces the generated sources refer to.
+     */
+    private static void writeApi(final Path src) throws IOException {
+        write(src, ODATA + "annotations/ODataEntityType.java", "package com.github.saturn.odata.annotations;\n"
+                + "@java.lang.annotation.Retention(java.lang.annotation.RetentionPolicy.RUNTIME)\n"
+                + "public @interface ODataEntityType { }\n");
+        write(src, ODATA + "annotations/ODataProperty.java", "package com.github.saturn.odata.annotations;\n"
+                + "@java.lang.annotation.Retention(java.lang.annotation.RetentionPolicy.RUNTIME)\n"
+                + "public @interface ODataProperty { }\n");
+        write(src, ODATA + "annotations/ODataNavigationProperty.java", "package com.github.saturn.odata.annotations;\n"
+                + "public @interface ODataNavigationProperty { }\n");
+        write(src, ODATA + "interfaces/EntityAccessor.java", "package com.github.saturn.odata.interfaces;\n"
+                + "public interface EntityAccessor {\n"
+                + "    Class<?> getType();\n"
+                + "    Object newInstance();\n"
+                + "    java.util.function.Function<Object, Object> getter(String fieldName);\n"
+                + "    java.util.function.BiConsumer<Object, Object> setter(String fieldName);\n"
+                + "}\n");
+        write(src, ODATA + "interfaces/SaturnEdmRegistry.java", "package com.github.saturn.odata.interfaces;\n"
+                + "public interface SaturnEdmRegistry {\n"
+                + "    java.util.List<Class<?>> getTypes();\n"
+                + "    java.util.Map<Class<?>, EntityAccessor> getAccessors();\n"
+                + "}\n");
+    }
+
+    private static Path write(final Path src, final String path, final String content) throws IOException {
+        Path file = src.resolve(path);
+        Files.createDirectories(file.getParent());
+        return Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void compile(final Path out, final List<Path> sources) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        List<String> arguments = new ArrayList<>(Arrays.asList(
+                "-source", "1.8",
+                "-target", "1.8",
+                "-processor", SaturnEdmProcessor.class.getName(),
+                "-processorpath", System.getProperty("java.class.path"),
+                "-classpath", out.toString(),
+                "-d", out.toString(),
+                "-s", out.toString()));
+        sources.forEach(source -> arguments.add(source.toString()));
+
+        assertEquals(0, compiler.run(null, null, null, arguments.toArray(new String[0])));
+    }
+
+    private static List<String> registeredTypes(final Path out) throws Exception {
+        Path service = out.resolve("META-INF/services/com.github.saturn.odata.interfaces.SaturnEdmRegistry");
+        String registryName = new String(Files.readAllBytes(service), StandardCharsets.UTF_8).trim();
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[] {out.toUri().toURL()})) {
+            Object registry = classLoader.loadClass(registryName).getConstructor().newInstance();
+            List<?> types = (List<?>) registry.getClass().getMethod("getTypes").invoke(registry);
+            return types.stream().map(type -> ((Class<?>) type).getName()).sorted().collect(Collectors.toList());
+        }
+    }
+}